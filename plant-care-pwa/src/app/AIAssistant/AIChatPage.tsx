@@ -2,7 +2,7 @@ import { useEffect, useMemo, useState } from 'react';
 import { useQuery } from '@tanstack/react-query';
 import { AlertTriangle, Eraser, RefreshCcw } from 'lucide-react';
 
-import { askAssistant, clearAssistantHistory, diagnosePlantOpenRouter, getAssistantHistory } from '@/lib/api';
+import { askAssistantStream, clearAssistantHistory, diagnosePlantOpenRouter, getAssistantHistory } from '@/lib/api';
 import { cacheGet, cacheSet } from '@/lib/indexeddb';
 import { error as hapticError, impactLight, selection } from '@/lib/haptics';
 import { QuickQuestionsCarousel } from '@/components/QuickQuestionsCarousel';
@@ -244,7 +244,34 @@ export function AIChatPage() {
     });
   };
 
-  const requestAssistantResponse = async (request: AssistantRequestPayload) => {
+  // Ответ ассистента растет на месте по мере прихода фрагментов; в IndexedDB сохраняется только итоговый текст.
+  const upsertAssistantMessage = (id: string, text: string, model: string | null | undefined, persist: boolean) => {
+    setMessages((previous) => {
+      const exists = previous.some((item) => item.id === id);
+      const next = exists
+        ? previous.map((item) => (item.id === id ? { ...item, text, model: model === undefined ? item.model : model } : item))
+        : trimMessages([
+          ...previous,
+          {
+            id,
+            author: 'assistant' as const,
+            text,
+            model: model ?? null,
+            createdAt: new Date().toISOString()
+          }
+        ]);
+      if (persist) {
+        void persistLocalMessages(next);
+      }
+      return next;
+    });
+  };
+
+  const removeMessage = (id: string) => {
+    setMessages((previous) => previous.filter((item) => item.id !== id));
+  };
+
+  const requestAssistantResponse = async (request: AssistantRequestPayload, onDelta: (text: string) => void) => {
     if (request.imageDataUrl) {
       const diagnosis = await diagnosePlantOpenRouter(
         request.imageDataUrl,
@@ -258,7 +285,7 @@ export function AIChatPage() {
       };
     }
 
-    const res = await askAssistant(request.text);
+    const res = await askAssistantStream(request.text, onDelta);
     return {
       text: res.answer,
       model: res.model ?? null
@@ -280,18 +307,19 @@ export function AIChatPage() {
     setIsTyping(true);
     setChatError(null);
 
+    const assistantMessageId = createLocalId('assistant');
+    let streamedText = '';
     try {
-      const answer = await requestAssistantResponse(request);
-
-      pushMessage({
-        id: createLocalId('assistant'),
-        author: 'assistant',
-        text: answer.text,
-        model: answer.model,
-        createdAt: new Date().toISOString()
+      const answer = await requestAssistantResponse(request, (delta) => {
+        streamedText += delta;
+        setIsTyping(false);
+        upsertAssistantMessage(assistantMessageId, streamedText, undefined, false);
       });
+
+      upsertAssistantMessage(assistantMessageId, answer.text, answer.model, true);
       void historyQuery.refetch();
     } catch {
+      removeMessage(assistantMessageId);
       const message = navigator.onLine
         ? 'Не удалось получить ответ. Проверьте модель или лимиты OpenRouter и попробуйте снова.'
         : 'Нет сети. Вопрос сохранён локально. Повторите отправку после подключения.';
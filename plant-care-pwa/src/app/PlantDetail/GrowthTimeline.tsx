@@ -95,7 +95,7 @@ function TimelineEntry({
         <div className="theme-surface-subtle overflow-hidden rounded-2xl border">
           <div className="relative">
             <img
-              src={entry.imageUrl}
+              src={entry.imagePreviewUrl ?? entry.imageUrl}
               alt={`Фото от ${formatDate(entry.createdAt)}`}
               className="w-full object-cover"
               style={{ maxHeight: '280px' }}
@@ -165,6 +165,13 @@ function TimelineEntry({
                 {entry.aiSummary}
               </div>
             )}
+
+            {!entry.aiSummary && entry.aiSummaryStatus === 'PENDING' && (
+              <div className="flex items-center gap-1.5 text-xs text-ios-subtext">
+                <Loader2 className="h-3 w-3 animate-spin" />
+                AI готовит описание…
+              </div>
+            )}
           </div>
         </div>
       </div>
@@ -328,7 +335,10 @@ export function GrowthTimeline({ plantId, currentPhotoUrl }: GrowthTimelineProps
   const entriesQuery = useQuery({
     queryKey: ['growth-entries', plantId],
     queryFn: () => getGrowthEntries(plantId, { limit: 50 }),
-    staleTime: 30_000
+    staleTime: 30_000,
+    // AI-сводка готовится в фоне: пока есть записи в очереди, опрашиваем список.
+    refetchInterval: (query) =>
+      query.state.data?.some((entry) => entry.aiSummaryStatus === 'PENDING') ? 5_000 : false
   });
 
   const deleteMutation = useMutation({
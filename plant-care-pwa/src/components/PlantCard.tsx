@@ -86,7 +86,7 @@ export function PlantCard({
     >
       <div className="h-16 w-16 shrink-0 overflow-hidden rounded-lg bg-[hsl(var(--secondary)/0.92)]">
         {plant.photoUrl ? (
-          <img src={plant.photoUrl} alt={plant.name} className="h-full w-full object-cover transition-transform duration-500 group-hover:scale-[1.04]" loading="lazy" />
+          <img src={plant.photoThumbnailUrl ?? plant.photoUrl} alt={plant.name} className="h-full w-full object-cover transition-transform duration-500 group-hover:scale-[1.04]" loading="lazy" />
         ) : (
           <PlantAvatar
             name={plant.name}
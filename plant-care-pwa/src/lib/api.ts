@@ -1676,6 +1676,89 @@ export async function askAssistant(question: string): Promise<ChatAskResponse> {
   });
 }
 
+// Потоковый ответ ассистента (SSE поверх POST): onDelta получает фрагменты по мере генерации.
+// В гостевом режиме и без поддержки ReadableStream откатываемся на обычный запрос.
+export async function askAssistantStream(question: string, onDelta: (text: string) => void): Promise<ChatAskResponse> {
+  if (isGuestMode() || typeof ReadableStream === 'undefined') {
+    const fallback = await askAssistant(question);
+    onDelta(fallback.answer);
+    return fallback;
+  }
+
+  const headers = new Headers();
+  headers.set('Content-Type', 'application/json');
+  headers.set('Accept', 'text/event-stream');
+  const initData = getTelegramInitData();
+  if (initData) {
+    headers.set('X-Telegram-Init-Data', initData);
+  }
+  const accessToken = localStorage.getItem(AUTH_TOKEN_KEY);
+  if (accessToken) {
+    headers.set('Authorization', `Bearer ${accessToken}`);
+  }
+
+  const response = await fetch(`${API_BASE_URL}/api/assistant/chat/stream`, {
+    method: 'POST',
+    headers,
+    body: JSON.stringify({ question })
+  });
+  if (!response.ok || !response.body) {
+    throw new ApiError(response.status, await parseErrorMessage(response));
+  }
+
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+  let result: ChatAskResponse | null = null;
+
+  const handleEvent = (rawEvent: string) => {
+    let eventName = 'message';
+    const dataLines: string[] = [];
+    for (const line of rawEvent.split('\n')) {
+      if (line.startsWith('event:')) {
+        eventName = line.slice(6).trim();
+      } else if (line.startsWith('data:')) {
+        dataLines.push(line.slice(5).replace(/^ /, ''));
+      }
+    }
+    if (!dataLines.length) {
+      return;
+    }
+    const payload = JSON.parse(dataLines.join('\n')) as { text?: string } & Partial<ChatAskResponse>;
+    if (eventName === 'delta' && payload.text) {
+      onDelta(payload.text);
+    } else if (eventName === 'done' || eventName === 'error') {
+      result = {
+        ok: Boolean(payload.ok),
+        answer: payload.answer ?? '',
+        model: payload.model ?? null
+      };
+    }
+  };
+
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) {
+      break;
+    }
+    buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n');
+    let boundary = buffer.indexOf('\n\n');
+    while (boundary >= 0) {
+      handleEvent(buffer.slice(0, boundary));
+      buffer = buffer.slice(boundary + 2);
+      boundary = buffer.indexOf('\n\n');
+    }
+  }
+  if (buffer.trim()) {
+    handleEvent(buffer);
+  }
+
+  if (!result) {
+    throw new ApiError(0, 'Поток ответа ассистента прервался');
+  }
+  return result;
+}
+
 export async function getAssistantHistory(limit = 50): Promise<AssistantHistoryItemDto[]> {
   const params = new URLSearchParams({ limit: String(limit) });
   return apiFetch<AssistantHistoryItemDto[]>(`/api/assistant/history?${params.toString()}`, { method: 'GET' });
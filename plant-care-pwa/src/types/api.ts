@@ -58,6 +58,7 @@ export interface PlantDto {
   type?: string;
   avatar?: PlantAvatarDto | null;
   photoUrl?: string;
+  photoThumbnailUrl?: string | null;
   createdAt?: string;
 }
 
@@ -841,6 +842,8 @@ export interface GrowthEntryDto {
   source: 'MANUAL' | 'CAMERA' | 'AUTO';
   aiSummary?: string | null;
   metadataJson?: string | null;
+  aiSummaryStatus?: 'PENDING' | 'FAILED' | null;
+  imagePreviewUrl?: string | null;
 }
 
 export interface GrowthEntryRequest {
@@ -0,0 +1,57 @@
+package com.example.plantbot.config;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Пул планировщика, который замеряет, насколько позже запланированного времени задача реально стартовала.
+public class MeteredTaskScheduler extends ThreadPoolTaskScheduler {
+  private static final ThreadLocal<Long> CURRENT_START_DELAY_NANOS = new ThreadLocal<>();
+
+  private final String poolName;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  public MeteredTaskScheduler(String poolName, int poolSize, PerformanceMetricsService performanceMetricsService) {
+    this.poolName = poolName;
+    this.performanceMetricsService = performanceMetricsService;
+    setPoolSize(Math.max(1, poolSize));
+    setThreadNamePrefix("sched-" + poolName + "-");
+    setRemoveOnCancelPolicy(true);
+    setWaitForTasksToCompleteOnShutdown(false);
+  }
+
+  // -1, если текущий поток не является потоком планировщика (например, ручной запуск из админки).
+  public static long currentStartDelayNanos() {
+    Long value = CURRENT_START_DELAY_NANOS.get();
+    return value == null ? -1L : value;
+  }
+
+  @Override
+  protected ScheduledExecutorService createExecutor(int poolSize,
+                                                    ThreadFactory threadFactory,
+                                                    RejectedExecutionHandler rejectedExecutionHandler) {
+    return new ScheduledThreadPoolExecutor(poolSize, threadFactory, rejectedExecutionHandler) {
+      @Override
+      protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        if (runnable instanceof RunnableScheduledFuture<?> future) {
+          long delayNanos = Math.max(0L, -future.getDelay(TimeUnit.NANOSECONDS));
+          CURRENT_START_DELAY_NANOS.set(delayNanos);
+          performanceMetricsService.recordSchedulerPoolStartDelay(poolName, delayNanos);
+        }
+      }
+
+      @Override
+      protected void afterExecute(Runnable runnable, Throwable throwable) {
+        CURRENT_START_DELAY_NANOS.remove();
+        super.afterExecute(runnable, throwable);
+      }
+    };
+  }
+}
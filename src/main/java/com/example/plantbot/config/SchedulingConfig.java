@@ -0,0 +1,68 @@
+package com.example.plantbot.config;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class SchedulingConfig {
+  public static final String IO_SCHEDULER = "ioTaskScheduler";
+  public static final String MAINTENANCE_SCHEDULER = "maintenanceTaskScheduler";
+  public static final String NOTIFICATION_SCHEDULER = "notificationTaskScheduler";
+  public static final String APPLICATION_EXECUTOR = "applicationTaskExecutor";
+
+  // Пул по умолчанию для задач без явного scheduler и для прочих потребителей TaskScheduler.
+  @Bean(name = "taskScheduler")
+  @Primary
+  public MeteredTaskScheduler taskScheduler(PerformanceMetricsService performanceMetricsService) {
+    return new MeteredTaskScheduler("default", 1, performanceMetricsService);
+  }
+
+  // Внешний I/O: опрос Home Assistant, проверки доступности моделей OpenRouter.
+  @Bean(name = IO_SCHEDULER)
+  public MeteredTaskScheduler ioTaskScheduler(
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${app.scheduling.io-pool-size:2}") int poolSize
+  ) {
+    return new MeteredTaskScheduler("io", poolSize, performanceMetricsService);
+  }
+
+  // Обслуживание БД: бэкапы, словарь, очистка кешей и аналитики.
+  @Bean(name = MAINTENANCE_SCHEDULER)
+  public MeteredTaskScheduler maintenanceTaskScheduler(
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${app.scheduling.maintenance-pool-size:2}") int poolSize
+  ) {
+    return new MeteredTaskScheduler("maintenance", poolSize, performanceMetricsService);
+  }
+
+  // Пользовательские задачи: напоминания о поливе и пересчет рекомендаций.
+  @Bean(name = NOTIFICATION_SCHEDULER)
+  public MeteredTaskScheduler notificationTaskScheduler(
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${app.scheduling.notification-pool-size:2}") int poolSize
+  ) {
+    return new MeteredTaskScheduler("notifications", poolSize, performanceMetricsService);
+  }
+
+  // Асинхронные ответы MVC (StreamingResponseBody календаря). Планировщики выше — тоже Executor, поэтому
+  // Boot не создает свой applicationTaskExecutor, и без этого бина MVC взял бы неограниченный SimpleAsyncTaskExecutor.
+  @Bean(name = APPLICATION_EXECUTOR)
+  public ThreadPoolTaskExecutor applicationTaskExecutor(
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${app.scheduling.async-pool-size:4}") int poolSize,
+      @Value("${app.scheduling.async-queue-capacity:64}") int queueCapacity
+  ) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(Math.max(1, poolSize));
+    executor.setMaxPoolSize(Math.max(1, poolSize));
+    executor.setQueueCapacity(Math.max(1, queueCapacity));
+    executor.setThreadNamePrefix("app-async-");
+    performanceMetricsService.registerWorkerGauge("mvc_async", "queue.depth", () -> executor.getThreadPoolExecutor().getQueue().size());
+    performanceMetricsService.registerWorkerGauge("mvc_async", "active", executor::getActiveCount);
+    return executor;
+  }
+}
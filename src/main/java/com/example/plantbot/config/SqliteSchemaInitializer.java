@@ -415,6 +415,9 @@ public class SqliteSchemaInitializer {
     columns.put("watering_profile", "watering_profile VARCHAR(255) " + WATERING_PROFILE_CHECK);
     columns.put("watering_profile_type", "watering_profile_type VARCHAR(255) " + WATERING_PROFILE_TYPE_CHECK);
     columns.put("weather_adjustment_enabled", "weather_adjustment_enabled BOOLEAN");
+    columns.put("learning_intervals_csv", "learning_intervals_csv VARCHAR(255)");
+    columns.put("learning_last_watered_at", "learning_last_watered_at DATE");
+    columns.put("learning_stats_updated_at", "learning_stats_updated_at TIMESTAMP");
     return columns;
   }
 
@@ -26,6 +26,13 @@ public class WeatherProperties {
   private long cacheTtlMinutes = 15;
   private boolean staleFallbackEnabled = true;
   private long maxStaleAgeMinutes = 180;
+  private boolean refreshAheadEnabled = true;
+  private long refreshAheadSeconds = 120;
+  private int refreshAheadThreads = 2;
+  private int refreshAheadQueueCapacity = 64;
+  private int fetchThreads = 4;
+  private int cacheMaxEntries = 500;
+  private int rainMaxKeys = 500;
   private MetNo metno = new MetNo();
   private WeatherApi weatherapi = new WeatherApi();
   private Tomorrow tomorrow = new Tomorrow();
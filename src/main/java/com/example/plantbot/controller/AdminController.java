@@ -40,6 +40,7 @@ import com.example.plantbot.domain.User;
 import com.example.plantbot.domain.UserRole;
 import com.example.plantbot.repository.UserRepository;
 import com.example.plantbot.security.PwaPrincipal;
+import com.example.plantbot.security.UserPrincipalCache;
 import com.example.plantbot.service.AdminService;
 import com.example.plantbot.service.AiExecutionService;
 import com.example.plantbot.service.AiProviderSettingsService;
@@ -107,6 +108,7 @@ public class AdminController {
   private final OpenRouterModelAvailabilityPersistenceService openRouterModelAvailabilityPersistenceService;
   private final OpenRouterModelCatalogService openRouterModelCatalogService;
   private final AiTextCacheService aiTextCacheService;
+  private final UserPrincipalCache userPrincipalCache;
   @Value("${app.admin.telegram-id:0}")
   private Long adminTelegramId;
 
@@ -805,6 +807,7 @@ public class AdminController {
       }
       user.getRoles().add(UserRole.ROLE_ADMIN);
       user = userRepository.save(user);
+      userPrincipalCache.evictIfRolesChanged(user);
       log.warn("Admin role auto-granted by configured telegramId: userId={} telegramId={}",
           user.getId(), user.getTelegramId());
     }
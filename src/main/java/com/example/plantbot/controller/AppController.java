@@ -9,6 +9,7 @@ import com.example.plantbot.controller.dto.AiRuntimeSettingsResponse;
 import com.example.plantbot.controller.dto.ChatAskRequest;
 import com.example.plantbot.controller.dto.ChatAskResponse;
 import com.example.plantbot.controller.dto.CreatePlantRequest;
+import com.example.plantbot.controller.dto.PhotoJobResponse;
 import com.example.plantbot.controller.dto.PhotoUploadResponse;
 import com.example.plantbot.controller.dto.PlantAvatarResponse;
 import com.example.plantbot.controller.dto.PlantPresetSuggestionResponse;
@@ -47,6 +48,7 @@ import com.example.plantbot.service.AiProviderSettingsService;
 import com.example.plantbot.service.PlantMutationService;
 import com.example.plantbot.service.PlantAvatarService;
 import com.example.plantbot.service.PlantService;
+import com.example.plantbot.service.PlantStatsAggregationService;
 import com.example.plantbot.service.CurrentUserService;
 import com.example.plantbot.service.SeedLifecycleService;
 import com.example.plantbot.service.RecommendationSnapshotService;
@@ -56,6 +58,13 @@ import com.example.plantbot.service.AiTextCacheInvalidationService;
 import com.example.plantbot.service.WateringLogService;
 import com.example.plantbot.service.WateringRecommendationService;
 import com.example.plantbot.service.WeatherService;
+import com.example.plantbot.service.calendar.WateringCalendarService;
+import com.example.plantbot.service.chat.AssistantChatStreamService;
+import com.example.plantbot.service.photo.PhotoDeliveryService;
+import com.example.plantbot.service.photo.PhotoDerivativeService;
+import com.example.plantbot.service.photo.PhotoJob;
+import com.example.plantbot.service.photo.PhotoProcessingService;
+import com.example.plantbot.service.photo.PhotoSize;
 import com.example.plantbot.service.recommendation.facade.RecommendationFacade;
 import com.example.plantbot.service.recommendation.mapper.LegacyPlantAiRecommendContextMapper;
 import com.example.plantbot.service.recommendation.mapper.LegacyPlantAiRecommendResponseAdapter;
@@ -64,7 +73,6 @@ import com.example.plantbot.service.recommendation.persistence.RecommendationExp
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistenceFlow;
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePlanApplier;
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePolicy;
-import com.example.plantbot.util.LearningInfo;
 import com.example.plantbot.util.PlantCareAdvice;
 import com.example.plantbot.util.WateringRecommendation;
 import com.example.plantbot.util.WeatherData;
@@ -73,6 +81,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
@@ -88,31 +98,23 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
-import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
-import javax.imageio.ImageWriter;
-import javax.imageio.stream.ImageOutputStream;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -150,6 +152,12 @@ public class AppController {
   private final RecommendationPersistencePolicy recommendationPersistencePolicy;
   private final RecommendationPersistencePlanApplier recommendationPersistencePlanApplier;
   private final ObjectMapper objectMapper;
+  private final WateringCalendarService wateringCalendarService;
+  private final PlantStatsAggregationService plantStatsAggregationService;
+  private final PhotoDeliveryService photoDeliveryService;
+  private final PhotoProcessingService photoProcessingService;
+  private final PhotoDerivativeService photoDerivativeService;
+  private final AssistantChatStreamService assistantChatStreamService;
 
   @org.springframework.beans.factory.annotation.Value("${app.public-base-url:http://localhost:8080}")
   private String publicBaseUrl;
@@ -157,15 +165,6 @@ public class AppController {
   @org.springframework.beans.factory.annotation.Value("${app.admin.telegram-id:0}")
   private Long adminTelegramId;
 
-  @org.springframework.beans.factory.annotation.Value("${app.photo-upload.max-long-side-px:1600}")
-  private int photoMaxLongSidePx;
-
-  @org.springframework.beans.factory.annotation.Value("${app.photo-upload.jpeg-quality:0.82}")
-  private float photoJpegQuality;
-
-  @org.springframework.beans.factory.annotation.Value("${app.photo-upload.max-file-bytes:900000}")
-  private int photoMaxFileBytes;
-
   @PostMapping("/auth/validate")
   public AuthValidateResponse validateAuth(
       @RequestHeader(name = "X-Telegram-Init-Data", required = false) String initData,
@@ -424,41 +423,93 @@ public class AppController {
     return new PhotoUploadResponse(true, buildPlantPhotoUrl(plant));
   }
 
+  // Потоковая загрузка: файл сохраняется во временную папку, сжатие идет в фоне, ответ 202 с id задачи.
+  @PostMapping(value = "/plants/{id}/photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<PhotoJobResponse> uploadPhotoMultipart(
+      @RequestHeader(name = "X-Telegram-Init-Data", required = false) String initData,
+      Authentication authentication,
+      @PathVariable("id") Long plantId,
+      @RequestParam("file") MultipartFile file
+  ) {
+    User user = currentUserService.resolve(authentication, initData);
+    Plant plant = requireOwnedPlant(user, plantId);
+    String fileName = newPlantPhotoFileName(plant);
+    String photoRef = user.getTelegramId() + "/" + fileName;
+    Path target = Path.of("./data/photos/" + user.getTelegramId()).resolve(fileName);
+    PhotoJob job = photoProcessingService.submit(user.getId(), PhotoJob.Kind.PLANT_PHOTO, plant.getId(), file, target, () -> {
+      Plant current = plantService.getById(plantId);
+      if (current == null) {
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Растение не найдено");
+      }
+      current.setPhotoUrl(photoRef);
+      plantService.save(current);
+      photoDerivativeService.prewarm(target);
+      return current.getId();
+    });
+    return ResponseEntity.accepted().body(toPhotoJobResponse(job));
+  }
+
+  @GetMapping("/photo-jobs/{jobId}")
+  public PhotoJobResponse getPhotoJob(
+      @RequestHeader(name = "X-Telegram-Init-Data", required = false) String initData,
+      Authentication authentication,
+      @PathVariable("jobId") String jobId
+  ) {
+    User user = currentUserService.resolve(authentication, initData);
+    return photoProcessingService.findJob(user.getId(), jobId)
+        .map(this::toPhotoJobResponse)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Задача не найдена"));
+  }
+
   @GetMapping(value = "/plants/{id}/photo")
-  public ResponseEntity<byte[]> getPhoto(
+  public ResponseEntity<Resource> getPhoto(
       @PathVariable("id") Long plantId,
       @RequestParam(name = "exp", required = false) Long exp,
-      @RequestParam(name = "sig", required = false) String sig
+      @RequestParam(name = "sig", required = false) String sig,
+      @RequestParam(name = "size", required = false) String size,
+      WebRequest webRequest
   ) {
     Plant plant = plantService.getById(plantId);
     if (plant == null) {
       throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Растение не найдено");
     }
-    if (!photoUrlSignerService.isValid(plantId, plant.getPhotoUrl(), exp, sig)) {
+    PhotoSize photoSize = PhotoSize.fromParam(size);
+    if (!photoUrlSignerService.isValid(plantId, plant.getPhotoUrl(), exp, sig, photoSize)) {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Нет доступа к фото");
     }
-    Path photoFile = resolvePhotoPath(plant);
-    if (photoFile == null || !Files.exists(photoFile)) {
-      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Фото не найдено");
-    }
-    try {
-      byte[] bytes = Files.readAllBytes(photoFile);
-      MediaType mediaType = MediaType.IMAGE_JPEG;
-      return ResponseEntity.ok()
-          .contentType(mediaType)
-          .body(bytes);
-    } catch (IOException ex) {
-      throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось прочитать фото");
+    PhotoDeliveryService.PhotoFile photo = photoDerivativeService.open(resolvePhotoPath(plant), photoSize)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Фото не найдено"));
+    if (webRequest.checkNotModified(photo.etag(), photo.lastModified())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(photo.etag())
+          .cacheControl(photoDeliveryService.cacheControl())
+          .build();
     }
+    // Тело пишется из файла потоком; Range обрабатывает Spring для Resource (206 + ResourceRegion).
+    return ResponseEntity.ok()
+        .contentType(MediaType.IMAGE_JPEG)
+        .eTag(photo.etag())
+        .lastModified(photo.lastModified())
+        .cacheControl(photoDeliveryService.cacheControl())
+        .body(photo.resource());
   }
 
   @GetMapping("/calendar")
-  public List<CalendarEventResponse> getCalendar(
+  public ResponseEntity<List<CalendarEventResponse>> getCalendar(
       @RequestHeader(name = "X-Telegram-Init-Data", required = false) String initData,
-      Authentication authentication
+      Authentication authentication,
+      WebRequest webRequest
   ) {
     User user = currentUserService.resolve(authentication, initData);
-    return buildCalendarEvents(user, LocalDate.now(), LocalDate.now().plusDays(62));
+    WateringCalendarService.CalendarProjection projection =
+        wateringCalendarService.projection(user, WateringCalendarService.APP_HORIZON_DAYS);
+    if (webRequest.checkNotModified(projection.etag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(projection.etag()).build();
+    }
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.noCache().cachePrivate())
+        .eTag(projection.etag())
+        .body(projection.events());
   }
 
   @DeleteMapping("/plants/{id}")
@@ -508,18 +559,7 @@ public class AppController {
       Authentication authentication
   ) {
     User user = currentUserService.resolve(authentication, initData);
-    List<Plant> plants = plantService.list(user);
-    LocalDate today = LocalDate.now();
-    return plants.stream().map(plant -> {
-      WateringRecommendation rec = wateringRecommendationService.recommendQuick(plant, user);
-      int interval = Math.max(1, (int) Math.floor(rec.intervalDays()));
-      LocalDate due = plant.getLastWateredDate().plusDays(interval);
-      boolean overdue = due.isBefore(today);
-      long overdueDays = overdue ? ChronoUnit.DAYS.between(due, today) : 0;
-      Double avg = wateringRecommendationService.learningInfo(plant, user).avgActualIntervalDays();
-      long total = wateringLogService.countAll(plant);
-      return new PlantStatsResponse(plant.getId(), plant.getName(), avg, total, overdue, overdueDays);
-    }).toList();
+    return plantStatsAggregationService.stats(user);
   }
 
   @GetMapping("/learning")
@@ -528,21 +568,7 @@ public class AppController {
       Authentication authentication
   ) {
     User user = currentUserService.resolve(authentication, initData);
-    return plantService.list(user).stream().map(plant -> {
-      LearningInfo info = wateringRecommendationService.learningInfo(plant, user);
-      return new PlantLearningResponse(
-          plant.getId(),
-          plant.getName(),
-          info.baseIntervalDays(),
-          info.avgActualIntervalDays(),
-          info.smoothedIntervalDays(),
-          info.seasonFactor(),
-          info.weatherFactor(),
-          info.potFactor(),
-          info.finalIntervalDays(),
-          plant.getLookupSource()
-      );
-    }).toList();
+    return plantStatsAggregationService.learning(user);
   }
 
   @PostMapping("/assistant/chat")
@@ -563,6 +589,19 @@ public class AppController {
     return askAssistantInternal(initData, authentication, request);
   }
 
+  @PostMapping(value = "/assistant/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter askAssistantStream(
+      @RequestHeader(name = "X-Telegram-Init-Data", required = false) String initData,
+      Authentication authentication,
+      @RequestBody ChatAskRequest request
+  ) {
+    User user = currentUserService.resolve(authentication, initData);
+    if (request == null || request.question() == null || request.question().isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "question обязателен");
+    }
+    return assistantChatStreamService.stream(user, request.question().trim(), request.photoBase64());
+  }
+
   private ChatAskResponse askAssistantInternal(
       String initData,
       Authentication authentication,
@@ -740,44 +779,29 @@ public class AppController {
   }
 
   @GetMapping(value = "/calendar/ics/{token}", produces = "text/calendar; charset=UTF-8")
-  public ResponseEntity<String> getCalendarIcs(@PathVariable("token") String token) {
+  public ResponseEntity<StreamingResponseBody> getCalendarIcs(@PathVariable("token") String token, WebRequest webRequest) {
     User user = userRepository.findByCalendarToken(token)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Календарь не найден"));
     if (!Boolean.TRUE.equals(user.getCalendarSyncEnabled())) {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Синхронизация календаря отключена");
     }
-    LocalDate start = LocalDate.now();
-    LocalDate end = start.plusDays(365);
-    List<CalendarEventResponse> events = buildCalendarEvents(user, start, end);
-
-    StringBuilder ics = new StringBuilder();
-    ics.append("BEGIN:VCALENDAR\r\n")
-        .append("VERSION:2.0\r\n")
-        .append("PRODID:-//PlantBot//Watering Calendar//RU\r\n")
-        .append("CALSCALE:GREGORIAN\r\n")
-        .append("METHOD:PUBLISH\r\n")
-        .append("X-WR-CALNAME:Мои растения — Полив\r\n")
-        .append("X-WR-CALDESC:Подписка на календарь поливов Plant Bot. События обновляются автоматически при изменении расписания.\r\n")
-        .append("X-PUBLISHED-TTL:PT5M\r\n")
-        .append("REFRESH-INTERVAL;VALUE=DURATION:PT5M\r\n");
-    String stamp = utcNowStamp();
-    for (CalendarEventResponse event : events) {
-      String uid = "plantbot-" + user.getTelegramId() + "-" + event.plantId() + "-" + event.date();
-      String date = event.date().toString().replace("-", "");
-      ics.append("BEGIN:VEVENT\r\n")
-          .append("UID:").append(uid).append("\r\n")
-          .append("DTSTAMP:").append(stamp).append("\r\n")
-          .append("DTSTART;VALUE=DATE:").append(date).append("\r\n")
-          .append("DTEND;VALUE=DATE:").append(event.date().plusDays(1).toString().replace("-", "")).append("\r\n")
-          .append("SUMMARY:Полив: ").append(escapeIcs(event.plantName())).append("\r\n")
-          .append("DESCRIPTION:Напоминание о поливе растения ").append(escapeIcs(event.plantName())).append("\r\n")
-          .append("END:VEVENT\r\n");
+    WateringCalendarService.CalendarProjection projection =
+        wateringCalendarService.projection(user, WateringCalendarService.ICS_HORIZON_DAYS);
+    if (webRequest.checkNotModified(projection.etag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .header("Cache-Control", "public, max-age=300")
+          .eTag(projection.etag())
+          .build();
     }
-    ics.append("END:VCALENDAR\r\n");
 
     return ResponseEntity.ok()
         .header("Cache-Control", "public, max-age=300")
-        .body(ics.toString());
+        .eTag(projection.etag())
+        .body(outputStream -> {
+          Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+          wateringCalendarService.writeIcs(projection, user, writer);
+          writer.flush();
+        });
   }
 
   private Plant requireOwnedPlant(User user, Long plantId) {
@@ -879,103 +903,41 @@ public class AppController {
         plant.getType(),
         avatar,
         plant.getPhotoUrl() == null || plant.getPhotoUrl().isBlank() ? null : buildPlantPhotoUrl(plant),
+        plant.getPhotoUrl() == null || plant.getPhotoUrl().isBlank()
+            ? null
+            : photoUrlSignerService.buildSignedPhotoUrl(plant.getId(), plant.getPhotoUrl(), PhotoSize.THUMB),
         plant.getCreatedAt()
     );
   }
 
   private String savePhoto(User user, Plant plant, String photoBase64) {
+    byte[] processedBytes = photoProcessingService.compressBase64(photoBase64);
     try {
-      String raw = photoBase64.trim();
-      if (raw.contains(",")) {
-        raw = raw.substring(raw.indexOf(',') + 1);
-      }
-      byte[] bytes = Base64.getDecoder().decode(raw);
-      byte[] processedBytes = compressPhoto(bytes);
-
       Path dir = Path.of("./data/photos/" + user.getTelegramId());
       Files.createDirectories(dir);
-      String fileName = String.format(Locale.ROOT, "plant-%d-%d.jpg", plant.getId(), System.currentTimeMillis());
+      String fileName = newPlantPhotoFileName(plant);
       Path file = dir.resolve(fileName);
       Files.write(file, processedBytes);
+      photoDerivativeService.prewarm(file);
       return user.getTelegramId() + "/" + fileName;
-    } catch (IllegalArgumentException ex) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "photoBase64 невалидный");
     } catch (IOException ex) {
       throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось сохранить фото");
     }
   }
 
-  private byte[] compressPhoto(byte[] originalBytes) {
-    try {
-      BufferedImage src = ImageIO.read(new ByteArrayInputStream(originalBytes));
-      if (src == null) {
-        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не удалось прочитать изображение");
-      }
-
-      BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
-      Graphics2D g = rgb.createGraphics();
-      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-      g.drawImage(src, 0, 0, null);
-      g.dispose();
-
-      BufferedImage scaled = scaleDown(rgb, Math.max(320, photoMaxLongSidePx));
-      float quality = Math.min(0.95f, Math.max(0.55f, photoJpegQuality));
-      byte[] jpeg = writeJpeg(scaled, quality);
-
-      int maxBytes = Math.max(200_000, photoMaxFileBytes);
-      while (jpeg.length > maxBytes && quality > 0.56f) {
-        quality -= 0.08f;
-        jpeg = writeJpeg(scaled, quality);
-      }
-      return jpeg;
-    } catch (ResponseStatusException ex) {
-      throw ex;
-    } catch (Exception ex) {
-      throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось обработать фото");
-    }
-  }
-
-  private BufferedImage scaleDown(BufferedImage src, int maxLongSide) {
-    int width = src.getWidth();
-    int height = src.getHeight();
-    int longest = Math.max(width, height);
-    if (longest <= maxLongSide) {
-      return src;
-    }
-
-    double ratio = maxLongSide / (double) longest;
-    int targetW = Math.max(1, (int) Math.round(width * ratio));
-    int targetH = Math.max(1, (int) Math.round(height * ratio));
-
-    BufferedImage out = new BufferedImage(targetW, targetH, BufferedImage.TYPE_INT_RGB);
-    Graphics2D g = out.createGraphics();
-    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    g.drawImage(src, 0, 0, targetW, targetH, null);
-    g.dispose();
-    return out;
+  private String newPlantPhotoFileName(Plant plant) {
+    return String.format(Locale.ROOT, "plant-%d-%d.jpg", plant.getId(), System.currentTimeMillis());
   }
 
-  private byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
-    Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
-    if (!writers.hasNext()) {
-      throw new IOException("JPEG writer is unavailable");
-    }
-    ImageWriter writer = writers.next();
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
-      writer.setOutput(ios);
-      ImageWriteParam params = writer.getDefaultWriteParam();
-      if (params.canWriteCompressed()) {
-        params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-        params.setCompressionQuality(Math.min(0.98f, Math.max(0.5f, quality)));
-      }
-      writer.write(null, new IIOImage(image, null, null), params);
-    } finally {
-      writer.dispose();
-    }
-    return out.toByteArray();
+  private PhotoJobResponse toPhotoJobResponse(PhotoJob job) {
+    return new PhotoJobResponse(
+        job.id(),
+        job.kind().name(),
+        job.status().name(),
+        job.plantId(),
+        job.kind() == PhotoJob.Kind.GROWTH_ENTRY ? job.resultId() : null,
+        job.error()
+    );
   }
 
   private String buildPlantPhotoUrl(Plant plant) {
@@ -999,35 +961,6 @@ public class AppController {
     return null;
   }
 
-  private List<CalendarEventResponse> buildCalendarEvents(User user, LocalDate start, LocalDate end) {
-    List<CalendarEventResponse> events = new ArrayList<>();
-    List<Plant> plants = plantService.list(user);
-    for (Plant plant : plants) {
-      WateringRecommendation rec = wateringRecommendationService.recommendQuick(plant, user);
-      int step = Math.max(1, (int) Math.floor(rec.intervalDays()));
-      LocalDate due = plant.getLastWateredDate().plusDays(step);
-      LocalDate next;
-
-      if (due.isBefore(start)) {
-        if (!start.isAfter(end)) {
-          events.add(new CalendarEventResponse(start, plant.getId(), plant.getName()));
-        }
-        next = start.plusDays(step);
-      } else {
-        next = due;
-      }
-
-      while (!next.isAfter(end)) {
-        if (!next.isBefore(start)) {
-          events.add(new CalendarEventResponse(next, plant.getId(), plant.getName()));
-        }
-        next = next.plusDays(step);
-      }
-    }
-    events.sort(Comparator.comparing(CalendarEventResponse::date).thenComparing(CalendarEventResponse::plantName));
-    return events;
-  }
-
   private String firstNonBlank(String... values) {
     if (values == null) {
       return null;
@@ -1195,22 +1128,4 @@ public class AppController {
   private boolean isAdmin(User user) {
     return user != null && adminTelegramId != null && adminTelegramId > 0 && adminTelegramId.equals(user.getTelegramId());
   }
-
-  private String utcNowStamp() {
-    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
-    return String.format(Locale.ROOT, "%04d%02d%02dT%02d%02d%02dZ",
-        now.getYear(), now.getMonthValue(), now.getDayOfMonth(),
-        now.getHour(), now.getMinute(), now.getSecond());
-  }
-
-  private String escapeIcs(String value) {
-    if (value == null) {
-      return "";
-    }
-    return value
-        .replace("\\", "\\\\")
-        .replace(",", "\\,")
-        .replace(";", "\\;")
-        .replace("\n", "\\n");
-  }
 }
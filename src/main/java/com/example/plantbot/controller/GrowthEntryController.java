@@ -2,6 +2,7 @@ package com.example.plantbot.controller;
 
 import com.example.plantbot.controller.dto.GrowthEntryRequest;
 import com.example.plantbot.controller.dto.GrowthEntryResponse;
+import com.example.plantbot.controller.dto.PhotoJobResponse;
 import com.example.plantbot.controller.dto.PhotoUploadResponse;
 import com.example.plantbot.domain.Plant;
 import com.example.plantbot.domain.PlantGrowthEntry;
@@ -9,34 +10,34 @@ import com.example.plantbot.domain.User;
 import com.example.plantbot.repository.PlantGrowthEntryRepository;
 import com.example.plantbot.repository.PlantRepository;
 import com.example.plantbot.service.CurrentUserService;
-import com.example.plantbot.service.OpenRouterVisionService;
 import com.example.plantbot.service.PhotoUrlSignerService;
+import com.example.plantbot.service.growth.GrowthSummaryQueueService;
+import com.example.plantbot.service.photo.PhotoDeliveryService;
+import com.example.plantbot.service.photo.PhotoDerivativeService;
+import com.example.plantbot.service.photo.PhotoJob;
+import com.example.plantbot.service.photo.PhotoProcessingService;
+import com.example.plantbot.service.photo.PhotoSize;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
-import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
-import javax.imageio.ImageWriter;
-import javax.imageio.stream.ImageOutputStream;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.*;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/plants/{plantId}/growth")
@@ -48,16 +49,10 @@ public class GrowthEntryController {
     private final PlantRepository plantRepository;
     private final CurrentUserService currentUserService;
     private final PhotoUrlSignerService photoUrlSignerService;
-    private final OpenRouterVisionService openRouterVisionService;
-
-    @org.springframework.beans.factory.annotation.Value("${app.photo-upload.max-long-side-px:1600}")
-    private int photoMaxLongSidePx;
-
-    @org.springframework.beans.factory.annotation.Value("${app.photo-upload.jpeg-quality:0.82}")
-    private float photoJpegQuality;
-
-    @org.springframework.beans.factory.annotation.Value("${app.photo-upload.max-file-bytes:900000}")
-    private int photoMaxFileBytes;
+    private final PhotoDeliveryService photoDeliveryService;
+    private final PhotoProcessingService photoProcessingService;
+    private final PhotoDerivativeService photoDerivativeService;
+    private final GrowthSummaryQueueService growthSummaryQueueService;
 
     @GetMapping
     public List<GrowthEntryResponse> getGrowthEntries(
@@ -83,8 +78,10 @@ public class GrowthEntryController {
             entries = growthEntryRepository.findByPlantIdOrderByCreatedAtDesc(plantId, PageRequest.of(0, limit));
         }
 
+        Map<Long, String> summaryStatuses = growthSummaryQueueService.statuses(
+                entries.stream().map(PlantGrowthEntry::getId).toList());
         return entries.stream()
-                .map(this::toResponse)
+                .map(entry -> toResponse(entry, summaryStatuses.get(entry.getId())))
                 .toList();
     }
 
@@ -113,18 +110,52 @@ public class GrowthEntryController {
                 : PlantGrowthEntry.GrowthEntrySource.MANUAL);
 
         entry = growthEntryRepository.save(entry);
+        // Сводка генерируется фоновой очередью, клиент получит ее при следующем запросе списка или push-ом.
+        growthSummaryQueueService.enqueue(entry.getId(), user.getId());
 
-        try {
-            String aiSummary = openRouterVisionService.generateGrowthSummary(user, request.photoBase64(), plant.getName());
-            if (aiSummary != null && !aiSummary.isBlank()) {
-                entry.setAiSummary(aiSummary);
-                entry = growthEntryRepository.save(entry);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to generate AI summary for growth entry: {}", e.getMessage());
-        }
+        return toResponse(entry, "PENDING");
+    }
+
+    // Потоковая загрузка: запись создается после фонового сжатия, клиент опрашивает /api/photo-jobs/{jobId}.
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<PhotoJobResponse> addGrowthEntryMultipart(
+            @RequestHeader(name = "X-Telegram-Init-Data", required = false) String initData,
+            Authentication authentication,
+            @PathVariable Long plantId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "note", required = false) String note,
+            @RequestParam(name = "source", required = false) GrowthEntryRequest.GrowthEntrySource source
+    ) {
+        User user = currentUserService.resolve(authentication, initData);
+        Plant plant = requireOwnedPlant(user, plantId);
 
-        return toResponse(entry);
+        String fileName = newGrowthPhotoFileName(plant);
+        String imageUrl = user.getTelegramId() + "/growth/" + fileName;
+        Path target = Path.of("./data/photos/" + user.getTelegramId() + "/growth").resolve(fileName);
+        PhotoJob job = photoProcessingService.submit(user.getId(), PhotoJob.Kind.GROWTH_ENTRY, plantId, file, target, () -> {
+            Plant current = plantRepository.findById(plantId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Растение не найдено"));
+            PlantGrowthEntry entry = new PlantGrowthEntry();
+            entry.setPlant(current);
+            entry.setImageUrl(imageUrl);
+            entry.setNote(note);
+            entry.setSource(source != null
+                    ? PlantGrowthEntry.GrowthEntrySource.valueOf(source.name())
+                    : PlantGrowthEntry.GrowthEntrySource.MANUAL);
+            Long entryId = growthEntryRepository.save(entry).getId();
+            photoDerivativeService.prewarm(target);
+            growthSummaryQueueService.enqueue(entryId, user.getId());
+            return entryId;
+        });
+
+        return ResponseEntity.accepted().body(new PhotoJobResponse(
+                job.id(),
+                job.kind().name(),
+                job.status().name(),
+                job.plantId(),
+                null,
+                null
+        ));
     }
 
     @PutMapping(value = "/{entryId}", consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -146,7 +177,7 @@ public class GrowthEntryController {
         }
 
         entry = growthEntryRepository.save(entry);
-        return toResponse(entry);
+        return toResponse(entry, growthSummaryQueueService.statuses(List.of(entry.getId())).get(entry.getId()));
     }
 
     @DeleteMapping("/{entryId}")
@@ -162,36 +193,43 @@ public class GrowthEntryController {
         PlantGrowthEntry entry = growthEntryRepository.findByIdAndPlantId(entryId, plantId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Запись не найдена"));
 
+        growthSummaryQueueService.cancel(entry.getId());
         growthEntryRepository.delete(entry);
     }
 
     @GetMapping(value = "/{entryId}/photo")
-    public ResponseEntity<byte[]> getEntryPhoto(
+    public ResponseEntity<Resource> getEntryPhoto(
             @PathVariable Long plantId,
             @PathVariable Long entryId,
             @RequestParam(name = "exp", required = false) Long exp,
-            @RequestParam(name = "sig", required = false) String sig
+            @RequestParam(name = "sig", required = false) String sig,
+            @RequestParam(name = "size", required = false) String size,
+            WebRequest webRequest
     ) {
         PlantGrowthEntry entry = growthEntryRepository.findByIdAndPlantId(entryId, plantId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Запись не найдена"));
 
-        if (!photoUrlSignerService.isValid(plantId, entry.getImageUrl(), exp, sig)) {
+        PhotoSize photoSize = PhotoSize.fromParam(size);
+        if (!photoUrlSignerService.isValid(plantId, entry.getImageUrl(), exp, sig, photoSize)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Нет доступа к фото");
         }
 
-        Path photoFile = resolvePhotoPath(entry.getImageUrl());
-        if (photoFile == null || !Files.exists(photoFile)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Фото не найдено");
-        }
+        PhotoDeliveryService.PhotoFile photo = photoDerivativeService.open(resolvePhotoPath(entry.getImageUrl()), photoSize)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Фото не найдено"));
 
-        try {
-            byte[] bytes = Files.readAllBytes(photoFile);
-            return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_JPEG)
-                    .body(bytes);
-        } catch (IOException ex) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось прочитать фото");
+        if (webRequest.checkNotModified(photo.etag(), photo.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(photo.etag())
+                    .cacheControl(photoDeliveryService.cacheControl())
+                    .build();
         }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(photo.etag())
+                .lastModified(photo.lastModified())
+                .cacheControl(photoDeliveryService.cacheControl())
+                .body(photo.resource());
     }
 
     private Plant requireOwnedPlant(User user, Long plantId) {
@@ -205,116 +243,42 @@ public class GrowthEntryController {
         return plant;
     }
 
-    private GrowthEntryResponse toResponse(PlantGrowthEntry entry) {
+    private GrowthEntryResponse toResponse(PlantGrowthEntry entry, String aiSummaryStatus) {
         return new GrowthEntryResponse(
                 entry.getId(),
                 entry.getPlant().getId(),
-                buildEntryPhotoUrl(entry),
+                buildEntryPhotoUrl(entry, PhotoSize.FULL),
                 entry.getCreatedAt(),
                 entry.getNote(),
                 entry.getSource() != null ? entry.getSource().name() : "MANUAL",
                 entry.getAiSummary(),
-                entry.getMetadataJson()
+                entry.getMetadataJson(),
+                aiSummaryStatus,
+                buildEntryPhotoUrl(entry, PhotoSize.MEDIUM)
         );
     }
 
-    private String buildEntryPhotoUrl(PlantGrowthEntry entry) {
-        return photoUrlSignerService.buildSignedPhotoUrl(entry.getPlant().getId(), entry.getImageUrl());
+    private String buildEntryPhotoUrl(PlantGrowthEntry entry, PhotoSize size) {
+        return photoUrlSignerService.buildSignedGrowthPhotoUrl(entry.getPlant().getId(), entry.getId(), entry.getImageUrl(), size);
     }
 
     private String savePhoto(User user, Plant plant, String photoBase64) {
+        byte[] processedBytes = photoProcessingService.compressBase64(photoBase64);
         try {
-            String raw = photoBase64.trim();
-            if (raw.contains(",")) {
-                raw = raw.substring(raw.indexOf(',') + 1);
-            }
-            byte[] bytes = Base64.getDecoder().decode(raw);
-            byte[] processedBytes = compressPhoto(bytes);
-
             Path dir = Path.of("./data/photos/" + user.getTelegramId() + "/growth");
             Files.createDirectories(dir);
-            String fileName = String.format(Locale.ROOT, "growth-%d-%d.jpg", plant.getId(), System.currentTimeMillis());
+            String fileName = newGrowthPhotoFileName(plant);
             Path file = dir.resolve(fileName);
             Files.write(file, processedBytes);
+            photoDerivativeService.prewarm(file);
             return user.getTelegramId() + "/growth/" + fileName;
-        } catch (IllegalArgumentException ex) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "photoBase64 невалидный");
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось сохранить фото");
         }
     }
 
-    private byte[] compressPhoto(byte[] originalBytes) {
-        try {
-            BufferedImage src = ImageIO.read(new ByteArrayInputStream(originalBytes));
-            if (src == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не удалось прочитать изображение");
-            }
-
-            BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
-            Graphics2D g = rgb.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g.drawImage(src, 0, 0, null);
-            g.dispose();
-
-            BufferedImage scaled = scaleDown(rgb, Math.max(320, photoMaxLongSidePx));
-            float quality = Math.min(0.95f, Math.max(0.55f, photoJpegQuality));
-            byte[] jpeg = writeJpeg(scaled, quality);
-
-            int maxBytes = Math.max(200_000, photoMaxFileBytes);
-            while (jpeg.length > maxBytes && quality > 0.56f) {
-                quality -= 0.08f;
-                jpeg = writeJpeg(scaled, quality);
-            }
-            return jpeg;
-        } catch (ResponseStatusException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось обработать фото");
-        }
-    }
-
-    private BufferedImage scaleDown(BufferedImage src, int maxLongSide) {
-        int width = src.getWidth();
-        int height = src.getHeight();
-        int longest = Math.max(width, height);
-        if (longest <= maxLongSide) {
-            return src;
-        }
-
-        double ratio = maxLongSide / (double) longest;
-        int targetW = Math.max(1, (int) Math.round(width * ratio));
-        int targetH = Math.max(1, (int) Math.round(height * ratio));
-
-        BufferedImage out = new BufferedImage(targetW, targetH, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = out.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.drawImage(src, 0, 0, targetW, targetH, null);
-        g.dispose();
-        return out;
-    }
-
-    private byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
-        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
-        if (!writers.hasNext()) {
-            throw new IOException("JPEG writer is unavailable");
-        }
-        ImageWriter writer = writers.next();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
-            writer.setOutput(ios);
-            ImageWriteParam params = writer.getDefaultWriteParam();
-            if (params.canWriteCompressed()) {
-                params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-                params.setCompressionQuality(Math.min(0.98f, Math.max(0.5f, quality)));
-            }
-            writer.write(null, new IIOImage(image, null, null), params);
-        } finally {
-            writer.dispose();
-        }
-        return out.toByteArray();
+    private String newGrowthPhotoFileName(Plant plant) {
+        return String.format(Locale.ROOT, "growth-%d-%d.jpg", plant.getId(), System.currentTimeMillis());
     }
 
     private Path resolvePhotoPath(String photoRef) {
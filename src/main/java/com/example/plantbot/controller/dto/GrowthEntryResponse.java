@@ -10,5 +10,9 @@ public record GrowthEntryResponse(
     String note,
     String source,
     String aiSummary,
-    String metadataJson
+    String metadataJson,
+    // PENDING — сводка еще генерируется, FAILED — не удалось, null — задачи нет
+    String aiSummaryStatus,
+    // Уменьшенная копия для ленты роста
+    String imagePreviewUrl
 ) {}
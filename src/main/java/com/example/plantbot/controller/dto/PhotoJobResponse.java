@@ -0,0 +1,11 @@
+package com.example.plantbot.controller.dto;
+
+public record PhotoJobResponse(
+    String jobId,
+    String kind,
+    String status,
+    Long plantId,
+    Long entryId,
+    String error
+) {
+}
@@ -68,5 +68,6 @@ public record PlantResponse(Long id,
                             PlantType type,
                             PlantAvatarResponse avatar,
                             String photoUrl,
+                            String photoThumbnailUrl,
                             Instant createdAt) {
 }
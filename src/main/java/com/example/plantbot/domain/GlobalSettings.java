@@ -1,7 +1,9 @@
 package com.example.plantbot.domain;
 
+import com.example.plantbot.service.GlobalSettingsSnapshotListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
@@ -16,6 +18,7 @@ import java.time.Instant;
 
 @Entity
 @Table(name = "global_settings")
+@EntityListeners(GlobalSettingsSnapshotListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
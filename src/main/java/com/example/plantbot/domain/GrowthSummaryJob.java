@@ -0,0 +1,65 @@
+package com.example.plantbot.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Задача на AI-сводку по фото записи роста. Успешные задачи удаляются, в таблице остаются ожидающие и упавшие.
+@Entity
+@Table(
+    name = "growth_summary_jobs",
+    indexes = {
+        @Index(name = "idx_growth_summary_jobs_entry", columnList = "entryId", unique = true),
+        @Index(name = "idx_growth_summary_jobs_status_next", columnList = "status, nextAttemptAt")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class GrowthSummaryJob {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, unique = true)
+  private Long entryId;
+
+  @Column(nullable = false)
+  private Long userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Status status = Status.PENDING;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false)
+  private Instant nextAttemptAt = Instant.now();
+
+  @Column(length = 500)
+  private String lastError;
+
+  @Column(nullable = false)
+  private Instant createdAt = Instant.now();
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public enum Status {
+    PENDING,
+    RUNNING,
+    FAILED
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.plantbot.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// Напоминание, решенное планировщиком и ожидающее доставки. Ключ идемпотентности не дает
+// повторному прогону за тот же день поставить второе напоминание по тому же растению.
+@Entity
+@Table(
+    name = "notification_outbox",
+    indexes = {
+        @Index(name = "idx_notification_outbox_key", columnList = "idempotencyKey", unique = true),
+        @Index(name = "idx_notification_outbox_status_next", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_notification_outbox_user", columnList = "userId, status")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class NotificationOutboxEntry {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, unique = true, length = 128)
+  private String idempotencyKey;
+
+  @Column(nullable = false)
+  private Long userId;
+
+  @Column(nullable = false)
+  private Long plantId;
+
+  @Column(length = 255)
+  private String plantName;
+
+  @Column(nullable = false)
+  private LocalDate reminderDate;
+
+  @Lob
+  @Column(nullable = false, columnDefinition = "TEXT")
+  private String payloadJson;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Status status = Status.PENDING;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false)
+  private Instant nextAttemptAt = Instant.now();
+
+  @Column(length = 500)
+  private String lastError;
+
+  @Column(nullable = false)
+  private Instant createdAt = Instant.now();
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  private Instant sentAt;
+
+  public enum Status {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+  }
+}
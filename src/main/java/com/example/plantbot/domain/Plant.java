@@ -1,5 +1,8 @@
 package com.example.plantbot.domain;
 
+import com.example.plantbot.service.achievement.AchievementCounters;
+import com.example.plantbot.service.achievement.AchievementEntityListener;
+import com.example.plantbot.service.calendar.WateringCalendarEntityListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,6 +12,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
+@EntityListeners({WateringCalendarEntityListener.class, AchievementEntityListener.class})
 @Table(
     name = "plants",
     indexes = {
@@ -205,5 +209,17 @@ public class Plant {
 
   private LocalDate lastReminderDate;
 
+  // Инкрементальная статистика обучения: последние интервалы между поливами в днях (CSV, от старых к новым).
+  @Column(length = 255)
+  private String learningIntervalsCsv;
+
+  private LocalDate learningLastWateredAt;
+
+  private Instant learningStatsUpdatedAt;
+
+  // Флаги достижений на момент загрузки, нужны listener-у для расчета дельты при обновлении.
+  @Transient
+  private AchievementCounters achievementFlagsSnapshot;
+
   private Instant createdAt = Instant.now();
 }
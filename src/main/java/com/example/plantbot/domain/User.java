@@ -1,5 +1,6 @@
 package com.example.plantbot.domain;
 
+import com.example.plantbot.security.UserPrincipalCacheEntityListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,6 +15,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserPrincipalCacheEntityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
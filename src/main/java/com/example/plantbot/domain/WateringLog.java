@@ -1,5 +1,7 @@
 package com.example.plantbot.domain;
 
+import com.example.plantbot.service.achievement.AchievementEntityListener;
+import com.example.plantbot.service.calendar.WateringCalendarEntityListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,6 +11,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
+@EntityListeners({WateringCalendarEntityListener.class, AchievementEntityListener.class})
 @Table(
     name = "watering_log",
     indexes = {
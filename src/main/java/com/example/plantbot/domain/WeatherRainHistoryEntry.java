@@ -0,0 +1,43 @@
+package com.example.plantbot.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(
+    name = "weather_rain_history",
+    indexes = {
+        @Index(name = "idx_weather_rain_history_location", columnList = "locationKey", unique = true),
+        @Index(name = "idx_weather_rain_history_updated", columnList = "updatedAt")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class WeatherRainHistoryEntry {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, length = 255, unique = true)
+  private String locationKey;
+
+  // Часовые корзины в формате RainAccumulator.encode
+  @Lob
+  @Column(nullable = false, columnDefinition = "TEXT")
+  private String buckets;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+}
@@ -26,6 +26,20 @@ public interface AiTextCacheEntryRepository extends JpaRepository<AiTextCacheEnt
 
   List<AiTextCacheEntry> findTop200ByInvalidatedAtIsNullOrderByLastAccessedAtAsc();
 
+  @Modifying
+  @Transactional
+  @Query("""
+      update AiTextCacheEntry e
+         set e.hitCount = e.hitCount + :hits,
+             e.lastAccessedAt = case when e.lastAccessedAt < :accessedAt then :accessedAt else e.lastAccessedAt end
+       where e.cacheKey = :cacheKey
+      """)
+  int applyAccessStats(
+      @Param("cacheKey") String cacheKey,
+      @Param("hits") long hits,
+      @Param("accessedAt") Instant accessedAt
+  );
+
   @Modifying(clearAutomatically = true, flushAutomatically = true)
   @Transactional
   @Query("delete from AiTextCacheEntry e where e.expiresAt < :cutoff or e.invalidatedAt is not null")
@@ -2,6 +2,14 @@ package com.example.plantbot.repository;
 
 import com.example.plantbot.domain.GlobalSettings;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
 
 public interface GlobalSettingsRepository extends JpaRepository<GlobalSettings, Long> {
+  // Дешевая проверка версии снимка настроек без загрузки всей строки.
+  @Query("select s.updatedAt from GlobalSettings s where s.id = :id")
+  Optional<Instant> findUpdatedAtById(@Param("id") Long id);
 }
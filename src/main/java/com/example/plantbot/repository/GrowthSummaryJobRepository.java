@@ -0,0 +1,58 @@
+package com.example.plantbot.repository;
+
+import com.example.plantbot.domain.GrowthSummaryJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface GrowthSummaryJobRepository extends JpaRepository<GrowthSummaryJob, Long> {
+  List<GrowthSummaryJob> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+      GrowthSummaryJob.Status status,
+      Instant now,
+      Pageable pageable
+  );
+
+  List<GrowthSummaryJob> findByEntryIdIn(Collection<Long> entryIds);
+
+  long countByStatus(GrowthSummaryJob.Status status);
+
+  // Захват задачи: переход выполняется только из ожидаемого статуса, поэтому задачу берет один воркер.
+  @Modifying
+  @Transactional
+  @Query("update GrowthSummaryJob j set j.status = :to, j.updatedAt = :now where j.id = :id and j.status = :from")
+  int transition(@Param("id") Long id,
+                 @Param("from") GrowthSummaryJob.Status from,
+                 @Param("to") GrowthSummaryJob.Status to,
+                 @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("update GrowthSummaryJob j set j.status = :to, j.attempts = :attempts, j.nextAttemptAt = :nextAttemptAt, "
+      + "j.lastError = :lastError, j.updatedAt = :now where j.id = :id")
+  int reschedule(@Param("id") Long id,
+                 @Param("to") GrowthSummaryJob.Status to,
+                 @Param("attempts") int attempts,
+                 @Param("nextAttemptAt") Instant nextAttemptAt,
+                 @Param("lastError") String lastError,
+                 @Param("now") Instant now);
+
+  // После рестарта задачи в RUNNING никто не выполняет: возвращаем их в очередь.
+  @Modifying
+  @Transactional
+  @Query("update GrowthSummaryJob j set j.status = :to, j.updatedAt = :now where j.status = :from")
+  int transitionAll(@Param("from") GrowthSummaryJob.Status from,
+                    @Param("to") GrowthSummaryJob.Status to,
+                    @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("delete from GrowthSummaryJob j where j.entryId = :entryId")
+  int deleteByEntryId(@Param("entryId") Long entryId);
+}
@@ -0,0 +1,77 @@
+package com.example.plantbot.repository;
+
+import com.example.plantbot.domain.NotificationOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntry, Long> {
+  boolean existsByIdempotencyKey(String idempotencyKey);
+
+  List<NotificationOutboxEntry> findByStatusAndNextAttemptAtLessThanEqualOrderByUserIdAscIdAsc(
+      NotificationOutboxEntry.Status status,
+      Instant now,
+      Pageable pageable
+  );
+
+  long countByStatus(NotificationOutboxEntry.Status status);
+
+  // Захват пачки одного пользователя: переходят только записи, еще находящиеся в ожидаемом статусе.
+  @Modifying
+  @Transactional
+  @Query("update NotificationOutboxEntry e set e.status = :to, e.updatedAt = :now where e.id in :ids and e.status = :from")
+  int transition(@Param("ids") Collection<Long> ids,
+                 @Param("from") NotificationOutboxEntry.Status from,
+                 @Param("to") NotificationOutboxEntry.Status to,
+                 @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("update NotificationOutboxEntry e set e.status = :to, e.updatedAt = :now where e.status = :from")
+  int transitionAll(@Param("from") NotificationOutboxEntry.Status from,
+                    @Param("to") NotificationOutboxEntry.Status to,
+                    @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("update NotificationOutboxEntry e set e.status = :sent, e.attempts = e.attempts + 1, e.lastError = null, "
+      + "e.sentAt = :now, e.updatedAt = :now where e.id in :ids")
+  int markSent(@Param("ids") Collection<Long> ids,
+               @Param("sent") NotificationOutboxEntry.Status sent,
+               @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("update NotificationOutboxEntry e set e.status = :to, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+      + "e.lastError = :lastError, e.updatedAt = :now where e.id in :ids")
+  int reschedule(@Param("ids") Collection<Long> ids,
+                 @Param("to") NotificationOutboxEntry.Status to,
+                 @Param("attempts") int attempts,
+                 @Param("nextAttemptAt") Instant nextAttemptAt,
+                 @Param("lastError") String lastError,
+                 @Param("now") Instant now);
+
+  // Напоминание за прошедший день уже не актуально: следующий прогон планировщика решит заново.
+  @Modifying
+  @Transactional
+  @Query("update NotificationOutboxEntry e set e.status = :to, e.lastError = 'expired', e.updatedAt = :now "
+      + "where e.status = :from and e.reminderDate < :today")
+  int expireBefore(@Param("from") NotificationOutboxEntry.Status from,
+                   @Param("to") NotificationOutboxEntry.Status to,
+                   @Param("today") LocalDate today,
+                   @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("delete from NotificationOutboxEntry e where e.status in :statuses and e.updatedAt < :threshold")
+  int deleteFinishedBefore(@Param("statuses") Collection<NotificationOutboxEntry.Status> statuses,
+                           @Param("threshold") Instant threshold);
+}
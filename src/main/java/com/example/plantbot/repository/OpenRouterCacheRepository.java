@@ -9,7 +9,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.Optional;
 
 public interface OpenRouterCacheRepository extends JpaRepository<OpenRouterCacheEntry, Long> {
@@ -17,10 +16,34 @@ public interface OpenRouterCacheRepository extends JpaRepository<OpenRouterCache
 
   long countByNamespace(String namespace);
 
-  List<OpenRouterCacheEntry> findTop200ByOrderByUpdatedAtAsc();
-
   @Modifying(clearAutomatically = true, flushAutomatically = true)
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   @Query("delete from OpenRouterCacheEntry e where e.expiresAt < :cutoff")
   int deleteExpired(@Param("cutoff") Instant cutoff);
+
+  // Запись в кеш одним запросом вместо findByCacheKey + save (SQLite UPSERT по уникальному cache_key).
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query(value = """
+      insert into openrouter_cache (cache_key, namespace, hit, payload, expires_at, updated_at)
+      values (:cacheKey, :namespace, :hit, :payload, :expiresAt, :updatedAt)
+      on conflict(cache_key) do update set
+        namespace = excluded.namespace,
+        hit = excluded.hit,
+        payload = excluded.payload,
+        expires_at = excluded.expires_at,
+        updated_at = excluded.updated_at
+      """, nativeQuery = true)
+  int upsert(@Param("cacheKey") String cacheKey,
+             @Param("namespace") String namespace,
+             @Param("hit") boolean hit,
+             @Param("payload") String payload,
+             @Param("expiresAt") Instant expiresAt,
+             @Param("updatedAt") Instant updatedAt);
+
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query(value = "delete from openrouter_cache where id in (select id from openrouter_cache order by updated_at asc limit :limit)",
+      nativeQuery = true)
+  int deleteOldest(@Param("limit") int limit);
 }
@@ -3,9 +3,11 @@ package com.example.plantbot.repository;
 import com.example.plantbot.domain.PlantGrowthEntry;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
@@ -32,4 +34,13 @@ public interface PlantGrowthEntryRepository extends JpaRepository<PlantGrowthEnt
     Optional<PlantGrowthEntry> findByIdAndPlantId(Long id, Long plantId);
 
     void deleteByIdAndPlantId(Long id, Long plantId);
+
+    // Точечная запись сводки из фоновой очереди, не затирает заметку, измененную параллельно.
+    @Modifying
+    @Transactional
+    @Query("UPDATE PlantGrowthEntry e SET e.aiSummary = :aiSummary WHERE e.id = :id")
+    int updateAiSummary(@Param("id") Long id, @Param("aiSummary") String aiSummary);
+
+    @Query("SELECT e.id, e.imageUrl, p.name, p.id FROM PlantGrowthEntry e JOIN e.plant p WHERE e.id = :id")
+    List<Object[]> findSummarySource(@Param("id") Long id);
 }
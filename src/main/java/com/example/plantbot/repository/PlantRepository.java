@@ -7,8 +7,10 @@ import com.example.plantbot.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -48,4 +50,49 @@ public interface PlantRepository extends JpaRepository<Plant, Long> {
   long countDistinctUsersWithPlants();
 
   List<Plant> findTop50ByOrderByCreatedAtDesc();
+
+  @Query("""
+      select count(p.id),
+             coalesce(sum(case when p.placement = com.example.plantbot.domain.PlantPlacement.OUTDOOR then 1 else 0 end), 0),
+             coalesce(sum(case when p.photoUrl is not null and trim(p.photoUrl) <> '' then 1 else 0 end), 0),
+             coalesce(sum(case when lower(p.lookupSource) like '%openrouter%' then 1 else 0 end), 0)
+      from Plant p
+      where p.user.id = :userId
+      """)
+  List<Object[]> aggregateAchievementCounters(@Param("userId") Long userId);
+
+  @Query("""
+      select p from Plant p
+      where p.user.id > :userId or (p.user.id = :userId and p.id > :plantId)
+      order by p.user.id asc, p.id asc
+      """)
+  List<Plant> findBatchAfterUserAndId(@Param("userId") long userId,
+                                      @Param("plantId") long plantId,
+                                      Pageable pageable);
+
+  List<Plant> findTop200ByIdGreaterThanOrderByIdAsc(Long id);
+
+  List<Plant> findTop200ByLearningStatsUpdatedAtIsNullAndIdGreaterThanOrderByIdAsc(Long id);
+
+  // Точечное обновление статистики обучения, чтобы фоновая пересборка не затирала остальные поля растения.
+  @Modifying
+  @Transactional
+  @Query("""
+      update Plant p
+         set p.learningIntervalsCsv = :intervalsCsv,
+             p.learningLastWateredAt = :lastWateredAt,
+             p.learningStatsUpdatedAt = :updatedAt
+       where p.id = :plantId
+      """)
+  int updateLearningStats(@Param("plantId") Long plantId,
+                          @Param("intervalsCsv") String intervalsCsv,
+                          @Param("lastWateredAt") java.time.LocalDate lastWateredAt,
+                          @Param("updatedAt") java.time.Instant updatedAt);
+
+  // Отметка о доставленном напоминании из outbox: без загрузки растений и без затирания остальных полей.
+  @Modifying
+  @Transactional
+  @Query("update Plant p set p.lastReminderDate = :date where p.id in :plantIds")
+  int updateLastReminderDate(@Param("plantIds") java.util.Collection<Long> plantIds,
+                             @Param("date") java.time.LocalDate date);
 }
@@ -15,6 +15,18 @@ public interface WateringLogRepository extends JpaRepository<WateringLog, Long>
   List<WateringLog> findByPlantAndWateredAtBetween(Plant plant, LocalDate start, LocalDate end);
 
   long countByPlant(Plant plant);
+
+  @Query("""
+      select wl.plant.id, count(wl.id)
+      from WateringLog wl
+      where wl.plant.user.id = :userId
+      group by wl.plant.id
+      """)
+  List<Object[]> countByPlantForUser(@Param("userId") Long userId);
+
+  @Query("select count(wl.id) from WateringLog wl where wl.plant.user.id = :userId")
+  long countByUserId(@Param("userId") Long userId);
+
   long countByPlantIn(List<Plant> plants);
   long deleteByPlantIn(List<Plant> plants);
   List<WateringLog> findTop50ByOrderByCreatedAtDesc();
@@ -0,0 +1,23 @@
+package com.example.plantbot.repository;
+
+import com.example.plantbot.domain.WeatherRainHistoryEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface WeatherRainHistoryEntryRepository extends JpaRepository<WeatherRainHistoryEntry, Long> {
+  List<WeatherRainHistoryEntry> findByLocationKeyIn(Collection<String> locationKeys);
+
+  List<WeatherRainHistoryEntry> findByUpdatedAtAfter(Instant updatedAfter);
+
+  @Modifying
+  @Transactional
+  @Query("delete from WeatherRainHistoryEntry e where e.updatedAt < :cutoff")
+  int deleteUpdatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -3,14 +3,21 @@ package com.example.plantbot.repository;
 import com.example.plantbot.domain.User;
 import com.example.plantbot.domain.WebPushSubscription;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface WebPushSubscriptionRepository extends JpaRepository<WebPushSubscription, Long> {
   List<WebPushSubscription> findByUser(User user);
 
+  List<WebPushSubscription> findByUserId(Long userId);
+
   Optional<WebPushSubscription> findByEndpoint(String endpoint);
 
   Optional<WebPushSubscription> findByUserAndEndpoint(User user, String endpoint);
@@ -22,4 +29,21 @@ public interface WebPushSubscriptionRepository extends JpaRepository<WebPushSubs
   long deleteByUser(User user);
 
   long countByLastFailureAtAfter(Instant from);
+
+  // Итоги рассылки пишутся пачкой после отправки, а не по одной сущности внутри нее.
+  @Modifying
+  @Transactional
+  @Query("update WebPushSubscription s set s.lastSuccessAt = :now, s.lastFailureAt = null, s.lastFailureReason = null "
+      + "where s.id in :ids")
+  int markDelivered(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+  @Modifying
+  @Transactional
+  @Query("update WebPushSubscription s set s.lastFailureAt = :now, s.lastFailureReason = :reason where s.id = :id")
+  int markFailed(@Param("id") Long id, @Param("now") Instant now, @Param("reason") String reason);
+
+  @Modifying
+  @Transactional
+  @Query("delete from WebPushSubscription s where s.id in :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
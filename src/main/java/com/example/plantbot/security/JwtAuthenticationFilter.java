@@ -1,8 +1,6 @@
 package com.example.plantbot.security;
 
-import com.example.plantbot.domain.User;
 import com.example.plantbot.domain.UserRole;
-import com.example.plantbot.repository.UserRepository;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -24,7 +22,7 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
   private final JwtService jwtService;
-  private final UserRepository userRepository;
+  private final UserPrincipalCache userPrincipalCache;
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -39,7 +37,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     try {
       Claims claims = jwtService.parse(token);
       Long userId = Long.parseLong(claims.getSubject());
-      User user = userRepository.findById(userId).orElse(null);
+      UserPrincipalSnapshot user = userPrincipalCache.find(userId).orElse(null);
 
       List<SimpleGrantedAuthority> authorities;
       String username;
@@ -47,16 +45,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       Long telegramId;
 
       if (user != null) {
-        Set<UserRole> roles = user.getRoles() == null || user.getRoles().isEmpty()
+        Set<UserRole> roles = user.roles().isEmpty()
             ? Set.of(UserRole.ROLE_USER)
-            : user.getRoles();
+            : user.roles();
         authorities = roles.stream()
             .map(Enum::name)
             .map(SimpleGrantedAuthority::new)
             .toList();
-        username = user.getUsername();
-        email = user.getEmail();
-        telegramId = user.getTelegramId();
+        username = user.username();
+        email = user.email();
+        telegramId = user.telegramId();
       } else {
         authorities = jwtService.extractRoles(claims).stream()
             .map(SimpleGrantedAuthority::new)
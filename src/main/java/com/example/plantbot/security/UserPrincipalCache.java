@@ -0,0 +1,120 @@
+package com.example.plantbot.security;
+
+import com.example.plantbot.domain.User;
+import com.example.plantbot.domain.UserRole;
+import com.example.plantbot.repository.UserRepository;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.weather.LruEvictingMap;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Кэш данных аутентификации: фильтр JWT берет роли и реквизиты пользователя отсюда, а не из БД на каждый запрос.
+// Хранится неизменяемый UserPrincipalSnapshot, а не сущность: пути записи загружают User из БД сами.
+// Запись сбрасывается при любом сохранении или удалении пользователя,
+// а смена ролей (коллекция, не поле User) сбрасывается явно через evictIfRolesChanged.
+@Component
+@RequiredArgsConstructor
+public class UserPrincipalCache {
+  private static final String CACHE = "user_principal";
+
+  private final UserRepository userRepository;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  @Value("${app.security.principal-cache.ttl-seconds:30}")
+  private long ttlSeconds;
+
+  @Value("${app.security.principal-cache.max-entries:5000}")
+  private int maxEntries;
+
+  private Map<Long, CachedUser> users;
+
+  @PostConstruct
+  void init() {
+    users = Collections.synchronizedMap(new LruEvictingMap<>(
+        maxEntries,
+        () -> performanceMetricsService.incrementCacheEviction(CACHE, "lru")
+    ));
+    performanceMetricsService.registerCacheGauge(CACHE, "size", () -> users.size());
+  }
+
+  public Optional<UserPrincipalSnapshot> find(Long userId) {
+    if (userId == null) {
+      return Optional.empty();
+    }
+    long now = System.nanoTime();
+    CachedUser cached = users.get(userId);
+    if (cached != null && cached.principal() != null && now - cached.loadedAtNanos() < ttlSeconds * 1_000_000_000L) {
+      performanceMetricsService.incrementCacheLookup(CACHE, "memory", "hit");
+      return Optional.of(cached.principal());
+    }
+    performanceMetricsService.incrementCacheLookup(CACHE, "memory", cached == null || cached.principal() == null ? "miss" : "expired");
+    long generation = cached == null ? 0L : cached.generation();
+    Optional<User> loaded = userRepository.findById(userId);
+    if (loaded.isEmpty()) {
+      users.remove(userId);
+      return Optional.empty();
+    }
+    UserPrincipalSnapshot snapshot = UserPrincipalSnapshot.of(loaded.get());
+    // Если за время чтения пользователя сбросили, свежесть прочитанного не гарантирована: не кэшируем.
+    synchronized (users) {
+      CachedUser current = users.get(userId);
+      long currentGeneration = current == null ? 0L : current.generation();
+      if (currentGeneration == generation) {
+        users.put(userId, new CachedUser(snapshot, now, generation));
+      }
+    }
+    return Optional.of(snapshot);
+  }
+
+  // Сброс сразу и еще раз после коммита: иначе параллельный запрос успеет закэшировать незакоммиченное старое состояние.
+  public void evict(Long userId) {
+    if (userId == null) {
+      return;
+    }
+    invalidate(userId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          invalidate(userId);
+        }
+      });
+    }
+  }
+
+  // Изменение только @ElementCollection roles не вызывает @PostUpdate владельца, поэтому пути, меняющие роли,
+  // вызывают это после сохранения. Без записи в кэше тоже сбрасываем: параллельная загрузка могла увидеть старые роли.
+  public void evictIfRolesChanged(User user) {
+    if (user == null || user.getId() == null) {
+      return;
+    }
+    CachedUser cached = users.get(user.getId());
+    Set<UserRole> current = user.getRoles() == null ? Set.of() : user.getRoles();
+    if (cached != null && cached.principal() != null && current.equals(cached.principal().roles())) {
+      return;
+    }
+    evict(user.getId());
+  }
+
+  private void invalidate(Long userId) {
+    synchronized (users) {
+      CachedUser current = users.get(userId);
+      long generation = current == null ? 0L : current.generation();
+      // Пустая запись-маркер хранит поколение, чтобы загрузка, начатая до сброса, не вернула старые данные в кэш.
+      users.put(userId, new CachedUser(null, 0L, generation + 1));
+    }
+    performanceMetricsService.incrementCacheEviction(CACHE, "invalidate");
+  }
+
+  private record CachedUser(UserPrincipalSnapshot principal, long loadedAtNanos, long generation) {
+  }
+}
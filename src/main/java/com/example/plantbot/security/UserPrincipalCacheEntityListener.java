@@ -0,0 +1,26 @@
+package com.example.plantbot.security;
+
+import com.example.plantbot.domain.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+// Сбрасывает кэш аутентификации при изменении полей пользователя: блокировка, удаление, профиль.
+// Роли — @ElementCollection, их изменение @PostUpdate не вызывает: см. UserPrincipalCache.evictIfRolesChanged.
+// Кэш берется лениво: он зависит от UserRepository, а слушатель создается вместе с EntityManagerFactory.
+@Component
+@RequiredArgsConstructor
+public class UserPrincipalCacheEntityListener {
+  private final ObjectProvider<UserPrincipalCache> userPrincipalCache;
+
+  @PostUpdate
+  @PostRemove
+  public void onChange(User user) {
+    UserPrincipalCache cache = userPrincipalCache.getIfAvailable();
+    if (cache != null) {
+      cache.evict(user.getId());
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.plantbot.security;
+
+import com.example.plantbot.domain.User;
+import com.example.plantbot.domain.UserRole;
+
+import java.util.Set;
+
+// Неизменяемый срез пользователя для аутентификации. Не сущность: сохранить его через репозиторий нельзя.
+public record UserPrincipalSnapshot(
+    Long userId,
+    String username,
+    String email,
+    Long telegramId,
+    Set<UserRole> roles
+) {
+  public UserPrincipalSnapshot {
+    roles = roles == null ? Set.of() : Set.copyOf(roles);
+  }
+
+  public static UserPrincipalSnapshot of(User user) {
+    return new UserPrincipalSnapshot(user.getId(), user.getUsername(), user.getEmail(), user.getTelegramId(), user.getRoles());
+  }
+}
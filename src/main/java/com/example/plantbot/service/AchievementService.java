@@ -1,11 +1,17 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.controller.dto.AchievementItemResponse;
 import com.example.plantbot.controller.dto.AchievementsResponse;
-import com.example.plantbot.domain.Plant;
-import com.example.plantbot.domain.PlantPlacement;
 import com.example.plantbot.domain.User;
+import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.repository.WateringLogRepository;
+import com.example.plantbot.service.achievement.AchievementCounterStore;
+import com.example.plantbot.service.achievement.AchievementCounters;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -13,34 +19,81 @@ import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AchievementService {
-  private final PlantService plantService;
-  private final WateringLogService wateringLogService;
+  private final PlantRepository plantRepository;
+  private final WateringLogRepository wateringLogRepository;
+  private final AchievementCounterStore achievementCounterStore;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final PerformanceMetricsService performanceMetricsService;
 
-  public AchievementsResponse build(User user) {
-    List<Plant> plants = plantService.list(user);
-    int plantCount = plants.size();
-    int outdoorCount = (int) plants.stream().filter(p -> p.getPlacement() == PlantPlacement.OUTDOOR).count();
-    int photosCount = (int) plants.stream().filter(p -> p.getPhotoUrl() != null && !p.getPhotoUrl().isBlank()).count();
-    int aiDetectedCount = (int) plants.stream()
-        .filter(p -> p.getLookupSource() != null && p.getLookupSource().toLowerCase().contains("openrouter"))
-        .count();
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerCacheGauge("achievement_counters", "size", achievementCounterStore::size);
+  }
 
-    int totalWaterings = plants.stream().mapToInt(p -> (int) wateringLogService.countAll(p)).sum();
+  public AchievementsResponse build(User user) {
+    AchievementCounters counters = counters(user);
+    int plantCount = counters.plants();
+    int totalWaterings = (int) Math.min(Integer.MAX_VALUE, counters.waterings());
 
     List<AchievementItemResponse> items = new ArrayList<>();
     items.add(item("first_plant", "Первый росток", "Добавьте первое растение", "Sprout", plantCount, 1));
     items.add(item("home_jungle", "Домашние джунгли", "Добавьте 5 растений", "Trees", plantCount, 5));
     items.add(item("watering_10", "Режим полива", "Отметьте 10 поливов", "Droplets", totalWaterings, 10));
     items.add(item("watering_50", "Мастер полива", "Отметьте 50 поливов", "Droplet", totalWaterings, 50));
-    items.add(item("outdoor_start", "Садовод", "Добавьте уличное растение", "Sun", outdoorCount, 1));
-    items.add(item("growth_memory", "Дневник роста", "Добавьте 3 фото растений", "Camera", photosCount, 3));
-    items.add(item("ai_friend", "AI-ботаник", "Распознайте 3 растения через AI", "Sparkles", aiDetectedCount, 3));
+    items.add(item("outdoor_start", "Садовод", "Добавьте уличное растение", "Sun", counters.outdoorPlants(), 1));
+    items.add(item("growth_memory", "Дневник роста", "Добавьте 3 фото растений", "Camera", counters.plantsWithPhoto(), 3));
+    items.add(item("ai_friend", "AI-ботаник", "Распознайте 3 растения через AI", "Sparkles", counters.aiDetectedPlants(), 3));
 
     int unlocked = (int) items.stream().filter(AchievementItemResponse::unlocked).count();
     return new AchievementsResponse(unlocked, items.size(), items);
   }
 
+  // Счетчики поддерживаются дельтами из entity listener; при отсутствии в памяти — сверка двумя групповыми запросами.
+  AchievementCounters counters(User user) {
+    var cached = achievementCounterStore.get(user.getId());
+    if (cached.isPresent()) {
+      performanceMetricsService.incrementCacheLookup("achievement_counters", "memory", "hit");
+      return cached.get();
+    }
+    performanceMetricsService.incrementCacheLookup("achievement_counters", "memory", "miss");
+    return reconcile(user.getId());
+  }
+
+  AchievementCounters reconcile(Long userId) {
+    long observedVersion = achievementCounterStore.version(userId);
+    AchievementCounters counters = AchievementCounters.EMPTY;
+    List<Object[]> rows = plantRepository.aggregateAchievementCounters(userId);
+    if (!rows.isEmpty() && rows.get(0) != null && rows.get(0).length >= 4) {
+      Object[] row = rows.get(0);
+      counters = new AchievementCounters(toInt(row[0]), toInt(row[1]), toInt(row[2]), toInt(row[3]), 0L);
+    }
+    counters = new AchievementCounters(
+        counters.plants(),
+        counters.outdoorPlants(),
+        counters.plantsWithPhoto(),
+        counters.aiDetectedPlants(),
+        wateringLogRepository.countByUserId(userId)
+    );
+    achievementCounterStore.putIfUnchanged(userId, observedVersion, counters);
+    return counters;
+  }
+
+  // Периодически сбрасываем счетчики, чтобы следующее чтение сверило их с БД и убрало возможный дрейф.
+  @Scheduled(cron = "${app.achievements.reconcile-cron:0 50 4 * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void scheduledReconcile() {
+    scheduledJobGuard.run("achievement_counters_reconcile", () -> {
+      int dropped = achievementCounterStore.size();
+      achievementCounterStore.clear();
+      log.info("Achievement counters reset for reconciliation: users={}", dropped);
+    });
+  }
+
+  private int toInt(Object value) {
+    return value instanceof Number number ? number.intValue() : 0;
+  }
+
   private AchievementItemResponse item(String key, String title, String description, String icon, int progress, int target) {
     int safeProgress = Math.max(0, Math.min(progress, target));
     return new AchievementItemResponse(key, title, description, icon, safeProgress, target, progress >= target);
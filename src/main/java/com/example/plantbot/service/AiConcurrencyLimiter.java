@@ -0,0 +1,283 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiRequestKind;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Адаптивный лимит одновременных AI-запросов (AIMD): растет на единицу за "окно" успешных ответов
+// и умножается на 0.7 только при 429/5xx/таймаутах. Задержка сравнивается со скользящей базой своего
+// типа запроса: медленный успех лишь останавливает рост, но не считается перегрузкой (фото и длинные
+// ответы законно идут дольше, а execute() включает внутренние ретраи). Интерактивные запросы
+// (чат, фото, поиск) обслуживаются раньше фоновых, а один слот всегда остается за интерактивными.
+@Component
+@Slf4j
+public class AiConcurrencyLimiter {
+  private static final String POOL = "ai_limiter";
+  private static final double DECREASE_FACTOR = 0.7;
+  private static final double BASELINE_WEIGHT = 0.1;
+
+  public enum Lane {
+    INTERACTIVE,
+    BACKGROUND
+  }
+
+  public enum Signal {
+    SUCCESS,
+    OVERLOAD,
+    IGNORE
+  }
+
+  private final PerformanceMetricsService performanceMetricsService;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long interactiveWaitMs;
+  private final long backgroundWaitMs;
+  private final int maxQueuePerLane;
+  private final double latencyTolerance;
+  private final long decreaseCooldownNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition interactiveTurn = lock.newCondition();
+  private final Condition backgroundTurn = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private int interactiveWaiting;
+  private int backgroundWaiting;
+  private long lastDecreaseAtNanos;
+  private final Map<AiRequestKind, Double> baselineNanos = new EnumMap<>(AiRequestKind.class);
+
+  public AiConcurrencyLimiter(
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${openrouter.resilience.max-concurrent-requests:8}") int initialLimit,
+      @Value("${openrouter.resilience.adaptive.min-limit:2}") int minLimit,
+      @Value("${openrouter.resilience.adaptive.max-limit:32}") int maxLimit,
+      @Value("${openrouter.resilience.acquire-timeout-ms:3000}") long interactiveWaitMs,
+      @Value("${openrouter.resilience.adaptive.background-acquire-timeout-ms:30000}") long backgroundWaitMs,
+      @Value("${openrouter.resilience.adaptive.max-queue-per-lane:64}") int maxQueuePerLane,
+      @Value("${openrouter.resilience.adaptive.latency-tolerance:2.0}") double latencyTolerance,
+      @Value("${openrouter.resilience.adaptive.decrease-cooldown-ms:1000}") long decreaseCooldownMs
+  ) {
+    this.performanceMetricsService = performanceMetricsService;
+    // Минимум два слота: один зарезервирован за интерактивными, иначе фоновые задачи при минимуме встанут навсегда.
+    this.minLimit = Math.max(2, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.interactiveWaitMs = Math.max(0L, interactiveWaitMs);
+    this.backgroundWaitMs = Math.max(0L, backgroundWaitMs);
+    this.maxQueuePerLane = Math.max(0, maxQueuePerLane);
+    this.latencyTolerance = Math.max(1.0, latencyTolerance);
+    this.decreaseCooldownNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, decreaseCooldownMs));
+    this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    this.lastDecreaseAtNanos = System.nanoTime() - this.decreaseCooldownNanos;
+    performanceMetricsService.registerWorkerGauge(POOL, "limit", this::currentLimit);
+    performanceMetricsService.registerWorkerGauge(POOL, "active", this::inFlight);
+    performanceMetricsService.registerWorkerGauge(POOL + "_interactive", "queue_size", () -> waiting(Lane.INTERACTIVE));
+    performanceMetricsService.registerWorkerGauge(POOL + "_background", "queue_size", () -> waiting(Lane.BACKGROUND));
+  }
+
+  public static Lane laneOf(AiRequestKind kind) {
+    if (kind == null) {
+      return Lane.BACKGROUND;
+    }
+    return switch (kind) {
+      case PLANT_WATERING_PROFILE, GROWTH_SUMMARY, AVATAR_SPEC, MODEL_HEALTH_CHECK, OTHER_AI_REQUEST -> Lane.BACKGROUND;
+      default -> Lane.INTERACTIVE;
+    };
+  }
+
+  // 429, 5xx и таймауты говорят о перегрузке провайдера; ошибки ключа или модели на лимит не влияют.
+  public static Signal classify(Exception ex) {
+    if (ex instanceof OpenRouterExecutionException openRouter) {
+      return switch (openRouter.getFailureType()) {
+        case RATE_LIMIT, SERVER_ERROR, TIMEOUT -> Signal.OVERLOAD;
+        default -> Signal.IGNORE;
+      };
+    }
+    if (ex instanceof OpenAiExecutionException openAi) {
+      return openAi.isRetryable() ? Signal.OVERLOAD : Signal.IGNORE;
+    }
+    return Signal.IGNORE;
+  }
+
+  public Permit acquire(AiRequestKind kind) {
+    Lane lane = laneOf(kind);
+    String pool = poolName(lane);
+    long waitStartedAt = System.nanoTime();
+    long remainingNanos = TimeUnit.MILLISECONDS.toNanos(lane == Lane.INTERACTIVE ? interactiveWaitMs : backgroundWaitMs);
+    lock.lock();
+    try {
+      if (!canEnter(lane)) {
+        if (waiting(lane) >= maxQueuePerLane) {
+          performanceMetricsService.incrementWorkerRejection(pool);
+          throw overCapacity("очередь AI-запросов переполнена");
+        }
+        Condition turn = lane == Lane.INTERACTIVE ? interactiveTurn : backgroundTurn;
+        changeWaiting(lane, 1);
+        try {
+          while (!canEnter(lane)) {
+            if (remainingNanos <= 0L) {
+              performanceMetricsService.incrementWorkerRejection(pool);
+              throw overCapacity("AI-провайдер перегружен, слот не освободился вовремя");
+            }
+            remainingNanos = turn.awaitNanos(remainingNanos);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new OpenRouterExecutionException(OpenRouterFailureType.OVER_CAPACITY, false, "Ожидание слота AI-запроса прервано", ex);
+        } finally {
+          changeWaiting(lane, -1);
+          if (lane == Lane.INTERACTIVE && interactiveWaiting == 0 && backgroundWaiting > 0) {
+            backgroundTurn.signalAll();
+          }
+        }
+      }
+      inFlight += 1;
+    } finally {
+      lock.unlock();
+    }
+    long startedAt = System.nanoTime();
+    performanceMetricsService.recordWorkerTask(pool + "_wait", startedAt - waitStartedAt, "acquired");
+    return new Permit(kind, lane, startedAt);
+  }
+
+  double currentLimit() {
+    lock.lock();
+    try {
+      return limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int waiting(Lane lane) {
+    lock.lock();
+    try {
+      return lane == Lane.INTERACTIVE ? interactiveWaiting : backgroundWaiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Фоновый запрос входит, только если нет ожидающих интерактивных и после него останется слот.
+  private boolean canEnter(Lane lane) {
+    int capacity = (int) Math.floor(limit);
+    if (lane == Lane.INTERACTIVE) {
+      return inFlight < capacity;
+    }
+    return interactiveWaiting == 0 && inFlight < capacity - 1;
+  }
+
+  private void release(AiRequestKind kind, Lane lane, long latencyNanos, Signal signal) {
+    lock.lock();
+    try {
+      inFlight = Math.max(0, inFlight - 1);
+      adjust(kind, signal, latencyNanos);
+      if (interactiveWaiting > 0) {
+        interactiveTurn.signalAll();
+      } else if (backgroundWaiting > 0) {
+        backgroundTurn.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+    performanceMetricsService.recordWorkerTask(poolName(lane), latencyNanos, signal.name().toLowerCase());
+  }
+
+  private void adjust(AiRequestKind kind, Signal signal, long latencyNanos) {
+    if (signal == Signal.IGNORE) {
+      return;
+    }
+    long now = System.nanoTime();
+    if (signal == Signal.OVERLOAD) {
+      // Серия одновременных отказов — это одно событие перегрузки, а не повод обрушить лимит до минимума.
+      if (now - lastDecreaseAtNanos >= decreaseCooldownNanos) {
+        double previous = limit;
+        limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+        lastDecreaseAtNanos = now;
+        log.info("AI concurrency limit decreased: {} -> {} (signal={}, latencyMs={})",
+            String.format("%.1f", previous), String.format("%.1f", limit), signal, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+      }
+      return;
+    }
+    if (!withinBaseline(kind, latencyNanos)) {
+      return;
+    }
+    // Растем, только если лимит действительно используется: иначе при простое он уйдет в максимум.
+    if (inFlight + 1 >= Math.floor(limit) / 2) {
+      limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+  }
+
+  // Градиент задержки: успех заметно медленнее обычного для этого типа запроса — признак очереди у провайдера,
+  // лимит в этот момент не наращиваем. База обновляется каждым успехом, поэтому медленные типы к ней привыкают.
+  private boolean withinBaseline(AiRequestKind kind, long latencyNanos) {
+    AiRequestKind key = kind == null ? AiRequestKind.OTHER_AI_REQUEST : kind;
+    Double baseline = baselineNanos.get(key);
+    if (baseline == null) {
+      baselineNanos.put(key, (double) latencyNanos);
+      return true;
+    }
+    baselineNanos.put(key, baseline + BASELINE_WEIGHT * (latencyNanos - baseline));
+    return latencyNanos <= baseline * latencyTolerance;
+  }
+
+  private void changeWaiting(Lane lane, int delta) {
+    if (lane == Lane.INTERACTIVE) {
+      interactiveWaiting += delta;
+    } else {
+      backgroundWaiting += delta;
+    }
+  }
+
+  private String poolName(Lane lane) {
+    return POOL + "_" + lane.name().toLowerCase();
+  }
+
+  private OpenRouterExecutionException overCapacity(String message) {
+    return new OpenRouterExecutionException(OpenRouterFailureType.OVER_CAPACITY, true, message);
+  }
+
+  public final class Permit {
+    private final AiRequestKind kind;
+    private final Lane lane;
+    private final long startedAt;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(AiRequestKind kind, Lane lane, long startedAt) {
+      this.kind = kind;
+      this.lane = lane;
+      this.startedAt = startedAt;
+    }
+
+    public Lane lane() {
+      return lane;
+    }
+
+    public void release(Signal signal) {
+      release(signal, System.nanoTime() - startedAt);
+    }
+
+    // Для потоковых ответов задержка провайдера — время до первого фрагмента, а не длина всего ответа.
+    public void release(Signal signal, long latencyNanos) {
+      if (released.compareAndSet(false, true)) {
+        AiConcurrencyLimiter.this.release(kind, lane, latencyNanos, signal == null ? Signal.IGNORE : signal);
+      }
+    }
+  }
+}
@@ -10,6 +10,8 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +20,7 @@ public class AiExecutionService {
   private final OpenRouterExecutionService openRouterExecutionService;
   private final OpenAiExecutionService openAiExecutionService;
   private final AiRequestAnalyticsService aiRequestAnalyticsService;
+  private final AiConcurrencyLimiter aiConcurrencyLimiter;
 
   public AiExecutionResult executeConfiguredText(User user, AiRequestKind requestKind, List<Map<String, Object>> messages) {
     return execute(aiProviderSettingsService.resolveTextRuntime(user), requestKind, messages);
@@ -33,7 +36,9 @@ public class AiExecutionService {
     }
 
     long startedAt = System.nanoTime();
+    AiConcurrencyLimiter.Permit permit = null;
     try {
+      permit = aiConcurrencyLimiter.acquire(requestKind);
       JsonNode payload = runtime.provider() == AiProviderType.OPENAI
           || runtime.provider() == AiProviderType.OPENAI_COMPATIBLE
           ? openAiExecutionService.executeChatCompletion(runtime.apiKey(), runtime.baseUrl(), runtime.model(), runtime.requestTimeoutMs(), runtime.maxTokens(), messages)
@@ -46,6 +51,7 @@ public class AiExecutionService {
               null,
               messages
           );
+      permit.release(AiConcurrencyLimiter.Signal.SUCCESS);
       aiRequestAnalyticsService.record(
           requestKind,
           runtime.provider(),
@@ -57,6 +63,69 @@ public class AiExecutionService {
       );
       return new AiExecutionResult(runtime.provider(), runtime.capability(), runtime.model(), payload);
     } catch (Exception ex) {
+      if (permit != null) {
+        permit.release(AiConcurrencyLimiter.classify(ex));
+      }
+      aiRequestAnalyticsService.record(
+          requestKind,
+          runtime.provider(),
+          runtime.capability(),
+          runtime.analyticsModelKey(),
+          false,
+          ex.getMessage(),
+          elapsedMs(startedAt)
+      );
+      throw ex;
+    }
+  }
+
+  // Потоковый вариант execute: фрагменты ответа уходят в onDelta по мере генерации, возвращается полный текст.
+  public String stream(AiProviderSettingsService.RuntimeResolution runtime,
+                       AiRequestKind requestKind,
+                       List<Map<String, Object>> messages,
+                       Consumer<String> onDelta,
+                       AiStreamCancellation cancellation) {
+    if (runtime == null || !runtime.hasApiKey() || runtime.model() == null || runtime.model().isBlank()) {
+      throw new IllegalStateException("AI runtime is not configured");
+    }
+
+    long startedAt = System.nanoTime();
+    AtomicLong firstDeltaAt = new AtomicLong();
+    Consumer<String> trackingDelta = delta -> {
+      firstDeltaAt.compareAndSet(0L, System.nanoTime());
+      onDelta.accept(delta);
+    };
+    AiConcurrencyLimiter.Permit permit = null;
+    try {
+      permit = aiConcurrencyLimiter.acquire(requestKind);
+      long acquiredAt = System.nanoTime();
+      String answer = runtime.provider() == AiProviderType.OPENAI
+          || runtime.provider() == AiProviderType.OPENAI_COMPATIBLE
+          ? openAiExecutionService.streamChatCompletion(runtime.apiKey(), runtime.baseUrl(), runtime.model(), runtime.requestTimeoutMs(), runtime.maxTokens(), messages, trackingDelta, cancellation)
+          : openRouterExecutionService.streamChatCompletion(
+              runtime.apiKey(),
+              runtime.model(),
+              runtime.capability() == AiCapability.VISION ? OpenRouterModelKind.PHOTO : OpenRouterModelKind.TEXT,
+              messages,
+              trackingDelta,
+              cancellation
+          );
+      long firstDelta = firstDeltaAt.get();
+      permit.release(AiConcurrencyLimiter.Signal.SUCCESS, (firstDelta == 0L ? System.nanoTime() : firstDelta) - acquiredAt);
+      aiRequestAnalyticsService.record(
+          requestKind,
+          runtime.provider(),
+          runtime.capability(),
+          runtime.analyticsModelKey(),
+          true,
+          null,
+          elapsedMs(startedAt)
+      );
+      return answer;
+    } catch (Exception ex) {
+      if (permit != null) {
+        permit.release(AiConcurrencyLimiter.classify(ex));
+      }
       aiRequestAnalyticsService.record(
           requestKind,
           runtime.provider(),
@@ -0,0 +1,123 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiRequestKind;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Single-flight для текстовых AI-запросов: одинаковые промпты, пришедшие одновременно (до записи в кэш),
+// ждут один вызов провайдера вместо того, чтобы каждый платил за свой.
+@Component
+@RequiredArgsConstructor
+public class AiRequestCoalescer {
+  private static final String CACHE = "ai_single_flight";
+
+  private final AiExecutionService aiExecutionService;
+  private final AiTextCacheKeyFactory aiTextCacheKeyFactory;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  @Value("${app.ai.single-flight.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.ai.single-flight.wait-timeout-ms:45000}")
+  private long waitTimeoutMs;
+
+  private final Map<String, CompletableFuture<JsonNode>> inFlight = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void init() {
+    performanceMetricsService.registerCacheGauge(CACHE, "in_flight", inFlight::size);
+  }
+
+  public JsonNode execute(AiProviderSettingsService.RuntimeResolution runtime,
+                          AiRequestKind requestKind,
+                          List<Map<String, Object>> messages) {
+    if (!enabled || runtime == null) {
+      return aiExecutionService.execute(runtime, requestKind, messages).body();
+    }
+    String key = flightKey(runtime, requestKind, messages);
+    CompletableFuture<JsonNode> own = new CompletableFuture<>();
+    CompletableFuture<JsonNode> existing = inFlight.putIfAbsent(key, own);
+    if (existing == null) {
+      return lead(key, own, runtime, requestKind, messages);
+    }
+    return join(existing, requestKind);
+  }
+
+  // Сколько ключей сейчас в полете — для тестов и диагностики.
+  int inFlightCount() {
+    return inFlight.size();
+  }
+
+  private JsonNode lead(String key,
+                        CompletableFuture<JsonNode> own,
+                        AiProviderSettingsService.RuntimeResolution runtime,
+                        AiRequestKind requestKind,
+                        List<Map<String, Object>> messages) {
+    performanceMetricsService.incrementAiSingleFlight(requestKind.name(), "leader");
+    try {
+      JsonNode body = aiExecutionService.execute(runtime, requestKind, messages).body();
+      // Ожидающим — снимок, снятый до того, как лидер начнет разбирать и менять свой экземпляр.
+      own.complete(body == null ? null : body.deepCopy());
+      return body;
+    } catch (RuntimeException ex) {
+      own.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, own);
+    }
+  }
+
+  // Ожидающий получает свою копию снимка: JsonNode изменяемый, а разбор результата у вызывающих свой.
+  private JsonNode join(CompletableFuture<JsonNode> existing, AiRequestKind requestKind) {
+    long startedAt = System.nanoTime();
+    try {
+      JsonNode body = existing.get(Math.max(1L, waitTimeoutMs), TimeUnit.MILLISECONDS);
+      performanceMetricsService.incrementAiSingleFlight(requestKind.name(), "joined");
+      performanceMetricsService.recordAiSingleFlightWait(requestKind.name(), System.nanoTime() - startedAt);
+      return body == null ? null : body.deepCopy();
+    } catch (TimeoutException ex) {
+      performanceMetricsService.incrementAiSingleFlight(requestKind.name(), "timeout");
+      throw new IllegalStateException("Ожидание совпадающего AI-запроса превысило " + waitTimeoutMs + " мс", ex);
+    } catch (InterruptedException ex) {
+      // Прерывание ожидающего не отменяет общий вызов: его результат нужен остальным.
+      Thread.currentThread().interrupt();
+      performanceMetricsService.incrementAiSingleFlight(requestKind.name(), "cancelled");
+      throw new IllegalStateException("Ожидание совпадающего AI-запроса прервано", ex);
+    } catch (CancellationException ex) {
+      performanceMetricsService.incrementAiSingleFlight(requestKind.name(), "cancelled");
+      throw new IllegalStateException("Совпадающий AI-запрос отменен", ex);
+    } catch (ExecutionException ex) {
+      performanceMetricsService.incrementAiSingleFlight(requestKind.name(), "joined_failed");
+      if (ex.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Совпадающий AI-запрос завершился ошибкой", ex.getCause());
+    }
+  }
+
+  // Ключ включает backend, модель и ключ API: запросы на чужой пользовательский ключ не склеиваются.
+  private String flightKey(AiProviderSettingsService.RuntimeResolution runtime,
+                           AiRequestKind requestKind,
+                           List<Map<String, Object>> messages) {
+    Map<String, Object> input = new LinkedHashMap<>();
+    input.put("backend", runtime.backendKey());
+    input.put("model", runtime.model());
+    input.put("apiKey", runtime.apiKey());
+    input.put("maxTokens", runtime.maxTokens());
+    input.put("messages", messages);
+    return aiTextCacheKeyFactory.hashNormalizedInput(requestKind.name(), input);
+  }
+}
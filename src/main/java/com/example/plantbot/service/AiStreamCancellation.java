@@ -0,0 +1,46 @@
+package com.example.plantbot.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Отмена потокового ответа провайдера со стороны потребителя. Тело ответа JDK HttpClient не реагирует
+// на interrupt, поэтому поток чтения освобождается закрытием самого тела из другого потока.
+public final class AiStreamCancellation {
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+  private final AtomicReference<Closeable> upstream = new AtomicReference<>();
+
+  public boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  public void cancel() {
+    if (cancelled.compareAndSet(false, true)) {
+      closeQuietly(upstream.getAndSet(null));
+    }
+  }
+
+  void attach(Closeable body) {
+    upstream.set(body);
+    // Отмена могла прийти до того, как тело появилось: тогда закрываем его сразу.
+    if (cancelled.get()) {
+      closeQuietly(upstream.getAndSet(null));
+    }
+  }
+
+  void detach(Closeable body) {
+    upstream.compareAndSet(body, null);
+  }
+
+  private static void closeQuietly(Closeable body) {
+    if (body == null) {
+      return;
+    }
+    try {
+      body.close();
+    } catch (IOException | RuntimeException ignored) {
+      // Соединение все равно уходит из пула: ошибка закрытия ничего не меняет.
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.example.plantbot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+// Разбор SSE-потока chat/completions (OpenRouter и OpenAI-совместимые API используют один формат):
+// каждая строка "data: {...}" несет choices[0].delta.content, поток завершается "data: [DONE]".
+public final class AiStreamingResponseReader {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final String DATA_PREFIX = "data:";
+  private static final String DONE_MARKER = "[DONE]";
+
+  private AiStreamingResponseReader() {
+  }
+
+  public static String read(InputStream body, Consumer<String> onDelta) throws IOException {
+    return read(body, onDelta, null);
+  }
+
+  // С cancellation тело ответа можно закрыть из другого потока: чтение завершится StreamAbortedException.
+  public static String read(InputStream body, Consumer<String> onDelta, AiStreamCancellation cancellation) throws IOException {
+    StringBuilder answer = new StringBuilder();
+    if (body == null) {
+      return "";
+    }
+    if (cancellation != null) {
+      cancellation.attach(body);
+    }
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (cancellation != null && cancellation.isCancelled()) {
+          throw new StreamAbortedException(new IllegalStateException("AI stream cancelled"));
+        }
+        // Пустые строки разделяют события, строки ":" — keep-alive комментарии провайдера.
+        if (!line.startsWith(DATA_PREFIX)) {
+          continue;
+        }
+        String data = line.substring(DATA_PREFIX.length()).trim();
+        if (data.isEmpty()) {
+          continue;
+        }
+        if (DONE_MARKER.equals(data)) {
+          break;
+        }
+        JsonNode chunk = OBJECT_MAPPER.readTree(data);
+        String error = extractError(chunk);
+        if (error != null) {
+          throw new IllegalStateException(error);
+        }
+        String delta = chunk.path("choices").path(0).path("delta").path("content").asText("");
+        if (!delta.isEmpty()) {
+          answer.append(delta);
+          try {
+            onDelta.accept(delta);
+          } catch (RuntimeException ex) {
+            throw new StreamAbortedException(ex);
+          }
+        }
+      }
+      // Закрытое при отмене тело может выглядеть как обычный конец потока: неполный ответ не отдаем.
+      if (cancellation != null && cancellation.isCancelled()) {
+        throw new StreamAbortedException(new IllegalStateException("AI stream cancelled"));
+      }
+      return answer.toString();
+    } catch (IOException ex) {
+      if (cancellation != null && cancellation.isCancelled()) {
+        throw new StreamAbortedException(ex);
+      }
+      throw ex;
+    } finally {
+      if (cancellation != null) {
+        cancellation.detach(body);
+      }
+    }
+  }
+
+  // Получатель фрагментов отказался их принимать (например, клиент закрыл соединение): это не сбой провайдера.
+  public static final class StreamAbortedException extends RuntimeException {
+    public StreamAbortedException(Throwable cause) {
+      super("AI stream aborted by consumer", cause);
+    }
+  }
+
+  private static String extractError(JsonNode chunk) {
+    JsonNode error = chunk.path("error");
+    if (error.isMissingNode() || error.isNull()) {
+      return null;
+    }
+    String message = error.isTextual() ? error.asText("") : error.path("message").asText("");
+    return message.isBlank() ? "AI provider returned an error in stream" : message.trim();
+  }
+}
@@ -0,0 +1,91 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.repository.AiTextCacheEntryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Write-behind для hitCount/lastAccessedAt: попадания копятся в памяти и пишутся одной транзакцией.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AiTextCacheAccessStatsBuffer {
+  private static final String JOB_NAME = "ai_text_cache_access_flush";
+
+  private final AiTextCacheEntryRepository aiTextCacheEntryRepository;
+  private final PlatformTransactionManager transactionManager;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  private final ConcurrentHashMap<String, PendingAccess> pending = new ConcurrentHashMap<>();
+
+  public void recordHit(String cacheKey) {
+    if (cacheKey == null) {
+      return;
+    }
+    Instant now = Instant.now();
+    pending.merge(cacheKey, new PendingAccess(1L, now), PendingAccess::merge);
+  }
+
+  public int pendingKeys() {
+    return pending.size();
+  }
+
+  @Scheduled(fixedDelayString = "${openrouter.ai-text-cache.access-flush-ms:30000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void scheduledFlush() {
+    scheduledJobGuard.run(JOB_NAME, () -> {
+      flush();
+    });
+  }
+
+  public synchronized int flush() {
+    if (pending.isEmpty()) {
+      return 0;
+    }
+    Map<String, PendingAccess> batch = new HashMap<>();
+    for (String cacheKey : pending.keySet()) {
+      PendingAccess access = pending.remove(cacheKey);
+      if (access != null) {
+        batch.put(cacheKey, access);
+      }
+    }
+    try {
+      new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+          batch.forEach((cacheKey, access) ->
+              aiTextCacheEntryRepository.applyAccessStats(cacheKey, access.hits(), access.lastAccessedAt())));
+    } catch (RuntimeException ex) {
+      // Возвращаем дельты обратно, чтобы не потерять счетчики до следующей попытки.
+      batch.forEach((cacheKey, access) -> pending.merge(cacheKey, access, PendingAccess::merge));
+      throw ex;
+    }
+    performanceMetricsService.incrementSchedulerItems(JOB_NAME, "flushed", batch.size());
+    return batch.size();
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    try {
+      int flushed = flush();
+      log.info("AI text cache access stats flushed on shutdown: keys={}", flushed);
+    } catch (Exception ex) {
+      log.warn("AI text cache access stats flush on shutdown failed: pendingKeys={} : {}", pending.size(), ex.getMessage());
+    }
+  }
+
+  private record PendingAccess(long hits, Instant lastAccessedAt) {
+    PendingAccess merge(PendingAccess other) {
+      Instant latest = other.lastAccessedAt().isAfter(lastAccessedAt) ? other.lastAccessedAt() : lastAccessedAt;
+      return new PendingAccess(hits + other.hits(), latest);
+    }
+  }
+}
@@ -8,6 +8,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.EnumSet;
@@ -35,6 +37,7 @@ public class AiTextCacheInvalidationService {
   );
 
   private final AiTextCacheEntryRepository aiTextCacheEntryRepository;
+  private final AiTextCacheMemoryTier memoryTier;
 
   @Transactional
   public int invalidatePlantScoped(User user, Plant plant, String reason) {
@@ -42,6 +45,7 @@ public class AiTextCacheInvalidationService {
       return 0;
     }
     int invalidated = aiTextCacheEntryRepository.invalidatePlantScoped(user.getId(), plant.getId(), Instant.now());
+    invalidateMemoryTier(() -> memoryTier.invalidatePlantScoped(user.getId(), plant.getId()));
     log.debug("AI text cache invalidated (plant scoped): userId={}, plantId={}, reason={}, count={}",
         user.getId(), plant.getId(), reason, invalidated);
     return invalidated;
@@ -53,6 +57,7 @@ public class AiTextCacheInvalidationService {
       return 0;
     }
     int invalidated = aiTextCacheEntryRepository.invalidatePlantFeatures(user.getId(), plant.getId(), featureTypes, Instant.now());
+    invalidateMemoryTier(() -> memoryTier.invalidatePlantFeatures(user.getId(), plant.getId(), featureTypes));
     log.debug("AI text cache invalidated (feature scoped): userId={}, plantId={}, reason={}, features={}, count={}",
         user.getId(), plant.getId(), reason, featureTypes, invalidated);
     return invalidated;
@@ -64,6 +69,7 @@ public class AiTextCacheInvalidationService {
       return 0;
     }
     int invalidated = aiTextCacheEntryRepository.invalidateUserDraftFeatures(user.getId(), USER_DRAFT_FEATURES, Instant.now());
+    invalidateMemoryTier(() -> memoryTier.invalidateUserDraftFeatures(user.getId(), USER_DRAFT_FEATURES));
     log.debug("AI text cache invalidated (draft/user scoped): userId={}, reason={}, count={}",
         user.getId(), reason, invalidated);
     return invalidated;
@@ -80,8 +86,22 @@ public class AiTextCacheInvalidationService {
       return 0;
     }
     int invalidatedDraft = aiTextCacheEntryRepository.invalidateUserDraftFeatures(user.getId(), USER_DRAFT_FEATURES, Instant.now());
+    invalidateMemoryTier(() -> memoryTier.invalidateUserDraftFeatures(user.getId(), USER_DRAFT_FEATURES));
     log.debug("AI text cache invalidated (location scoped): userId={}, reason={}, draftCount={}",
         user.getId(), reason, invalidatedDraft);
     return invalidatedDraft;
   }
+
+  // L1 чистим сразу и повторно после коммита: параллельное чтение L2 до коммита не должно вернуть старый payload в L1.
+  private void invalidateMemoryTier(Runnable invalidation) {
+    invalidation.run();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          invalidation.run();
+        }
+      });
+    }
+  }
 }
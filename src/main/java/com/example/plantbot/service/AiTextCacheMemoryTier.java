@@ -0,0 +1,208 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiTextFeatureType;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// L1 над SQLite-хранилищем AI text cache по тому же cacheKey. Хранится JSON payload, а не объект:
+// кэшируемые записи содержат изменяемые списки, и общий экземпляр между запросами делить нельзя.
+// Каждое попадание разбирается в запрошенный тип — это микросекунды против SQLite и транзакции.
+@Component
+@RequiredArgsConstructor
+public class AiTextCacheMemoryTier {
+  private final PerformanceMetricsService performanceMetricsService;
+
+  @Value("${openrouter.ai-text-cache.l1.max-entries:2000}")
+  private int maxEntries;
+
+  @Value("${openrouter.ai-text-cache.l1.max-weight-chars:8000000}")
+  private long maxWeightChars;
+
+  @Value("${openrouter.ai-text-cache.l1.ttl-seconds:600}")
+  private long ttlSeconds;
+
+  private final LinkedHashMap<String, MemoryEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+  private final AtomicLong generation = new AtomicLong();
+  private final LongAdder l1Hits = new LongAdder();
+  private final LongAdder l1Misses = new LongAdder();
+  private final LongAdder l2Hits = new LongAdder();
+  private final LongAdder l2Misses = new LongAdder();
+  private long weightChars;
+
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerCacheGauge("ai_text_cache", "l1.size", this::size);
+    performanceMetricsService.registerCacheGauge("ai_text_cache", "l1.weight.chars", this::weight);
+    performanceMetricsService.registerCacheGauge("ai_text_cache", "l1.hit.ratio", () -> ratio(l1Hits, l1Misses));
+    performanceMetricsService.registerCacheGauge("ai_text_cache", "l2.hit.ratio", () -> ratio(l2Hits, l2Misses));
+  }
+
+  // Снимок поколения до чтения L2: если между чтением и записью прошла инвалидация, запись в L1 пропускается.
+  public long generation() {
+    return generation.get();
+  }
+
+  public Optional<MemoryHit> get(String cacheKey) {
+    MemoryEntry entry = lookup(cacheKey);
+    return entry == null
+        ? Optional.empty()
+        : Optional.of(new MemoryHit(entry.payloadJson(), entry.sourceExpiresAt()));
+  }
+
+  public void put(long observedGeneration,
+                  String cacheKey,
+                  Long userId,
+                  Long plantId,
+                  AiTextFeatureType featureType,
+                  String payloadJson,
+                  Instant expiresAt) {
+    if (cacheKey == null || payloadJson == null || maxEntries <= 0) {
+      return;
+    }
+    Instant localExpiry = Instant.now().plusSeconds(Math.max(1, ttlSeconds));
+    Instant effectiveExpiry = expiresAt == null || expiresAt.isAfter(localExpiry) ? localExpiry : expiresAt;
+    MemoryEntry entry = new MemoryEntry(
+        userId,
+        plantId,
+        featureType,
+        payloadJson,
+        Math.max(1, payloadJson.length()),
+        expiresAt,
+        effectiveExpiry
+    );
+    synchronized (entries) {
+      if (generation.get() != observedGeneration) {
+        return;
+      }
+      MemoryEntry previous = entries.put(cacheKey, entry);
+      if (previous != null) {
+        weightChars -= previous.weight();
+      }
+      weightChars += entry.weight();
+      evictIfNeeded();
+    }
+  }
+
+  public void recordL2(boolean hit) {
+    (hit ? l2Hits : l2Misses).increment();
+    performanceMetricsService.incrementCacheLookup("ai_text_cache", "l2", hit ? "hit" : "miss");
+  }
+
+  public void invalidateKey(String cacheKey) {
+    synchronized (entries) {
+      generation.incrementAndGet();
+      MemoryEntry removed = entries.remove(cacheKey);
+      if (removed != null) {
+        weightChars -= removed.weight();
+      }
+    }
+  }
+
+  public void invalidatePlantScoped(Long userId, Long plantId) {
+    removeIf(entry -> Objects.equals(entry.userId(), userId) && Objects.equals(entry.plantId(), plantId));
+  }
+
+  public void invalidatePlantFeatures(Long userId, Long plantId, Collection<AiTextFeatureType> featureTypes) {
+    removeIf(entry -> Objects.equals(entry.userId(), userId)
+        && Objects.equals(entry.plantId(), plantId)
+        && featureTypes.contains(entry.featureType()));
+  }
+
+  public void invalidateUserDraftFeatures(Long userId, Collection<AiTextFeatureType> featureTypes) {
+    removeIf(entry -> Objects.equals(entry.userId(), userId)
+        && entry.plantId() == null
+        && featureTypes.contains(entry.featureType()));
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      generation.incrementAndGet();
+      entries.clear();
+      weightChars = 0;
+    }
+  }
+
+  private MemoryEntry lookup(String cacheKey) {
+    MemoryEntry entry;
+    synchronized (entries) {
+      entry = entries.get(cacheKey);
+      if (entry != null && entry.localExpiresAt().isBefore(Instant.now())) {
+        entries.remove(cacheKey);
+        weightChars -= entry.weight();
+        entry = null;
+      }
+    }
+    boolean hit = entry != null;
+    (hit ? l1Hits : l1Misses).increment();
+    performanceMetricsService.incrementCacheLookup("ai_text_cache", "l1", hit ? "hit" : "miss");
+    return entry;
+  }
+
+  private void removeIf(Predicate<MemoryEntry> predicate) {
+    synchronized (entries) {
+      generation.incrementAndGet();
+      Iterator<Map.Entry<String, MemoryEntry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        MemoryEntry entry = iterator.next().getValue();
+        if (predicate.test(entry)) {
+          weightChars -= entry.weight();
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  private void evictIfNeeded() {
+    Iterator<Map.Entry<String, MemoryEntry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext() && (entries.size() > maxEntries || weightChars > maxWeightChars)) {
+      MemoryEntry eldest = iterator.next().getValue();
+      weightChars -= eldest.weight();
+      iterator.remove();
+    }
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private long weight() {
+    synchronized (entries) {
+      return weightChars;
+    }
+  }
+
+  private double ratio(LongAdder hits, LongAdder misses) {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0.0 : (double) h / total;
+  }
+
+  private record MemoryEntry(
+      Long userId,
+      Long plantId,
+      AiTextFeatureType featureType,
+      String payloadJson,
+      int weight,
+      Instant sourceExpiresAt,
+      Instant localExpiresAt
+  ) {
+  }
+
+  public record MemoryHit(String payloadJson, Instant expiresAt) {
+  }
+}
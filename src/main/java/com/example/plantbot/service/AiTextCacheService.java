@@ -5,16 +5,22 @@ import com.example.plantbot.domain.AiTextFeatureType;
 import com.example.plantbot.repository.AiTextCacheEntryRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +32,10 @@ public class AiTextCacheService {
   private final AiTextCacheKeyFactory aiTextCacheKeyFactory;
   private final OpenRouterGlobalSettingsService openRouterGlobalSettingsService;
   private final ObjectMapper objectMapper;
+  private final AiTextCacheMemoryTier memoryTier;
+  private final PlatformTransactionManager transactionManager;
+  private final AiTextCacheAccessStatsBuffer accessStatsBuffer;
 
-  @Transactional
   public <T> CacheLookupResult<T> find(
       Long userId,
       Long plantId,
@@ -36,19 +44,9 @@ public class AiTextCacheService {
       Map<String, ?> rawInput,
       Class<T> payloadType
   ) {
-    String inputHash = aiTextCacheKeyFactory.hashNormalizedInput(rawInput);
-    String cacheKey = aiTextCacheKeyFactory.buildCacheKey(
-        userId,
-        plantId,
-        featureType,
-        modelName,
-        inputHash,
-        SCHEMA_VERSION
-    );
-    return findByResolvedKey(cacheKey, inputHash, payloadType);
+    return find(userId, plantId, featureType, modelName, rawInput, objectMapper.constructType(payloadType));
   }
 
-  @Transactional
   public <T> CacheLookupResult<T> find(
       Long userId,
       Long plantId,
@@ -56,6 +54,19 @@ public class AiTextCacheService {
       String modelName,
       Map<String, ?> rawInput,
       TypeReference<T> payloadType
+  ) {
+    return find(userId, plantId, featureType, modelName, rawInput, objectMapper.constructType(payloadType));
+  }
+
+  // L1 держит JSON: каждое попадание разбирается в тип, запрошенный именно этим вызовом (Class или TypeReference
+  // с generic-параметрами), и получает собственный экземпляр.
+  private <T> CacheLookupResult<T> find(
+      Long userId,
+      Long plantId,
+      AiTextFeatureType featureType,
+      String modelName,
+      Map<String, ?> rawInput,
+      JavaType payloadType
   ) {
     String inputHash = aiTextCacheKeyFactory.hashNormalizedInput(rawInput);
     String cacheKey = aiTextCacheKeyFactory.buildCacheKey(
@@ -66,7 +77,28 @@ public class AiTextCacheService {
         inputHash,
         SCHEMA_VERSION
     );
-    return findByResolvedKey(cacheKey, inputHash, payloadType);
+    if (!isEnabled()) {
+      return CacheLookupResult.disabled(cacheKey, inputHash);
+    }
+    var memoryHit = memoryTier.get(cacheKey);
+    if (memoryHit.isPresent()) {
+      try {
+        T payload = objectMapper.readValue(memoryHit.get().payloadJson(), payloadType);
+        accessStatsBuffer.recordHit(cacheKey);
+        return CacheLookupResult.hit(cacheKey, inputHash, payload, memoryHit.get().expiresAt());
+      } catch (Exception ex) {
+        // Запись в L1 не подходит под запрошенный тип: решение о порче принимает L2.
+        memoryTier.invalidateKey(cacheKey);
+      }
+    }
+    long generation = memoryTier.generation();
+    StoredLookup<T> stored = inTransaction(() -> findByResolvedKey(cacheKey, inputHash, payloadType));
+    CacheLookupResult<T> result = stored.result();
+    memoryTier.recordL2(result.hit());
+    if (result.hit()) {
+      memoryTier.put(generation, cacheKey, userId, plantId, featureType, stored.payloadJson(), result.expiresAt());
+    }
+    return result;
   }
 
   @Transactional
@@ -96,6 +128,7 @@ public class AiTextCacheService {
       return new CacheWriteResult(null, cacheKey, inputHash, null);
     }
 
+    long generation = memoryTier.generation();
     AiTextCacheEntry entry = aiTextCacheEntryRepository.findByCacheKeyAndInvalidatedAtIsNull(cacheKey)
         .orElseGet(AiTextCacheEntry::new);
 
@@ -106,7 +139,8 @@ public class AiTextCacheService {
     entry.setFeatureType(featureType);
     entry.setInputHash(inputHash);
     entry.setModelName(normalizeModelName(modelName));
-    entry.setResponsePayload(serializePayload(payload));
+    String serializedPayload = serializePayload(payload);
+    entry.setResponsePayload(serializedPayload);
     if (entry.getCreatedAt() == null) {
       entry.setCreatedAt(now);
     }
@@ -117,11 +151,16 @@ public class AiTextCacheService {
     entry.setSchemaVersion(SCHEMA_VERSION);
 
     AiTextCacheEntry saved = aiTextCacheEntryRepository.save(entry);
+    Instant expiresAt = saved.getExpiresAt();
+    // В L1 — только закоммиченное: при откате L2 останется прежним, и L1 не должен ему противоречить.
+    runAfterCommit(() -> memoryTier.put(generation, cacheKey, userId, plantId, featureType, serializedPayload, expiresAt));
     return new CacheWriteResult(saved.getId(), cacheKey, inputHash, saved.getExpiresAt());
   }
 
   @Transactional
   public int cleanupExpiredOrInvalidated() {
+    accessStatsBuffer.flush();
+    // Истекшие записи L1 отбрасывает сам по TTL; инвалидированные уже удалены хуками инвалидации.
     return aiTextCacheEntryRepository.deleteExpiredOrInvalidated(Instant.now());
   }
 
@@ -129,6 +168,7 @@ public class AiTextCacheService {
   public int clearAll() {
     long count = aiTextCacheEntryRepository.countByInvalidatedAtIsNull();
     aiTextCacheEntryRepository.deleteAllInBatch();
+    memoryTier.clear();
     return (int) Math.min(Integer.MAX_VALUE, count);
   }
 
@@ -144,76 +184,56 @@ public class AiTextCacheService {
     return openRouterGlobalSettingsService.resolveAiTextCacheTtlDays();
   }
 
-  private <T> CacheLookupResult<T> findByResolvedKey(String cacheKey, String inputHash, Class<T> payloadType) {
-    if (!isEnabled()) {
-      return CacheLookupResult.disabled(cacheKey, inputHash);
-    }
-
+  private <T> StoredLookup<T> findByResolvedKey(String cacheKey, String inputHash, JavaType payloadType) {
     Optional<AiTextCacheEntry> optionalEntry = aiTextCacheEntryRepository.findByCacheKeyAndInvalidatedAtIsNull(cacheKey);
     if (optionalEntry.isEmpty()) {
-      return CacheLookupResult.miss(cacheKey, inputHash);
+      return StoredLookup.of(CacheLookupResult.miss(cacheKey, inputHash));
     }
 
     AiTextCacheEntry entry = optionalEntry.get();
     if (isExpired(entry)) {
       aiTextCacheEntryRepository.delete(entry);
-      return CacheLookupResult.expired(cacheKey, inputHash);
+      return StoredLookup.of(CacheLookupResult.expired(cacheKey, inputHash));
     }
 
     try {
       T payload = objectMapper.readValue(entry.getResponsePayload(), payloadType);
-      touchEntry(entry);
-      return CacheLookupResult.hit(cacheKey, inputHash, payload, entry.getExpiresAt());
+      accessStatsBuffer.recordHit(cacheKey);
+      return new StoredLookup<>(
+          CacheLookupResult.hit(cacheKey, inputHash, payload, entry.getExpiresAt()),
+          entry.getResponsePayload()
+      );
     } catch (Exception ex) {
       log.warn("AI text cache payload parse failed. cacheKey={}, featureType={}, error={}",
           cacheKey,
           entry.getFeatureType(),
           ex.getMessage());
       aiTextCacheEntryRepository.delete(entry);
-      return CacheLookupResult.corrupted(cacheKey, inputHash);
+      return StoredLookup.of(CacheLookupResult.corrupted(cacheKey, inputHash));
     }
   }
 
-  private <T> CacheLookupResult<T> findByResolvedKey(String cacheKey, String inputHash, TypeReference<T> payloadType) {
-    if (!isEnabled()) {
-      return CacheLookupResult.disabled(cacheKey, inputHash);
-    }
-
-    Optional<AiTextCacheEntry> optionalEntry = aiTextCacheEntryRepository.findByCacheKeyAndInvalidatedAtIsNull(cacheKey);
-    if (optionalEntry.isEmpty()) {
-      return CacheLookupResult.miss(cacheKey, inputHash);
-    }
+  private <T> StoredLookup<T> inTransaction(Supplier<StoredLookup<T>> lookup) {
+    return new TransactionTemplate(transactionManager).execute(status -> lookup.get());
+  }
 
-    AiTextCacheEntry entry = optionalEntry.get();
-    if (isExpired(entry)) {
-      aiTextCacheEntryRepository.delete(entry);
-      return CacheLookupResult.expired(cacheKey, inputHash);
-    }
-
-    try {
-      T payload = objectMapper.readValue(entry.getResponsePayload(), payloadType);
-      touchEntry(entry);
-      return CacheLookupResult.hit(cacheKey, inputHash, payload, entry.getExpiresAt());
-    } catch (Exception ex) {
-      log.warn("AI text cache payload parse failed. cacheKey={}, featureType={}, error={}",
-          cacheKey,
-          entry.getFeatureType(),
-          ex.getMessage());
-      aiTextCacheEntryRepository.delete(entry);
-      return CacheLookupResult.corrupted(cacheKey, inputHash);
+  private void runAfterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
     }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
   }
 
   private boolean isExpired(AiTextCacheEntry entry) {
     return entry.getExpiresAt() == null || entry.getExpiresAt().isBefore(Instant.now());
   }
 
-  private void touchEntry(AiTextCacheEntry entry) {
-    entry.setLastAccessedAt(Instant.now());
-    entry.setHitCount(entry.getHitCount() + 1);
-    aiTextCacheEntryRepository.save(entry);
-  }
-
   private String serializePayload(Object payload) {
     try {
       return objectMapper.writeValueAsString(payload);
@@ -265,6 +285,12 @@ public class AiTextCacheService {
     }
   }
 
+  private record StoredLookup<T>(CacheLookupResult<T> result, String payloadJson) {
+    static <T> StoredLookup<T> of(CacheLookupResult<T> result) {
+      return new StoredLookup<>(result, null);
+    }
+  }
+
   public record CacheWriteResult(
       Long entryId,
       String cacheKey,
@@ -17,6 +17,7 @@ public class CurrentUserService {
 
   public User resolve(Authentication authentication, String initData) {
     if (authentication != null && authentication.getPrincipal() instanceof PwaPrincipal principal) {
+      // Вызывающие сохраняют полученного пользователя: он должен быть свежим из БД, а не из кэша фильтра.
       User user = userRepository.findById(principal.userId())
           .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Пользователь не найден"));
       ensureNotBlocked(user);
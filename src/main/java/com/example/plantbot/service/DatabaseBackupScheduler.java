@@ -1,11 +1,13 @@
 package com.example.plantbot.service;
 
+import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.controller.dto.admin.AdminBackupItemResponse;
 
 import java.nio.file.Files;
@@ -30,11 +32,13 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
 @Service
+@RequiredArgsConstructor
 public class DatabaseBackupScheduler {
   private static final Logger log = LoggerFactory.getLogger(DatabaseBackupScheduler.class);
   private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
   private static final String JDBC_SQLITE_PREFIX = "jdbc:sqlite:";
   private final ReentrantLock restoreLock = new ReentrantLock();
+  private final ScheduledJobGuard scheduledJobGuard;
 
   @Value("${spring.datasource.url}")
   private String datasourceUrl;
@@ -54,17 +58,25 @@ public class DatabaseBackupScheduler {
   @Value("${app.backup.zone:Europe/Moscow}")
   private String zone;
 
-  @Scheduled(cron = "${app.backup.cron:0 10 3 * * *}", zone = "${app.backup.zone:Europe/Moscow}")
+  @Scheduled(
+      cron = "${app.backup.cron:0 10 3 * * *}",
+      zone = "${app.backup.zone:Europe/Moscow}",
+      scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER
+  )
   public void backupNightly() {
-    if (!backupEnabled) {
-      return;
-    }
-    try {
-      AdminBackupItemResponse item = createBackupInternal("scheduler");
-      log.info("DB backup completed by scheduler: file='{}'", item.fileName());
-    } catch (Exception ex) {
-      log.warn("DB backup failed: {}", ex.getMessage(), ex);
-    }
+    scheduledJobGuard.run("database_backup", () -> {
+      if (!backupEnabled) {
+        return "disabled";
+      }
+      try {
+        AdminBackupItemResponse item = createBackupInternal("scheduler");
+        log.info("DB backup completed by scheduler: file='{}'", item.fileName());
+        return "success";
+      } catch (Exception ex) {
+        log.warn("DB backup failed: {}", ex.getMessage(), ex);
+        return "error";
+      }
+    });
   }
 
   public List<AdminBackupItemResponse> listBackups() {
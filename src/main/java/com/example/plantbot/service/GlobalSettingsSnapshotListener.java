@@ -0,0 +1,27 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.GlobalSettings;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+// Любое сохранение глобальных настроек (админка, проверки доступности моделей) сбрасывает снимок.
+// Сервис берется лениво: он зависит от репозитория, а слушатель создается вместе с EntityManagerFactory.
+@Component
+@RequiredArgsConstructor
+public class GlobalSettingsSnapshotListener {
+  private final ObjectProvider<OpenRouterGlobalSettingsService> settingsService;
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void onChange(GlobalSettings settings) {
+    OpenRouterGlobalSettingsService service = settingsService.getIfAvailable();
+    if (service != null) {
+      service.invalidateSnapshot();
+    }
+  }
+}
@@ -2,11 +2,14 @@ package com.example.plantbot.service;
 
 import com.example.plantbot.domain.Plant;
 import com.example.plantbot.domain.WateringLog;
+import com.example.plantbot.repository.PlantRepository;
 import com.example.plantbot.repository.WateringLogRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +18,11 @@ import java.util.OptionalDouble;
 @Service
 @RequiredArgsConstructor
 public class LearningService {
+  // Окно совпадает с выборкой top-20 логов: не больше 19 интервалов.
+  static final int MAX_INTERVALS = 19;
+
   private final WateringLogRepository wateringLogRepository;
+  private final PlantRepository plantRepository;
 
   @Value("${app.learning.last-n:5}")
   private int lastN;
@@ -24,25 +31,93 @@ public class LearningService {
   private double alpha;
 
   public OptionalDouble getAverageInterval(Plant plant) {
-    List<WateringLog> logs = wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(plant);
-    if (logs.size() < 2) {
+    List<Long> intervals = intervals(plant);
+    if (intervals.isEmpty()) {
       return OptionalDouble.empty();
     }
-    List<Long> intervals = new ArrayList<>();
-    for (int i = 0; i < logs.size() - 1; i++) {
-      long days = ChronoUnit.DAYS.between(logs.get(i + 1).getWateredAt(), logs.get(i).getWateredAt());
+    return intervals.stream().mapToLong(Long::longValue).average();
+  }
+
+  public OptionalDouble getSmoothedInterval(Plant plant) {
+    List<Long> intervals = intervals(plant);
+    if (intervals.isEmpty()) {
+      return OptionalDouble.empty();
+    }
+    int limit = Math.min(lastN, intervals.size());
+    if (limit <= 0) {
+      return OptionalDouble.empty();
+    }
+    List<Long> lastIntervals = intervals.subList(intervals.size() - limit, intervals.size());
+    double s = lastIntervals.get(0);
+    for (int i = 1; i < lastIntervals.size(); i++) {
+      s = alpha * lastIntervals.get(i) + (1 - alpha) * s;
+    }
+    return OptionalDouble.of(s);
+  }
+
+  // Вызывается при записи полива: обновляет статистику на растении без чтения логов.
+  // Полив задним числом (раньше последнего учтенного) ломает порядок, тогда статистика пересобирается.
+  public void recordWatering(Plant plant, LocalDate wateredAt) {
+    if (plant == null || wateredAt == null) {
+      return;
+    }
+    LocalDate last = plant.getLearningLastWateredAt();
+    if (plant.getLearningStatsUpdatedAt() == null || (last != null && wateredAt.isBefore(last))) {
+      rebuild(plant);
+      return;
+    }
+    List<Long> intervals = new ArrayList<>(parseIntervals(plant.getLearningIntervalsCsv()));
+    if (last != null) {
+      long days = ChronoUnit.DAYS.between(last, wateredAt);
       if (days > 0) {
         intervals.add(days);
       }
     }
-    return intervals.stream().mapToLong(Long::longValue).average();
+    store(plant, intervals, wateredAt);
   }
 
-  public OptionalDouble getSmoothedInterval(Plant plant) {
+  public void rebuild(Plant plant) {
     List<WateringLog> logs = wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(plant);
-    if (logs.size() < 2) {
-      return OptionalDouble.empty();
+    store(plant, intervalsFromLogs(logs), logs.isEmpty() ? null : logs.get(0).getWateredAt());
+  }
+
+  // Для фоновой пересборки: пишет только колонки статистики.
+  public void rebuildAndPersist(Plant plant) {
+    rebuild(plant);
+    plantRepository.updateLearningStats(
+        plant.getId(),
+        plant.getLearningIntervalsCsv(),
+        plant.getLearningLastWateredAt(),
+        plant.getLearningStatsUpdatedAt()
+    );
+  }
+
+  private List<Long> intervals(Plant plant) {
+    if (plant.getLearningStatsUpdatedAt() != null) {
+      return parseIntervals(plant.getLearningIntervalsCsv());
+    }
+    // Растение еще не прошло пересборку статистики: считаем по логам, как раньше.
+    return intervalsFromLogs(wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(plant));
+  }
+
+  private void store(Plant plant, List<Long> intervals, LocalDate lastWateredAt) {
+    List<Long> window = intervals.size() > MAX_INTERVALS
+        ? intervals.subList(intervals.size() - MAX_INTERVALS, intervals.size())
+        : intervals;
+    StringBuilder csv = new StringBuilder();
+    for (Long interval : window) {
+      if (!csv.isEmpty()) {
+        csv.append(',');
+      }
+      csv.append(interval);
     }
+    plant.setLearningIntervalsCsv(csv.toString());
+    plant.setLearningLastWateredAt(lastWateredAt);
+    plant.setLearningStatsUpdatedAt(Instant.now());
+  }
+
+  // Интервалы в хронологическом порядке; логи приходят от новых к старым.
+  private static List<Long> intervalsFromLogs(List<WateringLog> logs) {
     List<Long> intervals = new ArrayList<>();
     for (int i = logs.size() - 1; i > 0; i--) {
       long days = ChronoUnit.DAYS.between(logs.get(i).getWateredAt(), logs.get(i - 1).getWateredAt());
@@ -50,18 +125,24 @@ public class LearningService {
         intervals.add(days);
       }
     }
-    if (intervals.isEmpty()) {
-      return OptionalDouble.empty();
-    }
-    int limit = Math.min(lastN, intervals.size());
-    List<Long> lastIntervals = new ArrayList<>(intervals.subList(intervals.size() - limit, intervals.size()));
-    if (lastIntervals.isEmpty()) {
-      return OptionalDouble.empty();
+    return intervals;
+  }
+
+  private static List<Long> parseIntervals(String csv) {
+    if (csv == null || csv.isBlank()) {
+      return List.of();
     }
-    double s = lastIntervals.get(0);
-    for (int i = 1; i < lastIntervals.size(); i++) {
-      s = alpha * lastIntervals.get(i) + (1 - alpha) * s;
+    List<Long> intervals = new ArrayList<>();
+    for (String part : csv.split(",")) {
+      try {
+        long days = Long.parseLong(part.trim());
+        if (days > 0) {
+          intervals.add(days);
+        }
+      } catch (NumberFormatException ignored) {
+        // Битое значение пропускаем, полная пересборка его исправит.
+      }
     }
-    return OptionalDouble.of(s);
+    return intervals;
   }
 }
@@ -0,0 +1,69 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.repository.PlantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.LongFunction;
+
+// Пересборка инкрементальной статистики обучения из логов поливов.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LearningStatsRebuildScheduler {
+  private final PlantRepository plantRepository;
+  private final LearningService learningService;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  // Досчитывает растения без статистики (новые колонки после обновления, сбои записи).
+  @Scheduled(
+      initialDelayString = "${app.learning.backfill-initial-delay-ms:60000}",
+      fixedDelayString = "${app.learning.backfill-interval-ms:3600000}",
+      scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER
+  )
+  public void backfillMissing() {
+    scheduledJobGuard.run("learning_stats_backfill", () -> {
+      int rebuilt = rebuildBatches("learning_stats_backfill",
+          plantRepository::findTop200ByLearningStatsUpdatedAtIsNullAndIdGreaterThanOrderByIdAsc);
+      if (rebuilt > 0) {
+        log.info("Learning stats backfill completed: plants={}", rebuilt);
+      }
+    });
+  }
+
+  @Scheduled(cron = "${app.learning.rebuild-cron:0 40 4 * * SUN}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void rebuildAll() {
+    scheduledJobGuard.run("learning_stats_rebuild", () -> {
+      int rebuilt = rebuildBatches("learning_stats_rebuild", plantRepository::findTop200ByIdGreaterThanOrderByIdAsc);
+      log.info("Learning stats rebuild completed: plants={}", rebuilt);
+    });
+  }
+
+  private int rebuildBatches(String job, LongFunction<List<Plant>> nextBatch) {
+    long lastId = 0L;
+    int rebuilt = 0;
+    while (true) {
+      List<Plant> batch = nextBatch.apply(lastId);
+      if (batch.isEmpty()) {
+        return rebuilt;
+      }
+      for (Plant plant : batch) {
+        lastId = plant.getId();
+        try {
+          learningService.rebuildAndPersist(plant);
+          rebuilt++;
+          performanceMetricsService.incrementSchedulerItems(job, "rebuilt", 1);
+        } catch (Exception ex) {
+          performanceMetricsService.incrementSchedulerItems(job, "error", 1);
+          log.warn("Learning stats rebuild failed for plantId={}: {}", plant.getId(), ex.getMessage());
+        }
+      }
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.domain.Plant;
 import com.example.plantbot.domain.User;
 import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.service.notification.NotificationOutboxService;
 import com.example.plantbot.service.notification.SmartNotificationContext;
 import com.example.plantbot.service.recommendation.facade.RecommendationFacade;
 import com.example.plantbot.service.recommendation.mapper.PlantRecommendationContextMapper;
@@ -13,19 +15,38 @@ import com.example.plantbot.service.notification.SmartNotificationDecision;
 import com.example.plantbot.service.notification.SmartNotificationDecisionService;
 import com.example.plantbot.service.notification.SmartNotificationContextService;
 import com.example.plantbot.service.recommendation.runtime.LegacyRuntimeRecommendationDelegate;
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowComparisonService;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowInputs;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowRun;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowSample;
 import com.example.plantbot.util.WateringRecommendation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationScheduler {
+  private static final String SCHEDULER_NAME = "notification_daily_check";
+
   private final PlantRepository plantRepository;
   private final WateringRecommendationService recommendationService;
   private final LearningService learningService;
@@ -33,53 +54,185 @@ public class NotificationScheduler {
   private final RecommendationFacade recommendationFacade;
   private final RuntimeRecommendationAdapter runtimeRecommendationAdapter;
   private final LegacyRuntimeRecommendationDelegate legacyRuntimeRecommendationDelegate;
-  private final WebPushNotificationService webPushNotificationService;
+  private final NotificationOutboxService notificationOutboxService;
   private final SmartNotificationDecisionService smartNotificationDecisionService;
   private final SmartNotificationContextService smartNotificationContextService;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final RecommendationShadowComparisonService shadowComparisonService;
+  private final ScheduledJobGuard scheduledJobGuard;
+
+  @Value("${scheduler.notifications.partitioned-enabled:true}")
+  private boolean partitionedEnabled;
+
+  @Value("${scheduler.notifications.chunk-size:200}")
+  private int partitionChunkSize;
+
+  @Value("${scheduler.notifications.worker-threads:3}")
+  private int partitionWorkerThreads;
 
-  @Scheduled(cron = "${scheduler.daily-cron}")
+  @Scheduled(cron = "${scheduler.daily-cron}", scheduler = SchedulingConfig.NOTIFICATION_SCHEDULER)
   public void dailyCheck() {
-    LocalDate today = LocalDate.now();
-    List<Plant> plants = plantRepository.findAll();
-    for (Plant plant : plants) {
-      User user = plant.getUser();
-      RecommendationRequestContext context = buildNotificationContext(plant, user);
-      RecommendationResult result = recommendationFacade.runtime(context);
-      WateringRecommendation rec = runtimeRecommendationAdapter.adapt(result);
-      WateringRecommendation legacy = legacyRuntimeRecommendationDelegate.recommendProfile(plant, user, true, false, false);
-      logNotificationDualRun(plant, rec, legacy);
-      if (rec.waterLiters() <= 0.0) {
-        continue;
+    scheduledJobGuard.run(SCHEDULER_NAME, () -> {
+      LocalDate today = LocalDate.now();
+      RecommendationShadowRun shadowRun = shadowComparisonService.beginRun(RecommendationFlowType.NOTIFICATION);
+      if (partitionedEnabled) {
+        runPartitioned(today, shadowRun);
+      } else {
+        for (Plant plant : plantRepository.findAll()) {
+          processPlant(plant, today, shadowRun);
+        }
+      }
+    });
+  }
+
+  void runPartitioned(LocalDate today, RecommendationShadowRun shadowRun) {
+    int chunkSize = Math.max(1, partitionChunkSize);
+    int threads = Math.max(1, partitionWorkerThreads);
+    AtomicLong progress = performanceMetricsService.schedulerProgress(SCHEDULER_NAME);
+    progress.set(0);
+    AtomicInteger threadSeq = new AtomicInteger();
+    // Ограниченная очередь + CallerRunsPolicy: при перегрузке чтение следующих чанков притормаживает.
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        threads,
+        threads,
+        30,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(threads * 2),
+        runnable -> {
+          Thread thread = new Thread(runnable, "notification-worker-" + threadSeq.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+    List<Future<?>> futures = new ArrayList<>();
+    int partitions = 0;
+    try {
+      long afterUserId = -1L;
+      long afterPlantId = -1L;
+      List<Plant> carry = new ArrayList<>();
+      while (true) {
+        List<Plant> chunk = plantRepository.findBatchAfterUserAndId(afterUserId, afterPlantId, PageRequest.of(0, chunkSize));
+        if (chunk.isEmpty()) {
+          break;
+        }
+        Plant last = chunk.get(chunk.size() - 1);
+        afterUserId = userId(last);
+        afterPlantId = last.getId();
+
+        Map<Long, List<Plant>> byUser = new LinkedHashMap<>();
+        for (Plant plant : carry) {
+          byUser.computeIfAbsent(userId(plant), key -> new ArrayList<>()).add(plant);
+        }
+        for (Plant plant : chunk) {
+          byUser.computeIfAbsent(userId(plant), key -> new ArrayList<>()).add(plant);
+        }
+        boolean exhausted = chunk.size() < chunkSize;
+        // Растения последнего пользователя могут продолжиться в следующем чанке: держим их до конца,
+        // чтобы все растения одного пользователя обрабатывались одной партицией и по порядку.
+        List<Plant> tail = exhausted ? null : byUser.remove(afterUserId);
+        carry = tail == null ? new ArrayList<>() : tail;
+        for (List<Plant> partition : byUser.values()) {
+          futures.add(executor.submit(() -> processPartition(partition, today, shadowRun, progress)));
+          partitions++;
+        }
+        if (exhausted) {
+          break;
+        }
       }
-      SmartNotificationDecision decision = smartNotificationDecisionService.decide(plant, result, today).orElse(null);
-      if (decision == null) {
-        log.debug("Notification suppressed: plantId={} reason=no-decision", plant.getId());
-        continue;
+      if (!carry.isEmpty()) {
+        List<Plant> partition = carry;
+        futures.add(executor.submit(() -> processPartition(partition, today, shadowRun, progress)));
+        partitions++;
       }
-      SmartNotificationContext notificationContext = smartNotificationContextService.build(plant, result, decision);
-      log.info("Smart notification decision: plantId={} type={} priority={} actionRequired={} silent={} dueDate={} reason={} rationale={}",
-          plant.getId(),
-          decision.type(),
-          decision.priority(),
-          decision.actionRequired(),
-          decision.silent(),
-          decision.dueDate(),
-          notificationContext.primaryReason(),
-          decision.rationale());
-      boolean webPushSent = webPushNotificationService.sendWateringReminder(plant, result, notificationContext);
-      if (!webPushSent) {
-        log.info("Reminder not delivered: plantId={} userId={} type={} webPushEnabled={} pushSubscriptions={}",
-            plant.getId(),
-            user != null ? user.getId() : null,
-            decision.type(),
-            webPushNotificationService.isEnabled(),
-            user != null ? webPushNotificationService.countSubscriptions(user) : 0);
+      for (Future<?> future : futures) {
+        awaitPartition(future);
       }
-      if (webPushSent) {
-        plant.setLastReminderDate(today);
-        plantRepository.save(plant);
+    } finally {
+      executor.shutdown();
+    }
+    log.info("Notification daily check done: mode=partitioned partitions={} plants={} workers={}",
+        partitions, progress.get(), threads);
+  }
+
+  private void processPartition(List<Plant> plants,
+                                LocalDate today,
+                                RecommendationShadowRun shadowRun,
+                                AtomicLong progress) {
+    long startedAt = System.nanoTime();
+    Map<String, Long> outcomes = new LinkedHashMap<>();
+    for (Plant plant : plants) {
+      String outcome;
+      try {
+        outcome = processPlant(plant, today, shadowRun);
+      } catch (Exception ex) {
+        outcome = "error";
+        log.warn("Notification check failed: plantId={} userId={} : {}",
+            plant.getId(), userId(plant), ex.getMessage());
       }
+      outcomes.merge(outcome, 1L, Long::sum);
+      progress.incrementAndGet();
+    }
+    outcomes.forEach((outcome, count) -> performanceMetricsService.incrementSchedulerItems(SCHEDULER_NAME, outcome, count));
+    performanceMetricsService.recordSchedulerPartition(
+        SCHEDULER_NAME,
+        plants.size(),
+        System.nanoTime() - startedAt,
+        outcomes.containsKey("error") ? "partial" : "success"
+    );
+  }
+
+  private void awaitPartition(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Notification daily check interrupted", ex);
+    } catch (ExecutionException ex) {
+      log.warn("Notification partition failed: {}", ex.getCause() == null ? ex.getMessage() : ex.getCause().getMessage());
+    }
+  }
+
+  private String processPlant(Plant plant, LocalDate today, RecommendationShadowRun shadowRun) {
+    User user = plant.getUser();
+    RecommendationRequestContext context = buildNotificationContext(plant, user);
+    RecommendationResult result = recommendationFacade.runtime(context);
+    WateringRecommendation rec = runtimeRecommendationAdapter.adapt(result);
+    submitShadowComparison(shadowRun, plant, user, rec);
+    if (rec.waterLiters() <= 0.0) {
+      return "skipped";
+    }
+    SmartNotificationDecision decision = smartNotificationDecisionService.decide(plant, result, today).orElse(null);
+    if (decision == null) {
+      log.debug("Notification suppressed: plantId={} reason=no-decision", plant.getId());
+      return "suppressed";
+    }
+    SmartNotificationContext notificationContext = smartNotificationContextService.build(plant, result, decision);
+    log.info("Smart notification decision: plantId={} type={} priority={} actionRequired={} silent={} dueDate={} reason={} rationale={}",
+        plant.getId(),
+        decision.type(),
+        decision.priority(),
+        decision.actionRequired(),
+        decision.silent(),
+        decision.dueDate(),
+        notificationContext.primaryReason(),
+        decision.rationale());
+    // Доставка и отметка lastReminderDate — в диспетчере outbox, здесь только решение.
+    NotificationOutboxService.EnqueueResult queued =
+        notificationOutboxService.enqueueWateringReminder(plant, result, notificationContext, today);
+    if (queued == NotificationOutboxService.EnqueueResult.DISABLED) {
+      log.info("Reminder not queued: plantId={} userId={} type={} reason=web-push-disabled",
+          plant.getId(),
+          user != null ? user.getId() : null,
+          decision.type());
+      return "not_delivered";
     }
+    return queued == NotificationOutboxService.EnqueueResult.DUPLICATE ? "duplicate" : "queued";
+  }
+
+  private long userId(Plant plant) {
+    User user = plant.getUser();
+    return user == null || user.getId() == null ? -1L : user.getId();
   }
 
   RecommendationRequestContext buildNotificationContext(Plant plant, User user) {
@@ -98,33 +251,33 @@ public class NotificationScheduler {
     return plantRecommendationContextMapper.mapForNotification(plant, user, learningContext);
   }
 
-  private void logNotificationDualRun(Plant plant, WateringRecommendation unified, WateringRecommendation legacy) {
-    if (plant == null || unified == null || legacy == null) {
+  private void submitShadowComparison(RecommendationShadowRun shadowRun, Plant plant, User user, WateringRecommendation unified) {
+    if (plant == null || unified == null) {
       return;
     }
-    double intervalDiff = Math.abs(unified.intervalDays() - legacy.intervalDays());
-    double waterDiffMl = Math.abs(unified.waterLiters() - legacy.waterLiters()) * 1000.0;
-    LocalDate unifiedDue = plant.getLastWateredDate().plusDays((long) Math.floor(unified.intervalDays()));
-    LocalDate legacyDue = plant.getLastWateredDate().plusDays((long) Math.floor(legacy.intervalDays()));
-    boolean dueShifted = !unifiedDue.equals(legacyDue);
-    if (intervalDiff >= 1.0 || waterDiffMl >= 250.0 || dueShifted) {
-      log.warn("Notification dual-run drift: plantId={} intervalNew={} intervalOld={} waterMlNew={} waterMlOld={} dueNew={} dueOld={}",
-          plant.getId(),
-          roundTwoDecimals(unified.intervalDays()),
-          roundTwoDecimals(legacy.intervalDays()),
-          Math.round(unified.waterLiters() * 1000.0),
-          Math.round(legacy.waterLiters() * 1000.0),
-          unifiedDue,
-          legacyDue);
-    } else {
-      log.debug("Notification dual-run parity ok: plantId={} intervalDiff={} waterDiffMl={}",
-          plant.getId(),
-          roundTwoDecimals(intervalDiff),
-          Math.round(waterDiffMl));
-    }
+    LocalDate lastWatered = plant.getLastWateredDate();
+    shadowComparisonService.compareAsync(
+        shadowRun,
+        plant.getId(),
+        toShadowSample(unified, lastWatered),
+        () -> {
+          // Управляемые сущности в теневой поток не передаются: партиция продолжает с ними работать.
+          // Копии снимаются только для сравнений, прошедших выборку и бюджет.
+          User legacyUser = RecommendationShadowInputs.detachedUser(user);
+          Plant legacyPlant = RecommendationShadowInputs.detachedPlant(plant, legacyUser);
+          return () -> toShadowSample(
+              legacyRuntimeRecommendationDelegate.recommendProfile(legacyPlant, legacyUser, true, false, false),
+              lastWatered
+          );
+        }
+    );
   }
 
-  private double roundTwoDecimals(double value) {
-    return Math.round(value * 100.0) / 100.0;
+  private RecommendationShadowSample toShadowSample(WateringRecommendation recommendation, LocalDate lastWatered) {
+    if (recommendation == null) {
+      return null;
+    }
+    LocalDate due = lastWatered == null ? null : lastWatered.plusDays((long) Math.floor(recommendation.intervalDays()));
+    return new RecommendationShadowSample(recommendation.intervalDays(), recommendation.waterLiters() * 1000.0, due);
   }
 }
@@ -1,12 +1,13 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.service.http.OutboundHttpClients;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -14,18 +15,19 @@ import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.net.URI;
 import java.util.List;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OpenAiExecutionService {
-  private final RestTemplateBuilder restTemplateBuilder;
+  private final OutboundHttpClients outboundHttpClients;
 
   @Value("${openai.base-url:https://api.openai.com/v1/chat/completions}")
   private String baseUrl;
@@ -95,10 +97,7 @@ public class OpenAiExecutionService {
                              Integer maxTokens,
                              List<Map<String, Object>> messages) {
     int effectiveTimeoutMs = requestTimeoutOverrideMs == null ? requestTimeoutMs : requestTimeoutOverrideMs;
-    RestTemplate restTemplate = restTemplateBuilder
-        .setConnectTimeout(Duration.ofMillis(Math.max(1_000, Math.min(5_000, effectiveTimeoutMs))))
-        .setReadTimeout(Duration.ofMillis(Math.max(1_000, effectiveTimeoutMs)))
-        .build();
+    RestTemplate restTemplate = outboundHttpClients.restTemplate(OutboundHttpClients.OPENAI, effectiveTimeoutMs);
 
     HttpHeaders headers = new HttpHeaders();
     headers.setContentType(MediaType.APPLICATION_JSON);
@@ -151,6 +150,77 @@ public class OpenAiExecutionService {
     }
   }
 
+  // Потоковый ответ без json-fallback: чат всегда просит обычный текст. Повтор возможен только до первого фрагмента.
+  public String streamChatCompletion(
+      String apiKey,
+      String baseUrlOverride,
+      String modelName,
+      Integer requestTimeoutOverrideMs,
+      Integer maxTokens,
+      List<Map<String, Object>> messages,
+      Consumer<String> onDelta,
+      AiStreamCancellation cancellation
+  ) {
+    if (apiKey == null || apiKey.isBlank()) {
+      throw new OpenAiExecutionException(false, "OpenAI-compatible API key не настроен");
+    }
+    if (modelName == null || modelName.isBlank()) {
+      throw new OpenAiExecutionException(false, "Модель OpenAI-compatible не выбрана");
+    }
+    int effectiveTimeoutMs = requestTimeoutOverrideMs == null ? requestTimeoutMs : requestTimeoutOverrideMs;
+    RestTemplate restTemplate = outboundHttpClients.restTemplate(OutboundHttpClients.OPENAI, effectiveTimeoutMs);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+    headers.setBearerAuth(apiKey.trim());
+    Map<String, Object> request = buildRequest(modelName, maxTokens, messages, false);
+    request.put("stream", true);
+    AtomicBoolean delivered = new AtomicBoolean();
+    Consumer<String> trackingDelta = delta -> {
+      delivered.set(true);
+      onDelta.accept(delta);
+    };
+
+    for (int attempt = 0; ; attempt += 1) {
+      try {
+        String answer = restTemplate.execute(
+            resolveBaseUrl(baseUrlOverride),
+            HttpMethod.POST,
+            restTemplate.httpEntityCallback(new HttpEntity<>(request, headers)),
+            response -> AiStreamingResponseReader.read(response.getBody(), trackingDelta, cancellation)
+        );
+        return answer == null ? "" : answer;
+      } catch (AiStreamingResponseReader.StreamAbortedException ex) {
+        throw ex;
+      } catch (RuntimeException ex) {
+        OpenAiExecutionException failure = classifyStreamFailure(ex);
+        if (!failure.isRetryable()
+            || delivered.get()
+            || attempt >= Math.max(0, retryCount)
+            || (cancellation != null && cancellation.isCancelled())) {
+          throw failure;
+        }
+        log.warn("OpenAI-compatible stream failed before first token: model='{}' attempt={}/{} reason={}",
+            modelName, attempt + 1, Math.max(1, retryCount + 1), failure.getMessage());
+        sleepBeforeRetry(delayForAttempt(retryBaseDelayMs, retryMaxDelayMs, attempt));
+      }
+    }
+  }
+
+  private OpenAiExecutionException classifyStreamFailure(RuntimeException ex) {
+    if (ex instanceof OpenAiExecutionException openAi) {
+      return openAi;
+    }
+    if (ex instanceof HttpStatusCodeException httpStatus) {
+      return classifyHttpFailure(httpStatus);
+    }
+    if (ex instanceof ResourceAccessException resourceAccess) {
+      return classifyResourceFailure(resourceAccess);
+    }
+    return new OpenAiExecutionException(false, "OpenAI-compatible stream failed: " + safeMessage(ex), ex);
+  }
+
   private OpenAiExecutionException classifyHttpFailure(HttpStatusCodeException ex) {
     int code = ex.getStatusCode().value();
     if (code == 401 || code == 403) {
@@ -0,0 +1,101 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.repository.OpenRouterCacheRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Фоновое обслуживание openrouter_cache: запись в кеш только увеличивает приблизительный счетчик размера,
+// а удаление просроченных и вытеснение самых старых строк выполняется здесь, вне пользовательского запроса.
+@Component
+@Slf4j
+public class OpenRouterCacheCompactor {
+  private static final String JOB_NAME = "openrouter_cache_compaction";
+  private static final String CACHE_NAME = "openrouter_cache";
+  private static final long UNKNOWN_SIZE = -1L;
+
+  private final OpenRouterCacheRepository openRouterCacheRepository;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final long maxEntries;
+  private final long sweepIntervalMs;
+  private final int deleteBatchSize;
+
+  // Оценка сверху: UPSERT не различает вставку и обновление, точное значение восстанавливается при компактизации.
+  private final AtomicLong approximateSize = new AtomicLong(UNKNOWN_SIZE);
+  private final AtomicLong lastSweepAtMs = new AtomicLong();
+
+  public OpenRouterCacheCompactor(OpenRouterCacheRepository openRouterCacheRepository,
+                                  ScheduledJobGuard scheduledJobGuard,
+                                  PerformanceMetricsService performanceMetricsService,
+                                  @Value("${openrouter.cache-max-entries:5000}") int maxEntries,
+                                  @Value("${openrouter.cache-compaction.sweep-interval-ms:600000}") long sweepIntervalMs,
+                                  @Value("${openrouter.cache-compaction.delete-batch-size:500}") int deleteBatchSize) {
+    this.openRouterCacheRepository = openRouterCacheRepository;
+    this.scheduledJobGuard = scheduledJobGuard;
+    this.performanceMetricsService = performanceMetricsService;
+    this.maxEntries = Math.max(100, maxEntries);
+    this.sweepIntervalMs = Math.max(0L, sweepIntervalMs);
+    this.deleteBatchSize = Math.max(1, deleteBatchSize);
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerCacheGauge(CACHE_NAME, "approximate_size", approximateSize::get);
+  }
+
+  public void recordWrite() {
+    approximateSize.updateAndGet(size -> size == UNKNOWN_SIZE ? UNKNOWN_SIZE : size + 1);
+  }
+
+  public void recordCleared() {
+    approximateSize.set(0L);
+  }
+
+  long approximateSize() {
+    return approximateSize.get();
+  }
+
+  // Частая дешевая проверка: в БД идем только при переполнении оценки или по истечении интервала очистки.
+  @Scheduled(fixedDelayString = "${openrouter.cache-compaction.check-interval-ms:30000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void scheduledCompaction() {
+    if (!isCompactionDue(System.currentTimeMillis())) {
+      return;
+    }
+    scheduledJobGuard.run(JOB_NAME, this::compact);
+  }
+
+  boolean isCompactionDue(long nowMs) {
+    long size = approximateSize.get();
+    return size == UNKNOWN_SIZE || size > maxEntries || nowMs - lastSweepAtMs.get() >= sweepIntervalMs;
+  }
+
+  public synchronized int compact() {
+    int expired = openRouterCacheRepository.deleteExpired(Instant.now());
+    long count = openRouterCacheRepository.count();
+    int evicted = 0;
+    // Пачками, чтобы не держать блокировку записи SQLite на все вытеснение сразу.
+    while (count > maxEntries) {
+      int deleted = openRouterCacheRepository.deleteOldest((int) Math.min(deleteBatchSize, count - maxEntries));
+      if (deleted <= 0) {
+        break;
+      }
+      evicted += deleted;
+      count -= deleted;
+    }
+    approximateSize.set(Math.max(0L, count));
+    lastSweepAtMs.set(System.currentTimeMillis());
+    performanceMetricsService.incrementSchedulerItems(JOB_NAME, "expired", expired);
+    performanceMetricsService.incrementSchedulerItems(JOB_NAME, "evicted", evicted);
+    if (expired > 0 || evicted > 0) {
+      log.info("OpenRouter cache compacted: expired={} evicted={} size={}", expired, evicted, count);
+    }
+    return expired + evicted;
+  }
+}
@@ -1,12 +1,13 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.service.http.OutboundHttpClients;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -14,16 +15,17 @@ import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OpenRouterExecutionService {
-  private final RestTemplateBuilder restTemplateBuilder;
+  private final OutboundHttpClients outboundHttpClients;
   private final OpenRouterGlobalSettingsService openRouterGlobalSettingsService;
   private final OpenRouterModelHealthService openRouterModelHealthService;
   private final PerformanceMetricsService performanceMetricsService;
@@ -108,20 +110,12 @@ public class OpenRouterExecutionService {
       String appName,
       List<Map<String, Object>> messages
   ) {
-    RestTemplate restTemplate = restTemplateBuilder
-        .setConnectTimeout(Duration.ofMillis(Math.max(1_000, Math.min(5_000, openRouterGlobalSettingsService.resolveRequestTimeoutMs()))))
-        .setReadTimeout(Duration.ofMillis(openRouterGlobalSettingsService.resolveRequestTimeoutMs()))
-        .build();
+    RestTemplate restTemplate = outboundHttpClients.restTemplate(
+        OutboundHttpClients.OPENROUTER,
+        openRouterGlobalSettingsService.resolveRequestTimeoutMs()
+    );
 
-    HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(MediaType.APPLICATION_JSON);
-    headers.setBearerAuth(apiKey);
-    if (siteUrl != null && !siteUrl.isBlank()) {
-      headers.set("HTTP-Referer", siteUrl);
-    }
-    if (appName != null && !appName.isBlank()) {
-      headers.set("X-Title", appName);
-    }
+    HttpHeaders headers = buildHeaders(apiKey, siteUrl, appName);
 
     Map<String, Object> request = Map.of(
         "model", modelName,
@@ -147,6 +141,110 @@ public class OpenRouterExecutionService {
     }
   }
 
+  // Повторяем поток только до первого фрагмента: после него клиент уже видел часть ответа.
+  public String streamChatCompletion(
+      String apiKey,
+      String modelName,
+      OpenRouterModelKind kind,
+      List<Map<String, Object>> messages,
+      Consumer<String> onDelta,
+      AiStreamCancellation cancellation
+  ) {
+    if (apiKey == null || apiKey.isBlank()) {
+      throw new OpenRouterExecutionException(OpenRouterFailureType.INVALID_KEY, false, "OpenRouter API key не настроен");
+    }
+    if (modelName == null || modelName.isBlank()) {
+      throw new OpenRouterExecutionException(OpenRouterFailureType.MODEL_UNAVAILABLE, false, "Модель OpenRouter не выбрана");
+    }
+    if (!openRouterModelHealthService.shouldAllowRequest(kind, modelName)) {
+      throw new OpenRouterExecutionException(
+          OpenRouterFailureType.CIRCUIT_OPEN,
+          false,
+          "Модель временно отключена после повторяющихся ошибок; ожидаем окно восстановления"
+      );
+    }
+
+    RestTemplate restTemplate = outboundHttpClients.restTemplate(
+        OutboundHttpClients.OPENROUTER,
+        openRouterGlobalSettingsService.resolveRequestTimeoutMs()
+    );
+    HttpHeaders headers = buildHeaders(apiKey, normalizeHeaderValue(null, defaultSiteUrl), normalizeHeaderValue(null, defaultAppName));
+    headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+    Map<String, Object> request = Map.of(
+        "model", modelName,
+        "temperature", 0,
+        "stream", true,
+        "messages", messages
+    );
+
+    int retryCount = openRouterGlobalSettingsService.resolveRetryCount();
+    int baseDelayMs = openRouterGlobalSettingsService.resolveRetryBaseDelayMs();
+    int maxDelayMs = openRouterGlobalSettingsService.resolveRetryMaxDelayMs();
+    AtomicBoolean delivered = new AtomicBoolean();
+    Consumer<String> trackingDelta = delta -> {
+      delivered.set(true);
+      onDelta.accept(delta);
+    };
+
+    for (int attempt = 0; ; attempt += 1) {
+      long startedAt = System.nanoTime();
+      try {
+        String answer = restTemplate.execute(
+            defaultBaseUrl,
+            HttpMethod.POST,
+            restTemplate.httpEntityCallback(new HttpEntity<>(request, headers)),
+            response -> AiStreamingResponseReader.read(response.getBody(), trackingDelta, cancellation)
+        );
+        performanceMetricsService.recordExternalCall("openrouter", "chat_completions_stream", modelName, attempt == 0 ? "success" : "success_after_retry", System.nanoTime() - startedAt);
+        openRouterModelHealthService.recordSuccess(kind, modelName);
+        return answer == null ? "" : answer;
+      } catch (AiStreamingResponseReader.StreamAbortedException ex) {
+        performanceMetricsService.recordExternalCall("openrouter", "chat_completions_stream", modelName, "aborted", System.nanoTime() - startedAt);
+        throw ex;
+      } catch (RuntimeException ex) {
+        OpenRouterExecutionException failure = classifyStreamFailure(ex);
+        boolean retry = failure.isRetryable()
+            && !delivered.get()
+            && attempt < retryCount
+            && (cancellation == null || !cancellation.isCancelled());
+        performanceMetricsService.recordExternalCall("openrouter", "chat_completions_stream", modelName,
+            retry ? "retry_" + failure.getFailureType().name().toLowerCase() : "failed", System.nanoTime() - startedAt);
+        performanceMetricsService.incrementExternalFailure("openrouter", "chat_completions_stream", failure.getFailureType().name().toLowerCase());
+        if (!retry) {
+          openRouterModelHealthService.recordFailure(kind, modelName, failure.getFailureType(), failure.getMessage());
+          throw failure;
+        }
+        sleepBeforeRetry(delayForAttempt(baseDelayMs, maxDelayMs, attempt));
+      }
+    }
+  }
+
+  private HttpHeaders buildHeaders(String apiKey, String siteUrl, String appName) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.setBearerAuth(apiKey);
+    if (siteUrl != null && !siteUrl.isBlank()) {
+      headers.set("HTTP-Referer", siteUrl);
+    }
+    if (appName != null && !appName.isBlank()) {
+      headers.set("X-Title", appName);
+    }
+    return headers;
+  }
+
+  private OpenRouterExecutionException classifyStreamFailure(RuntimeException ex) {
+    if (ex instanceof OpenRouterExecutionException openRouter) {
+      return openRouter;
+    }
+    if (ex instanceof HttpStatusCodeException httpStatus) {
+      return classifyHttpFailure(httpStatus);
+    }
+    if (ex instanceof ResourceAccessException resourceAccess) {
+      return classifyResourceFailure(resourceAccess);
+    }
+    return new OpenRouterExecutionException(OpenRouterFailureType.TEMPORARY_ERROR, false, "Ошибка OpenRouter: " + safeMessage(ex), ex);
+  }
+
   private OpenRouterExecutionException classifyHttpFailure(HttpStatusCodeException ex) {
     int code = ex.getStatusCode().value();
     String body = ex.getResponseBodyAsString();
@@ -9,11 +9,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
@@ -36,6 +40,16 @@ public class OpenRouterGlobalSettingsService {
   private final GlobalSettingsRepository globalSettingsRepository;
   private final AiTextCacheEntryRepository aiTextCacheEntryRepository;
   private final OpenRouterApiKeyCryptoService cryptoService;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  // Снимок настроек для горячих путей: сбрасывается слушателем сущности при любом сохранении,
+  // а раз в интервал сверяется с updated_at на случай изменений мимо JPA.
+  private final AtomicReference<SettingsSnapshot> snapshot = new AtomicReference<>();
+  private final AtomicLong nextVersionCheckAt = new AtomicLong();
+  private final AtomicLong generation = new AtomicLong();
+
+  @Value("${app.settings.snapshot-version-check-ms:30000}")
+  private long snapshotVersionCheckMs;
 
   @Value("${openrouter.resilience.retry-count:2}")
   private int defaultRetryCount;
@@ -67,6 +81,77 @@ public class OpenRouterGlobalSettingsService {
   @Value("${openrouter.api-key:}")
   private String fallbackOpenRouterApiKey;
 
+  public SettingsSnapshot snapshot() {
+    SettingsSnapshot current = snapshot.get();
+    if (current != null && !versionCheckDue()) {
+      performanceMetricsService.incrementCacheLookup("global_settings", "memory", "hit");
+      return current;
+    }
+    if (current != null && Objects.equals(
+        globalSettingsRepository.findUpdatedAtById(SINGLETON_ID).orElse(null),
+        current.version())) {
+      performanceMetricsService.incrementCacheLookup("global_settings", "memory", "verified");
+      return current;
+    }
+    performanceMetricsService.incrementCacheLookup("global_settings", "memory", "miss");
+    long loadGeneration = generation.get();
+    SettingsSnapshot loaded = toSnapshot(getOrCreate());
+    // Сброс во время чтения: отдаем прочитанное, но не публикуем его как актуальный снимок.
+    if (generation.get() == loadGeneration) {
+      snapshot.compareAndSet(current, loaded);
+    }
+    return loaded;
+  }
+
+  // Вызывается слушателем GlobalSettings. Повторный сброс после коммита не дает закрепиться
+  // снимку, прочитанному параллельно до фиксации транзакции.
+  public void invalidateSnapshot() {
+    invalidateNow();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          invalidateNow();
+        }
+      });
+    }
+  }
+
+  private void invalidateNow() {
+    generation.incrementAndGet();
+    snapshot.set(null);
+    performanceMetricsService.incrementCacheEviction("global_settings", "invalidate");
+  }
+
+  // Проверку версии выполняет один поток за интервал, остальные читают снимок без ожидания.
+  private boolean versionCheckDue() {
+    long now = System.currentTimeMillis();
+    long next = nextVersionCheckAt.get();
+    return now >= next && nextVersionCheckAt.compareAndSet(next, now + Math.max(1000L, snapshotVersionCheckMs));
+  }
+
+  private SettingsSnapshot toSnapshot(GlobalSettings settings) {
+    return new SettingsSnapshot(
+        settings.getUpdatedAt(),
+        settings.isAiTextCacheEnabled(),
+        normalizeAiTextCacheTtlDays(settings.getAiTextCacheTtlDays()),
+        Boolean.TRUE.equals(settings.getOpenrouterHealthChecksEnabled()),
+        normalizeRetryCount(settings.getOpenrouterRetryCount()),
+        normalizeRetryBaseDelayMs(settings.getOpenrouterRetryBaseDelayMs()),
+        normalizeRetryMaxDelayMs(settings.getOpenrouterRetryMaxDelayMs(), settings.getOpenrouterRetryBaseDelayMs()),
+        normalizeRequestTimeoutMs(settings.getOpenrouterRequestTimeoutMs()),
+        normalizeDegradedFailureThreshold(settings.getOpenrouterDegradedFailureThreshold()),
+        normalizeUnavailableFailureThreshold(
+            settings.getOpenrouterUnavailableFailureThreshold(),
+            settings.getOpenrouterDegradedFailureThreshold()
+        ),
+        normalizeUnavailableCooldownMinutes(settings.getOpenrouterUnavailableCooldownMinutes()),
+        normalizeRecoveryRecheckIntervalMinutes(settings.getOpenrouterRecoveryRecheckIntervalMinutes()),
+        resolveApiKey(settings),
+        resolveModels(settings)
+    );
+  }
+
   @Transactional
   public GlobalSettings getOrCreate() {
     GlobalSettings settings = globalSettingsRepository.findById(SINGLETON_ID).orElseGet(() -> {
@@ -115,53 +200,47 @@ public class OpenRouterGlobalSettingsService {
   }
 
   public boolean isAiTextCacheEnabled() {
-    return getOrCreate().isAiTextCacheEnabled();
+    return snapshot().aiTextCacheEnabled();
   }
 
   public int resolveAiTextCacheTtlDays() {
-    Integer configured = getOrCreate().getAiTextCacheTtlDays();
-    return normalizeAiTextCacheTtlDays(configured);
+    return snapshot().aiTextCacheTtlDays();
   }
 
   public boolean resolveHealthChecksEnabled() {
-    return Boolean.TRUE.equals(getOrCreate().getOpenrouterHealthChecksEnabled());
+    return snapshot().healthChecksEnabled();
   }
 
   public int resolveRetryCount() {
-    return normalizeRetryCount(getOrCreate().getOpenrouterRetryCount());
+    return snapshot().retryCount();
   }
 
   public int resolveRetryBaseDelayMs() {
-    return normalizeRetryBaseDelayMs(getOrCreate().getOpenrouterRetryBaseDelayMs());
+    return snapshot().retryBaseDelayMs();
   }
 
   public int resolveRetryMaxDelayMs() {
-    GlobalSettings settings = getOrCreate();
-    return normalizeRetryMaxDelayMs(settings.getOpenrouterRetryMaxDelayMs(), settings.getOpenrouterRetryBaseDelayMs());
+    return snapshot().retryMaxDelayMs();
   }
 
   public int resolveRequestTimeoutMs() {
-    return normalizeRequestTimeoutMs(getOrCreate().getOpenrouterRequestTimeoutMs());
+    return snapshot().requestTimeoutMs();
   }
 
   public int resolveDegradedFailureThreshold() {
-    return normalizeDegradedFailureThreshold(getOrCreate().getOpenrouterDegradedFailureThreshold());
+    return snapshot().degradedFailureThreshold();
   }
 
   public int resolveUnavailableFailureThreshold() {
-    GlobalSettings settings = getOrCreate();
-    return normalizeUnavailableFailureThreshold(
-        settings.getOpenrouterUnavailableFailureThreshold(),
-        settings.getOpenrouterDegradedFailureThreshold()
-    );
+    return snapshot().unavailableFailureThreshold();
   }
 
   public int resolveUnavailableCooldownMinutes() {
-    return normalizeUnavailableCooldownMinutes(getOrCreate().getOpenrouterUnavailableCooldownMinutes());
+    return snapshot().unavailableCooldownMinutes();
   }
 
   public int resolveRecoveryRecheckIntervalMinutes() {
-    return normalizeRecoveryRecheckIntervalMinutes(getOrCreate().getOpenrouterRecoveryRecheckIntervalMinutes());
+    return snapshot().recoveryRecheckIntervalMinutes();
   }
 
   @Transactional
@@ -515,6 +594,24 @@ public class OpenRouterGlobalSettingsService {
     return Math.max(MIN_AI_TEXT_CACHE_TTL_DAYS, Math.min(MAX_AI_TEXT_CACHE_TTL_DAYS, ttlDays));
   }
 
+  public record SettingsSnapshot(
+      Instant version,
+      boolean aiTextCacheEnabled,
+      int aiTextCacheTtlDays,
+      boolean healthChecksEnabled,
+      int retryCount,
+      int retryBaseDelayMs,
+      int retryMaxDelayMs,
+      int requestTimeoutMs,
+      int degradedFailureThreshold,
+      int unavailableFailureThreshold,
+      int unavailableCooldownMinutes,
+      int recoveryRecheckIntervalMinutes,
+      String apiKey,
+      ResolvedModels models
+  ) {
+  }
+
   public record ResolvedModels(
       String chatModel,
       String photoRecognitionModel,
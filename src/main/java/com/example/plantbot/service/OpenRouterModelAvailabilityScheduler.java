@@ -1,5 +1,6 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.domain.GlobalSettings;
 import com.example.plantbot.domain.OpenRouterModelAvailabilityStatus;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,7 @@ public class OpenRouterModelAvailabilityScheduler {
   private final OpenRouterModelAvailabilityPersistenceService persistenceService;
   private final AdminNotificationService adminNotificationService;
   private final PerformanceMetricsService performanceMetricsService;
+  private final ScheduledJobGuard scheduledJobGuard;
 
   private final AtomicBoolean textCheckRunning = new AtomicBoolean(false);
   private final AtomicBoolean photoCheckRunning = new AtomicBoolean(false);
@@ -28,22 +30,17 @@ public class OpenRouterModelAvailabilityScheduler {
   @Value("${openrouter.availability.notification-cooldown-minutes:360}")
   private int notificationCooldownMinutes;
 
-  @Scheduled(fixedDelayString = "${openrouter.availability.scheduler-delay-ms:60000}")
+  @Scheduled(fixedDelayString = "${openrouter.availability.scheduler-delay-ms:60000}", scheduler = SchedulingConfig.IO_SCHEDULER)
   public void pollAvailability() {
-    long startedAt = System.nanoTime();
-    GlobalSettings settings = openRouterGlobalSettingsService.getOrCreate();
-    if (!Boolean.TRUE.equals(settings.getOpenrouterHealthChecksEnabled())) {
-      performanceMetricsService.recordSchedulerRun("openrouter_model_availability", System.nanoTime() - startedAt, "disabled");
-      return;
-    }
-    try {
+    scheduledJobGuard.run("openrouter_model_availability", () -> {
+      GlobalSettings settings = openRouterGlobalSettingsService.getOrCreate();
+      if (!Boolean.TRUE.equals(settings.getOpenrouterHealthChecksEnabled())) {
+        return "disabled";
+      }
       maybeCheckTextModel(settings);
       maybeCheckPhotoModel(settings);
-      performanceMetricsService.recordSchedulerRun("openrouter_model_availability", System.nanoTime() - startedAt, "success");
-    } catch (Exception ex) {
-      performanceMetricsService.recordSchedulerRun("openrouter_model_availability", System.nanoTime() - startedAt, "error");
-      throw ex;
-    }
+      return "success";
+    });
   }
 
   private void maybeCheckTextModel(GlobalSettings settings) {
@@ -34,6 +34,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,6 +54,8 @@ public class OpenRouterPlantAdvisorService {
   private final AiTextCacheService aiTextCacheService;
   private final AiProviderSettingsService aiProviderSettingsService;
   private final AiExecutionService aiExecutionService;
+  private final AiRequestCoalescer aiRequestCoalescer;
+  private final OpenRouterCacheCompactor openRouterCacheCompactor;
 
   @Value("${openrouter.care-cache-ttl-minutes:10080}")
   private int careCacheTtlMinutes;
@@ -63,9 +66,6 @@ public class OpenRouterPlantAdvisorService {
   @Value("${openrouter.chat-cache-ttl-minutes:10080}")
   private int chatCacheTtlMinutes;
 
-  @Value("${openrouter.cache-max-entries:5000}")
-  private int cacheMaxEntries;
-
   @Value("${openrouter.cache-negative-ttl-seconds:90}")
   private int negativeCacheTtlSeconds;
 
@@ -525,6 +525,59 @@ public class OpenRouterPlantAdvisorService {
     return Optional.empty();
   }
 
+  // Потоковый чат: ответ из кэша отдается одним фрагментом, свежий — по мере генерации; в кэш попадает только полный ответ.
+  public Optional<ChatAnswer> streamGardeningAnswer(User user,
+                                                   String question,
+                                                   String photoBase64,
+                                                   Consumer<String> onDelta,
+                                                   AiStreamCancellation cancellation) {
+    if (question == null || question.isBlank()) {
+      return Optional.empty();
+    }
+
+    String normalizedQuestion = question.trim();
+    String normalizedPhoto = normalizePhotoBase64(photoBase64);
+    boolean hasPhoto = normalizedPhoto != null;
+    AiProviderSettingsService.RuntimeResolution runtime = resolveChatRuntime(user, hasPhoto);
+    if (!runtime.hasApiKey()) {
+      aiExecutionService.recordConfigurationFailure(runtime, AiRequestKind.ASSISTANT_CHAT, "AI runtime is not configured");
+      return Optional.empty();
+    }
+
+    String cacheKey = buildChatCacheKey(runtime.analyticsModelKey(), normalizedQuestion);
+    if (!hasPhoto) {
+      Optional<String> cached = getChatAnswerCache(cacheKey);
+      if (cached != null) {
+        cached.ifPresent(onDelta);
+        return cached.map(answer -> new ChatAnswer(answer, runtime.sourceLabel()));
+      }
+    }
+
+    try {
+      String answer = aiExecutionService.stream(
+          runtime,
+          AiRequestKind.ASSISTANT_CHAT,
+          buildChatMessages(normalizedQuestion, normalizedPhoto),
+          onDelta,
+          cancellation
+      ).trim();
+      if (answer.isEmpty()) {
+        return Optional.empty();
+      }
+      if (!hasPhoto) {
+        putChatAnswerCache(cacheKey, Optional.of(answer));
+      }
+      return Optional.of(new ChatAnswer(answer, runtime.sourceLabel()));
+    } catch (AiStreamingResponseReader.StreamAbortedException ex) {
+      log.info("AI chat stream aborted by client. provider={} model='{}'", runtime.provider(), runtime.model());
+    } catch (Exception ex) {
+      log.warn("AI chat stream failed. provider={} model='{}', hasPhoto={}, question='{}': {}",
+          runtime.provider(), runtime.model(), hasPhoto, preview(normalizedQuestion), ex.getMessage());
+    }
+
+    return Optional.empty();
+  }
+
   private Map<String, Object> buildCareCacheInput(Plant plant, double recommendedIntervalDays) {
     Map<String, Object> input = new LinkedHashMap<>();
     input.put("plantId", plant.getId());
@@ -620,7 +673,7 @@ public class OpenRouterPlantAdvisorService {
       AiRequestKind requestKind,
       List<Map<String, Object>> messages
   ) {
-    return aiExecutionService.execute(runtime, requestKind, messages).body();
+    return aiRequestCoalescer.execute(runtime, requestKind, messages);
   }
 
   private String extractContent(JsonNode body) {
@@ -1164,23 +1217,14 @@ public class OpenRouterPlantAdvisorService {
   }
 
   private void putCareAdviceCache(String key, Optional<PlantCareAdvice> value) {
-    long ttlSeconds = value.isPresent()
-        ? Math.max(1, careCacheTtlMinutes) * 60L
-        : Math.max(30, negativeCacheTtlSeconds);
-    OpenRouterCacheEntry row = openRouterCacheRepository.findByCacheKey(key).orElseGet(OpenRouterCacheEntry::new);
-    row.setCacheKey(key);
-    row.setNamespace(NS_CARE);
-    row.setHit(value.isPresent());
-    row.setExpiresAt(Instant.now().plusSeconds(ttlSeconds));
-    row.setUpdatedAt(Instant.now());
+    long ttlSeconds = Math.max(1, careCacheTtlMinutes) * 60L;
+    String payload = null;
     try {
-      row.setPayload(value.isPresent() ? objectMapper.writeValueAsString(value.get()) : null);
+      payload = value.isPresent() ? objectMapper.writeValueAsString(value.get()) : null;
     } catch (Exception ex) {
-      row.setPayload(null);
-      row.setHit(false);
+      // Несериализуемый ответ сохраняем как промах, как и раньше.
     }
-    openRouterCacheRepository.save(row);
-    enforceCacheLimit();
+    writeCacheEntry(key, NS_CARE, payload != null, payload, ttlSeconds);
   }
 
   private Optional<AIWateringProfile> getWateringProfileCache(String key) {
@@ -1205,23 +1249,14 @@ public class OpenRouterPlantAdvisorService {
   }
 
   private void putWateringProfileCache(String key, Optional<AIWateringProfile> value) {
-    long ttlSeconds = value.isPresent()
-        ? Math.max(1, wateringCacheTtlMinutes) * 60L
-        : Math.max(30, negativeCacheTtlSeconds);
-    OpenRouterCacheEntry row = openRouterCacheRepository.findByCacheKey(key).orElseGet(OpenRouterCacheEntry::new);
-    row.setCacheKey(key);
-    row.setNamespace(NS_WATERING);
-    row.setHit(value.isPresent());
-    row.setExpiresAt(Instant.now().plusSeconds(ttlSeconds));
-    row.setUpdatedAt(Instant.now());
+    long ttlSeconds = Math.max(1, wateringCacheTtlMinutes) * 60L;
+    String payload = null;
     try {
-      row.setPayload(value.isPresent() ? objectMapper.writeValueAsString(value.get()) : null);
+      payload = value.isPresent() ? objectMapper.writeValueAsString(value.get()) : null;
     } catch (Exception ex) {
-      row.setPayload(null);
-      row.setHit(false);
+      // Несериализуемый ответ сохраняем как промах, как и раньше.
     }
-    openRouterCacheRepository.save(row);
-    enforceCacheLimit();
+    writeCacheEntry(key, NS_WATERING, payload != null, payload, ttlSeconds);
   }
 
   private Optional<String> getChatAnswerCache(String key) {
@@ -1244,35 +1279,19 @@ public class OpenRouterPlantAdvisorService {
 
   private void putChatAnswerCache(String key, Optional<String> value) {
     long ttlSeconds = Math.max(1, chatCacheTtlMinutes) * 60L;
-    OpenRouterCacheEntry row = openRouterCacheRepository.findByCacheKey(key).orElseGet(OpenRouterCacheEntry::new);
-    row.setCacheKey(key);
-    row.setNamespace(NS_CHAT);
-    row.setHit(value.isPresent());
-    row.setPayload(value.orElse(null));
-    row.setExpiresAt(Instant.now().plusSeconds(ttlSeconds));
-    row.setUpdatedAt(Instant.now());
-    openRouterCacheRepository.save(row);
-    enforceCacheLimit();
-  }
-
-  private void enforceCacheLimit() {
+    writeCacheEntry(key, NS_CHAT, value.isPresent(), value.orElse(null), ttlSeconds);
+  }
+
+  // hitTtlSeconds — срок для попадания. Промах (в том числе несериализуемый ответ) живет negative TTL.
+  private void writeCacheEntry(String key, String namespace, boolean hit, String payload, long hitTtlSeconds) {
+    Instant now = Instant.now();
+    long ttlSeconds = hit ? hitTtlSeconds : Math.max(30, negativeCacheTtlSeconds);
     try {
-      openRouterCacheRepository.deleteExpired(Instant.now());
-      long max = Math.max(100, cacheMaxEntries);
-      long count = openRouterCacheRepository.count();
-      if (count <= max) {
-        return;
-      }
-      List<OpenRouterCacheEntry> oldest = openRouterCacheRepository.findTop200ByOrderByUpdatedAtAsc();
-      long toDelete = count - max;
-      if (toDelete <= 0 || oldest.isEmpty()) {
-        return;
-      }
-      int end = (int) Math.min(toDelete, oldest.size());
-      openRouterCacheRepository.deleteAllInBatch(oldest.subList(0, end));
+      openRouterCacheRepository.upsert(key, namespace, hit, payload, now.plusSeconds(ttlSeconds), now);
+      openRouterCacheCompactor.recordWrite();
     } catch (Exception ex) {
-      // Ошибки обслуживания кеша не должны ронять пользовательские запросы.
-      log.warn("OpenRouter cache maintenance skipped: {}", ex.getMessage());
+      // Ошибка записи в кеш не должна ронять пользовательский запрос: ответ уже получен.
+      log.warn("OpenRouter cache write skipped: namespace={} : {}", namespace, ex.getMessage());
     }
   }
 
@@ -1281,6 +1300,7 @@ public class OpenRouterPlantAdvisorService {
     int wateringSize = (int) openRouterCacheRepository.countByNamespace(NS_WATERING);
     int chatSize = (int) openRouterCacheRepository.countByNamespace(NS_CHAT);
     openRouterCacheRepository.deleteAllInBatch();
+    openRouterCacheCompactor.recordCleared();
     return new CacheClearStats(careSize, wateringSize, chatSize);
   }
 
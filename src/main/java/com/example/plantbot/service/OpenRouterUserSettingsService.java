@@ -23,11 +23,10 @@ public class OpenRouterUserSettingsService {
   }
 
   public String resolveGlobalApiKey() {
-    var settings = openRouterGlobalSettingsService.getOrCreate();
-    return openRouterGlobalSettingsService.resolveApiKey(settings);
+    return openRouterGlobalSettingsService.snapshot().apiKey();
   }
 
   public OpenRouterGlobalSettingsService.ResolvedModels resolveGlobalModels() {
-    return openRouterGlobalSettingsService.resolveModels(openRouterGlobalSettingsService.getOrCreate());
+    return openRouterGlobalSettingsService.snapshot().models();
   }
 }
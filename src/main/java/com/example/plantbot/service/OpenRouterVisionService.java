@@ -479,9 +479,11 @@ public class OpenRouterVisionService {
     );
   }
 
-  public String generateGrowthSummary(User user, String imageBase64, String plantName) {
+  // Сводка для очереди: ошибка провайдера пробрасывается, чтобы задачу можно было повторить.
+  // null означает, что AI не настроен и повторять нечего.
+  public String requestGrowthSummary(User user, String imageBase64, String plantName) {
     validateImage(imageBase64);
-    
+
     if (plantName == null || plantName.isBlank()) {
       plantName = "комнатное растение";
     }
@@ -491,13 +493,7 @@ public class OpenRouterVisionService {
       return null;
     }
 
-    JsonNode payload;
-    try {
-      payload = callProvider(user, runtime, AiRequestKind.GROWTH_SUMMARY, growthSummarySystemPrompt(), growthSummaryUserPrompt(plantName), imageBase64);
-    } catch (ResponseStatusException ex) {
-      log.warn("Growth summary generation failed: {}", ex.getReason());
-      return null;
-    }
+    JsonNode payload = callProvider(user, runtime, AiRequestKind.GROWTH_SUMMARY, growthSummarySystemPrompt(), growthSummaryUserPrompt(plantName), imageBase64);
 
     String content = extractMessageContent(payload);
     String summary = content.trim();
@@ -1,17 +1,23 @@
 package com.example.plantbot.service;
 
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class PerformanceMetricsService {
   private final MeterRegistry meterRegistry;
+  private final Map<String, AtomicLong> schedulerProgress = new ConcurrentHashMap<>();
 
   public void recordHttpRequest(String method, String path, int status, long durationNanos) {
     Timer.builder("plantbot.http.server.requests")
@@ -54,6 +60,20 @@ public class PerformanceMetricsService {
         .record(durationNanos, TimeUnit.NANOSECONDS);
   }
 
+  public void recordSchedulerStartDelay(String scheduler, long delayNanos) {
+    Timer.builder("plantbot.scheduler.start.delay")
+        .tag("scheduler", safe(scheduler))
+        .register(meterRegistry)
+        .record(Math.max(0L, delayNanos), TimeUnit.NANOSECONDS);
+  }
+
+  public void recordSchedulerPoolStartDelay(String pool, long delayNanos) {
+    Timer.builder("plantbot.scheduler.pool.start.delay")
+        .tag("pool", safe(pool))
+        .register(meterRegistry)
+        .record(Math.max(0L, delayNanos), TimeUnit.NANOSECONDS);
+  }
+
   public void incrementSchedulerOverlap(String scheduler) {
     meterRegistry.counter(
         "plantbot.scheduler.overlaps",
@@ -61,6 +81,164 @@ public class PerformanceMetricsService {
     ).increment();
   }
 
+  public void recordSchedulerPartition(String scheduler, int items, long durationNanos, String outcome) {
+    Timer.builder("plantbot.scheduler.partitions")
+        .tag("scheduler", safe(scheduler))
+        .tag("outcome", safe(outcome))
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+    meterRegistry.summary(
+        "plantbot.scheduler.partition.size",
+        "scheduler", safe(scheduler)
+    ).record(Math.max(0, items));
+  }
+
+  public void incrementSchedulerItems(String scheduler, String outcome, long count) {
+    if (count <= 0) {
+      return;
+    }
+    meterRegistry.counter(
+        "plantbot.scheduler.items",
+        "scheduler", safe(scheduler),
+        "outcome", safe(outcome)
+    ).increment(count);
+  }
+
+  // Прогресс текущего прогона планировщика: экспортируется как gauge, сбрасывается на старте прогона.
+  public AtomicLong schedulerProgress(String scheduler) {
+    String key = safe(scheduler);
+    return schedulerProgress.computeIfAbsent(key, name -> {
+      AtomicLong value = new AtomicLong();
+      Gauge.builder("plantbot.scheduler.progress", value, AtomicLong::get)
+          .tag("scheduler", name)
+          .register(meterRegistry);
+      return value;
+    });
+  }
+
+  public void recordShadowDrift(String flow, double intervalDiffDays, double waterDiffMl) {
+    meterRegistry.summary(
+        "plantbot.recommendation.shadow.interval.diff.days",
+        "flow", safe(flow)
+    ).record(Math.max(0.0, intervalDiffDays));
+    meterRegistry.summary(
+        "plantbot.recommendation.shadow.water.diff.ml",
+        "flow", safe(flow)
+    ).record(Math.max(0.0, waterDiffMl));
+  }
+
+  public void incrementShadowComparison(String flow, String outcome) {
+    meterRegistry.counter(
+        "plantbot.recommendation.shadow.comparisons",
+        "flow", safe(flow),
+        "outcome", safe(outcome)
+    ).increment();
+  }
+
+  public void incrementCacheLookup(String cache, String tier, String outcome) {
+    meterRegistry.counter(
+        "plantbot.cache.lookups",
+        "cache", safe(cache),
+        "tier", safe(tier),
+        "outcome", safe(outcome)
+    ).increment();
+  }
+
+  public void incrementCacheEviction(String cache, String reason) {
+    meterRegistry.counter(
+        "plantbot.cache.evictions",
+        "cache", safe(cache),
+        "reason", safe(reason)
+    ).increment();
+  }
+
+  public void registerCacheGauge(String cache, String metric, Supplier<Number> supplier) {
+    Gauge.builder("plantbot.cache." + metric, supplier)
+        .tag("cache", safe(cache))
+        .register(meterRegistry);
+  }
+
+  public void recordWorkerTask(String pool, long durationNanos, String outcome) {
+    Timer.builder("plantbot.worker.tasks")
+        .tag("pool", safe(pool))
+        .tag("outcome", safe(outcome))
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  // Внутрипроцессная агрегация дашбордов (stats/learning): отдельно от внешних вызовов, чтобы не портить их алерты.
+  public void recordAggregation(String view, int items, long durationNanos) {
+    Timer.builder("plantbot.aggregation")
+        .tag("view", safe(view))
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+    meterRegistry.summary("plantbot.aggregation.items", "view", safe(view)).record(Math.max(0, items));
+  }
+
+  public void incrementWorkerRejection(String pool) {
+    meterRegistry.counter("plantbot.worker.rejections", "pool", safe(pool)).increment();
+  }
+
+  public void registerWorkerGauge(String pool, String metric, Supplier<Number> supplier) {
+    Gauge.builder("plantbot.worker." + metric, supplier)
+        .tag("pool", safe(pool))
+        .register(meterRegistry);
+  }
+
+  // Счетчик дает скорость отправок (rate), таймер — перцентили задержки до ответа push-сервиса.
+  public void recordPushDelivery(String provider, String outcome, long durationNanos) {
+    Timer.builder("plantbot.push.deliveries")
+        .tag("provider", safe(provider))
+        .tag("outcome", safe(outcome))
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  // Фазы исходящего запроса: ожидание слота в пуле и время до первого байта ответа.
+  public void recordOutboundPhase(String target, String phase, String outcome, long durationNanos) {
+    Timer.builder("plantbot.outbound.http")
+        .tag("target", safe(target))
+        .tag("phase", safe(phase))
+        .tag("outcome", safe(outcome))
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void registerOutboundGauge(String target, String metric, Supplier<Number> supplier) {
+    Gauge.builder("plantbot.outbound." + metric, supplier)
+        .tag("target", safe(target))
+        .register(meterRegistry);
+  }
+
+  // Доля joined среди leader+joined — это доля сэкономленных вызовов провайдера.
+  public void incrementAiSingleFlight(String kind, String outcome) {
+    meterRegistry.counter(
+        "plantbot.ai.single_flight",
+        "kind", safe(kind),
+        "outcome", safe(outcome)
+    ).increment();
+  }
+
+  public void recordAiSingleFlightWait(String kind, long durationNanos) {
+    Timer.builder("plantbot.ai.single_flight.wait")
+        .tag("kind", safe(kind))
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  // first_token — видимая пользователю задержка потокового чата, complete — полная длительность ответа.
+  public void recordAssistantStream(String phase, String outcome, long durationNanos) {
+    Timer.builder("plantbot.assistant.stream")
+        .tag("phase", safe(phase))
+        .tag("outcome", safe(outcome))
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
   private String classifyStatus(int status) {
     if (status >= 500) return "server_error";
     if (status >= 400) return "client_error";
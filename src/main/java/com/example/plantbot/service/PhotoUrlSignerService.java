@@ -1,5 +1,6 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.service.photo.PhotoSize;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -27,12 +28,22 @@ public class PhotoUrlSignerService {
   }
 
   public String buildSignedPhotoUrl(Long plantId, String photoRef) {
-    long exp = Instant.now().getEpochSecond() + ttlSeconds;
-    String sig = sign(plantId, photoRef, exp);
-    return "/api/plants/" + plantId + "/photo?exp=" + exp + "&sig=" + sig;
+    return buildSignedPhotoUrl(plantId, photoRef, PhotoSize.FULL);
+  }
+
+  public String buildSignedPhotoUrl(Long plantId, String photoRef, PhotoSize size) {
+    return signedUrl("/api/plants/" + plantId + "/photo", plantId, photoRef, size);
+  }
+
+  public String buildSignedGrowthPhotoUrl(Long plantId, Long entryId, String photoRef, PhotoSize size) {
+    return signedUrl("/api/plants/" + plantId + "/growth/" + entryId + "/photo", plantId, photoRef, size);
   }
 
   public boolean isValid(Long plantId, String photoRef, Long exp, String sig) {
+    return isValid(plantId, photoRef, exp, sig, PhotoSize.FULL);
+  }
+
+  public boolean isValid(Long plantId, String photoRef, Long exp, String sig, PhotoSize size) {
     if (exp == null || sig == null || sig.isBlank()) {
       return false;
     }
@@ -40,15 +51,28 @@ public class PhotoUrlSignerService {
     if (exp < now) {
       return false;
     }
-    String expected = sign(plantId, photoRef, exp);
+    String expected = sign(plantId, photoRef, exp, size);
     return constantTimeEquals(expected, sig);
   }
 
-  private String sign(Long plantId, String photoRef, long exp) {
+  private String signedUrl(String path, Long plantId, String photoRef, PhotoSize size) {
+    // exp выравнивается по окну ttl: внутри окна ссылка одна и та же, и браузер берет фото из кэша.
+    // Срок жизни ссылки при этом от ttl до 2*ttl.
+    long exp = (Instant.now().getEpochSecond() / ttlSeconds + 2) * ttlSeconds;
+    String sig = sign(plantId, photoRef, exp, size);
+    String url = path + "?exp=" + exp + "&sig=" + sig;
+    return size == PhotoSize.FULL ? url : url + "&size=" + size.param();
+  }
+
+  // Размер входит в подпись, для оригинала payload прежний — ранее выданные ссылки остаются валидными.
+  private String sign(Long plantId, String photoRef, long exp, PhotoSize size) {
     try {
       Mac mac = Mac.getInstance(HMAC_ALGO);
       mac.init(new SecretKeySpec(key, HMAC_ALGO));
       String payload = plantId + "|" + (photoRef == null ? "" : photoRef) + "|" + exp;
+      if (size != null && size != PhotoSize.FULL) {
+        payload = payload + "|" + size.param();
+      }
       byte[] digest = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
       return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
     } catch (Exception ex) {
@@ -1,5 +1,6 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.domain.DictionaryMergeStatus;
 import com.example.plantbot.domain.Plant;
 import com.example.plantbot.domain.PlantCategory;
@@ -39,6 +40,7 @@ public class PlantDictionaryService {
   private final PlantDictionaryAliasRepository aliasRepository;
   private final PlantDuplicateMergeTaskRepository mergeTaskRepository;
   private final PlantNameNormalizer plantNameNormalizer;
+  private final ScheduledJobGuard scheduledJobGuard;
 
   @Value("${app.dictionary.min-usage-for-dynamic:2}")
   private int minUsageForDynamic;
@@ -49,9 +51,13 @@ public class PlantDictionaryService {
   @Value("${app.dictionary.max-merge-candidates-per-run:50}")
   private int maxMergeCandidatesPerRun;
 
-  @Scheduled(cron = "${app.dictionary.aggregate-cron:0 20 */6 * * *}")
+  @Scheduled(cron = "${app.dictionary.aggregate-cron:0 20 */6 * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
   @Transactional
   public void aggregateDictionary() {
+    scheduledJobGuard.run("dictionary_aggregate", this::aggregateDictionaryInternal);
+  }
+
+  private void aggregateDictionaryInternal() {
     List<Plant> plants = plantRepository.findAll();
     if (plants.isEmpty()) {
       return;
@@ -1,5 +1,6 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.domain.DictionaryMergeStatus;
 import com.example.plantbot.domain.PlantCategory;
 import com.example.plantbot.domain.PlantDictionaryAlias;
@@ -36,6 +37,7 @@ public class PlantDuplicateMergeProcessor {
   private final OpenRouterPlantAdvisorService openRouterPlantAdvisorService;
   private final UserRepository userRepository;
   private final AdminNotificationService adminNotificationService;
+  private final ScheduledJobGuard scheduledJobGuard;
 
   @Value("${app.dictionary.merge-batch-size:20}")
   private int mergeBatchSize;
@@ -46,9 +48,13 @@ public class PlantDuplicateMergeProcessor {
   @Value("${app.admin.telegram-id:0}")
   private Long adminTelegramId;
 
-  @Scheduled(cron = "${app.dictionary.merge-cron:0 35 4 * * *}")
+  @Scheduled(cron = "${app.dictionary.merge-cron:0 35 4 * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
   @Transactional
   public void processMergeQueue() {
+    scheduledJobGuard.run("dictionary_merge", this::processMergeQueueInternal);
+  }
+
+  private void processMergeQueueInternal() {
     List<PlantDuplicateMergeTask> due = mergeTaskRepository
         .findByStatusInAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
             Set.of(DictionaryMergeStatus.PENDING, DictionaryMergeStatus.RETRY_SCHEDULED),
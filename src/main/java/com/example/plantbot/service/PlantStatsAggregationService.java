@@ -0,0 +1,92 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.controller.dto.PlantLearningResponse;
+import com.example.plantbot.controller.dto.PlantStatsResponse;
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.repository.WateringLogRepository;
+import com.example.plantbot.util.LearningInfo;
+import com.example.plantbot.util.WateringRecommendation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+// Пакетная агрегация для /api/stats и /api/learning: фиксированное число запросов на пользователя, а не на растение.
+@Service
+@RequiredArgsConstructor
+public class PlantStatsAggregationService {
+  private final PlantService plantService;
+  private final WateringLogRepository wateringLogRepository;
+  private final WateringRecommendationService wateringRecommendationService;
+  private final LearningService learningService;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  public List<PlantStatsResponse> stats(User user) {
+    long startedAt = System.nanoTime();
+    List<Plant> plants = plantService.list(user);
+    Map<Long, Long> wateringCounts = wateringCounts(user);
+    LocalDate today = LocalDate.now();
+    List<PlantStatsResponse> result = new ArrayList<>(plants.size());
+    for (Plant plant : plants) {
+      // Интервалы обучения лежат на самом растении, быстрая рекомендация не ходит во внешние API.
+      WateringRecommendation rec = wateringRecommendationService.recommendQuick(plant, user);
+      int interval = Math.max(1, (int) Math.floor(rec.intervalDays()));
+      LocalDate due = plant.getLastWateredDate().plusDays(interval);
+      boolean overdue = due.isBefore(today);
+      long overdueDays = overdue ? ChronoUnit.DAYS.between(due, today) : 0;
+      OptionalDouble avg = learningService.getAverageInterval(plant);
+      result.add(new PlantStatsResponse(
+          plant.getId(),
+          plant.getName(),
+          avg.isPresent() ? avg.getAsDouble() : null,
+          wateringCounts.getOrDefault(plant.getId(), 0L),
+          overdue,
+          overdueDays
+      ));
+    }
+    performanceMetricsService.recordAggregation("stats", plants.size(), System.nanoTime() - startedAt);
+    return result;
+  }
+
+  public List<PlantLearningResponse> learning(User user) {
+    long startedAt = System.nanoTime();
+    List<Plant> plants = plantService.list(user);
+    Map<Long, LearningInfo> infos = wateringRecommendationService.learningInfoBatch(plants, user);
+    List<PlantLearningResponse> result = new ArrayList<>(plants.size());
+    for (Plant plant : plants) {
+      LearningInfo info = infos.get(plant.getId());
+      result.add(new PlantLearningResponse(
+          plant.getId(),
+          plant.getName(),
+          info.baseIntervalDays(),
+          info.avgActualIntervalDays(),
+          info.smoothedIntervalDays(),
+          info.seasonFactor(),
+          info.weatherFactor(),
+          info.potFactor(),
+          info.finalIntervalDays(),
+          plant.getLookupSource()
+      ));
+    }
+    performanceMetricsService.recordAggregation("learning", plants.size(), System.nanoTime() - startedAt);
+    return result;
+  }
+
+  private Map<Long, Long> wateringCounts(User user) {
+    Map<Long, Long> counts = new HashMap<>();
+    for (Object[] row : wateringLogRepository.countByPlantForUser(user.getId())) {
+      if (row == null || row.length < 2 || row[0] == null || row[1] == null) {
+        continue;
+      }
+      counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,63 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.config.MeteredTaskScheduler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduledJobGuard {
+  private final PerformanceMetricsService performanceMetricsService;
+  private final Map<String, AtomicBoolean> runningJobs = new ConcurrentHashMap<>();
+
+  @Value("${app.scheduling.start-delay-warn-ms:60000}")
+  private long startDelayWarnMs;
+
+  public boolean run(String job, Runnable body) {
+    return run(job, () -> {
+      body.run();
+      return "success";
+    });
+  }
+
+  // Защита от наложения прогонов + метрики задержки старта и длительности; body возвращает outcome.
+  public boolean run(String job, Supplier<String> body) {
+    long startDelayNanos = MeteredTaskScheduler.currentStartDelayNanos();
+    if (startDelayNanos >= 0) {
+      performanceMetricsService.recordSchedulerStartDelay(job, startDelayNanos);
+      long startDelayMs = TimeUnit.NANOSECONDS.toMillis(startDelayNanos);
+      if (startDelayWarnMs > 0 && startDelayMs >= startDelayWarnMs) {
+        log.warn("Scheduled job started late: job={} delayMs={}", job, startDelayMs);
+      }
+    }
+
+    AtomicBoolean running = runningJobs.computeIfAbsent(job, key -> new AtomicBoolean(false));
+    if (!running.compareAndSet(false, true)) {
+      performanceMetricsService.incrementSchedulerOverlap(job);
+      log.info("Scheduled job skipped, previous run still active: job={}", job);
+      return false;
+    }
+
+    long startedAt = System.nanoTime();
+    try {
+      String outcome = body.get();
+      performanceMetricsService.recordSchedulerRun(job, System.nanoTime() - startedAt, outcome == null ? "success" : outcome);
+      return true;
+    } catch (RuntimeException ex) {
+      performanceMetricsService.recordSchedulerRun(job, System.nanoTime() - startedAt, "error");
+      log.warn("Scheduled job failed: job={} : {}", job, ex.getMessage());
+      return false;
+    } finally {
+      running.set(false);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.controller.dto.WateringRecommendationResponse;
 import com.example.plantbot.domain.Plant;
 import com.example.plantbot.domain.PlantEnvironmentType;
@@ -12,6 +13,7 @@ import com.example.plantbot.service.dto.NormalizedWeatherContext;
 import com.example.plantbot.service.recommendation.facade.RecommendationFacade;
 import com.example.plantbot.service.recommendation.mapper.PlantRecommendationContextMapper;
 import com.example.plantbot.service.recommendation.mapper.PreviewRecommendationResponseAdapter;
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
 import com.example.plantbot.service.recommendation.model.RecommendationRequestContext;
 import com.example.plantbot.service.recommendation.persistence.RecommendationExplainabilityPersistenceMapper;
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistenceCommand;
@@ -19,6 +21,10 @@ import com.example.plantbot.service.recommendation.persistence.RecommendationPer
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePlan;
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePlanApplier;
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePolicy;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowComparisonService;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowInputs;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowRun;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowSample;
 import com.example.plantbot.util.LearningInfo;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -50,13 +56,20 @@ public class ScheduledWateringRecalculationService {
   private final RecommendationSnapshotService recommendationSnapshotService;
   private final OutdoorWeatherContextService outdoorWeatherContextService;
   private final ObjectMapper objectMapper;
+  private final RecommendationShadowComparisonService shadowComparisonService;
+  private final ScheduledJobGuard scheduledJobGuard;
 
-  @Scheduled(cron = "${scheduler.smart-watering-cron:0 20 4 * * *}")
+  @Scheduled(cron = "${scheduler.smart-watering-cron:0 20 4 * * *}", scheduler = SchedulingConfig.NOTIFICATION_SCHEDULER)
   public void scheduledRecalculation() {
+    scheduledJobGuard.run("smart_watering_recalculation", this::recalculateAll);
+  }
+
+  private void recalculateAll() {
     List<Plant> plants = plantService.listAll();
     int processed = 0;
     int updated = 0;
     int skippedManual = 0;
+    RecommendationShadowRun shadowRun = shadowComparisonService.beginRun(RecommendationFlowType.SCHEDULED_RECALCULATION);
     for (Plant plant : plants) {
       processed++;
       if (plant.getUser() == null) {
@@ -76,8 +89,7 @@ public class ScheduledWateringRecalculationService {
             result,
             context
         );
-        WateringRecommendationResponse legacyResponse = recommendationEngine.recommendForExistingPlant(plant.getUser(), plant);
-        logScheduledDualRun(plant, response, legacyResponse);
+        submitShadowComparison(shadowRun, plant, response);
         RecommendationPersistencePlan plan = applyRecommendation(plant, response, explainabilityPersistenceMapper.fromExplainability(result.explainability()));
         plantService.save(plant);
         if (plan != null && plan.snapshotPayload() != null) {
@@ -177,35 +189,35 @@ public class ScheduledWateringRecalculationService {
     return seasonIndex(then) != seasonIndex(now);
   }
 
-  private void logScheduledDualRun(Plant plant,
-                                   WateringRecommendationResponse unified,
-                                   WateringRecommendationResponse legacy) {
-    if (plant == null || unified == null || legacy == null) {
+  private void submitShadowComparison(RecommendationShadowRun shadowRun,
+                                      Plant plant,
+                                      WateringRecommendationResponse unified) {
+    if (plant == null || unified == null) {
       return;
     }
-    int unifiedInterval = Math.max(1, unified.recommendedIntervalDays() == null ? 1 : unified.recommendedIntervalDays());
-    int legacyInterval = Math.max(1, legacy.recommendedIntervalDays() == null ? 1 : legacy.recommendedIntervalDays());
-    int unifiedWater = Math.max(0, unified.recommendedWaterVolumeMl() == null
-        ? (unified.recommendedWaterMl() == null ? 0 : unified.recommendedWaterMl())
-        : unified.recommendedWaterVolumeMl());
-    int legacyWater = Math.max(0, legacy.recommendedWaterVolumeMl() == null
-        ? (legacy.recommendedWaterMl() == null ? 0 : legacy.recommendedWaterMl())
-        : legacy.recommendedWaterVolumeMl());
-    if (Math.abs(unifiedInterval - legacyInterval) >= 1 || Math.abs(unifiedWater - legacyWater) >= 250) {
-      log.warn("Scheduled dual-run drift: plantId={} intervalNew={} intervalOld={} waterMlNew={} waterMlOld={} sourceNew={} sourceOld={}",
-          plant.getId(),
-          unifiedInterval,
-          legacyInterval,
-          unifiedWater,
-          legacyWater,
-          unified.source(),
-          legacy.source());
-    } else {
-      log.debug("Scheduled dual-run parity ok: plantId={} intervalDiff={} waterDiffMl={}",
-          plant.getId(),
-          Math.abs(unifiedInterval - legacyInterval),
-          Math.abs(unifiedWater - legacyWater));
+    shadowComparisonService.compareAsync(
+        shadowRun,
+        plant.getId(),
+        toShadowSample(unified),
+        () -> {
+          // Копии снимаются синхронно, до применения рекомендации: ниже этот же Plant меняется и сохраняется.
+          // Для сравнений вне выборки или сверх бюджета фабрика не вызывается.
+          User user = RecommendationShadowInputs.detachedUser(plant.getUser());
+          Plant legacyPlant = RecommendationShadowInputs.detachedPlant(plant, user);
+          return () -> toShadowSample(recommendationEngine.recommendForExistingPlant(user, legacyPlant));
+        }
+    );
+  }
+
+  private RecommendationShadowSample toShadowSample(WateringRecommendationResponse response) {
+    if (response == null) {
+      return null;
     }
+    int interval = Math.max(1, response.recommendedIntervalDays() == null ? 1 : response.recommendedIntervalDays());
+    int water = Math.max(0, response.recommendedWaterVolumeMl() == null
+        ? (response.recommendedWaterMl() == null ? 0 : response.recommendedWaterMl())
+        : response.recommendedWaterVolumeMl());
+    return new RecommendationShadowSample(interval, water, null);
   }
 
   private int seasonIndex(LocalDate date) {
@@ -3,6 +3,7 @@ package com.example.plantbot.service;
 import com.example.plantbot.domain.User;
 import com.example.plantbot.domain.UserRole;
 import com.example.plantbot.repository.UserRepository;
+import com.example.plantbot.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,6 +24,7 @@ public class UserService {
   private static final int MAX_SQLITE_RETRIES = 5;
   private final ConcurrentHashMap<String, ReentrantLock> userLocks = new ConcurrentHashMap<>();
   private final UserRepository userRepository;
+  private final UserPrincipalCache userPrincipalCache;
 
   @Value("${app.admin.telegram-id:0}")
   private Long adminTelegramId;
@@ -60,7 +62,9 @@ public class UserService {
     if (user.getCalendarToken() == null || user.getCalendarToken().isBlank()) {
       user.setCalendarToken(UUID.randomUUID().toString());
     }
-    return saveWithRetry(userLockKey(user), () -> userRepository.save(user));
+    User saved = saveWithRetry(userLockKey(user), () -> userRepository.save(user));
+    userPrincipalCache.evictIfRolesChanged(saved);
+    return saved;
   }
 
   public User getOrCreateByTelegramData(Long telegramId, String username, String firstName, String lastName) {
@@ -92,7 +96,12 @@ public class UserService {
     if (!beforeRoles.equals(user.getRoles())) {
       changed[0] = true;
     }
-    return changed[0] ? saveWithRetry(telegramLockKey(telegramId), () -> userRepository.save(user)) : user;
+    if (!changed[0]) {
+      return user;
+    }
+    User saved = saveWithRetry(telegramLockKey(telegramId), () -> userRepository.save(user));
+    userPrincipalCache.evictIfRolesChanged(saved);
+    return saved;
   }
 
   private User saveWithRetry(String lockKey, java.util.function.Supplier<User> saveAction) {
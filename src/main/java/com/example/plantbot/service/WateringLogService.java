@@ -2,6 +2,7 @@ package com.example.plantbot.service;
 
 import com.example.plantbot.domain.Plant;
 import com.example.plantbot.domain.WateringLog;
+import com.example.plantbot.repository.PlantRepository;
 import com.example.plantbot.repository.WateringLogRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -13,6 +14,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class WateringLogService {
   private final WateringLogRepository wateringLogRepository;
+  private final PlantRepository plantRepository;
+  private final LearningService learningService;
 
   public WateringLog addLog(Plant plant, LocalDate wateredAt, Double recommendedInterval,
                             Double recommendedWater, Double temperature, Double humidity) {
@@ -23,7 +26,10 @@ public class WateringLogService {
     log.setRecommendedWaterLiters(recommendedWater);
     log.setTemperatureC(temperature);
     log.setHumidityPercent(humidity);
-    return wateringLogRepository.save(log);
+    WateringLog saved = wateringLogRepository.save(log);
+    learningService.recordWatering(plant, wateredAt);
+    plantRepository.save(plant);
+    return saved;
   }
 
   public List<WateringLog> getLogsForMonth(Plant plant, LocalDate start, LocalDate end) {
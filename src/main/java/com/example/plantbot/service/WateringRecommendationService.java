@@ -12,7 +12,10 @@ import com.example.plantbot.service.recommendation.mapper.LocationContextResolve
 import com.example.plantbot.service.recommendation.mapper.PlantRecommendationContextMapper;
 import com.example.plantbot.service.recommendation.mapper.RuntimeRecommendationAdapter;
 import com.example.plantbot.service.recommendation.mapper.WeatherContextResolver;
+import com.example.plantbot.service.recommendation.model.LocationContext;
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
 import com.example.plantbot.service.recommendation.model.RecommendationRequestContext;
+import com.example.plantbot.service.recommendation.model.WeatherContext;
 import com.example.plantbot.util.LearningInfo;
 import com.example.plantbot.util.WateringRecommendation;
 import com.example.plantbot.util.WeatherData;
@@ -22,6 +25,10 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.OptionalDouble;
 
 @Service
@@ -55,7 +62,26 @@ public class WateringRecommendationService {
 
   public LearningInfo learningInfo(Plant plant, User user) {
     var locationContext = locationContextResolver.resolveForPlant(user, plant);
-    var weather = weatherContextResolver.resolve(user, locationContext, com.example.plantbot.service.recommendation.model.RecommendationFlowType.RUNTIME);
+    var weather = weatherContextResolver.resolve(user, locationContext, RecommendationFlowType.RUNTIME);
+    return learningInfo(plant, weather);
+  }
+
+  // Пакетный вариант для дашбордов: погодный контекст резолвится один раз на уникальную локацию.
+  public Map<Long, LearningInfo> learningInfoBatch(List<Plant> plants, User user) {
+    Map<LocationContext, WeatherContext> weatherByLocation = new HashMap<>();
+    Map<Long, LearningInfo> result = new LinkedHashMap<>();
+    for (Plant plant : plants) {
+      LocationContext locationContext = locationContextResolver.resolveForPlant(user, plant);
+      WeatherContext weather = weatherByLocation.computeIfAbsent(
+          locationContext,
+          location -> weatherContextResolver.resolve(user, location, RecommendationFlowType.RUNTIME)
+      );
+      result.put(plant.getId(), learningInfo(plant, weather));
+    }
+    return result;
+  }
+
+  private LearningInfo learningInfo(Plant plant, WeatherContext weather) {
     double base = plant.getBaseIntervalDays();
     double seasonFactor = seasonFactor(LocalDate.now().getMonth());
     double weatherFactor = weatherFactor(weather);
@@ -109,7 +135,7 @@ public class WateringRecommendationService {
     };
   }
 
-  private double weatherFactor(com.example.plantbot.service.recommendation.model.WeatherContext weather) {
+  private double weatherFactor(WeatherContext weather) {
     if (weather == null || !weather.available()) {
       return 1.0;
     }
@@ -0,0 +1,103 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.domain.WeatherRainHistoryEntry;
+import com.example.plantbot.repository.WeatherRainHistoryEntryRepository;
+import com.example.plantbot.service.weather.RainAccumulator;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Сохраняет часовые корзины осадков в БД, чтобы контекст дождя переживал рестарт.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WeatherRainHistoryPersistenceService {
+  private static final String JOB_NAME = "weather_rain_history_flush";
+
+  private final WeatherService weatherService;
+  private final WeatherRainHistoryEntryRepository weatherRainHistoryEntryRepository;
+  private final PlatformTransactionManager transactionManager;
+  private final ScheduledJobGuard scheduledJobGuard;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void restoreOnStartup() {
+    try {
+      Instant cutoff = Instant.now().minusSeconds(RainAccumulator.HOURS * 3600L);
+      List<WeatherRainHistoryEntry> entries = weatherRainHistoryEntryRepository.findByUpdatedAtAfter(cutoff);
+      for (WeatherRainHistoryEntry entry : entries) {
+        weatherService.restoreRainHistory(entry.getLocationKey(), entry.getBuckets());
+      }
+      log.info("Weather rain history restored: locations={}", entries.size());
+    } catch (Exception ex) {
+      log.warn("Weather rain history restore failed: {}", ex.getMessage());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${weather.rain-history-flush-ms:300000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void scheduledFlush() {
+    scheduledJobGuard.run(JOB_NAME, () -> {
+      int saved = flush();
+      int deleted = weatherRainHistoryEntryRepository.deleteUpdatedBefore(Instant.now().minusSeconds(RainAccumulator.HOURS * 3600L));
+      log.debug("Weather rain history flush: saved={}, deleted={}", saved, deleted);
+    });
+  }
+
+  public synchronized int flush() {
+    Map<String, String> snapshots = weatherService.drainDirtyRainHistory();
+    if (snapshots.isEmpty()) {
+      return 0;
+    }
+    Instant now = Instant.now();
+    try {
+      saveSnapshots(snapshots, now);
+    } catch (RuntimeException ex) {
+      // Локации снова помечаются измененными и попадут в следующий flush.
+      weatherService.markRainHistoryDirty(snapshots.keySet());
+      throw ex;
+    }
+    return snapshots.size();
+  }
+
+  private void saveSnapshots(Map<String, String> snapshots, Instant now) {
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      Map<String, WeatherRainHistoryEntry> existing = weatherRainHistoryEntryRepository.findByLocationKeyIn(snapshots.keySet())
+          .stream()
+          .collect(Collectors.toMap(WeatherRainHistoryEntry::getLocationKey, Function.identity(), (left, right) -> left));
+      List<WeatherRainHistoryEntry> toSave = new ArrayList<>(snapshots.size());
+      snapshots.forEach((locationKey, buckets) -> {
+        WeatherRainHistoryEntry entry = existing.get(locationKey);
+        if (entry == null) {
+          entry = new WeatherRainHistoryEntry();
+          entry.setLocationKey(locationKey);
+        }
+        entry.setBuckets(buckets);
+        entry.setUpdatedAt(now);
+        toSave.add(entry);
+      });
+      weatherRainHistoryEntryRepository.saveAll(toSave);
+    });
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    try {
+      flush();
+    } catch (Exception ex) {
+      log.warn("Weather rain history flush on shutdown failed: {}", ex.getMessage());
+    }
+  }
+}
@@ -4,38 +4,84 @@ import com.example.plantbot.config.WeatherProperties;
 import com.example.plantbot.domain.WeatherProvider;
 import com.example.plantbot.domain.WeatherProviderStrategy;
 import com.example.plantbot.service.dto.WeatherFetchResult;
+import com.example.plantbot.service.weather.LruEvictingMap;
+import com.example.plantbot.service.weather.RainAccumulator;
 import com.example.plantbot.service.weather.WeatherLocationService;
 import com.example.plantbot.service.weather.WeatherProviderClient;
 import com.example.plantbot.util.CityOption;
 import com.example.plantbot.util.WeatherData;
 import com.example.plantbot.util.WeatherForecastDay;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class WeatherService {
   private final WeatherLocationService weatherLocationService;
   private final WeatherProperties weatherProperties;
   private final List<WeatherProviderClient> providerClients;
   private final PerformanceMetricsService performanceMetricsService;
+  private final ThreadPoolExecutor providerFetchExecutor;
+  private final ThreadPoolExecutor refreshExecutor;
+  private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
 
-  private final Map<String, CachedWeather> cache = new ConcurrentHashMap<>();
-  private final Map<String, List<RainSample>> rainHistory = new ConcurrentHashMap<>();
+  private final Map<String, CachedWeather> cache;
+  private final Map<String, RainAccumulator> rainHistory;
+  private final Set<String> dirtyRainKeys = ConcurrentHashMap.newKeySet();
   private final Map<String, ReentrantLock> fetchLocks = new ConcurrentHashMap<>();
   private final Map<WeatherProvider, ProviderFailureState> providerFailureState = new ConcurrentHashMap<>();
 
+  public WeatherService(WeatherLocationService weatherLocationService,
+                        WeatherProperties weatherProperties,
+                        List<WeatherProviderClient> providerClients,
+                        PerformanceMetricsService performanceMetricsService) {
+    this.weatherLocationService = weatherLocationService;
+    this.weatherProperties = weatherProperties;
+    this.providerClients = providerClients;
+    this.performanceMetricsService = performanceMetricsService;
+    this.cache = Collections.synchronizedMap(new LruEvictingMap<>(
+        weatherProperties.getCacheMaxEntries(),
+        () -> performanceMetricsService.incrementCacheEviction("weather", "lru")
+    ));
+    this.rainHistory = Collections.synchronizedMap(new LruEvictingMap<>(
+        weatherProperties.getRainMaxKeys(),
+        () -> performanceMetricsService.incrementCacheEviction("weather_rain_history", "lru")
+    ));
+    int fetchThreads = Math.max(1, weatherProperties.getFetchThreads());
+    // При переполнении прогноз грузится в вызывающем потоке, то есть последовательно, как раньше.
+    this.providerFetchExecutor = newExecutor("weather-fetch-", fetchThreads, fetchThreads * 4, new ThreadPoolExecutor.CallerRunsPolicy());
+    this.refreshExecutor = newExecutor(
+        "weather-refresh-",
+        Math.max(1, weatherProperties.getRefreshAheadThreads()),
+        Math.max(1, weatherProperties.getRefreshAheadQueueCapacity()),
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+  }
+
   public Optional<WeatherData> getCurrent(String city, Double lat, Double lon) {
     return getCurrent(city, lat, lon, null);
   }
@@ -77,6 +123,12 @@ public class WeatherService {
     Instant now = Instant.now();
     CachedWeather cached = cache.get(key);
     if (cached != null && cached.expiresAt().isAfter(now)) {
+      if (isWithinRefreshAheadWindow(cached, now)) {
+        performanceMetricsService.incrementCacheLookup("weather", "memory", "refresh_ahead");
+        scheduleRefreshAhead(key, city, lat, lon, Math.max(safeDays, cached.forecast().size()), plan);
+      } else {
+        performanceMetricsService.incrementCacheLookup("weather", "memory", "fresh");
+      }
       return new WeatherFetchResult(
           true,
           false,
@@ -90,6 +142,7 @@ public class WeatherService {
           "fresh-cache"
       );
     }
+    performanceMetricsService.incrementCacheLookup("weather", "memory", cached == null ? "miss" : "expired");
 
     ReentrantLock lock = fetchLocks.computeIfAbsent(key, ignored -> new ReentrantLock());
     lock.lock();
@@ -111,59 +164,20 @@ public class WeatherService {
         );
       }
 
-      WeatherProvider usedProvider = null;
-      WeatherData current = null;
-      List<WeatherForecastDay> forecast = List.of();
-      boolean fallbackUsed = false;
-      boolean hadPrimaryFailure = false;
-
-      for (int i = 0; i < plan.providers().size(); i++) {
-        WeatherProvider provider = plan.providers().get(i);
-        WeatherProviderClient client = providerClient(provider);
-        if (client == null || !client.isEnabled()) {
-          continue;
-        }
-        if (isProviderCoolingDown(provider, currentNow)) {
-          performanceMetricsService.incrementExternalFailure("weather", "provider_fetch", provider.name().toLowerCase(Locale.ROOT) + "_cooldown");
-          hadPrimaryFailure = hadPrimaryFailure || i == 0;
-          continue;
-        }
-
-        long providerStartedAt = System.nanoTime();
-        Optional<WeatherData> currentCandidate = client.getCurrent(city, lat, lon);
-        List<WeatherForecastDay> forecastCandidate = client.getForecast(city, lat, lon, safeDays);
-        if (currentCandidate.isPresent() || !forecastCandidate.isEmpty()) {
-          performanceMetricsService.recordExternalCall("weather", "provider_fetch", provider.name(), "success", System.nanoTime() - providerStartedAt);
-          markProviderSuccess(provider);
-          usedProvider = provider;
-          current = currentCandidate.orElse(null);
-          forecast = forecastCandidate;
-          fallbackUsed = i > 0 || hadPrimaryFailure;
-          storeWeather(key, provider, current, forecast, currentNow);
-          log.info("Weather fetch success city='{}' provider={} fallbackUsed={} staleFallback=false current={} forecastDays={}",
-              city, provider, fallbackUsed, current != null, forecast.size());
-          return new WeatherFetchResult(
-              true,
-              false,
-              fallbackUsed,
-              false,
-              provider,
-              plan.primary(),
-              current,
-              forecast,
-              currentNow,
-              fallbackUsed ? "provider-fallback" : "provider-success"
-          );
-        }
-
-        performanceMetricsService.recordExternalCall("weather", "provider_fetch", provider.name(), "empty", System.nanoTime() - providerStartedAt);
-        performanceMetricsService.incrementExternalFailure("weather", "provider_fetch", provider.name().toLowerCase(Locale.ROOT) + "_empty");
-        markProviderFailure(provider);
-
-        if (i == 0) {
-          hadPrimaryFailure = true;
-        }
-        log.warn("Weather fetch failed for city='{}' provider={} -> trying next fallback", city, provider);
+      ProviderAttempt attempt = fetchFromProviders(key, city, lat, lon, safeDays, plan, currentNow);
+      if (attempt != null) {
+        return new WeatherFetchResult(
+            true,
+            false,
+            attempt.fallbackUsed(),
+            false,
+            attempt.provider(),
+            plan.primary(),
+            attempt.current(),
+            attempt.forecast(),
+            currentNow,
+            attempt.fallbackUsed() ? "provider-fallback" : "provider-success"
+        );
       }
 
       if (weatherProperties.isStaleFallbackEnabled() && cached != null && cached.observedAt().plusSeconds(Math.max(1, weatherProperties.getMaxStaleAgeMinutes()) * 60L).isAfter(currentNow)) {
@@ -202,34 +216,199 @@ public class WeatherService {
           "degraded-no-weather"
       );
     } finally {
-      try {
-        if (!lock.hasQueuedThreads()) {
-          fetchLocks.remove(key, lock);
+      releaseFetchLock(key, lock);
+    }
+  }
+
+  // Обходит провайдеров по плану; при успехе кладет результат в кэш, иначе возвращает null.
+  private ProviderAttempt fetchFromProviders(String key,
+                                             String city,
+                                             Double lat,
+                                             Double lon,
+                                             int safeDays,
+                                             ProviderPlan plan,
+                                             Instant currentNow) {
+    boolean hadPrimaryFailure = false;
+    for (int i = 0; i < plan.providers().size(); i++) {
+      WeatherProvider provider = plan.providers().get(i);
+      WeatherProviderClient client = providerClient(provider);
+      if (client == null || !client.isEnabled()) {
+        continue;
+      }
+      if (isProviderCoolingDown(provider, currentNow)) {
+        performanceMetricsService.incrementExternalFailure("weather", "provider_fetch", provider.name().toLowerCase(Locale.ROOT) + "_cooldown");
+        hadPrimaryFailure = hadPrimaryFailure || i == 0;
+        continue;
+      }
+
+      long providerStartedAt = System.nanoTime();
+      ProviderResponse response = requestProvider(client, city, lat, lon, safeDays);
+      if (response.current().isPresent() || !response.forecast().isEmpty()) {
+        performanceMetricsService.recordExternalCall("weather", "provider_fetch", provider.name(), "success", System.nanoTime() - providerStartedAt);
+        markProviderSuccess(provider);
+        WeatherData current = response.current().orElse(null);
+        List<WeatherForecastDay> forecast = response.forecast();
+        boolean fallbackUsed = i > 0 || hadPrimaryFailure;
+        storeWeather(key, provider, current, forecast, currentNow);
+        log.info("Weather fetch success city='{}' provider={} fallbackUsed={} staleFallback=false current={} forecastDays={}",
+            city, provider, fallbackUsed, current != null, forecast.size());
+        return new ProviderAttempt(provider, current, forecast, fallbackUsed);
+      }
+
+      performanceMetricsService.recordExternalCall("weather", "provider_fetch", provider.name(), "empty", System.nanoTime() - providerStartedAt);
+      performanceMetricsService.incrementExternalFailure("weather", "provider_fetch", provider.name().toLowerCase(Locale.ROOT) + "_empty");
+      markProviderFailure(provider);
+
+      if (i == 0) {
+        hadPrimaryFailure = true;
+      }
+      log.warn("Weather fetch failed for city='{}' provider={} -> trying next fallback", city, provider);
+    }
+    return null;
+  }
+
+  // Текущая погода и прогноз запрашиваются параллельно: прогноз уходит в пул, текущая — в вызывающем потоке.
+  private ProviderResponse requestProvider(WeatherProviderClient client, String city, Double lat, Double lon, int days) {
+    CompletableFuture<List<WeatherForecastDay>> forecastFuture =
+        CompletableFuture.supplyAsync(() -> client.getForecast(city, lat, lon, days), providerFetchExecutor);
+    Optional<WeatherData> current;
+    try {
+      current = client.getCurrent(city, lat, lon);
+    } catch (RuntimeException ex) {
+      log.warn("Weather current fetch failed provider={} city='{}': {}", client.provider(), city, ex.getMessage());
+      current = Optional.empty();
+    }
+    List<WeatherForecastDay> forecast = List.of();
+    long waitMs = Math.max(1000L, weatherProperties.getTimeoutMs() * 2L);
+    try {
+      List<WeatherForecastDay> loaded = forecastFuture.get(waitMs, TimeUnit.MILLISECONDS);
+      forecast = loaded == null ? List.of() : loaded;
+    } catch (TimeoutException ex) {
+      forecastFuture.cancel(true);
+      log.warn("Weather forecast fetch timed out provider={} city='{}' waitMs={}", client.provider(), city, waitMs);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+      log.warn("Weather forecast fetch failed provider={} city='{}': {}", client.provider(), city, cause.getMessage());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    return new ProviderResponse(current == null ? Optional.empty() : current, forecast);
+  }
+
+  private boolean isWithinRefreshAheadWindow(CachedWeather cached, Instant now) {
+    if (!weatherProperties.isRefreshAheadEnabled()) {
+      return false;
+    }
+    long ttlSeconds = Math.max(1, weatherProperties.getCacheTtlMinutes()) * 60L;
+    // Окно не больше половины TTL, иначе обновление запускалось бы почти на каждом попадании.
+    long windowSeconds = Math.min(Math.max(0, weatherProperties.getRefreshAheadSeconds()), ttlSeconds / 2);
+    return windowSeconds > 0 && cached.expiresAt().isBefore(now.plusSeconds(windowSeconds));
+  }
+
+  private void scheduleRefreshAhead(String key, String city, Double lat, Double lon, int days, ProviderPlan plan) {
+    if (!refreshingKeys.add(key)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          refreshAhead(key, city, lat, lon, days, plan);
+        } finally {
+          refreshingKeys.remove(key);
         }
-      } finally {
-        lock.unlock();
+      });
+    } catch (RejectedExecutionException ex) {
+      refreshingKeys.remove(key);
+      performanceMetricsService.incrementExternalFailure("weather", "refresh_ahead", "rejected");
+    }
+  }
+
+  private void refreshAhead(String key, String city, Double lat, Double lon, int days, ProviderPlan plan) {
+    ReentrantLock lock = fetchLocks.computeIfAbsent(key, ignored -> new ReentrantLock());
+    if (!lock.tryLock()) {
+      // Ключ уже обновляется синхронным запросом.
+      return;
+    }
+    long startedAt = System.nanoTime();
+    try {
+      Instant now = Instant.now();
+      CachedWeather current = cache.get(key);
+      if (current != null && !isWithinRefreshAheadWindow(current, now)) {
+        return;
+      }
+      ProviderAttempt attempt = fetchFromProviders(key, city, lat, lon, days, plan, now);
+      performanceMetricsService.recordExternalCall(
+          "weather",
+          "refresh_ahead",
+          attempt == null ? plan.primary().name() : attempt.provider().name(),
+          attempt == null ? "failed" : "success",
+          System.nanoTime() - startedAt
+      );
+    } catch (RuntimeException ex) {
+      performanceMetricsService.recordExternalCall("weather", "refresh_ahead", plan.primary().name(), "error", System.nanoTime() - startedAt);
+      log.warn("Weather refresh-ahead failed key='{}': {}", key, ex.getMessage());
+    } finally {
+      releaseFetchLock(key, lock);
+    }
+  }
+
+  private void releaseFetchLock(String key, ReentrantLock lock) {
+    try {
+      if (!lock.hasQueuedThreads()) {
+        fetchLocks.remove(key, lock);
       }
+    } finally {
+      lock.unlock();
     }
   }
 
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerCacheGauge("weather", "size", cache::size);
+    performanceMetricsService.registerCacheGauge("weather_rain_history", "size", rainHistory::size);
+  }
+
+  @PreDestroy
+  void shutdownExecutors() {
+    refreshExecutor.shutdownNow();
+    providerFetchExecutor.shutdownNow();
+  }
+
   public double getAccumulatedRainMm(String city, Double lat, Double lon, int hours) {
     if (hours <= 0 || !hasLocation(city, lat, lon)) {
       return 0.0;
     }
     String key = cacheKey(city, lat, lon);
-    pruneRainHistory(key);
-    List<RainSample> samples = rainHistory.get(key);
-    if (samples == null || samples.isEmpty()) {
+    RainAccumulator accumulator = rainHistory.get(key);
+    if (accumulator == null) {
       return 0.0;
     }
-    Instant cutoff = Instant.now().minusSeconds(hours * 3600L);
-    double total = 0.0;
-    for (RainSample sample : samples) {
-      if (sample.at().isAfter(cutoff)) {
-        total += Math.max(0.0, sample.mmPerHour());
+    return accumulator.sum(Instant.now(), hours);
+  }
+
+  // Снимки измененных с прошлого вызова локаций для сохранения в БД.
+  public Map<String, String> drainDirtyRainHistory() {
+    Map<String, String> snapshots = new HashMap<>();
+    Instant now = Instant.now();
+    for (String key : dirtyRainKeys) {
+      dirtyRainKeys.remove(key);
+      RainAccumulator accumulator = rainHistory.get(key);
+      if (accumulator != null) {
+        snapshots.put(key, accumulator.encode(now));
       }
     }
-    return total;
+    return snapshots;
+  }
+
+  public void markRainHistoryDirty(Collection<String> keys) {
+    dirtyRainKeys.addAll(keys);
+  }
+
+  public void restoreRainHistory(String key, String encoded) {
+    if (key == null || encoded == null || encoded.isBlank()) {
+      return;
+    }
+    rainHistory.computeIfAbsent(key, ignored -> new RainAccumulator()).restore(encoded, Instant.now());
   }
 
   public List<CityOption> resolveCityOptions(String query, int limit) {
@@ -303,7 +482,6 @@ public class WeatherService {
     }
     long ttlSeconds = Math.max(1, weatherProperties.getCacheTtlMinutes()) * 60L;
     cache.put(key, new CachedWeather(current, forecast == null ? List.of() : forecast, provider, observedAt, observedAt.plusSeconds(ttlSeconds)));
-    enforceWeatherCacheLimit();
     return Optional.ofNullable(data);
   }
 
@@ -344,9 +522,8 @@ public class WeatherService {
   }
 
   private void appendRainHistory(String key, double mmPerHour) {
-    rainHistory.computeIfAbsent(key, k -> new ArrayList<>()).add(new RainSample(Instant.now(), mmPerHour));
-    pruneRainHistory(key);
-    enforceRainHistoryLimit();
+    rainHistory.computeIfAbsent(key, ignored -> new RainAccumulator()).record(Instant.now(), mmPerHour);
+    dirtyRainKeys.add(key);
   }
 
   private boolean isProviderCoolingDown(WeatherProvider provider, Instant now) {
@@ -367,47 +544,44 @@ public class WeatherService {
     providerFailureState.put(provider, new ProviderFailureState(failures, blockedUntil));
   }
 
-  private void pruneRainHistory(String key) {
-    List<RainSample> samples = rainHistory.get(key);
-    if (samples == null) {
-      return;
-    }
-    Instant cutoff = Instant.now().minusSeconds(72 * 3600L);
-    samples.removeIf(sample -> sample.at().isBefore(cutoff));
-  }
-
-  private void enforceWeatherCacheLimit() {
-    cache.entrySet().removeIf(entry -> entry.getValue() == null || entry.getValue().expiresAt().isBefore(Instant.now()));
-    int max = 500;
-    if (cache.size() <= max) {
-      return;
-    }
-    int toRemove = cache.size() - max;
-    List<String> keys = new ArrayList<>(cache.keySet());
-    for (int i = 0; i < toRemove && i < keys.size(); i++) {
-      cache.remove(keys.get(i));
-    }
-  }
-
-  private void enforceRainHistoryLimit() {
-    int max = 500;
-    if (rainHistory.size() <= max) {
-      return;
+  public CacheClearStats clearCaches() {
+    int weatherEntries;
+    synchronized (cache) {
+      weatherEntries = cache.size();
+      cache.clear();
     }
-    int toRemove = rainHistory.size() - max;
-    List<String> keys = new ArrayList<>(rainHistory.keySet());
-    for (int i = 0; i < toRemove && i < keys.size(); i++) {
-      rainHistory.remove(keys.get(i));
+    int rainKeys;
+    int rainSamples;
+    synchronized (rainHistory) {
+      rainKeys = rainHistory.size();
+      Instant now = Instant.now();
+      rainSamples = rainHistory.values().stream().mapToInt(accumulator -> accumulator.filledBuckets(now)).sum();
+      rainHistory.clear();
+      dirtyRainKeys.clear();
     }
+    return new CacheClearStats(weatherEntries, rainKeys, rainSamples);
   }
 
-  public CacheClearStats clearCaches() {
-    int weatherEntries = cache.size();
-    int rainKeys = rainHistory.size();
-    int rainSamples = rainHistory.values().stream().mapToInt(List::size).sum();
-    cache.clear();
-    rainHistory.clear();
-    return new CacheClearStats(weatherEntries, rainKeys, rainSamples);
+  private static ThreadPoolExecutor newExecutor(String prefix,
+                                                int threads,
+                                                int queueCapacity,
+                                                RejectedExecutionHandler rejectionHandler) {
+    AtomicInteger counter = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        threads,
+        threads,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        rejectionHandler
+    );
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   public record CacheClearStats(int weatherEntries, int rainKeys, int rainSamples) {
@@ -426,7 +600,13 @@ public class WeatherService {
                                Instant expiresAt) {
   }
 
-  private record RainSample(Instant at, double mmPerHour) {
+  private record ProviderAttempt(WeatherProvider provider,
+                                 WeatherData current,
+                                 List<WeatherForecastDay> forecast,
+                                 boolean fallbackUsed) {
+  }
+
+  private record ProviderResponse(Optional<WeatherData> current, List<WeatherForecastDay> forecast) {
   }
 
   private record ProviderFailureState(int consecutiveFailures, Instant blockedUntil) {
@@ -7,6 +7,7 @@ import com.example.plantbot.domain.WebPushSubscription;
 import com.example.plantbot.service.notification.SmartNotificationContext;
 import com.example.plantbot.service.notification.SmartNotificationFormatter;
 import com.example.plantbot.service.notification.SmartNotificationPayload;
+import com.example.plantbot.service.notification.WebPushDeliveryEngine;
 import com.example.plantbot.repository.WebPushSubscriptionRepository;
 import com.example.plantbot.service.recommendation.model.RecommendationExplainability;
 import com.example.plantbot.service.recommendation.model.RecommendationResult;
@@ -15,48 +16,33 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import nl.martijndwars.webpush.Notification;
-import nl.martijndwars.webpush.PushService;
-import nl.martijndwars.webpush.Utils;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
-import org.jose4j.lang.JoseException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WebPushNotificationService {
-  private static final Semaphore SEND_PERMITS = new Semaphore(4, true);
-
   private final WebPushSubscriptionRepository subscriptionRepository;
   private final ObjectMapper objectMapper;
   private final SmartNotificationFormatter smartNotificationFormatter;
+  private final WebPushDeliveryEngine deliveryEngine;
 
   @Value("${web-push.enabled:false}")
   private boolean enabled;
 
-  @Value("${web-push.subject:mailto:plant-bot@example.com}")
-  private String subject;
-
   @Value("${web-push.vapid.public-key:}")
   private String vapidPublicKey;
 
@@ -87,8 +73,7 @@ public class WebPushNotificationService {
     }
 
     try {
-      Utils.loadPublicKey(normalizeBase64Url(request.keys().p256dh()));
-      decodeAuthSecret(request.keys().auth());
+      deliveryEngine.validateKeys(request.keys().p256dh(), request.keys().auth());
     } catch (IllegalArgumentException | GeneralSecurityException ex) {
       throw new ResponseStatusException(
           org.springframework.http.HttpStatus.BAD_REQUEST,
@@ -132,7 +117,6 @@ public class WebPushNotificationService {
     return subscriptionRepository.existsByUserAndEndpoint(user, endpoint.trim());
   }
 
-  @Transactional
   public boolean sendWateringReminder(Plant plant, WateringRecommendation rec) {
     if (rec == null) {
       return false;
@@ -154,12 +138,10 @@ public class WebPushNotificationService {
     );
   }
 
-  @Transactional
   public boolean sendWateringReminder(Plant plant, RecommendationResult result) {
     return sendWateringReminder(plant, result, null);
   }
 
-  @Transactional
   public boolean sendWateringReminder(Plant plant, RecommendationResult result, SmartNotificationContext notificationContext) {
     if (!isEnabled() || plant == null || plant.getUser() == null) {
       return false;
@@ -171,11 +153,15 @@ public class WebPushNotificationService {
               plant.getUser().getId());
       return false;
     }
+    String payloadJson = buildWateringReminderPayload(plant, result, notificationContext);
+    return countDelivered(sendPayload(subscriptions, payloadJson)) > 0;
+  }
 
+  // Payload напоминания собирается в момент решения и хранится в outbox до доставки.
+  public String buildWateringReminderPayload(Plant plant, RecommendationResult result, SmartNotificationContext notificationContext) {
     SmartNotificationPayload formatted = notificationContext == null
         ? null
         : smartNotificationFormatter.format(plant, notificationContext);
-
     int intervalDays = result == null || result.recommendedIntervalDays() == null
         ? 1
         : Math.max(1, result.recommendedIntervalDays());
@@ -205,8 +191,55 @@ public class WebPushNotificationService {
     payload.put("requireInteraction", formatted == null || formatted.requireInteraction());
     payload.put("timestamp", System.currentTimeMillis());
 
-    String payloadJson = toJson(payload);
-    return countDelivered(sendPayload(subscriptions, payloadJson)) > 0;
+    return toJson(payload);
+  }
+
+  // Одно push-сообщение на несколько растений пользователя. Тег привязан к дню:
+  // повторная доставка после сбоя заменяет уведомление на устройстве, а не дублирует его.
+  public String buildWateringDigestPayload(List<String> plantNames, LocalDate reminderDate) {
+    int count = plantNames.size();
+    String names = String.join(", ", plantNames.subList(0, Math.min(4, count)));
+    if (count > 4) {
+      names = names + " и еще " + (count - 4);
+    }
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("title", "Пора поливать: " + count + " " + plantsWord(count));
+    payload.put("body", names);
+    payload.put("tag", "plant-watering-digest-" + reminderDate);
+    payload.put("url", resolvePwaPublicUrl());
+    payload.put("icon", resolvePwaAssetUrl("icons/icon-192.svg"));
+    payload.put("badge", resolvePwaAssetUrl("icons/icon-192.svg"));
+    payload.put("vibrate", List.of(180, 60, 180));
+    payload.put("renotify", true);
+    payload.put("requireInteraction", true);
+    payload.put("timestamp", System.currentTimeMillis());
+    return toJson(payload);
+  }
+
+  // Доставка готового payload из outbox всем подпискам пользователя.
+  public SendResult sendStoredPayload(Long userId, String payloadJson) {
+    if (!isEnabled()) {
+      return new SendResult(0, 0, "Web Push отключен на сервере", null, List.of());
+    }
+    List<WebPushSubscription> subscriptions = subscriptionRepository.findByUserId(userId);
+    if (subscriptions.isEmpty()) {
+      return new SendResult(0, 0, "У пользователя нет активных push-подписок", null, List.of());
+    }
+    List<EndpointDeliveryResult> endpointResults = sendPayload(subscriptions, payloadJson);
+    int delivered = countDelivered(endpointResults);
+    return new SendResult(subscriptions.size(), delivered, delivered > 0 ? "delivered" : "not-delivered", null, endpointResults);
+  }
+
+  private static String plantsWord(int count) {
+    int mod100 = count % 100;
+    int mod10 = count % 10;
+    if (mod10 == 1 && mod100 != 11) {
+      return "растение";
+    }
+    if (mod10 >= 2 && mod10 <= 4 && (mod100 < 12 || mod100 > 14)) {
+      return "растения";
+    }
+    return "растений";
   }
 
   String toNotificationExplainabilitySnippet(SmartNotificationContext notificationContext, RecommendationExplainability explainability) {
@@ -301,7 +334,33 @@ public class WebPushNotificationService {
         || normalized.contains("legacy runtime delegate");
   }
 
-  @Transactional
+  public boolean sendGrowthSummaryReady(User user, Long plantId, String plantName, Long entryId, String summary) {
+    if (user == null || !isEnabled()) {
+      return false;
+    }
+    List<WebPushSubscription> subscriptions = subscriptionRepository.findByUser(user);
+    if (subscriptions.isEmpty()) {
+      return false;
+    }
+    String body = summary == null ? "" : summary.trim();
+    if (body.length() > 180) {
+      body = body.substring(0, 177) + "...";
+    }
+
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("title", "AI-сводка: " + (plantName == null || plantName.isBlank() ? "растение" : plantName.trim()));
+    payload.put("body", body);
+    payload.put("tag", "growth-summary-" + entryId);
+    payload.put("url", resolvePwaPublicUrl());
+    payload.put("icon", resolvePwaAssetUrl("icons/icon-192.svg"));
+    payload.put("badge", resolvePwaAssetUrl("icons/icon-192.svg"));
+    payload.put("timestamp", System.currentTimeMillis());
+    payload.put("plantId", plantId);
+    payload.put("entryId", entryId);
+
+    return countDelivered(sendPayload(subscriptions, toJson(payload))) > 0;
+  }
+
   public SendResult sendTestNotification(User user, String title, String body) {
     if (user == null) {
       return new SendResult(0, 0, "Пользователь не найден", "admin-test-missing-user", List.of());
@@ -337,7 +396,6 @@ public class WebPushNotificationService {
     return new SendResult(subscriptions.size(), delivered, message, payload.get("tag").toString(), endpointResults);
   }
 
-  @Transactional
   public SendResult sendPwaSelfTest(User user, String endpoint, String title, String body, String tag) {
     if (user == null) {
       return new SendResult(0, 0, "Пользователь не найден", safeTag(tag), List.of());
@@ -383,24 +441,43 @@ public class WebPushNotificationService {
     return new SendResult(subscriptions.size(), accepted, message, safeTag, endpointResults);
   }
 
+  // Подписки уже прочитаны короткой транзакцией репозитория; отправка идет без открытой транзакции,
+  // а итоги записываются пачкой: удаление протухших подписок и отметки об успехе — по одному запросу.
   private List<EndpointDeliveryResult> sendPayload(List<WebPushSubscription> subscriptions, String payloadJson) {
-    List<EndpointDeliveryResult> results = new java.util.ArrayList<>();
-    PushService pushService;
-    try {
-      pushService = buildPushService();
-    } catch (GeneralSecurityException | JoseException ex) {
-      String reason = trimReason(ex.getClass().getSimpleName() + ": " + ex.getMessage());
-      for (WebPushSubscription sub : subscriptions) {
-        results.add(new EndpointDeliveryResult(maskEndpoint(sub.getEndpoint()), false, 0, reason));
+    List<WebPushDeliveryEngine.PushTarget> targets = new ArrayList<>(subscriptions.size());
+    for (WebPushSubscription sub : subscriptions) {
+      targets.add(new WebPushDeliveryEngine.PushTarget(sub.getId(), sub.getEndpoint(), sub.getP256dh(), sub.getAuth()));
+    }
+    List<WebPushDeliveryEngine.Delivery> deliveries = deliveryEngine.deliver(targets, payloadJson);
+
+    List<Long> gone = new ArrayList<>();
+    List<Long> delivered = new ArrayList<>();
+    List<EndpointDeliveryResult> results = new ArrayList<>(deliveries.size());
+    Instant now = Instant.now();
+    for (WebPushDeliveryEngine.Delivery delivery : deliveries) {
+      Long subscriptionId = delivery.target().subscriptionId();
+      if (delivery.gone()) {
+        gone.add(subscriptionId);
+      } else if (delivery.delivered()) {
+        delivered.add(subscriptionId);
+      } else {
+        log.warn("WebPush send failed: subscriptionId={} endpoint={} reason={}",
+            subscriptionId, maskEndpoint(delivery.target().endpoint()), delivery.error());
+        subscriptionRepository.markFailed(subscriptionId, now, delivery.error());
       }
-      return results;
+      results.add(new EndpointDeliveryResult(
+          maskEndpoint(delivery.target().endpoint()),
+          delivery.delivered(),
+          delivery.status(),
+          delivery.error()
+      ));
     }
-    for (WebPushSubscription sub : subscriptions) {
-      log.info("WebPush send attempt: userId={} subscriptionId={} endpoint={}",
-          sub.getUser() != null ? sub.getUser().getId() : null,
-          sub.getId(),
-          maskEndpoint(sub.getEndpoint()));
-      results.add(sendToSubscription(pushService, sub, payloadJson));
+    if (!gone.isEmpty()) {
+      subscriptionRepository.deleteByIdIn(gone);
+      log.info("WebPush pruned expired subscriptions: count={}", gone.size());
+    }
+    if (!delivered.isEmpty()) {
+      subscriptionRepository.markDelivered(delivered, now);
     }
     return results;
   }
@@ -415,103 +492,8 @@ public class WebPushNotificationService {
     return delivered;
   }
 
-  private EndpointDeliveryResult sendToSubscription(PushService pushService, WebPushSubscription subscription, String payloadJson) {
-    String maskedEndpoint = maskEndpoint(subscription.getEndpoint());
-    boolean acquired = false;
-    try {
-      acquired = SEND_PERMITS.tryAcquire(250, TimeUnit.MILLISECONDS);
-      if (!acquired) {
-        return new EndpointDeliveryResult(maskedEndpoint, false, 0, "Web Push send queue is busy");
-      }
-      Notification notification = new Notification(
-          subscription.getEndpoint(),
-          Utils.loadPublicKey(normalizeBase64Url(subscription.getP256dh())),
-          decodeAuthSecret(subscription.getAuth()),
-          payloadJson.getBytes(StandardCharsets.UTF_8)
-      );
-      HttpResponse response = pushService.send(notification);
-      int status = response.getStatusLine().getStatusCode();
-      log.info("WebPush send response: status={} endpoint={}", status, maskedEndpoint);
-      if (status == HttpStatus.SC_GONE || status == HttpStatus.SC_NOT_FOUND) {
-        subscriptionRepository.delete(subscription);
-        return new EndpointDeliveryResult(maskedEndpoint, false, status, "Subscription is gone (removed)");
-      }
-      if (status >= 200 && status < 300) {
-        subscription.setLastSuccessAt(Instant.now());
-        subscription.setLastFailureAt(null);
-        subscription.setLastFailureReason(null);
-        subscriptionRepository.save(subscription);
-        return new EndpointDeliveryResult(maskedEndpoint, true, status, null);
-      }
-      String reason = "HTTP " + status;
-      log.warn("WebPush non-success status: status={} endpoint={}", status, maskedEndpoint);
-      subscription.setLastFailureAt(Instant.now());
-      subscription.setLastFailureReason(reason);
-      subscriptionRepository.save(subscription);
-      return new EndpointDeliveryResult(maskedEndpoint, false, status, reason);
-    } catch (GeneralSecurityException | JoseException | IOException | ExecutionException | IllegalArgumentException ex) {
-      String reason = trimReason(ex.getClass().getSimpleName() + ": " + ex.getMessage());
-      log.warn("WebPush send failed for endpoint={}: {}", maskedEndpoint, reason);
-      subscription.setLastFailureAt(Instant.now());
-      subscription.setLastFailureReason(reason);
-      subscriptionRepository.save(subscription);
-      return new EndpointDeliveryResult(maskedEndpoint, false, 0, reason);
-    } catch (InterruptedException ex) {
-      Thread.currentThread().interrupt();
-      String reason = "InterruptedException";
-      subscription.setLastFailureAt(Instant.now());
-      subscription.setLastFailureReason(reason);
-      subscriptionRepository.save(subscription);
-      return new EndpointDeliveryResult(maskedEndpoint, false, 0, reason);
-    } finally {
-      if (acquired) {
-        SEND_PERMITS.release();
-      }
-    }
-  }
-
-  private PushService buildPushService() throws GeneralSecurityException, JoseException {
-    PushService pushService = new PushService();
-    pushService.setSubject(subject);
-    pushService.setPublicKey(vapidPublicKey);
-    pushService.setPrivateKey(vapidPrivateKey);
-    return pushService;
-  }
-
-  private byte[] decodeAuthSecret(String auth) {
-    String normalized = normalizeBase64Url(auth);
-    int paddingNeeded = (4 - (normalized.length() % 4)) % 4;
-    String padded = normalized + "=".repeat(paddingNeeded);
-    return Base64.getUrlDecoder().decode(padded);
-  }
-
-  private String normalizeBase64Url(String value) {
-    if (value == null) {
-      return "";
-    }
-    return value.trim()
-        .replace('+', '-')
-        .replace('/', '_')
-        .replace("=", "");
-  }
-
   private String maskEndpoint(String endpoint) {
-    if (endpoint == null || endpoint.isBlank()) {
-      return "<empty>";
-    }
-    int keep = Math.min(36, endpoint.length());
-    return endpoint.substring(0, keep) + "...";
-  }
-
-  private String trimReason(String reason) {
-    if (reason == null) {
-      return null;
-    }
-    String normalized = reason.trim();
-    if (normalized.length() <= 400) {
-      return normalized;
-    }
-    return normalized.substring(0, 400);
+    return WebPushDeliveryEngine.maskEndpoint(endpoint);
   }
 
   private String resolvePwaPublicUrl() {
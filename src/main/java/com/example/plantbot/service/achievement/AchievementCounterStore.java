@@ -0,0 +1,90 @@
+package com.example.plantbot.service.achievement;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счетчики достижений по пользователям. Без зависимостей от JPA: сюда пишет entity listener.
+@Component
+public class AchievementCounterStore {
+  private final Map<Long, AchievementCounters> counters = new ConcurrentHashMap<>();
+  // Версии берутся из общей последовательности: после clear() старая версия не может совпасть с новой.
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+  // Дельты незавершенных транзакций: после коммита они уже видны в БД, но еще не применены здесь.
+  private final Map<Long, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+  public Optional<AchievementCounters> get(Long userId) {
+    return userId == null ? Optional.empty() : Optional.ofNullable(counters.get(userId));
+  }
+
+  public long version(Long userId) {
+    Long version = userId == null ? null : versions.get(userId);
+    return version == null ? 0L : version;
+  }
+
+  // Результат сверки кладется, только если за время запроса не пришло ни одной дельты
+  // и у пользователя нет дельт незавершенных транзакций.
+  public void putIfUnchanged(Long userId, long observedVersion, AchievementCounters value) {
+    counters.compute(userId, (key, current) ->
+        version(userId) == observedVersion && !pendingDeltas.containsKey(userId) ? value : current);
+  }
+
+  // Дельта применяется после коммита: откаченная транзакция счетчики не трогает.
+  public void applyDelta(Long userId, AchievementCounters delta) {
+    if (userId == null || delta == null || delta.isZero()) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      // Отметка ставится сразу, а не в beforeCommit: @PostUpdate срабатывает уже на flush внутри коммита.
+      // Без нее сверка, прочитавшая БД после коммита, успела бы положить значение с этой дельтой
+      // до afterCompletion, и дельта применилась бы дважды.
+      announce(userId);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          settle(userId, status == STATUS_COMMITTED ? delta : null, true);
+        }
+      });
+      return;
+    }
+    settle(userId, delta, false);
+  }
+
+  public void clear() {
+    counters.clear();
+    versions.clear();
+  }
+
+  public int size() {
+    return counters.size();
+  }
+
+  private void announce(Long userId) {
+    counters.compute(userId, (key, current) -> {
+      bump(userId);
+      pendingDeltas.merge(userId, 1, Integer::sum);
+      return current;
+    });
+  }
+
+  private void settle(Long userId, AchievementCounters delta, boolean announced) {
+    counters.compute(userId, (key, current) -> {
+      bump(userId);
+      if (announced) {
+        pendingDeltas.computeIfPresent(userId, (ignored, count) -> count > 1 ? count - 1 : null);
+      }
+      // Незагруженные счетчики не трогаем: они будут посчитаны сверкой при первом чтении.
+      return current == null || delta == null ? current : current.plus(delta);
+    });
+  }
+
+  private void bump(Long userId) {
+    versions.put(userId, sequence.incrementAndGet());
+  }
+}
@@ -0,0 +1,19 @@
+package com.example.plantbot.service.achievement;
+
+public record AchievementCounters(int plants, int outdoorPlants, int plantsWithPhoto, int aiDetectedPlants, long waterings) {
+  public static final AchievementCounters EMPTY = new AchievementCounters(0, 0, 0, 0, 0L);
+
+  public AchievementCounters plus(AchievementCounters delta) {
+    return new AchievementCounters(
+        Math.max(0, plants + delta.plants()),
+        Math.max(0, outdoorPlants + delta.outdoorPlants()),
+        Math.max(0, plantsWithPhoto + delta.plantsWithPhoto()),
+        Math.max(0, aiDetectedPlants + delta.aiDetectedPlants()),
+        Math.max(0L, waterings + delta.waterings())
+    );
+  }
+
+  public boolean isZero() {
+    return plants == 0 && outdoorPlants == 0 && plantsWithPhoto == 0 && aiDetectedPlants == 0 && waterings == 0L;
+  }
+}
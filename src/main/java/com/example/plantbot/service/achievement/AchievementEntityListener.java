@@ -0,0 +1,87 @@
+package com.example.plantbot.service.achievement;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.PlantPlacement;
+import com.example.plantbot.domain.WateringLog;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// Переводит изменения растений и логов полива в дельты счетчиков достижений.
+// Для обновлений растение помнит флаги на момент загрузки, дельта считается по разнице.
+@Component
+@RequiredArgsConstructor
+public class AchievementEntityListener {
+  private final AchievementCounterStore achievementCounterStore;
+
+  @PostLoad
+  public void onLoad(Object entity) {
+    if (entity instanceof Plant plant) {
+      plant.setAchievementFlagsSnapshot(flags(plant));
+    }
+  }
+
+  @PostPersist
+  public void onPersist(Object entity) {
+    if (entity instanceof Plant plant) {
+      AchievementCounters current = flags(plant);
+      achievementCounterStore.applyDelta(userId(plant), current);
+      plant.setAchievementFlagsSnapshot(current);
+    } else if (entity instanceof WateringLog log) {
+      achievementCounterStore.applyDelta(userId(log.getPlant()), new AchievementCounters(0, 0, 0, 0, 1L));
+    }
+  }
+
+  @PostUpdate
+  public void onUpdate(Object entity) {
+    if (entity instanceof Plant plant) {
+      AchievementCounters current = flags(plant);
+      AchievementCounters previous = plant.getAchievementFlagsSnapshot();
+      if (previous != null) {
+        achievementCounterStore.applyDelta(userId(plant), new AchievementCounters(
+            0,
+            current.outdoorPlants() - previous.outdoorPlants(),
+            current.plantsWithPhoto() - previous.plantsWithPhoto(),
+            current.aiDetectedPlants() - previous.aiDetectedPlants(),
+            0L
+        ));
+      }
+      plant.setAchievementFlagsSnapshot(current);
+    }
+  }
+
+  @PostRemove
+  public void onRemove(Object entity) {
+    if (entity instanceof Plant plant) {
+      AchievementCounters flags = plant.getAchievementFlagsSnapshot() == null ? flags(plant) : plant.getAchievementFlagsSnapshot();
+      achievementCounterStore.applyDelta(userId(plant), new AchievementCounters(
+          -flags.plants(),
+          -flags.outdoorPlants(),
+          -flags.plantsWithPhoto(),
+          -flags.aiDetectedPlants(),
+          0L
+      ));
+    } else if (entity instanceof WateringLog log) {
+      achievementCounterStore.applyDelta(userId(log.getPlant()), new AchievementCounters(0, 0, 0, 0, -1L));
+    }
+  }
+
+  static AchievementCounters flags(Plant plant) {
+    return new AchievementCounters(
+        1,
+        plant.getPlacement() == PlantPlacement.OUTDOOR ? 1 : 0,
+        plant.getPhotoUrl() != null && !plant.getPhotoUrl().isBlank() ? 1 : 0,
+        plant.getLookupSource() != null && plant.getLookupSource().toLowerCase(Locale.ROOT).contains("openrouter") ? 1 : 0,
+        0L
+    );
+  }
+
+  private static Long userId(Plant plant) {
+    return plant == null || plant.getUser() == null ? null : plant.getUser().getId();
+  }
+}
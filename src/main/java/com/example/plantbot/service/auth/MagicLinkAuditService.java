@@ -1,8 +1,10 @@
 package com.example.plantbot.service.auth;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.controller.dto.admin.AdminMagicLinkAuditItemResponse;
 import com.example.plantbot.domain.MagicLinkAuditEvent;
 import com.example.plantbot.repository.MagicLinkAuditEventRepository;
+import com.example.plantbot.service.ScheduledJobGuard;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +23,7 @@ import java.util.Locale;
 @Slf4j
 public class MagicLinkAuditService {
   private final MagicLinkAuditEventRepository magicLinkAuditEventRepository;
+  private final ScheduledJobGuard scheduledJobGuard;
 
   @Value("${app.magic-link.audit-retention-days:30}")
   private int auditRetentionDays;
@@ -58,9 +61,13 @@ public class MagicLinkAuditService {
         .toList();
   }
 
-  @Scheduled(cron = "${app.magic-link.audit-cleanup-cron:0 15 4 * * *}")
+  @Scheduled(cron = "${app.magic-link.audit-cleanup-cron:0 15 4 * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
   @Transactional
   public void cleanupOldAuditEvents() {
+    scheduledJobGuard.run("magic_link_audit_cleanup", this::cleanupOldAuditEventsInternal);
+  }
+
+  private void cleanupOldAuditEventsInternal() {
     int retentionDays = Math.max(1, auditRetentionDays);
     Instant threshold = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
     long deleted = magicLinkAuditEventRepository.deleteByCreatedAtBefore(threshold);
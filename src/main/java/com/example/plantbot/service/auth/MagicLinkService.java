@@ -1,5 +1,6 @@
 package com.example.plantbot.service.auth;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.controller.dto.pwa.PwaAuthResponse;
 import com.example.plantbot.controller.dto.pwa.PwaEmailMagicLinkRequestAccepted;
 import com.example.plantbot.controller.dto.pwa.PwaUserResponse;
@@ -12,6 +13,7 @@ import com.example.plantbot.repository.AuthIdentityRepository;
 import com.example.plantbot.repository.MagicLinkRepository;
 import com.example.plantbot.repository.UserRepository;
 import com.example.plantbot.security.JwtService;
+import com.example.plantbot.service.ScheduledJobGuard;
 import com.example.plantbot.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -44,6 +46,7 @@ public class MagicLinkService {
   private final EmailService emailService;
   private final MagicLinkRateLimitService magicLinkRateLimitService;
   private final MagicLinkAuditService magicLinkAuditService;
+  private final ScheduledJobGuard scheduledJobGuard;
 
   @Value("${app.magic-link.expiry-minutes:20}")
   private long expiryMinutes;
@@ -227,9 +230,13 @@ public class MagicLinkService {
     return new PwaAuthResponse(jwt, jwtService.getTtlSeconds(), toUserResponse(user));
   }
 
-  @Scheduled(cron = "${app.magic-link.cleanup-cron:0 */10 * * * *}")
+  @Scheduled(cron = "${app.magic-link.cleanup-cron:0 */10 * * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
   @Transactional
   public void cleanupExpiredMagicLinks() {
+    scheduledJobGuard.run("magic_link_cleanup", this::cleanupExpiredMagicLinksInternal);
+  }
+
+  private void cleanupExpiredMagicLinksInternal() {
     Instant now = Instant.now();
     long expired = magicLinkRepository.deleteByExpiresAtBefore(now);
     long used = magicLinkRepository.deleteByUsedTrueAndUsedAtBefore(
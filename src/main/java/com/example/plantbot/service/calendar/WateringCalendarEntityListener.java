@@ -0,0 +1,34 @@
+package com.example.plantbot.service.calendar;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.WateringLog;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Инвалидирует проекцию календаря при любом изменении растения или лога полива.
+@Component
+@RequiredArgsConstructor
+public class WateringCalendarEntityListener {
+  private final WateringCalendarVersions wateringCalendarVersions;
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void onChange(Object entity) {
+    wateringCalendarVersions.invalidate(resolveUserId(entity));
+  }
+
+  private Long resolveUserId(Object entity) {
+    if (entity instanceof Plant plant) {
+      return plant.getUser() == null ? null : plant.getUser().getId();
+    }
+    if (entity instanceof WateringLog log) {
+      Plant plant = log.getPlant();
+      return plant == null || plant.getUser() == null ? null : plant.getUser().getId();
+    }
+    return null;
+  }
+}
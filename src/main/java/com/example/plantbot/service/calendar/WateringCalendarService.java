@@ -0,0 +1,185 @@
+package com.example.plantbot.service.calendar;
+
+import com.example.plantbot.controller.dto.CalendarEventResponse;
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.PlantService;
+import com.example.plantbot.service.WateringRecommendationService;
+import com.example.plantbot.service.weather.LruEvictingMap;
+import com.example.plantbot.util.WateringRecommendation;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Проекция календаря поливов: пересчитывается только после изменения растений/логов пользователя или смены дня.
+@Service
+@RequiredArgsConstructor
+public class WateringCalendarService {
+  public static final int APP_HORIZON_DAYS = 62;
+  public static final int ICS_HORIZON_DAYS = 365;
+
+  private final PlantService plantService;
+  private final WateringRecommendationService wateringRecommendationService;
+  private final WateringCalendarVersions wateringCalendarVersions;
+  private final PerformanceMetricsService performanceMetricsService;
+
+  @Value("${app.calendar.projection-max-entries:1000}")
+  private int projectionMaxEntries;
+
+  private Map<ProjectionKey, CalendarProjection> projections;
+
+  @PostConstruct
+  void init() {
+    projections = Collections.synchronizedMap(new LruEvictingMap<>(
+        projectionMaxEntries,
+        () -> performanceMetricsService.incrementCacheEviction("watering_calendar", "lru")
+    ));
+    performanceMetricsService.registerCacheGauge("watering_calendar", "size", () -> projections.size());
+  }
+
+  public CalendarProjection projection(User user, int horizonDays) {
+    LocalDate today = LocalDate.now();
+    long generation = wateringCalendarVersions.current(user.getId());
+    String userFingerprint = userFingerprint(user);
+    ProjectionKey key = new ProjectionKey(user.getId(), horizonDays);
+    CalendarProjection cached = projections.get(key);
+    if (cached != null
+        && cached.generation() == generation
+        && cached.start().equals(today)
+        && cached.userFingerprint().equals(userFingerprint)) {
+      performanceMetricsService.incrementCacheLookup("watering_calendar", "memory", "hit");
+      return cached;
+    }
+    performanceMetricsService.incrementCacheLookup("watering_calendar", "memory", "miss");
+
+    List<CalendarEventResponse> events = List.copyOf(buildEvents(user, today, today.plusDays(horizonDays)));
+    CalendarProjection projection = new CalendarProjection(
+        generation,
+        today,
+        userFingerprint,
+        events,
+        etag(user, today, horizonDays, events)
+    );
+    // Если за время сборки данные поменялись, результат отдаем, но не кэшируем.
+    if (wateringCalendarVersions.current(user.getId()) == generation) {
+      projections.put(key, projection);
+    }
+    return projection;
+  }
+
+  // ICS пишется прямо в поток ответа. DTSTAMP привязан к дате проекции, чтобы тело совпадало с ETag.
+  public void writeIcs(CalendarProjection projection, User user, Writer out) throws IOException {
+    out.write("BEGIN:VCALENDAR\r\n");
+    out.write("VERSION:2.0\r\n");
+    out.write("PRODID:-//PlantBot//Watering Calendar//RU\r\n");
+    out.write("CALSCALE:GREGORIAN\r\n");
+    out.write("METHOD:PUBLISH\r\n");
+    out.write("X-WR-CALNAME:Мои растения — Полив\r\n");
+    out.write("X-WR-CALDESC:Подписка на календарь поливов Plant Bot. События обновляются автоматически при изменении расписания.\r\n");
+    out.write("X-PUBLISHED-TTL:PT5M\r\n");
+    out.write("REFRESH-INTERVAL;VALUE=DURATION:PT5M\r\n");
+    String stamp = icsDate(projection.start()) + "T000000Z";
+    for (CalendarEventResponse event : projection.events()) {
+      String plantName = escapeIcs(event.plantName());
+      out.write("BEGIN:VEVENT\r\n");
+      out.write("UID:plantbot-" + user.getTelegramId() + "-" + event.plantId() + "-" + event.date() + "\r\n");
+      out.write("DTSTAMP:" + stamp + "\r\n");
+      out.write("DTSTART;VALUE=DATE:" + icsDate(event.date()) + "\r\n");
+      out.write("DTEND;VALUE=DATE:" + icsDate(event.date().plusDays(1)) + "\r\n");
+      out.write("SUMMARY:Полив: " + plantName + "\r\n");
+      out.write("DESCRIPTION:Напоминание о поливе растения " + plantName + "\r\n");
+      out.write("END:VEVENT\r\n");
+    }
+    out.write("END:VCALENDAR\r\n");
+  }
+
+  private List<CalendarEventResponse> buildEvents(User user, LocalDate start, LocalDate end) {
+    List<CalendarEventResponse> events = new ArrayList<>();
+    List<Plant> plants = plantService.list(user);
+    for (Plant plant : plants) {
+      WateringRecommendation rec = wateringRecommendationService.recommendQuick(plant, user);
+      int step = Math.max(1, (int) Math.floor(rec.intervalDays()));
+      LocalDate due = plant.getLastWateredDate().plusDays(step);
+      LocalDate next;
+
+      if (due.isBefore(start)) {
+        if (!start.isAfter(end)) {
+          events.add(new CalendarEventResponse(start, plant.getId(), plant.getName()));
+        }
+        next = start.plusDays(step);
+      } else {
+        next = due;
+      }
+
+      while (!next.isAfter(end)) {
+        if (!next.isBefore(start)) {
+          events.add(new CalendarEventResponse(next, plant.getId(), plant.getName()));
+        }
+        next = next.plusDays(step);
+      }
+    }
+    events.sort(Comparator.comparing(CalendarEventResponse::date).thenComparing(CalendarEventResponse::plantName));
+    return events;
+  }
+
+  // Сильный ETag по содержимому: после рестарта поколения обнуляются, а хэш остается честным.
+  private String etag(User user, LocalDate start, int horizonDays, List<CalendarEventResponse> events) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((user.getTelegramId() + "|" + start + "|" + horizonDays + "\n").getBytes(StandardCharsets.UTF_8));
+      for (CalendarEventResponse event : events) {
+        digest.update((event.date() + "|" + event.plantId() + "|" + event.plantName() + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+      return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+  }
+
+  // Поля пользователя, которые влияют на быструю рекомендацию и UID событий.
+  private String userFingerprint(User user) {
+    return Objects.toString(user.getTelegramId()) + "|" + Objects.toString(user.getCity()) + "|"
+        + Objects.toString(user.getCityLat()) + "|" + Objects.toString(user.getCityLon());
+  }
+
+  private static String icsDate(LocalDate date) {
+    return date.toString().replace("-", "");
+  }
+
+  private static String escapeIcs(String value) {
+    if (value == null) {
+      return "";
+    }
+    return value
+        .replace("\\", "\\\\")
+        .replace(",", "\\,")
+        .replace(";", "\\;")
+        .replace("\n", "\\n");
+  }
+
+  public record CalendarProjection(long generation,
+                                   LocalDate start,
+                                   String userFingerprint,
+                                   List<CalendarEventResponse> events,
+                                   String etag) {
+  }
+
+  private record ProjectionKey(Long userId, int horizonDays) {
+  }
+}
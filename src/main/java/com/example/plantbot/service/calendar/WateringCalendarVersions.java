@@ -0,0 +1,43 @@
+package com.example.plantbot.service.calendar;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Поколения календаря пользователя. Без зависимостей от JPA, чтобы entity listener не создавал цикл бинов.
+@Component
+public class WateringCalendarVersions {
+  private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  public long current(Long userId) {
+    if (userId == null) {
+      return 0L;
+    }
+    AtomicLong generation = generations.get(userId);
+    return generation == null ? 0L : generation.get();
+  }
+
+  // Сдвигаем поколение сразу и после коммита: сборка, прочитавшая данные до коммита, не попадет в кэш.
+  public void invalidate(Long userId) {
+    if (userId == null) {
+      return;
+    }
+    bump(userId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          bump(userId);
+        }
+      });
+    }
+  }
+
+  private void bump(Long userId) {
+    generations.computeIfAbsent(userId, ignored -> new AtomicLong()).incrementAndGet();
+  }
+}
@@ -0,0 +1,180 @@
+package com.example.plantbot.service.chat;
+
+import com.example.plantbot.controller.dto.ChatAskResponse;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.service.AiStreamCancellation;
+import com.example.plantbot.service.AssistantChatHistoryService;
+import com.example.plantbot.service.OpenRouterPlantAdvisorService;
+import com.example.plantbot.service.PerformanceMetricsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Потоковый ответ ассистента через SSE: сервлетный поток освобождается сразу, фрагменты ответа
+// провайдера уходят клиенту по мере генерации, а в историю и кэш сохраняется только полный ответ.
+@Service
+@Slf4j
+public class AssistantChatStreamService {
+  private static final String POOL = "assistant_stream";
+  private static final String FAILURE_MESSAGE =
+      "Не удалось получить ответ от AI provider. Попросите администратора проверить активного провайдера, ключ и модели.";
+
+  private final OpenRouterPlantAdvisorService openRouterPlantAdvisorService;
+  private final AssistantChatHistoryService assistantChatHistoryService;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final long emitterTimeoutMs;
+  private final ThreadPoolExecutor executor;
+
+  public AssistantChatStreamService(OpenRouterPlantAdvisorService openRouterPlantAdvisorService,
+                                    AssistantChatHistoryService assistantChatHistoryService,
+                                    PerformanceMetricsService performanceMetricsService,
+                                    @Value("${app.assistant.stream.threads:8}") int threads,
+                                    @Value("${app.assistant.stream.queue-capacity:32}") int queueCapacity,
+                                    @Value("${app.assistant.stream.timeout-ms:120000}") long emitterTimeoutMs) {
+    this.openRouterPlantAdvisorService = openRouterPlantAdvisorService;
+    this.assistantChatHistoryService = assistantChatHistoryService;
+    this.performanceMetricsService = performanceMetricsService;
+    this.emitterTimeoutMs = Math.max(10_000L, emitterTimeoutMs);
+    int poolSize = Math.max(1, threads);
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+        runnable -> {
+          Thread thread = new Thread(runnable, "assistant-stream-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerWorkerGauge(POOL, "active", executor::getActiveCount);
+    performanceMetricsService.registerWorkerGauge(POOL, "queue.depth", () -> executor.getQueue().size());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public SseEmitter stream(User user, String question, String photoBase64) {
+    SseEmitter emitter = newEmitter(emitterTimeoutMs);
+    AtomicBoolean closed = new AtomicBoolean();
+    AiStreamCancellation upstream = new AiStreamCancellation();
+    AtomicReference<Future<?>> relayTask = new AtomicReference<>();
+    // Закрытие SSE (таймаут, обрыв, завершение) закрывает и тело ответа провайдера: иначе поток relay
+    // и слот AiConcurrencyLimiter висели бы на зависшем провайдере до следующего фрагмента.
+    Runnable close = () -> {
+      closed.set(true);
+      upstream.cancel();
+      Future<?> task = relayTask.get();
+      if (task != null) {
+        task.cancel(false);
+      }
+    };
+    emitter.onTimeout(close);
+    emitter.onError(error -> close.run());
+    emitter.onCompletion(close);
+    try {
+      relayTask.set(executor.submit(() -> relay(emitter, closed, upstream, user, question, photoBase64)));
+    } catch (RejectedExecutionException ex) {
+      performanceMetricsService.incrementWorkerRejection(POOL);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Ассистент сейчас перегружен, попробуйте позже");
+    }
+    // Клиент мог уйти, пока задача вставала в очередь: тогда она не должна даже начинаться.
+    if (closed.get()) {
+      relayTask.get().cancel(false);
+    }
+    return emitter;
+  }
+
+  SseEmitter newEmitter(long timeoutMs) {
+    return new SseEmitter(timeoutMs);
+  }
+
+  private void relay(SseEmitter emitter,
+                     AtomicBoolean closed,
+                     AiStreamCancellation upstream,
+                     User user,
+                     String question,
+                     String photoBase64) {
+    long startedAt = System.nanoTime();
+    AtomicLong firstDeltaAt = new AtomicLong();
+    String outcome = "failed";
+    try {
+      if (closed.get()) {
+        outcome = "client_closed";
+        return;
+      }
+      Optional<OpenRouterPlantAdvisorService.ChatAnswer> answer = openRouterPlantAdvisorService.streamGardeningAnswer(
+          user,
+          question,
+          photoBase64,
+          delta -> {
+            if (closed.get()) {
+              throw new IllegalStateException("SSE client disconnected");
+            }
+            if (firstDeltaAt.compareAndSet(0L, System.nanoTime())) {
+              performanceMetricsService.recordAssistantStream("first_token", "success", firstDeltaAt.get() - startedAt);
+            }
+            send(emitter, "delta", Map.of("text", delta));
+          },
+          upstream
+      );
+      if (closed.get()) {
+        outcome = "client_closed";
+        return;
+      }
+      if (answer.isEmpty()) {
+        send(emitter, "error", new ChatAskResponse(false, FAILURE_MESSAGE, null));
+        emitter.complete();
+        return;
+      }
+      assistantChatHistoryService.saveAndTrim(user, question, answer.get().answer(), answer.get().model());
+      send(emitter, "done", new ChatAskResponse(true, answer.get().answer(), answer.get().model()));
+      emitter.complete();
+      outcome = "success";
+    } catch (UncheckedIOException ex) {
+      outcome = "client_closed";
+      emitter.completeWithError(ex);
+    } catch (Exception ex) {
+      log.warn("Assistant stream failed: {}", ex.getMessage());
+      emitter.completeWithError(ex);
+    } finally {
+      performanceMetricsService.recordAssistantStream("complete", outcome, System.nanoTime() - startedAt);
+    }
+  }
+
+  private void send(SseEmitter emitter, String event, Object data) {
+    try {
+      emitter.send(SseEmitter.event().name(event).data(data));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
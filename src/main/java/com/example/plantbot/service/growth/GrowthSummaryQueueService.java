@@ -0,0 +1,297 @@
+package com.example.plantbot.service.growth;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.domain.GrowthSummaryJob;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.repository.GrowthSummaryJobRepository;
+import com.example.plantbot.repository.PlantGrowthEntryRepository;
+import com.example.plantbot.repository.UserRepository;
+import com.example.plantbot.service.OpenRouterVisionService;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import com.example.plantbot.service.WebPushNotificationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Очередь AI-сводок по фото роста: задачи лежат в БД, выполняются ограниченным пулом с повтором и back-off.
+// Новая задача стартует сразу, если в пуле есть место; остальное подбирает периодический диспетчер.
+@Service
+@Slf4j
+public class GrowthSummaryQueueService {
+  private static final String POOL = "growth_summary";
+  private static final String DISPATCH_JOB = "growth_summary_dispatch";
+  private static final int MAX_ERROR_LENGTH = 500;
+
+  private final GrowthSummaryJobRepository jobRepository;
+  private final PlantGrowthEntryRepository growthEntryRepository;
+  private final UserRepository userRepository;
+  private final OpenRouterVisionService openRouterVisionService;
+  private final WebPushNotificationService webPushNotificationService;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final int threads;
+  private final int maxAttempts;
+  private final Duration backoffBase;
+  private final Duration backoffMax;
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong pendingDepth = new AtomicLong();
+
+  public GrowthSummaryQueueService(GrowthSummaryJobRepository jobRepository,
+                                   PlantGrowthEntryRepository growthEntryRepository,
+                                   UserRepository userRepository,
+                                   OpenRouterVisionService openRouterVisionService,
+                                   WebPushNotificationService webPushNotificationService,
+                                   PerformanceMetricsService performanceMetricsService,
+                                   ScheduledJobGuard scheduledJobGuard,
+                                   @Value("${app.growth-summary.threads:2}") int threads,
+                                   @Value("${app.growth-summary.max-attempts:5}") int maxAttempts,
+                                   @Value("${app.growth-summary.backoff-base-seconds:30}") long backoffBaseSeconds,
+                                   @Value("${app.growth-summary.backoff-max-seconds:1800}") long backoffMaxSeconds) {
+    this.jobRepository = jobRepository;
+    this.growthEntryRepository = growthEntryRepository;
+    this.userRepository = userRepository;
+    this.openRouterVisionService = openRouterVisionService;
+    this.webPushNotificationService = webPushNotificationService;
+    this.performanceMetricsService = performanceMetricsService;
+    this.scheduledJobGuard = scheduledJobGuard;
+    this.threads = Math.max(1, threads);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.backoffBase = Duration.ofSeconds(Math.max(1, backoffBaseSeconds));
+    this.backoffMax = Duration.ofSeconds(Math.max(backoffBaseSeconds, backoffMaxSeconds));
+    AtomicInteger counter = new AtomicInteger();
+    // Очередь пула не больше числа потоков: остальное ждет в БД, а не в памяти.
+    this.executor = new ThreadPoolExecutor(
+        this.threads,
+        this.threads,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(this.threads),
+        runnable -> {
+          Thread thread = new Thread(runnable, "growth-summary-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerWorkerGauge(POOL, "queue.depth", pendingDepth::get);
+    performanceMetricsService.registerWorkerGauge(POOL, "active", executor::getActiveCount);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void recoverInterruptedJobs() {
+    int reset = jobRepository.transitionAll(GrowthSummaryJob.Status.RUNNING, GrowthSummaryJob.Status.PENDING, Instant.now());
+    if (reset > 0) {
+      log.info("Growth summary jobs returned to queue after restart: count={}", reset);
+    }
+    pendingDepth.set(jobRepository.countByStatus(GrowthSummaryJob.Status.PENDING));
+  }
+
+  public void enqueue(Long entryId, Long userId) {
+    GrowthSummaryJob job = new GrowthSummaryJob();
+    job.setEntryId(entryId);
+    job.setUserId(userId);
+    job = jobRepository.save(job);
+    pendingDepth.incrementAndGet();
+    tryStart(job.getId());
+  }
+
+  public void cancel(Long entryId) {
+    if (jobRepository.deleteByEntryId(entryId) > 0) {
+      pendingDepth.set(jobRepository.countByStatus(GrowthSummaryJob.Status.PENDING));
+    }
+  }
+
+  // Статус для списка записей одним запросом: PENDING/RUNNING показываются клиенту как ожидание.
+  public Map<Long, String> statuses(Collection<Long> entryIds) {
+    Map<Long, String> statuses = new HashMap<>();
+    if (entryIds == null || entryIds.isEmpty()) {
+      return statuses;
+    }
+    for (GrowthSummaryJob job : jobRepository.findByEntryIdIn(entryIds)) {
+      statuses.put(job.getEntryId(), job.getStatus() == GrowthSummaryJob.Status.FAILED ? "FAILED" : "PENDING");
+    }
+    return statuses;
+  }
+
+  @Scheduled(
+      initialDelayString = "${app.growth-summary.dispatch-initial-delay-ms:15000}",
+      fixedDelayString = "${app.growth-summary.dispatch-interval-ms:5000}",
+      scheduler = SchedulingConfig.IO_SCHEDULER
+  )
+  public void scheduledDispatch() {
+    scheduledJobGuard.run(DISPATCH_JOB, () -> {
+      dispatch();
+    });
+  }
+
+  int dispatch() {
+    int free = threads * 2 - executor.getActiveCount() - executor.getQueue().size();
+    pendingDepth.set(jobRepository.countByStatus(GrowthSummaryJob.Status.PENDING));
+    if (free <= 0) {
+      return 0;
+    }
+    List<GrowthSummaryJob> due = jobRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+        GrowthSummaryJob.Status.PENDING,
+        Instant.now(),
+        PageRequest.of(0, free)
+    );
+    int started = 0;
+    for (GrowthSummaryJob job : due) {
+      if (tryStart(job.getId())) {
+        started++;
+      }
+    }
+    performanceMetricsService.incrementSchedulerItems(DISPATCH_JOB, "started", started);
+    return started;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private boolean tryStart(Long jobId) {
+    if (jobRepository.transition(jobId, GrowthSummaryJob.Status.PENDING, GrowthSummaryJob.Status.RUNNING, Instant.now()) == 0) {
+      return false;
+    }
+    try {
+      executor.execute(() -> process(jobId));
+      pendingDepth.updateAndGet(value -> Math.max(0, value - 1));
+      return true;
+    } catch (RejectedExecutionException ex) {
+      // Пул занят: задача остается в БД и будет подобрана диспетчером.
+      jobRepository.transition(jobId, GrowthSummaryJob.Status.RUNNING, GrowthSummaryJob.Status.PENDING, Instant.now());
+      return false;
+    }
+  }
+
+  void process(Long jobId) {
+    long started = System.nanoTime();
+    String outcome = "success";
+    GrowthSummaryJob job = jobRepository.findById(jobId).orElse(null);
+    if (job == null) {
+      return;
+    }
+    try {
+      List<Object[]> rows = growthEntryRepository.findSummarySource(job.getEntryId());
+      User user = userRepository.findById(job.getUserId()).orElse(null);
+      if (rows.isEmpty() || user == null) {
+        outcome = "skipped";
+        jobRepository.deleteById(jobId);
+        return;
+      }
+      Object[] row = rows.get(0);
+      String imageUrl = (String) row[1];
+      String plantName = (String) row[2];
+      Long plantId = (Long) row[3];
+
+      String summary = openRouterVisionService.requestGrowthSummary(user, readImageDataUrl(imageUrl), plantName);
+      if (summary == null || summary.isBlank()) {
+        // AI у пользователя не настроен: повторять бессмысленно.
+        outcome = "skipped";
+        jobRepository.deleteById(jobId);
+        return;
+      }
+      growthEntryRepository.updateAiSummary(job.getEntryId(), summary);
+      jobRepository.deleteById(jobId);
+      notifyReady(user, plantId, plantName, job.getEntryId(), summary);
+    } catch (Exception ex) {
+      outcome = reschedule(job, ex);
+    } finally {
+      performanceMetricsService.recordWorkerTask(POOL, System.nanoTime() - started, outcome);
+    }
+  }
+
+  private String reschedule(GrowthSummaryJob job, Exception ex) {
+    int attempts = job.getAttempts() + 1;
+    String error = trimError(ex instanceof ResponseStatusException status ? status.getReason() : ex.getMessage());
+    boolean permanent = ex instanceof ResponseStatusException status
+        && status.getStatusCode().is4xxClientError()
+        && status.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value();
+    Instant now = Instant.now();
+    if (permanent || attempts >= maxAttempts) {
+      jobRepository.reschedule(job.getId(), GrowthSummaryJob.Status.FAILED, attempts, now, error, now);
+      log.warn("Growth summary job failed: entryId={} attempts={} reason={}", job.getEntryId(), attempts, error);
+      return "failed";
+    }
+    jobRepository.reschedule(job.getId(), GrowthSummaryJob.Status.PENDING, attempts, now.plus(backoff(attempts)), error, now);
+    pendingDepth.incrementAndGet();
+    log.info("Growth summary job retry scheduled: entryId={} attempts={} reason={}", job.getEntryId(), attempts, error);
+    return "retry";
+  }
+
+  // Экспоненциальная задержка: base, 2*base, 4*base... не больше backoffMax.
+  Duration backoff(int attempts) {
+    int shift = Math.min(20, Math.max(0, attempts - 1));
+    Duration delay = backoffBase.multipliedBy(1L << shift);
+    return delay.compareTo(backoffMax) > 0 ? backoffMax : delay;
+  }
+
+  private void notifyReady(User user, Long plantId, String plantName, Long entryId, String summary) {
+    try {
+      webPushNotificationService.sendGrowthSummaryReady(user, plantId, plantName, entryId, summary);
+    } catch (Exception ex) {
+      log.warn("Growth summary push failed: entryId={} reason={}", entryId, ex.getMessage());
+    }
+  }
+
+  private String readImageDataUrl(String imageUrl) throws IOException {
+    Path file = resolvePhotoPath(imageUrl);
+    if (file == null || !Files.exists(file)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Фото записи не найдено");
+    }
+    return "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(Files.readAllBytes(file));
+  }
+
+  private Path resolvePhotoPath(String photoRef) {
+    if (photoRef == null || photoRef.isBlank()) {
+      return null;
+    }
+    if (photoRef.startsWith("./") || photoRef.startsWith("/")) {
+      return Paths.get(photoRef).normalize();
+    }
+    String[] parts = photoRef.split("/", 2);
+    if (parts.length != 2) {
+      return null;
+    }
+    return Path.of("./data/photos/" + parts[0]).resolve(parts[1]).normalize();
+  }
+
+  private static String trimError(String error) {
+    if (error == null) {
+      return null;
+    }
+    return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.plantbot.service.ha;
 
+import com.example.plantbot.service.http.OutboundHttpClients;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -9,7 +10,6 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -29,6 +29,7 @@ import java.util.concurrent.ThreadLocalRandom;
 @Slf4j
 public class HomeAssistantApiService {
   private final ObjectMapper objectMapper;
+  private final OutboundHttpClients outboundHttpClients;
 
   @Value("${home-assistant.http-timeout-ms:10000}")
   private int timeoutMs;
@@ -239,10 +240,7 @@ public class HomeAssistantApiService {
   }
 
   private RestTemplate restTemplate() {
-    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-    requestFactory.setConnectTimeout(timeoutMs);
-    requestFactory.setReadTimeout(timeoutMs);
-    return new RestTemplate(requestFactory);
+    return outboundHttpClients.restTemplate(OutboundHttpClients.HOME_ASSISTANT, timeoutMs);
   }
 
   private String normalizeBaseUrl(String raw) {
@@ -1,8 +1,10 @@
 package com.example.plantbot.service.ha;
 
+import com.example.plantbot.config.SchedulingConfig;
 import com.example.plantbot.domain.User;
 import com.example.plantbot.domain.ha.HomeAssistantConnection;
 import com.example.plantbot.domain.ha.PlantHomeAssistantBinding;
+import com.example.plantbot.service.ScheduledJobGuard;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,12 +22,17 @@ import java.util.concurrent.ThreadLocalRandom;
 public class HomeAssistantPollingScheduler {
   private final HomeAssistantIntegrationService haIntegrationService;
   private final HomeAssistantApiService haApiService;
+  private final ScheduledJobGuard scheduledJobGuard;
 
   @Value("${home-assistant.poll-random-offset-max-seconds:300}")
   private long randomOffsetMaxSeconds;
 
-  @Scheduled(cron = "0 0 * * * *")
+  @Scheduled(cron = "0 0 * * * *", scheduler = SchedulingConfig.IO_SCHEDULER)
   public void pollHomeAssistant() {
+    scheduledJobGuard.run("home_assistant_polling", this::pollConnections);
+  }
+
+  private void pollConnections() {
     randomOffsetSleep();
 
     List<HomeAssistantConnection> connections = haIntegrationService.findConnectedConnections();
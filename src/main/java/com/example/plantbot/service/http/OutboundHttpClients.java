@@ -0,0 +1,217 @@
+package com.example.plantbot.service.http;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.weather.LruEvictingMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Общий исходящий HTTP-слой: один JDK HttpClient на внешний сервис (пул соединений, keep-alive,
+// HTTP/2 через ALPN там, где провайдер его поддерживает) вместо нового клиента на каждую попытку.
+@Component
+@Slf4j
+public class OutboundHttpClients {
+  public static final String OPENROUTER = "openrouter";
+  public static final String OPENAI = "openai";
+  public static final String HOME_ASSISTANT = "home_assistant";
+
+  private static final int MAX_TEMPLATES_PER_TARGET = 16;
+
+  private final RestTemplateBuilder restTemplateBuilder;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final int connectTimeoutMs;
+  private final int maxInFlightPerTarget;
+  private final long acquireTimeoutMs;
+  private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+  public OutboundHttpClients(
+      RestTemplateBuilder restTemplateBuilder,
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${http.outbound.connect-timeout-ms:5000}") int connectTimeoutMs,
+      @Value("${http.outbound.max-in-flight-per-target:16}") int maxInFlightPerTarget,
+      @Value("${http.outbound.acquire-timeout-ms:2000}") long acquireTimeoutMs
+  ) {
+    this.restTemplateBuilder = restTemplateBuilder;
+    this.performanceMetricsService = performanceMetricsService;
+    this.connectTimeoutMs = Math.max(500, connectTimeoutMs);
+    this.maxInFlightPerTarget = Math.max(1, maxInFlightPerTarget);
+    this.acquireTimeoutMs = Math.max(0L, acquireTimeoutMs);
+  }
+
+  // Таймаут чтения приходит на каждый вызов (например, из снимка настроек), поэтому шаблоны кэшируются
+  // по паре target+timeout; все они делят один HttpClient и его пул соединений.
+  public RestTemplate restTemplate(String target, int readTimeoutMs) {
+    Target state = targets.computeIfAbsent(target, this::createTarget);
+    int timeoutMs = Math.max(1_000, readTimeoutMs);
+    synchronized (state.templates) {
+      return state.templates.computeIfAbsent(timeoutMs, ignored -> createTemplate(state, timeoutMs));
+    }
+  }
+
+  int inFlight(String target) {
+    Target state = targets.get(target);
+    return state == null ? 0 : state.inFlight.get();
+  }
+
+  private Target createTarget(String target) {
+    // Home Assistant обычно доступен по plain http в локальной сети: h2c-upgrade там только мешает.
+    HttpClient.Version version = HOME_ASSISTANT.equals(target) ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2;
+    HttpClient client = HttpClient.newBuilder()
+        .version(version)
+        .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build();
+    Target state = new Target(target, client, new Semaphore(maxInFlightPerTarget, true));
+    performanceMetricsService.registerOutboundGauge(target, "in_flight", state.inFlight::get);
+    performanceMetricsService.registerOutboundGauge(target, "utilization",
+        () -> (double) state.inFlight.get() / maxInFlightPerTarget);
+    performanceMetricsService.registerOutboundGauge(target, "waiting", state.permits::getQueueLength);
+    log.info("Outbound HTTP client created: target='{}' version={} maxInFlight={}", target, version, maxInFlightPerTarget);
+    return state;
+  }
+
+  private RestTemplate createTemplate(Target state, int readTimeoutMs) {
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(state.client);
+    requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+    return restTemplateBuilder
+        .requestFactory(() -> requestFactory)
+        .additionalInterceptors(meteringInterceptor(state))
+        .build();
+  }
+
+  // JdkClientHttpRequest возвращает ответ, как только пришли заголовки, поэтому время execute — это TTFB.
+  // Соединение же занято до конца чтения тела: слот пула отпускается только при закрытии ответа.
+  private ClientHttpRequestInterceptor meteringInterceptor(Target state) {
+    return (request, body, execution) -> {
+      long waitStartedAt = System.nanoTime();
+      acquire(state);
+      long startedAt = System.nanoTime();
+      performanceMetricsService.recordOutboundPhase(state.name, "pool_wait", "acquired", startedAt - waitStartedAt);
+      state.inFlight.incrementAndGet();
+      ClientHttpResponse response;
+      try {
+        response = execution.execute(request, body);
+      } catch (IOException | RuntimeException ex) {
+        performanceMetricsService.recordOutboundPhase(state.name, "ttfb", "io_error", System.nanoTime() - startedAt);
+        release(state);
+        throw ex;
+      }
+      try {
+        String outcome = statusOutcome(response);
+        performanceMetricsService.recordOutboundPhase(state.name, "ttfb", outcome, System.nanoTime() - startedAt);
+        return new PermitReleasingResponse(response, state, outcome, startedAt);
+      } catch (IOException | RuntimeException ex) {
+        response.close();
+        release(state);
+        throw ex;
+      }
+    };
+  }
+
+  private void release(Target state) {
+    state.inFlight.decrementAndGet();
+    state.permits.release();
+  }
+
+  private void acquire(Target state) throws IOException {
+    try {
+      if (!state.permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+        performanceMetricsService.recordOutboundPhase(state.name, "pool_wait", "exhausted", TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs));
+        throw new ResourceAccessException("Outbound pool exhausted for " + state.name);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ResourceAccessException("Interrupted while waiting for outbound pool " + state.name);
+    }
+  }
+
+  private String statusOutcome(ClientHttpResponse response) throws IOException {
+    int status = response.getStatusCode().value();
+    if (status >= 500) return "server_error";
+    if (status >= 400) return "client_error";
+    return "success";
+  }
+
+  // RestTemplate закрывает ответ после извлечения тела (в том числе потокового), поэтому close — точка освобождения слота.
+  private final class PermitReleasingResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final Target state;
+    private final String outcome;
+    private final long startedAt;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private PermitReleasingResponse(ClientHttpResponse delegate, Target state, String outcome, long startedAt) {
+      this.delegate = delegate;
+      this.state = state;
+      this.outcome = outcome;
+      this.startedAt = startedAt;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      return delegate.getBody();
+    }
+
+    @Override
+    public void close() {
+      try {
+        delegate.close();
+      } finally {
+        if (released.compareAndSet(false, true)) {
+          performanceMetricsService.recordOutboundPhase(state.name, "total", outcome, System.nanoTime() - startedAt);
+          release(state);
+        }
+      }
+    }
+  }
+
+  private static final class Target {
+    private final String name;
+    private final HttpClient client;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Integer, RestTemplate> templates = Collections.synchronizedMap(new LruEvictingMap<>(MAX_TEMPLATES_PER_TARGET, () -> {
+    }));
+
+    private Target(String name, HttpClient client, Semaphore permits) {
+      this.name = name;
+      this.client = client;
+      this.permits = permits;
+    }
+  }
+}
@@ -0,0 +1,326 @@
+package com.example.plantbot.service.notification;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.domain.NotificationOutboxEntry;
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.repository.NotificationOutboxRepository;
+import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import com.example.plantbot.service.WebPushNotificationService;
+import com.example.plantbot.service.recommendation.model.RecommendationResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Outbox напоминаний: планировщик только записывает решение, доставку выполняет отдельный диспетчер.
+// Напоминания одного пользователя, накопившиеся за окно группировки, уходят одним push-сообщением.
+@Service
+@Slf4j
+public class NotificationOutboxService {
+  private static final String POOL = "notification_outbox";
+  private static final String DISPATCH_JOB = "notification_outbox_dispatch";
+  private static final String CLEANUP_JOB = "notification_outbox_cleanup";
+  private static final int MAX_ERROR_LENGTH = 500;
+
+  private final NotificationOutboxRepository outboxRepository;
+  private final PlantRepository plantRepository;
+  private final WebPushNotificationService webPushNotificationService;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final Duration coalesceWindow;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Duration backoffBase;
+  private final Duration backoffMax;
+  private final long retentionDays;
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong pendingDepth = new AtomicLong();
+
+  public NotificationOutboxService(NotificationOutboxRepository outboxRepository,
+                                   PlantRepository plantRepository,
+                                   WebPushNotificationService webPushNotificationService,
+                                   PerformanceMetricsService performanceMetricsService,
+                                   ScheduledJobGuard scheduledJobGuard,
+                                   @Value("${app.notification-outbox.coalesce-window-seconds:60}") long coalesceWindowSeconds,
+                                   @Value("${app.notification-outbox.batch-size:200}") int batchSize,
+                                   @Value("${app.notification-outbox.threads:4}") int threads,
+                                   @Value("${app.notification-outbox.max-attempts:6}") int maxAttempts,
+                                   @Value("${app.notification-outbox.backoff-base-seconds:60}") long backoffBaseSeconds,
+                                   @Value("${app.notification-outbox.backoff-max-seconds:3600}") long backoffMaxSeconds,
+                                   @Value("${app.notification-outbox.retention-days:14}") long retentionDays) {
+    this.outboxRepository = outboxRepository;
+    this.plantRepository = plantRepository;
+    this.webPushNotificationService = webPushNotificationService;
+    this.performanceMetricsService = performanceMetricsService;
+    this.scheduledJobGuard = scheduledJobGuard;
+    this.coalesceWindow = Duration.ofSeconds(Math.max(0, coalesceWindowSeconds));
+    this.batchSize = Math.max(1, batchSize);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.backoffBase = Duration.ofSeconds(Math.max(1, backoffBaseSeconds));
+    this.backoffMax = Duration.ofSeconds(Math.max(backoffBaseSeconds, backoffMaxSeconds));
+    this.retentionDays = Math.max(1, retentionDays);
+    int poolSize = Math.max(1, threads);
+    AtomicInteger counter = new AtomicInteger();
+    // CallerRunsPolicy: при заполненной очереди диспетчер сам отправляет пачку и не читает следующие.
+    this.executor = new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(poolSize * 2),
+        runnable -> {
+          Thread thread = new Thread(runnable, "notification-outbox-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerWorkerGauge(POOL, "queue.depth", pendingDepth::get);
+    performanceMetricsService.registerWorkerGauge(POOL, "active", executor::getActiveCount);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void recoverInterruptedDeliveries() {
+    // Сообщение могло уйти до падения: повтор безопасен, тег push-сообщения заменит уже показанное.
+    int reset = outboxRepository.transitionAll(
+        NotificationOutboxEntry.Status.SENDING,
+        NotificationOutboxEntry.Status.PENDING,
+        Instant.now()
+    );
+    if (reset > 0) {
+      log.info("Notification outbox entries returned to queue after restart: count={}", reset);
+    }
+    pendingDepth.set(outboxRepository.countByStatus(NotificationOutboxEntry.Status.PENDING));
+  }
+
+  public EnqueueResult enqueueWateringReminder(Plant plant,
+                                               RecommendationResult result,
+                                               SmartNotificationContext notificationContext,
+                                               LocalDate reminderDate) {
+    if (!webPushNotificationService.isEnabled()) {
+      return EnqueueResult.DISABLED;
+    }
+    String key = "watering:" + plant.getId() + ":" + reminderDate;
+    if (outboxRepository.existsByIdempotencyKey(key)) {
+      return EnqueueResult.DUPLICATE;
+    }
+    NotificationOutboxEntry entry = new NotificationOutboxEntry();
+    entry.setIdempotencyKey(key);
+    entry.setUserId(plant.getUser().getId());
+    entry.setPlantId(plant.getId());
+    entry.setPlantName(plant.getName());
+    entry.setReminderDate(reminderDate);
+    entry.setPayloadJson(webPushNotificationService.buildWateringReminderPayload(plant, result, notificationContext));
+    // Окно группировки: остальные растения пользователя успевают попасть в ту же отправку.
+    entry.setNextAttemptAt(Instant.now().plus(coalesceWindow));
+    try {
+      outboxRepository.save(entry);
+    } catch (DataIntegrityViolationException ex) {
+      // Параллельный прогон успел записать тот же ключ.
+      return EnqueueResult.DUPLICATE;
+    }
+    pendingDepth.incrementAndGet();
+    return EnqueueResult.QUEUED;
+  }
+
+  @Scheduled(
+      initialDelayString = "${app.notification-outbox.dispatch-initial-delay-ms:20000}",
+      fixedDelayString = "${app.notification-outbox.dispatch-interval-ms:15000}",
+      scheduler = SchedulingConfig.NOTIFICATION_SCHEDULER
+  )
+  public void scheduledDispatch() {
+    scheduledJobGuard.run(DISPATCH_JOB, () -> {
+      dispatch();
+    });
+  }
+
+  int dispatch() {
+    Instant now = Instant.now();
+    int expired = outboxRepository.expireBefore(
+        NotificationOutboxEntry.Status.PENDING,
+        NotificationOutboxEntry.Status.FAILED,
+        LocalDate.now(),
+        now
+    );
+    performanceMetricsService.incrementSchedulerItems(DISPATCH_JOB, "expired", expired);
+    List<NotificationOutboxEntry> due = outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByUserIdAscIdAsc(
+        NotificationOutboxEntry.Status.PENDING,
+        now,
+        PageRequest.of(0, batchSize)
+    );
+    pendingDepth.set(outboxRepository.countByStatus(NotificationOutboxEntry.Status.PENDING));
+    if (due.isEmpty()) {
+      return 0;
+    }
+
+    Map<Long, List<NotificationOutboxEntry>> byUser = new LinkedHashMap<>();
+    for (NotificationOutboxEntry entry : due) {
+      byUser.computeIfAbsent(entry.getUserId(), key -> new ArrayList<>()).add(entry);
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (List<NotificationOutboxEntry> group : byUser.values()) {
+      futures.add(executor.submit(() -> deliverGroup(group)));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Notification outbox dispatch interrupted", ex);
+      } catch (ExecutionException ex) {
+        log.warn("Notification outbox delivery failed: {}", ex.getCause() == null ? ex.getMessage() : ex.getCause().getMessage());
+      }
+    }
+    return byUser.size();
+  }
+
+  @Scheduled(cron = "${app.notification-outbox.cleanup-cron:0 40 4 * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void cleanupFinished() {
+    scheduledJobGuard.run(CLEANUP_JOB, () -> {
+      int removed = outboxRepository.deleteFinishedBefore(
+          List.of(NotificationOutboxEntry.Status.SENT, NotificationOutboxEntry.Status.FAILED),
+          Instant.now().minus(Duration.ofDays(retentionDays))
+      );
+      performanceMetricsService.incrementSchedulerItems(CLEANUP_JOB, "removed", removed);
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  void deliverGroup(List<NotificationOutboxEntry> due) {
+    long started = System.nanoTime();
+    List<NotificationOutboxEntry> group = claim(due);
+    if (group.isEmpty()) {
+      return;
+    }
+    List<Long> ids = group.stream().map(NotificationOutboxEntry::getId).toList();
+    String outcome;
+    try {
+      Long userId = group.get(0).getUserId();
+      String payloadJson = group.size() == 1
+          ? group.get(0).getPayloadJson()
+          : webPushNotificationService.buildWateringDigestPayload(
+              group.stream().map(NotificationOutboxEntry::getPlantName).toList(),
+              group.get(0).getReminderDate()
+          );
+      WebPushNotificationService.SendResult result = webPushNotificationService.sendStoredPayload(userId, payloadJson);
+      if (result.delivered() > 0) {
+        markSent(group, ids);
+        outcome = group.size() == 1 ? "sent" : "coalesced";
+      } else if (result.subscriptions() == 0) {
+        // Подписок нет: повтор не поможет, завтрашний прогон примет решение заново.
+        Instant now = Instant.now();
+        outboxRepository.reschedule(ids, NotificationOutboxEntry.Status.FAILED, attempts(group) + 1, now, trimError(result.message()), now);
+        outcome = "no_subscriptions";
+      } else {
+        outcome = reschedule(group, ids, result.message());
+      }
+    } catch (Exception ex) {
+      outcome = reschedule(group, ids, ex.getMessage());
+    }
+    performanceMetricsService.incrementSchedulerItems(DISPATCH_JOB, outcome, group.size());
+    performanceMetricsService.recordWorkerTask(POOL, System.nanoTime() - started, outcome);
+  }
+
+  // Статус SENDING отмечает запись в работе: после рестарта такие записи возвращаются в очередь.
+  // Захват по одной записи: общий update не говорит, какие именно строки перешли, если часть пачки
+  // уже забрал параллельный диспетчер, а отправлять и помечать можно только свои.
+  private List<NotificationOutboxEntry> claim(List<NotificationOutboxEntry> due) {
+    List<NotificationOutboxEntry> claimed = new ArrayList<>(due.size());
+    Instant now = Instant.now();
+    for (NotificationOutboxEntry entry : due) {
+      if (outboxRepository.transition(List.of(entry.getId()), NotificationOutboxEntry.Status.PENDING,
+          NotificationOutboxEntry.Status.SENDING, now) == 1) {
+        claimed.add(entry);
+      }
+    }
+    if (claimed.size() < due.size()) {
+      performanceMetricsService.incrementSchedulerItems(DISPATCH_JOB, "claimed_elsewhere", due.size() - claimed.size());
+    }
+    return claimed;
+  }
+
+  private void markSent(List<NotificationOutboxEntry> group, List<Long> ids) {
+    outboxRepository.markSent(ids, NotificationOutboxEntry.Status.SENT, Instant.now());
+    Map<LocalDate, List<Long>> plantsByDate = new LinkedHashMap<>();
+    for (NotificationOutboxEntry entry : group) {
+      plantsByDate.computeIfAbsent(entry.getReminderDate(), key -> new ArrayList<>()).add(entry.getPlantId());
+    }
+    plantsByDate.forEach((date, plantIds) -> plantRepository.updateLastReminderDate(plantIds, date));
+  }
+
+  private String reschedule(List<NotificationOutboxEntry> group, List<Long> ids, String reason) {
+    int attempts = attempts(group) + 1;
+    String error = trimError(reason);
+    Instant now = Instant.now();
+    if (attempts >= maxAttempts) {
+      outboxRepository.reschedule(ids, NotificationOutboxEntry.Status.FAILED, attempts, now, error, now);
+      log.warn("Notification outbox delivery failed: userId={} entries={} attempts={} reason={}",
+          group.get(0).getUserId(), ids.size(), attempts, error);
+      return "failed";
+    }
+    outboxRepository.reschedule(ids, NotificationOutboxEntry.Status.PENDING, attempts, now.plus(backoff(attempts)), error, now);
+    pendingDepth.addAndGet(ids.size());
+    log.info("Notification outbox retry scheduled: userId={} entries={} attempts={} reason={}",
+        group.get(0).getUserId(), ids.size(), attempts, error);
+    return "retry";
+  }
+
+  // Экспоненциальная задержка: base, 2*base, 4*base... не больше backoffMax.
+  Duration backoff(int attempts) {
+    int shift = Math.min(20, Math.max(0, attempts - 1));
+    Duration delay = backoffBase.multipliedBy(1L << shift);
+    return delay.compareTo(backoffMax) > 0 ? backoffMax : delay;
+  }
+
+  private static int attempts(List<NotificationOutboxEntry> group) {
+    int attempts = 0;
+    for (NotificationOutboxEntry entry : group) {
+      attempts = Math.max(attempts, entry.getAttempts());
+    }
+    return attempts;
+  }
+
+  private static String trimError(String error) {
+    if (error == null) {
+      return null;
+    }
+    return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+  }
+
+  public enum EnqueueResult {
+    QUEUED,
+    DUPLICATE,
+    DISABLED
+  }
+}
@@ -0,0 +1,386 @@
+package com.example.plantbot.service.notification;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import nl.martijndwars.webpush.Encoding;
+import nl.martijndwars.webpush.Notification;
+import nl.martijndwars.webpush.PushService;
+import nl.martijndwars.webpush.Utils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.jose4j.lang.JoseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Доставка Web Push: шифрование и отправка идут на ограниченном пуле вне транзакций,
+// HTTP-клиент с пулом keep-alive соединений общий, на каждый push-сервис свой лимит параллельных запросов.
+@Service
+@Slf4j
+public class WebPushDeliveryEngine {
+  private static final String POOL = "web_push";
+
+  private final PerformanceMetricsService performanceMetricsService;
+  private final String subject;
+  private final String vapidPublicKey;
+  private final String vapidPrivateKey;
+  private final int perHostLimit;
+  private final long hostWaitMs;
+  private final long deliveryTimeoutMs;
+  private final ThreadPoolExecutor executor;
+  private final CloseableHttpAsyncClient httpClient;
+  private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+  private volatile PushService pushService;
+
+  public WebPushDeliveryEngine(PerformanceMetricsService performanceMetricsService,
+                               @Value("${web-push.subject:mailto:plant-bot@example.com}") String subject,
+                               @Value("${web-push.vapid.public-key:}") String vapidPublicKey,
+                               @Value("${web-push.vapid.private-key:}") String vapidPrivateKey,
+                               @Value("${web-push.delivery.threads:4}") int threads,
+                               @Value("${web-push.delivery.queue-capacity:256}") int queueCapacity,
+                               @Value("${web-push.delivery.per-host-concurrency:4}") int perHostLimit,
+                               @Value("${web-push.delivery.host-wait-ms:2000}") long hostWaitMs,
+                               @Value("${web-push.delivery.max-connections:32}") int maxConnections,
+                               @Value("${web-push.delivery.connect-timeout-ms:5000}") int connectTimeoutMs,
+                               @Value("${web-push.delivery.socket-timeout-ms:10000}") int socketTimeoutMs,
+                               @Value("${web-push.delivery.timeout-ms:15000}") long deliveryTimeoutMs) {
+    this.performanceMetricsService = performanceMetricsService;
+    this.subject = subject;
+    this.vapidPublicKey = vapidPublicKey;
+    this.vapidPrivateKey = vapidPrivateKey;
+    this.perHostLimit = Math.max(1, perHostLimit);
+    this.hostWaitMs = Math.max(0L, hostWaitMs);
+    this.deliveryTimeoutMs = Math.max(1000L, deliveryTimeoutMs);
+    int poolSize = Math.max(1, threads);
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+        runnable -> {
+          Thread thread = new Thread(runnable, "web-push-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+    // Соединения к одному push-сервису переиспользуются между отправками: TLS-рукопожатие не на каждый push.
+    this.httpClient = HttpAsyncClients.custom()
+        .useSystemProperties()
+        .setMaxConnTotal(Math.max(1, maxConnections))
+        .setMaxConnPerRoute(this.perHostLimit)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(connectTimeoutMs)
+            .setSocketTimeout(socketTimeoutMs)
+            .setConnectionRequestTimeout(connectTimeoutMs)
+            .build())
+        .build();
+  }
+
+  @PostConstruct
+  void start() {
+    httpClient.start();
+    performanceMetricsService.registerWorkerGauge(POOL, "queue.depth", () -> executor.getQueue().size());
+    performanceMetricsService.registerWorkerGauge(POOL, "active", executor::getActiveCount);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+    try {
+      httpClient.close();
+    } catch (IOException ex) {
+      log.debug("WebPush http client close failed: {}", ex.getMessage());
+    }
+  }
+
+  // Проверка ключей подписки при сохранении: те же преобразования, что и при отправке.
+  public void validateKeys(String p256dh, String auth) throws GeneralSecurityException {
+    Utils.loadPublicKey(normalizeBase64Url(p256dh));
+    decodeAuthSecret(auth);
+  }
+
+  // Отправляет один payload на все подписки параллельно и ждет результаты не дольше общего таймаута.
+  public List<Delivery> deliver(List<PushTarget> targets, String payloadJson) {
+    List<Delivery> results = new ArrayList<>(targets.size());
+    PushService service;
+    try {
+      service = pushService();
+    } catch (GeneralSecurityException | JoseException | IllegalArgumentException ex) {
+      String reason = trimReason(ex.getClass().getSimpleName() + ": " + ex.getMessage());
+      for (PushTarget target : targets) {
+        results.add(Delivery.failed(target, 0, reason));
+      }
+      return results;
+    }
+
+    byte[] payload = payloadJson.getBytes(StandardCharsets.UTF_8);
+    List<CompletableFuture<Delivery>> futures = new ArrayList<>(targets.size());
+    List<Attempt> attempts = new ArrayList<>(targets.size());
+    for (PushTarget target : targets) {
+      Attempt attempt = new Attempt();
+      attempts.add(attempt);
+      try {
+        futures.add(CompletableFuture.supplyAsync(() -> send(service, target, payload, attempt), executor));
+      } catch (RejectedExecutionException ex) {
+        performanceMetricsService.incrementWorkerRejection(POOL);
+        futures.add(CompletableFuture.completedFuture(Delivery.failed(target, 0, "Web Push send queue is busy")));
+      }
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deliveryTimeoutMs);
+    for (int i = 0; i < futures.size(); i++) {
+      CompletableFuture<Delivery> future = futures.get(i);
+      try {
+        long remaining = Math.max(0L, deadline - System.nanoTime());
+        results.add(future.get(remaining, TimeUnit.NANOSECONDS));
+      } catch (TimeoutException ex) {
+        // Незапущенная задача отменяется целиком, у запущенной обрывается HTTP-запрос:
+        // иначе он продолжал бы занимать соединение и лимит хоста уже после ответа вызывающему.
+        future.cancel(false);
+        attempts.get(i).cancel();
+        results.add(Delivery.failed(targets.get(i), 0, "Web Push delivery timed out"));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        future.cancel(false);
+        attempts.get(i).cancel();
+        results.add(Delivery.failed(targets.get(i), 0, "InterruptedException"));
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+        results.add(Delivery.failed(targets.get(i), 0, trimReason(cause.getClass().getSimpleName() + ": " + cause.getMessage())));
+      }
+    }
+    return results;
+  }
+
+  private Delivery send(PushService service, PushTarget target, byte[] payload, Attempt attempt) {
+    long started = System.nanoTime();
+    String host = host(target.endpoint());
+    String provider = provider(host);
+    Semaphore permits = hostPermits.computeIfAbsent(host, ignored -> new Semaphore(perHostLimit, true));
+    AtomicBoolean released = new AtomicBoolean();
+    Runnable release = () -> {
+      if (released.compareAndSet(false, true)) {
+        permits.release();
+      }
+    };
+    boolean acquired = false;
+    boolean handedOff = false;
+    Delivery delivery;
+    try {
+      acquired = permits.tryAcquire(hostWaitMs, TimeUnit.MILLISECONDS);
+      if (!acquired) {
+        delivery = Delivery.failed(target, 0, "Web Push host limit reached: " + host);
+      } else {
+        // Шифрование и VAPID-подпись — один раз на пару payload + подписка.
+        Notification notification = new Notification(
+            target.endpoint(),
+            Utils.loadPublicKey(normalizeBase64Url(target.p256dh())),
+            decodeAuthSecret(target.auth()),
+            payload
+        );
+        HttpPost request = service.preparePost(notification, Encoding.AES128GCM);
+        // Лимит хоста отпускается по завершении самого запроса (ответ, ошибка или отмена), а не по выходу из метода.
+        Future<HttpResponse> future = httpClient.execute(request, releasing(release));
+        handedOff = true;
+        attempt.track(future);
+        try {
+          HttpResponse response = future.get(deliveryTimeoutMs, TimeUnit.MILLISECONDS);
+          delivery = toDelivery(target, response.getStatusLine().getStatusCode());
+        } finally {
+          if (!future.isDone()) {
+            future.cancel(true);
+          }
+        }
+      }
+    } catch (GeneralSecurityException | JoseException | IOException | ExecutionException | IllegalArgumentException ex) {
+      delivery = Delivery.failed(target, 0, trimReason(ex.getClass().getSimpleName() + ": " + ex.getMessage()));
+    } catch (TimeoutException ex) {
+      delivery = Delivery.failed(target, 0, "Web Push request timed out");
+    } catch (CancellationException ex) {
+      delivery = Delivery.failed(target, 0, "Web Push delivery timed out");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      delivery = Delivery.failed(target, 0, "InterruptedException");
+    } finally {
+      if (acquired && !handedOff) {
+        release.run();
+      }
+    }
+    String outcome = delivery.delivered() ? "delivered" : delivery.gone() ? "gone" : "failed";
+    long elapsed = System.nanoTime() - started;
+    performanceMetricsService.recordPushDelivery(provider, outcome, elapsed);
+    performanceMetricsService.recordWorkerTask(POOL, elapsed, outcome);
+    log.info("WebPush send response: status={} endpoint={} tookMs={}",
+        delivery.status(), maskEndpoint(target.endpoint()), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    return delivery;
+  }
+
+  private static FutureCallback<HttpResponse> releasing(Runnable release) {
+    return new FutureCallback<>() {
+      @Override
+      public void completed(HttpResponse result) {
+        release.run();
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        release.run();
+      }
+
+      @Override
+      public void cancelled() {
+        release.run();
+      }
+    };
+  }
+
+  private Delivery toDelivery(PushTarget target, int status) {
+    if (status == HttpStatus.SC_GONE || status == HttpStatus.SC_NOT_FOUND) {
+      return new Delivery(target, false, true, status, "Subscription is gone (removed)");
+    }
+    if (status >= 200 && status < 300) {
+      return new Delivery(target, true, false, status, null);
+    }
+    return Delivery.failed(target, status, "HTTP " + status);
+  }
+
+  private PushService pushService() throws GeneralSecurityException, JoseException {
+    PushService current = pushService;
+    if (current == null) {
+      synchronized (this) {
+        current = pushService;
+        if (current == null) {
+          current = new PushService();
+          current.setSubject(subject);
+          current.setPublicKey(vapidPublicKey);
+          current.setPrivateKey(vapidPrivateKey);
+          pushService = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private static String host(String endpoint) {
+    try {
+      String host = URI.create(endpoint).getHost();
+      return host == null ? "unknown" : host.toLowerCase(Locale.ROOT);
+    } catch (IllegalArgumentException | NullPointerException ex) {
+      return "unknown";
+    }
+  }
+
+  // Тег метрик — по известным push-сервисам, чтобы произвольные endpoint не раздували число серий.
+  static String provider(String host) {
+    if (host.endsWith("googleapis.com")) {
+      return "fcm";
+    }
+    if (host.endsWith("mozilla.com")) {
+      return "mozilla";
+    }
+    if (host.endsWith("push.apple.com")) {
+      return "apple";
+    }
+    if (host.endsWith("notify.windows.com")) {
+      return "wns";
+    }
+    return "other";
+  }
+
+  private static byte[] decodeAuthSecret(String auth) {
+    String normalized = normalizeBase64Url(auth);
+    int paddingNeeded = (4 - (normalized.length() % 4)) % 4;
+    String padded = normalized + "=".repeat(paddingNeeded);
+    return Base64.getUrlDecoder().decode(padded);
+  }
+
+  private static String normalizeBase64Url(String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.trim()
+        .replace('+', '-')
+        .replace('/', '_')
+        .replace("=", "");
+  }
+
+  public static String maskEndpoint(String endpoint) {
+    if (endpoint == null || endpoint.isBlank()) {
+      return "<empty>";
+    }
+    int keep = Math.min(36, endpoint.length());
+    return endpoint.substring(0, keep) + "...";
+  }
+
+  public static String trimReason(String reason) {
+    if (reason == null) {
+      return null;
+    }
+    String normalized = reason.trim();
+    if (normalized.length() <= 400) {
+      return normalized;
+    }
+    return normalized.substring(0, 400);
+  }
+
+  // Связывает задачу отправки с ее HTTP-запросом: deliver может отменить запрос, даже если он стартует после таймаута.
+  private static final class Attempt {
+    private Future<?> request;
+    private boolean cancelled;
+
+    synchronized void track(Future<?> request) {
+      this.request = request;
+      if (cancelled) {
+        request.cancel(true);
+      }
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      if (request != null) {
+        request.cancel(true);
+      }
+    }
+  }
+
+  public record PushTarget(Long subscriptionId, String endpoint, String p256dh, String auth) {
+  }
+
+  public record Delivery(PushTarget target, boolean delivered, boolean gone, int status, String error) {
+    static Delivery failed(PushTarget target, int status, String error) {
+      return new Delivery(target, false, false, status, error);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.example.plantbot.service.photo;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.weather.LruEvictingMap;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+// Отдача фото без буферизации: тело пишется из файла потоком, ETag считается по содержимому один раз.
+// Имена файлов уникальны (в имени есть время сохранения), поэтому содержимое по подписанной ссылке не меняется.
+@Service
+@RequiredArgsConstructor
+public class PhotoDeliveryService {
+  private static final int DIGEST_BUFFER_BYTES = 8192;
+
+  private final PerformanceMetricsService performanceMetricsService;
+
+  @Value("${app.photo-delivery.etag-cache-max-entries:2000}")
+  private int etagCacheMaxEntries;
+
+  @Value("${app.photo-delivery.max-age-seconds:31536000}")
+  private long maxAgeSeconds;
+
+  private Map<Path, FileDigest> digests;
+
+  @PostConstruct
+  void init() {
+    digests = Collections.synchronizedMap(new LruEvictingMap<>(
+        etagCacheMaxEntries,
+        () -> performanceMetricsService.incrementCacheEviction("photo_etag", "lru")
+    ));
+    performanceMetricsService.registerCacheGauge("photo_etag", "size", () -> digests.size());
+  }
+
+  public Optional<PhotoFile> open(Path file) {
+    if (file == null) {
+      return Optional.empty();
+    }
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      if (!attributes.isRegularFile()) {
+        return Optional.empty();
+      }
+      long size = attributes.size();
+      long lastModified = attributes.lastModifiedTime().toMillis();
+      return Optional.of(new PhotoFile(
+          new FileSystemResource(file),
+          etag(file, size, lastModified),
+          size,
+          lastModified
+      ));
+    } catch (IOException ex) {
+      return Optional.empty();
+    }
+  }
+
+  // Ссылка подписана и указывает на неизменяемый файл: браузер может не перепроверять его.
+  public CacheControl cacheControl() {
+    return CacheControl.maxAge(Duration.ofSeconds(Math.max(0, maxAgeSeconds))).cachePrivate().immutable();
+  }
+
+  private String etag(Path file, long size, long lastModified) throws IOException {
+    Path key = file.toAbsolutePath().normalize();
+    FileDigest cached = digests.get(key);
+    if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+      performanceMetricsService.incrementCacheLookup("photo_etag", "memory", "hit");
+      return cached.etag();
+    }
+    performanceMetricsService.incrementCacheLookup("photo_etag", "memory", "miss");
+    String etag = "\"" + sha256(file) + "\"";
+    digests.put(key, new FileDigest(size, lastModified, etag));
+    return etag;
+  }
+
+  private static String sha256(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      byte[] buffer = new byte[DIGEST_BUFFER_BYTES];
+      while (in.read(buffer) != -1) {
+        // Читаем только ради дайджеста.
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest(), 0, 16);
+  }
+
+  public record PhotoFile(FileSystemResource resource, String etag, long size, long lastModified) {
+  }
+
+  private record FileDigest(long size, long lastModified, String etag) {
+  }
+}
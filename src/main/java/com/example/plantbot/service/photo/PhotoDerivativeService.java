@@ -0,0 +1,146 @@
+package com.example.plantbot.service.photo;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Дисковый кэш уменьшенных копий фото. Имя файла — хэш содержимого оригинала и размер,
+// поэтому замена фото автоматически дает новую копию, а старые со временем удаляет очистка.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PhotoDerivativeService {
+  private static final String CACHE = "photo_derivative";
+  private static final String CLEANUP_JOB = "photo_derivative_cleanup";
+  // Не чаще раза в сутки на файл: иначе каждое попадание в кэш превращается в запись на диск.
+  private static final Duration TOUCH_INTERVAL = Duration.ofDays(1);
+
+  private final PhotoDeliveryService photoDeliveryService;
+  private final PhotoProcessingService photoProcessingService;
+  private final PerformanceMetricsService performanceMetricsService;
+  private final ScheduledJobGuard scheduledJobGuard;
+
+  private final ConcurrentHashMap<Path, CompletableFuture<Boolean>> rendering = new ConcurrentHashMap<>();
+
+  @Value("${app.photo-derivatives.cache-dir:./data/photo-derivatives}")
+  private String cacheDir;
+
+  @Value("${app.photo-derivatives.retention-days:30}")
+  private long retentionDays;
+
+  public Optional<PhotoDeliveryService.PhotoFile> open(Path original, PhotoSize size) {
+    Optional<PhotoDeliveryService.PhotoFile> originalFile = photoDeliveryService.open(original);
+    if (originalFile.isEmpty() || size == null || size == PhotoSize.FULL) {
+      return originalFile;
+    }
+    Path derivative = derivativePath(originalFile.get().etag(), size);
+    if (Files.exists(derivative)) {
+      performanceMetricsService.incrementCacheLookup(CACHE, "disk", "hit");
+      touch(derivative);
+      return photoDeliveryService.open(derivative).or(() -> originalFile);
+    }
+    performanceMetricsService.incrementCacheLookup(CACHE, "disk", "miss");
+    if (!render(original, derivative, size)) {
+      // Пул занят или фото не декодируется: отдаем оригинал, список все равно покажется.
+      performanceMetricsService.incrementCacheLookup(CACHE, "disk", "fallback");
+      return originalFile;
+    }
+    return photoDeliveryService.open(derivative).or(() -> originalFile);
+  }
+
+  // Вызывается после сохранения нового фото: копии готовятся заранее, если в пуле есть место.
+  public void prewarm(Path original) {
+    photoDeliveryService.open(original).ifPresent(file -> {
+      for (PhotoSize size : PhotoSize.values()) {
+        if (size == PhotoSize.FULL) {
+          continue;
+        }
+        Path derivative = derivativePath(file.etag(), size);
+        if (!Files.exists(derivative)) {
+          photoProcessingService.renderDerivativeAsync(original, derivative, size.maxLongSidePx());
+        }
+      }
+    });
+  }
+
+  @Scheduled(cron = "${app.photo-derivatives.cleanup-cron:0 25 4 * * *}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void cleanupStaleDerivatives() {
+    scheduledJobGuard.run(CLEANUP_JOB, () -> {
+      Path root = Path.of(cacheDir);
+      if (!Files.isDirectory(root)) {
+        return;
+      }
+      Instant threshold = Instant.now().minus(Duration.ofDays(Math.max(1, retentionDays)));
+      AtomicInteger removed = new AtomicInteger();
+      try (Stream<Path> files = Files.walk(root)) {
+        files.filter(Files::isRegularFile).forEach(file -> {
+          try {
+            if (Files.getLastModifiedTime(file).toInstant().isBefore(threshold)) {
+              Files.deleteIfExists(file);
+              removed.incrementAndGet();
+            }
+          } catch (IOException ex) {
+            log.debug("Photo derivative cleanup skipped file: {} reason={}", file, ex.getMessage());
+          }
+        });
+      } catch (IOException ex) {
+        log.warn("Photo derivative cleanup failed: {}", ex.getMessage());
+      }
+      performanceMetricsService.incrementSchedulerItems(CLEANUP_JOB, "removed", removed.get());
+    });
+  }
+
+  // Очистка удаляет по mtime, поэтому попадание в кэш продлевает жизнь копии: удаляются только
+  // копии, которые не запрашивали дольше срока хранения.
+  private void touch(Path derivative) {
+    try {
+      Instant now = Instant.now();
+      if (Files.getLastModifiedTime(derivative).toInstant().isBefore(now.minus(TOUCH_INTERVAL))) {
+        Files.setLastModifiedTime(derivative, FileTime.from(now));
+      }
+    } catch (IOException ex) {
+      log.debug("Photo derivative touch skipped: {} reason={}", derivative, ex.getMessage());
+    }
+  }
+
+  // Одна генерация на копию: параллельные запросы той же миниатюры ждут общий результат.
+  private boolean render(Path original, Path derivative, PhotoSize size) {
+    CompletableFuture<Boolean> own = new CompletableFuture<>();
+    CompletableFuture<Boolean> inFlight = rendering.putIfAbsent(derivative, own);
+    if (inFlight != null) {
+      return inFlight.join();
+    }
+    try {
+      boolean rendered = photoProcessingService.renderDerivative(original, derivative, size.maxLongSidePx());
+      own.complete(rendered);
+      return rendered;
+    } catch (RuntimeException ex) {
+      own.complete(false);
+      throw ex;
+    } finally {
+      rendering.remove(derivative, own);
+    }
+  }
+
+  private Path derivativePath(String etag, PhotoSize size) {
+    String hash = etag.replace("\"", "");
+    return Path.of(cacheDir, size.param(), hash + ".jpg");
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.plantbot.service.photo;
+
+import java.time.Instant;
+
+public record PhotoJob(String id,
+                       Long userId,
+                       Kind kind,
+                       Long plantId,
+                       Status status,
+                       Long resultId,
+                       String error,
+                       Instant createdAt,
+                       Instant finishedAt) {
+  public enum Kind {
+    PLANT_PHOTO,
+    GROWTH_ENTRY
+  }
+
+  public enum Status {
+    PENDING,
+    DONE,
+    FAILED
+  }
+
+  static PhotoJob pending(String id, Long userId, Kind kind, Long plantId) {
+    return new PhotoJob(id, userId, kind, plantId, Status.PENDING, null, null, Instant.now(), null);
+  }
+
+  PhotoJob done(Long resultId) {
+    return new PhotoJob(id, userId, kind, plantId, Status.DONE, resultId, null, createdAt, Instant.now());
+  }
+
+  PhotoJob failed(String error) {
+    return new PhotoJob(id, userId, kind, plantId, Status.FAILED, resultId, error, createdAt, Instant.now());
+  }
+}
@@ -0,0 +1,433 @@
+package com.example.plantbot.service.photo;
+
+import com.example.plantbot.config.SchedulingConfig;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Сжатие фото на отдельном ограниченном пуле. Переполненная очередь дает 503, а не рост памяти.
+// Multipart-загрузка сохраняется во временный файл и обрабатывается фоново, клиент получает id задачи.
+@Service
+@Slf4j
+public class PhotoProcessingService {
+  private static final String POOL = "photo_processing";
+  private static final String CLEANUP_JOB = "photo_job_cleanup";
+  private static final float DERIVATIVE_JPEG_QUALITY = 0.8f;
+
+  private final PerformanceMetricsService performanceMetricsService;
+  private final ScheduledJobGuard scheduledJobGuard;
+  private final int maxLongSidePx;
+  private final float jpegQuality;
+  private final int maxFileBytes;
+  private final Path stagingDir;
+  private final Duration jobRetention;
+  private final long syncTimeoutMs;
+  private final ThreadPoolExecutor executor;
+  private final Map<String, PhotoJob> jobs = new ConcurrentHashMap<>();
+
+  public PhotoProcessingService(PerformanceMetricsService performanceMetricsService,
+                                ScheduledJobGuard scheduledJobGuard,
+                                @Value("${app.photo-upload.max-long-side-px:1600}") int maxLongSidePx,
+                                @Value("${app.photo-upload.jpeg-quality:0.82}") float jpegQuality,
+                                @Value("${app.photo-upload.max-file-bytes:900000}") int maxFileBytes,
+                                @Value("${app.photo-upload.staging-dir:./data/photos-staging}") String stagingDir,
+                                @Value("${app.photo-upload.processing-threads:2}") int threads,
+                                @Value("${app.photo-upload.queue-capacity:16}") int queueCapacity,
+                                @Value("${app.photo-upload.job-retention-minutes:30}") long jobRetentionMinutes,
+                                @Value("${app.photo-upload.sync-timeout-ms:30000}") long syncTimeoutMs) {
+    this.performanceMetricsService = performanceMetricsService;
+    this.scheduledJobGuard = scheduledJobGuard;
+    this.maxLongSidePx = Math.max(320, maxLongSidePx);
+    this.jpegQuality = Math.min(0.95f, Math.max(0.55f, jpegQuality));
+    this.maxFileBytes = Math.max(200_000, maxFileBytes);
+    this.stagingDir = Path.of(stagingDir);
+    this.jobRetention = Duration.ofMinutes(Math.max(1, jobRetentionMinutes));
+    this.syncTimeoutMs = Math.max(1000, syncTimeoutMs);
+    int poolSize = Math.max(1, threads);
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+        runnable -> {
+          Thread thread = new Thread(runnable, "photo-processing-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    performanceMetricsService.registerWorkerGauge(POOL, "queue.depth", () -> executor.getQueue().size());
+    performanceMetricsService.registerWorkerGauge(POOL, "active", executor::getActiveCount);
+    performanceMetricsService.registerWorkerGauge(POOL, "jobs", jobs::size);
+  }
+
+  // Старый JSON/base64 путь: ждет результата, но тяжелая работа все равно ограничена пулом.
+  public byte[] compressBase64(String photoBase64) {
+    byte[] bytes;
+    try {
+      String raw = photoBase64.trim();
+      if (raw.contains(",")) {
+        raw = raw.substring(raw.indexOf(',') + 1);
+      }
+      bytes = Base64.getDecoder().decode(raw);
+    } catch (IllegalArgumentException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "photoBase64 невалидный");
+    }
+    Future<byte[]> future = submitOrReject(() -> timed(() -> {
+      try {
+        return compress(ImageIO.createImageInputStream(new ByteArrayInputStream(bytes)));
+      } catch (IOException ex) {
+        throw new PhotoProcessingException(ex);
+      }
+    }));
+    try {
+      return future.get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      future.cancel(true);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Обработка фото заняла слишком много времени");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Обработка фото прервана");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof ResponseStatusException status) {
+        throw status;
+      }
+      throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось обработать фото");
+    }
+  }
+
+  // Файл из multipart переносится во временную папку в потоке запроса (без декодирования),
+  // сжатие, запись в target и onStored (сохранение ссылки в БД) выполняются в пуле.
+  public PhotoJob submit(Long userId,
+                         PhotoJob.Kind kind,
+                         Long plantId,
+                         MultipartFile file,
+                         Path target,
+                         Supplier<Long> onStored) {
+    if (file == null || file.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Файл фото обязателен");
+    }
+    Path staged;
+    try {
+      Files.createDirectories(stagingDir);
+      staged = Files.createTempFile(stagingDir, "upload-", ".tmp");
+      file.transferTo(staged);
+    } catch (IOException ex) {
+      throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось сохранить фото");
+    }
+
+    PhotoJob job = PhotoJob.pending(UUID.randomUUID().toString(), userId, kind, plantId);
+    jobs.put(job.id(), job);
+    try {
+      executor.execute(() -> process(job.id(), staged, target, onStored));
+    } catch (RejectedExecutionException ex) {
+      jobs.remove(job.id());
+      deleteQuietly(staged);
+      performanceMetricsService.incrementWorkerRejection(POOL);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Сервер занят обработкой фото, повторите позже");
+    }
+    return job;
+  }
+
+  // Уменьшенная копия уже сохраненного фото. Ждет результат в пределах таймаута;
+  // false (пул занят, таймаут, ошибка) означает, что вызывающий отдаст оригинал.
+  public boolean renderDerivative(Path source, Path target, int maxLongSide) {
+    Future<Boolean> future;
+    try {
+      future = executor.submit(() -> timed(() -> writeDerivative(source, target, maxLongSide)));
+    } catch (RejectedExecutionException ex) {
+      performanceMetricsService.incrementWorkerRejection(POOL);
+      return false;
+    }
+    try {
+      return future.get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException | TimeoutException ex) {
+      return false;
+    }
+  }
+
+  // Фоновая подготовка после загрузки: при занятом пуле просто пропускаем, копия соберется по запросу.
+  public void renderDerivativeAsync(Path source, Path target, int maxLongSide) {
+    try {
+      executor.execute(() -> {
+        try {
+          timed(() -> writeDerivative(source, target, maxLongSide));
+        } catch (RuntimeException ex) {
+          log.debug("Photo derivative prewarm failed: target={} reason={}", target, ex.getMessage());
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      performanceMetricsService.incrementWorkerRejection(POOL);
+    }
+  }
+
+  public Optional<PhotoJob> findJob(Long userId, String jobId) {
+    if (jobId == null) {
+      return Optional.empty();
+    }
+    PhotoJob job = jobs.get(jobId);
+    if (job == null || !job.userId().equals(userId)) {
+      return Optional.empty();
+    }
+    return Optional.of(job);
+  }
+
+  @Scheduled(fixedDelayString = "${app.photo-upload.job-cleanup-ms:60000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+  public void cleanupFinishedJobs() {
+    scheduledJobGuard.run(CLEANUP_JOB, () -> {
+      Instant threshold = Instant.now().minus(jobRetention);
+      int before = jobs.size();
+      jobs.values().removeIf(job -> job.finishedAt() != null && job.finishedAt().isBefore(threshold));
+      performanceMetricsService.incrementSchedulerItems(CLEANUP_JOB, "removed", before - jobs.size());
+      deleteStaleStagingFiles(threshold);
+    });
+  }
+
+  // Остатки после рестарта или неудачного удаления.
+  private void deleteStaleStagingFiles(Instant threshold) {
+    if (!Files.isDirectory(stagingDir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.list(stagingDir)) {
+      files.filter(file -> {
+        try {
+          return Files.getLastModifiedTime(file).toInstant().isBefore(threshold);
+        } catch (IOException ex) {
+          return false;
+        }
+      }).forEach(PhotoProcessingService::deleteQuietly);
+    } catch (IOException ex) {
+      log.warn("Photo staging cleanup failed: {}", ex.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void process(String jobId, Path staged, Path target, Supplier<Long> onStored) {
+    long started = System.nanoTime();
+    String outcome = "success";
+    try {
+      byte[] jpeg;
+      try (ImageInputStream input = ImageIO.createImageInputStream(staged.toFile())) {
+        jpeg = compress(input);
+      }
+      Files.createDirectories(target.getParent());
+      Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+      Files.write(tmp, jpeg);
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      Long resultId = onStored.get();
+      jobs.computeIfPresent(jobId, (id, job) -> job.done(resultId));
+    } catch (Exception ex) {
+      outcome = "error";
+      deleteQuietly(target);
+      String message = ex instanceof ResponseStatusException status ? status.getReason() : "Не удалось обработать фото";
+      jobs.computeIfPresent(jobId, (id, job) -> job.failed(message));
+      log.warn("Photo processing failed: jobId={}, reason={}", jobId, ex.getMessage());
+    } finally {
+      deleteQuietly(staged);
+      performanceMetricsService.recordWorkerTask(POOL, System.nanoTime() - started, outcome);
+    }
+  }
+
+  private boolean writeDerivative(Path source, Path target, int maxLongSide) {
+    if (Files.exists(target)) {
+      return true;
+    }
+    Path tmp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+      byte[] jpeg = compress(input, maxLongSide, DERIVATIVE_JPEG_QUALITY, Integer.MAX_VALUE);
+      Files.createDirectories(target.getParent());
+      Files.write(tmp, jpeg);
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } catch (IOException ex) {
+      deleteQuietly(tmp);
+      throw new PhotoProcessingException(ex);
+    }
+  }
+
+  private <T> Future<T> submitOrReject(Callable<T> task) {
+    try {
+      return executor.submit(task);
+    } catch (RejectedExecutionException ex) {
+      performanceMetricsService.incrementWorkerRejection(POOL);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Сервер занят обработкой фото, повторите позже");
+    }
+  }
+
+  private <T> T timed(Supplier<T> task) {
+    long started = System.nanoTime();
+    String outcome = "success";
+    try {
+      return task.get();
+    } catch (RuntimeException ex) {
+      outcome = "error";
+      throw ex;
+    } finally {
+      performanceMetricsService.recordWorkerTask(POOL, System.nanoTime() - started, outcome);
+    }
+  }
+
+  // Декодирование с субдискретизацией: 12 Мп снимок не разворачивается в память целиком,
+  // читается примерно в 2x от целевого размера, а затем масштабируется одним проходом сразу в RGB.
+  byte[] compress(ImageInputStream input) throws IOException {
+    return compress(input, maxLongSidePx, jpegQuality, maxFileBytes);
+  }
+
+  private byte[] compress(ImageInputStream input, int maxLongSide, float initialQuality, int maxBytes) throws IOException {
+    if (input == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не удалось прочитать изображение");
+    }
+    try (input) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не удалось прочитать изображение");
+      }
+      ImageReader reader = readers.next();
+      BufferedImage src;
+      try {
+        reader.setInput(input, true, true);
+        int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = Math.max(1, longest / (maxLongSide * 2));
+        if (subsampling > 1) {
+          param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        src = reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+      if (src == null) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не удалось прочитать изображение");
+      }
+
+      BufferedImage scaled = scaleToRgb(src, maxLongSide);
+      float quality = initialQuality;
+      byte[] jpeg = writeJpeg(scaled, quality);
+      while (jpeg.length > maxBytes && quality > 0.56f) {
+        quality -= 0.08f;
+        jpeg = writeJpeg(scaled, quality);
+      }
+      return jpeg;
+    }
+  }
+
+  private BufferedImage scaleToRgb(BufferedImage src, int maxLongSide) {
+    int width = src.getWidth();
+    int height = src.getHeight();
+    int longest = Math.max(width, height);
+    int targetW = width;
+    int targetH = height;
+    if (longest > maxLongSide) {
+      double ratio = maxLongSide / (double) longest;
+      targetW = Math.max(1, (int) Math.round(width * ratio));
+      targetH = Math.max(1, (int) Math.round(height * ratio));
+    } else if (src.getType() == BufferedImage.TYPE_INT_RGB) {
+      return src;
+    }
+
+    BufferedImage out = new BufferedImage(targetW, targetH, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = out.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    g.drawImage(src, 0, 0, targetW, targetH, null);
+    g.dispose();
+    return out;
+  }
+
+  private byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+    Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+    if (!writers.hasNext()) {
+      throw new IOException("JPEG writer is unavailable");
+    }
+    ImageWriter writer = writers.next();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+      writer.setOutput(ios);
+      ImageWriteParam params = writer.getDefaultWriteParam();
+      if (params.canWriteCompressed()) {
+        params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        params.setCompressionQuality(Math.min(0.98f, Math.max(0.5f, quality)));
+      }
+      writer.write(null, new IIOImage(image, null, null), params);
+    } finally {
+      writer.dispose();
+    }
+    return out.toByteArray();
+  }
+
+  private static void deleteQuietly(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException ignored) {
+      // Временный файл удалит плановая очистка staging-каталога.
+    }
+  }
+
+  private static final class PhotoProcessingException extends RuntimeException {
+    private PhotoProcessingException(Throwable cause) {
+      super(cause);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.plantbot.service.photo;
+
+import java.util.Locale;
+
+// Варианты фото: миниатюра для списков, средний размер для ленты роста, оригинал для просмотра.
+public enum PhotoSize {
+  THUMB(256),
+  MEDIUM(768),
+  FULL(0);
+
+  private final int maxLongSidePx;
+
+  PhotoSize(int maxLongSidePx) {
+    this.maxLongSidePx = maxLongSidePx;
+  }
+
+  public int maxLongSidePx() {
+    return maxLongSidePx;
+  }
+
+  public String param() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  // Неизвестное или пустое значение — оригинал, как было до появления параметра.
+  public static PhotoSize fromParam(String value) {
+    if (value == null || value.isBlank()) {
+      return FULL;
+    }
+    for (PhotoSize size : values()) {
+      if (size.param().equals(value.trim().toLowerCase(Locale.ROOT))) {
+        return size;
+      }
+    }
+    return FULL;
+  }
+}
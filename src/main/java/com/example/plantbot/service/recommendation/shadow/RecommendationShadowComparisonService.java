@@ -0,0 +1,125 @@
+package com.example.plantbot.service.recommendation.shadow;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class RecommendationShadowComparisonService {
+  private static final double INTERVAL_DRIFT_DAYS = 1.0;
+  private static final double WATER_DRIFT_ML = 250.0;
+
+  private final PerformanceMetricsService performanceMetricsService;
+  private final boolean enabled;
+  private final double sampleRate;
+  private final int maxPerRun;
+  private final ThreadPoolExecutor executor;
+
+  public RecommendationShadowComparisonService(
+      PerformanceMetricsService performanceMetricsService,
+      @Value("${app.recommendation.shadow.enabled:true}") boolean enabled,
+      @Value("${app.recommendation.shadow.sample-rate:0.05}") double sampleRate,
+      @Value("${app.recommendation.shadow.max-per-run:50}") int maxPerRun,
+      @Value("${app.recommendation.shadow.queue-capacity:100}") int queueCapacity
+  ) {
+    this.performanceMetricsService = performanceMetricsService;
+    this.enabled = enabled;
+    this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+    this.maxPerRun = Math.max(0, maxPerRun);
+    AtomicInteger threadSeq = new AtomicInteger();
+    // Один фоновый поток: теневой прогон не должен конкурировать с основным пакетом за CPU и SQLite.
+    this.executor = new ThreadPoolExecutor(
+        1,
+        1,
+        0,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+        runnable -> {
+          Thread thread = new Thread(runnable, "recommendation-shadow-" + threadSeq.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy()
+    );
+  }
+
+  public RecommendationShadowRun beginRun(RecommendationFlowType flow) {
+    return new RecommendationShadowRun(flow, enabled ? maxPerRun : 0);
+  }
+
+  // legacyFactory вызывается в потоке вызывающего и только для принятых в выборку сравнений:
+  // он снимает копии входов и возвращает расчет, который выполнится в теневом потоке.
+  public void compareAsync(RecommendationShadowRun run,
+                           Long plantId,
+                           RecommendationShadowSample unified,
+                           Supplier<Supplier<RecommendationShadowSample>> legacyFactory) {
+    if (run == null || unified == null || legacyFactory == null || !enabled || sampleRate <= 0.0) {
+      return;
+    }
+    String flow = run.flow() == null ? null : run.flow().name();
+    if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return;
+    }
+    if (!run.tryAcquire()) {
+      performanceMetricsService.incrementShadowComparison(flow, "budget_exhausted");
+      return;
+    }
+    Supplier<RecommendationShadowSample> legacy;
+    try {
+      legacy = legacyFactory.get();
+    } catch (Exception ex) {
+      performanceMetricsService.incrementShadowComparison(flow, "error");
+      log.debug("Shadow recommendation inputs failed: flow={} plantId={} : {}", flow, plantId, ex.getMessage());
+      return;
+    }
+    try {
+      executor.execute(() -> compare(flow, plantId, unified, legacy));
+    } catch (RejectedExecutionException ex) {
+      performanceMetricsService.incrementShadowComparison(flow, "dropped");
+    }
+  }
+
+  private void compare(String flow, Long plantId, RecommendationShadowSample unified, Supplier<RecommendationShadowSample> legacy) {
+    RecommendationShadowSample legacySample;
+    try {
+      legacySample = legacy.get();
+    } catch (Exception ex) {
+      performanceMetricsService.incrementShadowComparison(flow, "error");
+      log.debug("Shadow recommendation failed: flow={} plantId={} : {}", flow, plantId, ex.getMessage());
+      return;
+    }
+    if (legacySample == null) {
+      performanceMetricsService.incrementShadowComparison(flow, "empty");
+      return;
+    }
+    double intervalDiff = Math.abs(unified.intervalDays() - legacySample.intervalDays());
+    double waterDiffMl = Math.abs(unified.waterMl() - legacySample.waterMl());
+    boolean dueShifted = unified.dueDate() != null
+        && legacySample.dueDate() != null
+        && !unified.dueDate().equals(legacySample.dueDate());
+    boolean drift = intervalDiff >= INTERVAL_DRIFT_DAYS || waterDiffMl >= WATER_DRIFT_ML || dueShifted;
+    performanceMetricsService.recordShadowDrift(flow, intervalDiff, waterDiffMl);
+    performanceMetricsService.incrementShadowComparison(flow, drift ? "drift" : "parity");
+    if (drift) {
+      log.debug("Shadow recommendation drift: flow={} plantId={} intervalDiff={} waterDiffMl={} dueShifted={}",
+          flow, plantId, Math.round(intervalDiff * 100.0) / 100.0, Math.round(waterDiffMl), dueShifted);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.plantbot.service.recommendation.shadow;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.User;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+// Отсоединенные копии входов легаси-движка. Снимаются в потоке планировщика до compareAsync:
+// управляемые сущности меняются пересчетом и сохранением, пока теневой поток их читает.
+public final class RecommendationShadowInputs {
+  private RecommendationShadowInputs() {
+  }
+
+  public static User detachedUser(User source) {
+    if (source == null) {
+      return null;
+    }
+    User copy = new User();
+    BeanUtils.copyProperties(source, copy, "roles", "plants");
+    copy.setRoles(source.getRoles() == null ? new HashSet<>() : new HashSet<>(source.getRoles()));
+    copy.setPlants(new ArrayList<>());
+    return copy;
+  }
+
+  public static Plant detachedPlant(Plant source, User detachedUser) {
+    if (source == null) {
+      return null;
+    }
+    Plant copy = new Plant();
+    BeanUtils.copyProperties(source, copy, "user", "achievementFlagsSnapshot");
+    copy.setUser(detachedUser);
+    return copy;
+  }
+}
@@ -0,0 +1,31 @@
+package com.example.plantbot.service.recommendation.shadow;
+
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class RecommendationShadowRun {
+  private final RecommendationFlowType flow;
+  private final AtomicInteger remainingBudget;
+
+  RecommendationShadowRun(RecommendationFlowType flow, int budget) {
+    this.flow = flow;
+    this.remainingBudget = new AtomicInteger(Math.max(0, budget));
+  }
+
+  public RecommendationFlowType flow() {
+    return flow;
+  }
+
+  boolean tryAcquire() {
+    while (true) {
+      int current = remainingBudget.get();
+      if (current <= 0) {
+        return false;
+      }
+      if (remainingBudget.compareAndSet(current, current - 1)) {
+        return true;
+      }
+    }
+  }
+}
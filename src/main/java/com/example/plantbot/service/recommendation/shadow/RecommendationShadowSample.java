@@ -0,0 +1,10 @@
+package com.example.plantbot.service.recommendation.shadow;
+
+import java.time.LocalDate;
+
+public record RecommendationShadowSample(
+    double intervalDays,
+    double waterMl,
+    LocalDate dueDate
+) {
+}
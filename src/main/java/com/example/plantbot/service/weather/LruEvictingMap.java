@@ -0,0 +1,28 @@
+package com.example.plantbot.service.weather;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LinkedHashMap в режиме access-order: вытесняет давно не использованный ключ за O(1).
+// Не потокобезопасна сама по себе, оборачивается в Collections.synchronizedMap.
+public class LruEvictingMap<K, V> extends LinkedHashMap<K, V> {
+  private final int maxEntries;
+  private final Runnable onEviction;
+
+  public LruEvictingMap(int maxEntries, Runnable onEviction) {
+    super(16, 0.75f, true);
+    this.maxEntries = Math.max(1, maxEntries);
+    this.onEviction = onEviction;
+  }
+
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+    if (size() <= maxEntries) {
+      return false;
+    }
+    if (onEviction != null) {
+      onEviction.run();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,105 @@
+package com.example.plantbot.service.weather;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Кольцо часовых корзин осадков за последние 72 часа.
+// В корзине хранится максимальная интенсивность (мм/ч) за час, сумма по корзинам дает накопленные мм.
+public class RainAccumulator {
+  public static final int HOURS = 72;
+
+  private final long[] bucketHour = new long[HOURS];
+  private final double[] bucketMm = new double[HOURS];
+
+  public RainAccumulator() {
+    Arrays.fill(bucketHour, Long.MIN_VALUE);
+  }
+
+  public synchronized void record(Instant at, double mmPerHour) {
+    long hour = epochHour(at);
+    int idx = index(hour);
+    if (bucketHour[idx] != hour) {
+      bucketHour[idx] = hour;
+      bucketMm[idx] = 0.0;
+    }
+    bucketMm[idx] = Math.max(bucketMm[idx], Math.max(0.0, mmPerHour));
+  }
+
+  public synchronized double sum(Instant now, int hours) {
+    int window = Math.min(Math.max(0, hours), HOURS);
+    long nowHour = epochHour(now);
+    double total = 0.0;
+    for (int i = 0; i < window; i++) {
+      long hour = nowHour - i;
+      int idx = index(hour);
+      if (bucketHour[idx] == hour) {
+        total += bucketMm[idx];
+      }
+    }
+    return total;
+  }
+
+  public synchronized int filledBuckets(Instant now) {
+    long oldest = epochHour(now) - HOURS + 1;
+    int filled = 0;
+    for (long hour : bucketHour) {
+      if (hour >= oldest) {
+        filled++;
+      }
+    }
+    return filled;
+  }
+
+  // Компактная сериализация: "час:мм" через запятую, только актуальные корзины.
+  public synchronized String encode(Instant now) {
+    long oldest = epochHour(now) - HOURS + 1;
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < HOURS; i++) {
+      if (bucketHour[i] < oldest) {
+        continue;
+      }
+      if (!builder.isEmpty()) {
+        builder.append(',');
+      }
+      builder.append(bucketHour[i]).append(':').append(String.format(Locale.ROOT, "%.3f", bucketMm[i]));
+    }
+    return builder.toString();
+  }
+
+  public synchronized void restore(String encoded, Instant now) {
+    if (encoded == null || encoded.isBlank()) {
+      return;
+    }
+    long oldest = epochHour(now) - HOURS + 1;
+    for (String part : encoded.split(",")) {
+      int sep = part.indexOf(':');
+      if (sep <= 0) {
+        continue;
+      }
+      try {
+        long hour = Long.parseLong(part.substring(0, sep).trim());
+        double mm = Double.parseDouble(part.substring(sep + 1).trim());
+        if (hour < oldest) {
+          continue;
+        }
+        int idx = index(hour);
+        if (bucketHour[idx] != hour) {
+          bucketHour[idx] = hour;
+          bucketMm[idx] = 0.0;
+        }
+        bucketMm[idx] = Math.max(bucketMm[idx], Math.max(0.0, mm));
+      } catch (NumberFormatException ignored) {
+        // Поврежденную корзину просто пропускаем.
+      }
+    }
+  }
+
+  private static long epochHour(Instant at) {
+    return Math.floorDiv(at.getEpochSecond(), 3600L);
+  }
+
+  private static int index(long hour) {
+    return (int) Math.floorMod(hour, (long) HOURS);
+  }
+}
@@ -40,6 +40,9 @@ class SqliteSchemaInitializerTest {
         assertTrue(createSql.contains("SEED_START"));
         assertHasColumn(statement, "seed_stage");
         assertHasColumn(statement, "seed_summary");
+        assertHasColumn(statement, "learning_intervals_csv");
+        assertHasColumn(statement, "learning_last_watered_at");
+        assertHasColumn(statement, "learning_stats_updated_at");
 
         try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM plants WHERE name='Legacy plant'")) {
           assertTrue(rs.next());
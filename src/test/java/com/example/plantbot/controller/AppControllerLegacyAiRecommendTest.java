@@ -88,6 +88,12 @@ class AppControllerLegacyAiRecommendTest {
   @Mock private com.example.plantbot.service.recommendation.persistence.RecommendationExplainabilityPersistenceMapper explainabilityPersistenceMapper;
   @Mock private com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePolicy recommendationPersistencePolicy;
   @Mock private com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePlanApplier recommendationPersistencePlanApplier;
+  @Mock private com.example.plantbot.service.calendar.WateringCalendarService wateringCalendarService;
+  @Mock private com.example.plantbot.service.PlantStatsAggregationService plantStatsAggregationService;
+  @Mock private com.example.plantbot.service.photo.PhotoDeliveryService photoDeliveryService;
+  @Mock private com.example.plantbot.service.photo.PhotoProcessingService photoProcessingService;
+  @Mock private com.example.plantbot.service.photo.PhotoDerivativeService photoDerivativeService;
+  @Mock private com.example.plantbot.service.chat.AssistantChatStreamService assistantChatStreamService;
   @Mock private Authentication authentication;
   @Mock private HttpServletRequest httpServletRequest;
 
@@ -120,7 +126,13 @@ class AppControllerLegacyAiRecommendTest {
         explainabilityPersistenceMapper,
         recommendationPersistencePolicy,
         recommendationPersistencePlanApplier,
-        new ObjectMapper()
+        new ObjectMapper(),
+        wateringCalendarService,
+        plantStatsAggregationService,
+        photoDeliveryService,
+        photoProcessingService,
+        photoDerivativeService,
+        assistantChatStreamService
     );
   }
 
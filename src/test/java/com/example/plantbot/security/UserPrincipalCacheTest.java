@@ -0,0 +1,90 @@
+package com.example.plantbot.security;
+
+import com.example.plantbot.domain.User;
+import com.example.plantbot.domain.UserRole;
+import com.example.plantbot.repository.UserRepository;
+import com.example.plantbot.service.PerformanceMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPrincipalCacheTest {
+  private UserRepository userRepository;
+  private UserPrincipalCache cache;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    cache = new UserPrincipalCache(userRepository, new PerformanceMetricsService(new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+    ReflectionTestUtils.setField(cache, "maxEntries", 10);
+    cache.init();
+
+    user = new User();
+    user.setId(7L);
+    user.setUsername("anna");
+    user.setRoles(new HashSet<>(Set.of(UserRole.ROLE_USER)));
+    when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+  }
+
+  @Test
+  void repeatedLookupsHitCacheAndReturnImmutableSnapshot() {
+    UserPrincipalSnapshot first = cache.find(7L).orElseThrow();
+    UserPrincipalSnapshot second = cache.find(7L).orElseThrow();
+
+    verify(userRepository, times(1)).findById(7L);
+    assertSame(first, second);
+    assertThrows(UnsupportedOperationException.class, () -> first.roles().add(UserRole.ROLE_ADMIN));
+    // Изменение сущности после загрузки не должно протекать в кэш.
+    user.getRoles().add(UserRole.ROLE_ADMIN);
+    assertEquals(Set.of(UserRole.ROLE_USER), cache.find(7L).orElseThrow().roles());
+  }
+
+  @Test
+  void evictReloadsUserOnNextLookup() {
+    cache.find(7L);
+    user.setEmail("anna@example.com");
+
+    cache.evict(7L);
+    UserPrincipalSnapshot reloaded = cache.find(7L).orElseThrow();
+
+    verify(userRepository, times(2)).findById(7L);
+    assertEquals("anna@example.com", reloaded.email());
+  }
+
+  @Test
+  void roleChangeWithoutFieldUpdateEvictsCachedUser() {
+    cache.find(7L);
+    user.getRoles().add(UserRole.ROLE_ADMIN);
+
+    cache.evictIfRolesChanged(user);
+    UserPrincipalSnapshot reloaded = cache.find(7L).orElseThrow();
+
+    verify(userRepository, times(2)).findById(7L);
+    assertEquals(Set.of(UserRole.ROLE_USER, UserRole.ROLE_ADMIN), reloaded.roles());
+  }
+
+  @Test
+  void unchangedRolesKeepCachedUser() {
+    cache.find(7L);
+
+    cache.evictIfRolesChanged(user);
+    cache.find(7L);
+
+    verify(userRepository, times(1)).findById(7L);
+  }
+}
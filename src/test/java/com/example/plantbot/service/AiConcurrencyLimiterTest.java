@@ -0,0 +1,122 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiRequestKind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiConcurrencyLimiterTest {
+  private AiConcurrencyLimiter limiter(int initialLimit) {
+    return new AiConcurrencyLimiter(
+        new PerformanceMetricsService(new SimpleMeterRegistry()),
+        initialLimit,
+        1,
+        16,
+        0,
+        0,
+        8,
+        2.0,
+        0
+    );
+  }
+
+  @Test
+  void overloadShrinksLimitAndSuccessUnderLoadGrowsIt() {
+    AiConcurrencyLimiter limiter = limiter(10);
+
+    limiter.acquire(AiRequestKind.ASSISTANT_CHAT).release(AiConcurrencyLimiter.Signal.OVERLOAD);
+    assertEquals(7.0, limiter.currentLimit(), 0.001);
+
+    AiConcurrencyLimiter.Permit[] permits = new AiConcurrencyLimiter.Permit[5];
+    for (int i = 0; i < permits.length; i++) {
+      permits[i] = limiter.acquire(AiRequestKind.ASSISTANT_CHAT);
+    }
+    for (AiConcurrencyLimiter.Permit permit : permits) {
+      permit.release(AiConcurrencyLimiter.Signal.SUCCESS);
+    }
+    assertTrue(limiter.currentLimit() > 7.0);
+    assertEquals(0, limiter.inFlight());
+  }
+
+  @Test
+  void backgroundWorkLeavesSlotForInteractiveRequests() {
+    AiConcurrencyLimiter limiter = limiter(2);
+
+    AiConcurrencyLimiter.Permit background = limiter.acquire(AiRequestKind.AVATAR_SPEC);
+    OpenRouterExecutionException rejected = assertThrows(OpenRouterExecutionException.class,
+        () -> limiter.acquire(AiRequestKind.PLANT_WATERING_PROFILE));
+    assertEquals(OpenRouterFailureType.OVER_CAPACITY, rejected.getFailureType());
+
+    AiConcurrencyLimiter.Permit interactive = limiter.acquire(AiRequestKind.PHOTO_DIAGNOSIS);
+    assertEquals(AiConcurrencyLimiter.Lane.INTERACTIVE, interactive.lane());
+    interactive.release(AiConcurrencyLimiter.Signal.SUCCESS);
+    background.release(AiConcurrencyLimiter.Signal.SUCCESS);
+    background.release(AiConcurrencyLimiter.Signal.SUCCESS);
+    assertEquals(0, limiter.inFlight());
+  }
+
+  @Test
+  void configurationErrorsDoNotAffectLimit() {
+    AiConcurrencyLimiter limiter = limiter(4);
+
+    limiter.acquire(AiRequestKind.PLANT_SEARCH).release(AiConcurrencyLimiter.classify(
+        new OpenRouterExecutionException(OpenRouterFailureType.INVALID_KEY, false, "bad key")));
+
+    assertEquals(4.0, limiter.currentLimit(), 0.001);
+  }
+
+  @Test
+  void slowSuccessesHoldLimitInsteadOfShrinkingIt() {
+    AiConcurrencyLimiter limiter = limiter(4);
+    long fast = TimeUnit.SECONDS.toNanos(2);
+    long slow = TimeUnit.SECONDS.toNanos(20);
+
+    AiConcurrencyLimiter.Permit[] permits = new AiConcurrencyLimiter.Permit[3];
+    for (int i = 0; i < permits.length; i++) {
+      permits[i] = limiter.acquire(AiRequestKind.PHOTO_DIAGNOSIS);
+    }
+    permits[0].release(AiConcurrencyLimiter.Signal.SUCCESS, fast);
+    double afterBaseline = limiter.currentLimit();
+    assertTrue(afterBaseline > 4.0);
+
+    // Медленные, но успешные ответы не считаются перегрузкой: лимит не падает, но и не растет.
+    permits[1].release(AiConcurrencyLimiter.Signal.SUCCESS, slow);
+    permits[2].release(AiConcurrencyLimiter.Signal.SUCCESS, slow);
+    assertEquals(afterBaseline, limiter.currentLimit(), 0.001);
+
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire(AiRequestKind.PHOTO_DIAGNOSIS).release(AiConcurrencyLimiter.Signal.SUCCESS, slow);
+    }
+    assertTrue(limiter.currentLimit() >= afterBaseline);
+  }
+
+  @Test
+  void backgroundNeverTakesReservedInteractiveSlotAtMinimumLimit() {
+    AiConcurrencyLimiter limiter = new AiConcurrencyLimiter(
+        new PerformanceMetricsService(new SimpleMeterRegistry()),
+        1,
+        1,
+        16,
+        0,
+        0,
+        8,
+        2.0,
+        0
+    );
+    limiter.acquire(AiRequestKind.ASSISTANT_CHAT).release(AiConcurrencyLimiter.Signal.OVERLOAD);
+    assertEquals(2.0, limiter.currentLimit(), 0.001);
+
+    AiConcurrencyLimiter.Permit background = limiter.acquire(AiRequestKind.GROWTH_SUMMARY);
+    assertThrows(OpenRouterExecutionException.class, () -> limiter.acquire(AiRequestKind.AVATAR_SPEC));
+    AiConcurrencyLimiter.Permit interactive = limiter.acquire(AiRequestKind.ASSISTANT_CHAT);
+
+    interactive.release(AiConcurrencyLimiter.Signal.SUCCESS);
+    background.release(AiConcurrencyLimiter.Signal.SUCCESS);
+    assertEquals(0, limiter.inFlight());
+  }
+}
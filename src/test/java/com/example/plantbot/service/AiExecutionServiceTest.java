@@ -5,6 +5,7 @@ import com.example.plantbot.domain.AiProviderType;
 import com.example.plantbot.domain.AiRequestKind;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -40,13 +41,18 @@ class AiExecutionServiceTest {
 
   private final ObjectMapper objectMapper = new ObjectMapper();
 
+  private final AiConcurrencyLimiter limiter = new AiConcurrencyLimiter(
+      new PerformanceMetricsService(new SimpleMeterRegistry()), 4, 1, 8, 100, 100, 4, 8000, 0
+  );
+
   @Test
   void shouldRouteOpenAiRuntimeAndRecordSuccess() throws Exception {
     AiExecutionService service = new AiExecutionService(
         aiProviderSettingsService,
         openRouterExecutionService,
         openAiExecutionService,
-        aiRequestAnalyticsService
+        aiRequestAnalyticsService,
+        limiter
     );
     JsonNode payload = objectMapper.readTree("{\"choices\":[{\"message\":{\"content\":\"ok\"}}]}");
     AiProviderSettingsService.RuntimeResolution runtime = new AiProviderSettingsService.RuntimeResolution(
@@ -89,7 +95,8 @@ class AiExecutionServiceTest {
         aiProviderSettingsService,
         openRouterExecutionService,
         openAiExecutionService,
-        aiRequestAnalyticsService
+        aiRequestAnalyticsService,
+        limiter
     );
     AiProviderSettingsService.RuntimeResolution runtime = new AiProviderSettingsService.RuntimeResolution(
         AiProviderType.OPENROUTER,
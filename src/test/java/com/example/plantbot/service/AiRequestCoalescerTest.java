@@ -0,0 +1,118 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiCapability;
+import com.example.plantbot.domain.AiProviderType;
+import com.example.plantbot.domain.AiRequestKind;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AiRequestCoalescerTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AiProviderSettingsService.RuntimeResolution runtime = new AiProviderSettingsService.RuntimeResolution(
+      AiProviderType.OPENROUTER, AiCapability.TEXT, "model/test", "token", null, 15000, 256, true
+  );
+  private final List<Map<String, Object>> messages = List.of(Map.of("role", "user", "content", "Монстера"));
+
+  private AiExecutionService aiExecutionService;
+  private SimpleMeterRegistry meterRegistry;
+  private AiRequestCoalescer coalescer;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    aiExecutionService = mock(AiExecutionService.class);
+    meterRegistry = new SimpleMeterRegistry();
+    coalescer = new AiRequestCoalescer(aiExecutionService, new AiTextCacheKeyFactory(objectMapper), new PerformanceMetricsService(meterRegistry));
+    ReflectionTestUtils.setField(coalescer, "enabled", true);
+    ReflectionTestUtils.setField(coalescer, "waitTimeoutMs", 5000L);
+    coalescer.init();
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentIdenticalPromptsShareOneProviderCall() throws Exception {
+    JsonNode payload = objectMapper.readTree("{\"choices\":[{\"message\":{\"content\":\"ok\"}}]}");
+    CountDownLatch leaderStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(aiExecutionService.execute(eq(runtime), eq(AiRequestKind.PLANT_CARE_ADVICE), any())).thenAnswer(invocation -> {
+      leaderStarted.countDown();
+      assertTrue(release.await(5, TimeUnit.SECONDS));
+      return new AiExecutionService.AiExecutionResult(AiProviderType.OPENROUTER, AiCapability.TEXT, "model/test", payload);
+    });
+
+    Future<JsonNode> leader = executor.submit(() -> coalescer.execute(runtime, AiRequestKind.PLANT_CARE_ADVICE, messages));
+    assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+    AtomicReference<Thread> followerThread = new AtomicReference<>();
+    Future<JsonNode> follower = executor.submit(() -> {
+      followerThread.set(Thread.currentThread());
+      return coalescer.execute(runtime, AiRequestKind.PLANT_CARE_ADVICE, messages);
+    });
+    waitUntilParked(followerThread);
+    release.countDown();
+
+    JsonNode original = payload.deepCopy();
+    JsonNode leaderBody = leader.get(5, TimeUnit.SECONDS);
+    // Лидер правит свой экземпляр при разборе: ожидающий этого видеть не должен.
+    ((ObjectNode) leaderBody).put("parsed", true);
+    JsonNode followerBody = follower.get(5, TimeUnit.SECONDS);
+    assertNotSame(leaderBody, followerBody);
+    assertEquals(original, followerBody);
+    verify(aiExecutionService, times(1)).execute(eq(runtime), eq(AiRequestKind.PLANT_CARE_ADVICE), any());
+    assertEquals(1.0, meterRegistry.counter("plantbot.ai.single_flight", "kind", "PLANT_CARE_ADVICE", "outcome", "joined").count());
+    assertEquals(0, coalescer.inFlightCount());
+  }
+
+  @Test
+  void leaderFailureIsNotRememberedForNextCall() {
+    when(aiExecutionService.execute(eq(runtime), eq(AiRequestKind.PLANT_SEARCH), any()))
+        .thenThrow(new IllegalStateException("provider down"));
+
+    assertThrows(IllegalStateException.class, () -> coalescer.execute(runtime, AiRequestKind.PLANT_SEARCH, messages));
+    assertThrows(IllegalStateException.class, () -> coalescer.execute(runtime, AiRequestKind.PLANT_SEARCH, messages));
+
+    verify(aiExecutionService, times(2)).execute(eq(runtime), eq(AiRequestKind.PLANT_SEARCH), any());
+  }
+
+  // Ведомый поток виден только по состоянию: ждем, пока он заблокируется на общем future.
+  private void waitUntilParked(AtomicReference<Thread> thread) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      Thread current = thread.get();
+      if (current != null && current.getState() == Thread.State.TIMED_WAITING) {
+        return;
+      }
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.example.plantbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AiStreamingResponseReaderTest {
+  private InputStream sse(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void collectsDeltasUntilDoneAndSkipsKeepAliveComments() throws Exception {
+    List<String> deltas = new ArrayList<>();
+    String answer = AiStreamingResponseReader.read(sse("""
+        : OPENROUTER PROCESSING
+
+        data: {"choices":[{"delta":{"role":"assistant"}}]}
+
+        data: {"choices":[{"delta":{"content":"Поливайте "}}]}
+
+        data: {"choices":[{"delta":{"content":"раз в неделю"}}]}
+
+        data: [DONE]
+
+        data: {"choices":[{"delta":{"content":"лишнее"}}]}
+        """), deltas::add);
+
+    assertEquals("Поливайте раз в неделю", answer);
+    assertEquals(List.of("Поливайте ", "раз в неделю"), deltas);
+  }
+
+  @Test
+  void errorPayloadInStreamFails() {
+    IllegalStateException ex = assertThrows(IllegalStateException.class, () -> AiStreamingResponseReader.read(sse("""
+        data: {"choices":[{"delta":{"content":"Начало"}}]}
+
+        data: {"error":{"message":"Rate limit exceeded"}}
+        """), delta -> {
+    }));
+
+    assertEquals("Rate limit exceeded", ex.getMessage());
+  }
+
+  @Test
+  void consumerFailureIsReportedAsAbort() {
+    assertThrows(AiStreamingResponseReader.StreamAbortedException.class, () -> AiStreamingResponseReader.read(sse("""
+        data: {"choices":[{"delta":{"content":"Начало"}}]}
+        """), delta -> {
+      throw new IllegalStateException("client gone");
+    }));
+  }
+}
@@ -0,0 +1,71 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.repository.AiTextCacheEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AiTextCacheAccessStatsBufferTest {
+  private AiTextCacheEntryRepository repository;
+  private AiTextCacheAccessStatsBuffer buffer;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(AiTextCacheEntryRepository.class);
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    buffer = new AiTextCacheAccessStatsBuffer(
+        repository,
+        mock(PlatformTransactionManager.class),
+        new ScheduledJobGuard(metrics),
+        metrics
+    );
+  }
+
+  @Test
+  void coalescesHitsPerKeyIntoSingleUpdate() {
+    buffer.recordHit("a");
+    buffer.recordHit("a");
+    buffer.recordHit("a");
+    buffer.recordHit("b");
+
+    assertEquals(2, buffer.flush());
+
+    verify(repository).applyAccessStats(eq("a"), eq(3L), any());
+    verify(repository).applyAccessStats(eq("b"), eq(1L), any());
+    assertEquals(0, buffer.pendingKeys());
+  }
+
+  @Test
+  void emptyBufferDoesNotTouchRepository() {
+    assertEquals(0, buffer.flush());
+    verifyNoInteractions(repository);
+  }
+
+  @Test
+  void failedFlushKeepsPendingDeltas() {
+    when(repository.applyAccessStats(anyString(), anyLong(), any())).thenThrow(new IllegalStateException("db down"));
+    buffer.recordHit("a");
+    buffer.recordHit("a");
+
+    assertThrows(IllegalStateException.class, () -> buffer.flush());
+    assertEquals(1, buffer.pendingKeys());
+
+    when(repository.applyAccessStats(anyString(), anyLong(), any())).thenReturn(1);
+    buffer.flush();
+
+    verify(repository, times(2)).applyAccessStats(eq("a"), eq(2L), any());
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiTextFeatureType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiTextCacheMemoryTierTest {
+  private AiTextCacheMemoryTier tier;
+
+  @BeforeEach
+  void setUp() {
+    tier = new AiTextCacheMemoryTier(new PerformanceMetricsService(new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(tier, "maxEntries", 2);
+    ReflectionTestUtils.setField(tier, "maxWeightChars", 1_000L);
+    ReflectionTestUtils.setField(tier, "ttlSeconds", 600L);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedEntryWhenFull() {
+    put("a", 1L, 10L, AiTextFeatureType.PLANT_CARE_ADVICE, "payload-a");
+    put("b", 1L, 10L, AiTextFeatureType.PLANT_CARE_ADVICE, "payload-b");
+    assertTrue(tier.get("a").isPresent());
+
+    put("c", 1L, 10L, AiTextFeatureType.PLANT_CARE_ADVICE, "payload-c");
+
+    assertTrue(tier.get("a").isPresent());
+    assertFalse(tier.get("b").isPresent());
+    assertEquals("payload-c", tier.get("c").orElseThrow().payloadJson());
+  }
+
+  @Test
+  void featureInvalidationRemovesOnlyMatchingPlantEntries() {
+    put("care", 1L, 10L, AiTextFeatureType.PLANT_CARE_ADVICE, "care");
+    put("other-plant", 1L, 11L, AiTextFeatureType.PLANT_CARE_ADVICE, "other");
+
+    tier.invalidatePlantFeatures(1L, 10L, Set.of(AiTextFeatureType.PLANT_CARE_ADVICE));
+
+    assertFalse(tier.get("care").isPresent());
+    assertTrue(tier.get("other-plant").isPresent());
+  }
+
+  @Test
+  void skipsWriteWhenInvalidatedAfterGenerationSnapshot() {
+    long generation = tier.generation();
+    tier.invalidatePlantScoped(1L, 10L);
+
+    tier.put(generation, "stale", 1L, 10L, AiTextFeatureType.PLANT_CARE_ADVICE, "stale", Instant.now().plusSeconds(60));
+
+    assertFalse(tier.get("stale").isPresent());
+  }
+
+  private void put(String key, Long userId, Long plantId, AiTextFeatureType featureType, String payload) {
+    tier.put(tier.generation(), key, userId, plantId, featureType, payload, Instant.now().plusSeconds(3600));
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.AiTextCacheEntry;
+import com.example.plantbot.domain.AiTextFeatureType;
+import com.example.plantbot.repository.AiTextCacheEntryRepository;
+import com.example.plantbot.util.PlantCareAdvice;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AiTextCacheServiceTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, Object> input = Map.of("plant", "Монстера");
+  private final PlantCareAdvice advice = new PlantCareAdvice(7, List.of("гумат"), "универсальный", List.of("торф", "перлит"), "", "test");
+
+  private AiTextCacheEntryRepository repository;
+  private AiTextCacheMemoryTier memoryTier;
+  private AiTextCacheService service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(AiTextCacheEntryRepository.class);
+    when(repository.save(any(AiTextCacheEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    OpenRouterGlobalSettingsService settings = mock(OpenRouterGlobalSettingsService.class);
+    when(settings.isAiTextCacheEnabled()).thenReturn(true);
+    when(settings.resolveAiTextCacheTtlDays()).thenReturn(7);
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    memoryTier = new AiTextCacheMemoryTier(metrics);
+    ReflectionTestUtils.setField(memoryTier, "maxEntries", 10);
+    ReflectionTestUtils.setField(memoryTier, "maxWeightChars", 100_000L);
+    ReflectionTestUtils.setField(memoryTier, "ttlSeconds", 600L);
+    service = new AiTextCacheService(
+        repository,
+        new AiTextCacheKeyFactory(objectMapper),
+        settings,
+        objectMapper,
+        memoryTier,
+        mock(PlatformTransactionManager.class),
+        mock(AiTextCacheAccessStatsBuffer.class)
+    );
+  }
+
+  @Test
+  void putReachesMemoryTierOnlyAfterCommit() {
+    String cacheKey;
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cacheKey = service.put(1L, 10L, AiTextFeatureType.PLANT_CARE_ADVICE, "model/test", input, advice).cacheKey();
+      assertFalse(memoryTier.get(cacheKey).isPresent());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertTrue(memoryTier.get(cacheKey).isPresent());
+  }
+
+  @Test
+  void memoryHitsUseRequestedGenericTypeAndAreNotShared() {
+    service.put(1L, null, AiTextFeatureType.PLANT_SEARCH_SUGGESTIONS_AI, "model/test", input, List.of(advice));
+    TypeReference<List<PlantCareAdvice>> listOfAdvice = new TypeReference<>() {
+    };
+
+    AiTextCacheService.CacheLookupResult<List<PlantCareAdvice>> first =
+        service.find(1L, null, AiTextFeatureType.PLANT_SEARCH_SUGGESTIONS_AI, "model/test", input, listOfAdvice);
+    assertTrue(first.hit());
+    // Вызывающий правит свой результат: следующий читатель этого видеть не должен.
+    first.payload().get(0).additives().add("зола");
+
+    AiTextCacheService.CacheLookupResult<List<PlantCareAdvice>> second =
+        service.find(1L, null, AiTextFeatureType.PLANT_SEARCH_SUGGESTIONS_AI, "model/test", input, listOfAdvice);
+
+    assertNotSame(first.payload(), second.payload());
+    assertEquals(List.of(advice), second.payload());
+    // Оба чтения обслужил L1: в репозиторий ходил только put.
+    verify(repository, times(1)).findByCacheKeyAndInvalidatedAtIsNull(anyString());
+  }
+}
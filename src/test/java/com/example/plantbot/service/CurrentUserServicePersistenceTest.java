@@ -0,0 +1,122 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.repository.UserRepository;
+import com.example.plantbot.security.PwaPrincipal;
+import com.example.plantbot.security.UserPrincipalCache;
+import com.example.plantbot.service.achievement.AchievementCounterStore;
+import com.example.plantbot.service.calendar.WateringCalendarVersions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Контроллер сохраняет пользователя, полученного из CurrentUserService. Если это не сущность из БД,
+// а снимок без plants, orphanRemoval удалит все растения пользователя.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+    CurrentUserService.class,
+    UserService.class,
+    UserPrincipalCache.class,
+    PerformanceMetricsService.class,
+    WateringCalendarVersions.class,
+    AchievementCounterStore.class,
+    CurrentUserServicePersistenceTest.MetricsConfig.class
+})
+class CurrentUserServicePersistenceTest {
+  private static final String DATABASE = tempDatabase();
+
+  @MockBean
+  private TelegramInitDataService telegramInitDataService;
+
+  @Autowired
+  private CurrentUserService currentUserService;
+  @Autowired
+  private UserService userService;
+  @Autowired
+  private UserPrincipalCache userPrincipalCache;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private PlantRepository plantRepository;
+
+  @DynamicPropertySource
+  static void sqlite(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + DATABASE);
+    registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+  }
+
+  @Test
+  void cityUpdateThroughCachedPrincipalKeepsPlants() {
+    User owner = new User();
+    owner.setTelegramId(501L);
+    owner.setUsername("anna");
+    owner = userRepository.save(owner);
+    plantRepository.save(plant(owner, "Монстера"));
+    plantRepository.save(plant(owner, "Фикус"));
+
+    // Как в запросе: фильтр JWT прогревает кэш, затем контроллер меняет город и сохраняет пользователя.
+    userPrincipalCache.find(owner.getId()).orElseThrow();
+    Authentication authentication = new UsernamePasswordAuthenticationToken(
+        new PwaPrincipal(owner.getId(), "anna", null, 501L),
+        null,
+        List.of()
+    );
+    User current = currentUserService.resolve(authentication, null);
+    current.setCity("Kazan");
+    userService.save(current);
+
+    assertEquals("Kazan", userRepository.findById(owner.getId()).orElseThrow().getCity());
+    assertEquals(2, plantRepository.findByUser(owner).size());
+  }
+
+  private static Plant plant(User owner, String name) {
+    Plant plant = new Plant();
+    plant.setUser(owner);
+    plant.setName(name);
+    plant.setPotVolumeLiters(2.0);
+    plant.setBaseIntervalDays(7);
+    plant.setLastWateredDate(LocalDate.now());
+    return plant;
+  }
+
+  private static String tempDatabase() {
+    try {
+      return Files.createTempDirectory("current-user-test").resolve("plantbot.db").toString();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  @TestConfiguration
+  static class MetricsConfig {
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.WateringLog;
+import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.repository.WateringLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LearningServiceTest {
+  private static final LocalDate START = LocalDate.of(2026, 3, 1);
+
+  private WateringLogRepository wateringLogRepository;
+  private LearningService learningService;
+
+  @BeforeEach
+  void setUp() {
+    wateringLogRepository = mock(WateringLogRepository.class);
+    learningService = new LearningService(wateringLogRepository, mock(PlantRepository.class));
+    ReflectionTestUtils.setField(learningService, "lastN", 5);
+    ReflectionTestUtils.setField(learningService, "alpha", 0.5);
+  }
+
+  @Test
+  void incrementalStatsMatchLogScanAndNeedNoQueries() {
+    Plant incremental = new Plant();
+    Plant legacy = new Plant();
+    List<LocalDate> dates = List.of(START, START.plusDays(3), START.plusDays(7), START.plusDays(7), START.plusDays(12));
+    when(wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(legacy)).thenReturn(logsDesc(dates));
+    // Первый полив: лог уже сохранен, поэтому инициализация видит его.
+    when(wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(incremental)).thenReturn(logsDesc(List.of(START)));
+
+    for (LocalDate date : dates) {
+      learningService.recordWatering(incremental, date);
+    }
+
+    assertEquals(learningService.getAverageInterval(legacy), learningService.getAverageInterval(incremental));
+    assertEquals(learningService.getSmoothedInterval(legacy), learningService.getSmoothedInterval(incremental));
+    assertEquals(4.0, learningService.getAverageInterval(incremental).orElseThrow(), 0.0001);
+    // Один запрос на первичную инициализацию, чтения статистики идут без запросов.
+    verify(wateringLogRepository).findTop20ByPlantOrderByWateredAtDesc(incremental);
+  }
+
+  @Test
+  void backdatedWateringTriggersRebuild() {
+    Plant plant = new Plant();
+    when(wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(plant)).thenReturn(logsDesc(List.of(START.plusDays(10))));
+    learningService.recordWatering(plant, START.plusDays(10));
+
+    when(wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(plant))
+        .thenReturn(logsDesc(List.of(START, START.plusDays(4), START.plusDays(10))));
+    learningService.recordWatering(plant, START.plusDays(4));
+
+    assertEquals(5.0, learningService.getAverageInterval(plant).orElseThrow(), 0.0001);
+    assertEquals(START.plusDays(10), plant.getLearningLastWateredAt());
+  }
+
+  @Test
+  void readsWithoutStatsFallBackToLogs() {
+    Plant plant = new Plant();
+    when(wateringLogRepository.findTop20ByPlantOrderByWateredAtDesc(plant)).thenReturn(List.of());
+
+    assertEquals(true, learningService.getAverageInterval(plant).isEmpty());
+    verify(wateringLogRepository).findTop20ByPlantOrderByWateredAtDesc(plant);
+    verify(wateringLogRepository, never()).save(any());
+  }
+
+  private static List<WateringLog> logsDesc(List<LocalDate> ascendingDates) {
+    List<WateringLog> logs = new ArrayList<>();
+    for (int i = ascendingDates.size() - 1; i >= 0; i--) {
+      WateringLog log = new WateringLog();
+      log.setWateredAt(ascendingDates.get(i));
+      logs.add(log);
+    }
+    return logs;
+  }
+}
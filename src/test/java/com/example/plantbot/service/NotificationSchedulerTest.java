@@ -12,8 +12,13 @@ import com.example.plantbot.domain.User;
 import com.example.plantbot.domain.WeatherConfidence;
 import com.example.plantbot.domain.WeatherProvider;
 import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.service.notification.NotificationOutboxService;
+import com.example.plantbot.service.notification.SmartNotificationContext;
+import com.example.plantbot.service.notification.SmartNotificationDecision;
 import com.example.plantbot.service.notification.SmartNotificationDecisionService;
 import com.example.plantbot.service.notification.SmartNotificationContextService;
+import com.example.plantbot.service.notification.SmartNotificationPriority;
+import com.example.plantbot.service.notification.SmartNotificationType;
 import com.example.plantbot.service.recommendation.facade.RecommendationFacade;
 import com.example.plantbot.service.recommendation.mapper.LocationContextResolver;
 import com.example.plantbot.service.recommendation.mapper.PlantRecommendationContextMapper;
@@ -26,7 +31,10 @@ import com.example.plantbot.service.recommendation.model.RecommendationRequestCo
 import com.example.plantbot.service.recommendation.model.RecommendationResult;
 import com.example.plantbot.service.dto.NormalizedWeatherContext;
 import com.example.plantbot.service.recommendation.runtime.LegacyRuntimeRecommendationDelegate;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowComparisonService;
 import com.example.plantbot.util.LearningInfo;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,20 +43,26 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -67,15 +81,18 @@ class NotificationSchedulerTest {
   @Mock
   private LegacyRuntimeRecommendationDelegate legacyRuntimeRecommendationDelegate;
   @Mock
-  private WebPushNotificationService webPushNotificationService;
+  private NotificationOutboxService notificationOutboxService;
   @Mock
   private SmartNotificationDecisionService smartNotificationDecisionService;
   @Mock
   private SmartNotificationContextService smartNotificationContextService;
   @Mock
   private OutdoorWeatherContextService outdoorWeatherContextService;
+  @Mock
+  private RecommendationShadowComparisonService shadowComparisonService;
 
   private NotificationScheduler scheduler;
+  private SimpleMeterRegistry meterRegistry;
 
   @BeforeEach
   void setUp() {
@@ -85,6 +102,8 @@ class NotificationSchedulerTest {
         new LocationContextResolver(),
         new WeatherContextResolver(outdoorWeatherContextService, new WeatherContextAdapter())
     );
+    meterRegistry = new SimpleMeterRegistry();
+    PerformanceMetricsService performanceMetricsService = new PerformanceMetricsService(meterRegistry);
     scheduler = new NotificationScheduler(
         plantRepository,
         recommendationService,
@@ -93,9 +112,12 @@ class NotificationSchedulerTest {
         recommendationFacade,
         new RuntimeRecommendationAdapter(),
         legacyRuntimeRecommendationDelegate,
-        webPushNotificationService,
+        notificationOutboxService,
         smartNotificationDecisionService,
-        smartNotificationContextService
+        smartNotificationContextService,
+        performanceMetricsService,
+        shadowComparisonService,
+        new ScheduledJobGuard(performanceMetricsService)
     );
 
     when(outdoorWeatherContextService.resolve(any(), nullable(String.class), nullable(String.class))).thenReturn(
@@ -160,25 +182,95 @@ class NotificationSchedulerTest {
     ));
     when(legacyRuntimeRecommendationDelegate.recommendProfile(eq(plant), eq(user), eq(true), eq(false), eq(false)))
         .thenReturn(new com.example.plantbot.util.WateringRecommendation(2.0, 0.55));
-    when(webPushNotificationService.sendWateringReminder(eq(plant), any(RecommendationResult.class))).thenReturn(true);
+    LocalDate today = LocalDate.now();
+    SmartNotificationDecision decision = new SmartNotificationDecision(
+        SmartNotificationType.WATER_NOW, SmartNotificationPriority.HIGH, true, false, false, true, false, false, false,
+        today, "due"
+    );
+    SmartNotificationContext notificationContext = new SmartNotificationContext(
+        plant.getId(), SmartNotificationType.WATER_NOW, SmartNotificationPriority.HIGH, true, false, false, true, false,
+        false, false, today, 3, 2, 450, 600, null, "Пора полить", null, null, "due"
+    );
+    when(smartNotificationDecisionService.decide(eq(plant), any(RecommendationResult.class), eq(today)))
+        .thenReturn(Optional.of(decision));
+    when(smartNotificationContextService.build(eq(plant), any(RecommendationResult.class), eq(decision)))
+        .thenReturn(notificationContext);
+    when(notificationOutboxService.enqueueWateringReminder(eq(plant), any(RecommendationResult.class), eq(notificationContext), eq(today)))
+        .thenReturn(NotificationOutboxService.EnqueueResult.QUEUED);
 
     scheduler.dailyCheck();
 
     ArgumentCaptor<RecommendationRequestContext> contextCaptor = ArgumentCaptor.forClass(RecommendationRequestContext.class);
     verify(recommendationFacade).runtime(contextCaptor.capture());
     assertEquals(com.example.plantbot.service.recommendation.model.RecommendationFlowType.NOTIFICATION, contextCaptor.getValue().flowType());
-    verify(webPushNotificationService).sendWateringReminder(eq(plant), any(RecommendationResult.class));
-    verify(plantRepository).save(eq(plant));
+    verify(notificationOutboxService).enqueueWateringReminder(eq(plant), any(RecommendationResult.class), eq(notificationContext), eq(today));
+    // Отметку о напоминании ставит диспетчер outbox после доставки, а не планировщик.
+    verify(plantRepository, never()).save(any());
     verify(recommendationService, never()).recommend(any(), any());
   }
 
+  @Test
+  void partitionedDailyCheckKeepsUserPlantsTogetherAcrossChunks() {
+    ReflectionTestUtils.setField(scheduler, "partitionedEnabled", true);
+    ReflectionTestUtils.setField(scheduler, "partitionChunkSize", 2);
+    ReflectionTestUtils.setField(scheduler, "partitionWorkerThreads", 2);
+    Plant first = plant(1L, 10L);
+    Plant second = plant(1L, 11L);
+    Plant third = plant(1L, 12L);
+    Plant other = plant(2L, 20L);
+    when(plantRepository.findBatchAfterUserAndId(eq(-1L), eq(-1L), any(Pageable.class))).thenReturn(List.of(first, second));
+    when(plantRepository.findBatchAfterUserAndId(eq(1L), eq(11L), any(Pageable.class))).thenReturn(List.of(third, other));
+    when(plantRepository.findBatchAfterUserAndId(eq(2L), eq(20L), any(Pageable.class))).thenReturn(List.of());
+    when(learningService.getAverageInterval(any())).thenReturn(OptionalDouble.empty());
+    when(learningService.getSmoothedInterval(any())).thenReturn(OptionalDouble.empty());
+    RecommendationResult result = new RecommendationResult(
+        2,
+        0,
+        RecommendationSource.WEATHER_ADJUSTED.name(),
+        RecommendationExecutionMode.WEATHER_ADJUSTED,
+        null,
+        null,
+        null,
+        null,
+        Instant.now(),
+        false
+    );
+    List<String> processed = new CopyOnWriteArrayList<>();
+    when(recommendationFacade.runtime(any())).thenAnswer(invocation -> {
+      RecommendationRequestContext context = invocation.getArgument(0);
+      processed.add(context.plantId() + "@" + Thread.currentThread().getName());
+      return result;
+    });
+
+    scheduler.dailyCheck();
+
+    verify(recommendationFacade, times(4)).runtime(any());
+    verify(plantRepository, never()).findAll();
+    verify(plantRepository, times(3)).findBatchAfterUserAndId(anyLong(), anyLong(), any(Pageable.class));
+
+    // Растения пользователя 1 разрезаны границей чанка (10, 11 | 12), но составляют одну партицию из трех.
+    DistributionSummary partitionSizes = meterRegistry.find("plantbot.scheduler.partition.size").summary();
+    assertNotNull(partitionSizes);
+    assertEquals(2, partitionSizes.count());
+    assertEquals(3.0, partitionSizes.max());
+    assertEquals(4.0, partitionSizes.totalAmount());
+    // Партиция обрабатывается одним воркером по порядку: 10, 11, 12 подряд на одном потоке.
+    List<String> userOne = processed.stream().filter(entry -> !entry.startsWith("20@")).toList();
+    String worker = userOne.get(0).substring(userOne.get(0).indexOf('@') + 1);
+    assertEquals(List.of("10@" + worker, "11@" + worker, "12@" + worker), userOne);
+  }
+
   private Plant plant() {
+    return plant(1L, 10L);
+  }
+
+  private Plant plant(long userId, long plantId) {
     User user = new User();
-    user.setId(1L);
+    user.setId(userId);
     user.setCity("Moscow");
     user.setCityDisplayName("Москва");
     Plant plant = new Plant();
-    plant.setId(10L);
+    plant.setId(plantId);
     plant.setUser(user);
     plant.setName("Rose");
     plant.setCategory(PlantCategory.OUTDOOR_DECORATIVE);
@@ -0,0 +1,78 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.repository.OpenRouterCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OpenRouterCacheCompactorTest {
+  private OpenRouterCacheRepository repository;
+  private OpenRouterCacheCompactor compactor;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(OpenRouterCacheRepository.class);
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    compactor = new OpenRouterCacheCompactor(repository, new ScheduledJobGuard(metrics), metrics, 100, 600_000L, 40);
+  }
+
+  @Test
+  void evictsOldestInBatchesUntilUnderLimit() {
+    when(repository.deleteExpired(any())).thenReturn(3);
+    when(repository.count()).thenReturn(170L);
+    when(repository.deleteOldest(40)).thenReturn(40);
+    when(repository.deleteOldest(30)).thenReturn(30);
+
+    int removed = compactor.compact();
+
+    assertEquals(73, removed);
+    assertEquals(100L, compactor.approximateSize());
+    verify(repository).deleteOldest(30);
+  }
+
+  @Test
+  void writesOnlyBumpCounterAndTriggerCompactionWhenOverLimit() {
+    when(repository.count()).thenReturn(99L);
+    compactor.compact();
+    verify(repository, never()).deleteOldest(anyInt());
+    long sweptAt = System.currentTimeMillis();
+
+    compactor.recordWrite();
+    assertEquals(100L, compactor.approximateSize());
+    assertFalse(compactor.isCompactionDue(sweptAt));
+
+    compactor.recordWrite();
+    assertTrue(compactor.isCompactionDue(sweptAt));
+  }
+
+  @Test
+  void scheduledCheckSkipsDatabaseWhenNothingIsDue() {
+    when(repository.count()).thenReturn(10L);
+    compactor.compact();
+
+    compactor.recordWrite();
+    compactor.scheduledCompaction();
+
+    verify(repository, times(1)).count();
+  }
+
+  @Test
+  void unknownSizeForcesFirstCompaction() {
+    assertTrue(compactor.isCompactionDue(0L));
+    compactor.recordWrite();
+    assertEquals(-1L, compactor.approximateSize());
+    verifyNoInteractions(repository);
+  }
+}
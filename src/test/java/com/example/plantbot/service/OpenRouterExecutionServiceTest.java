@@ -1,5 +1,6 @@
 package com.example.plantbot.service;
 
+import com.example.plantbot.service.http.OutboundHttpClients;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,12 +8,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -28,7 +28,7 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class OpenRouterExecutionServiceTest {
   @Mock
-  private RestTemplateBuilder restTemplateBuilder;
+  private OutboundHttpClients outboundHttpClients;
 
   @Mock
   private RestTemplate restTemplate;
@@ -48,10 +48,8 @@ class OpenRouterExecutionServiceTest {
 
   @BeforeEach
   void setUp() {
-    service = new OpenRouterExecutionService(restTemplateBuilder, settingsService, healthService, performanceMetricsService);
-    when(restTemplateBuilder.setConnectTimeout(any(Duration.class))).thenReturn(restTemplateBuilder);
-    when(restTemplateBuilder.setReadTimeout(any(Duration.class))).thenReturn(restTemplateBuilder);
-    when(restTemplateBuilder.build()).thenReturn(restTemplate);
+    service = new OpenRouterExecutionService(outboundHttpClients, settingsService, healthService, performanceMetricsService);
+    when(outboundHttpClients.restTemplate(eq(OutboundHttpClients.OPENROUTER), eq(1500))).thenReturn(restTemplate);
     when(settingsService.resolveRetryCount()).thenReturn(1);
     when(settingsService.resolveRetryBaseDelayMs()).thenReturn(1);
     when(settingsService.resolveRetryMaxDelayMs()).thenReturn(2);
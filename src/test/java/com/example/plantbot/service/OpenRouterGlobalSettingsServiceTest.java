@@ -0,0 +1,65 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.domain.GlobalSettings;
+import com.example.plantbot.repository.AiTextCacheEntryRepository;
+import com.example.plantbot.repository.GlobalSettingsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenRouterGlobalSettingsServiceTest {
+  private GlobalSettingsRepository globalSettingsRepository;
+  private OpenRouterGlobalSettingsService service;
+  private GlobalSettings settings;
+
+  @BeforeEach
+  void setUp() {
+    globalSettingsRepository = mock(GlobalSettingsRepository.class);
+    service = new OpenRouterGlobalSettingsService(
+        globalSettingsRepository,
+        mock(AiTextCacheEntryRepository.class),
+        mock(OpenRouterApiKeyCryptoService.class),
+        new PerformanceMetricsService(new SimpleMeterRegistry())
+    );
+    settings = new GlobalSettings();
+    settings.setOpenrouterRetryCount(3);
+    settings.setUpdatedAt(Instant.parse("2026-01-01T00:00:00Z"));
+    when(globalSettingsRepository.findById(1L)).thenReturn(Optional.of(settings));
+    when(globalSettingsRepository.findUpdatedAtById(1L)).thenReturn(Optional.of(settings.getUpdatedAt()));
+  }
+
+  @Test
+  void hotPathAccessorsReadSnapshotWithoutReloading() {
+    assertEquals(3, service.resolveRetryCount());
+    assertEquals(3, service.resolveRetryCount());
+    service.isAiTextCacheEnabled();
+    service.resolveRequestTimeoutMs();
+
+    verify(globalSettingsRepository, times(1)).findById(1L);
+    // Первая сверка версии разрешена сразу, дальше — не чаще интервала.
+    verify(globalSettingsRepository, times(1)).findUpdatedAtById(1L);
+  }
+
+  @Test
+  void invalidationReloadsChangedSettings() {
+    assertEquals(3, service.resolveRetryCount());
+
+    settings.setOpenrouterRetryCount(1);
+    settings.setAiTextCacheEnabled(false);
+    service.invalidateSnapshot();
+
+    assertEquals(1, service.resolveRetryCount());
+    assertFalse(service.isAiTextCacheEnabled());
+    verify(globalSettingsRepository, times(2)).findById(1L);
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.plantbot.service;
+
+import com.example.plantbot.controller.dto.PlantLearningResponse;
+import com.example.plantbot.controller.dto.PlantStatsResponse;
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.repository.WateringLogRepository;
+import com.example.plantbot.service.context.OptionalSensorContextService;
+import com.example.plantbot.service.recommendation.facade.RecommendationFacade;
+import com.example.plantbot.service.recommendation.mapper.LocationContextResolver;
+import com.example.plantbot.service.recommendation.mapper.PlantRecommendationContextMapper;
+import com.example.plantbot.service.recommendation.mapper.RuntimeRecommendationAdapter;
+import com.example.plantbot.service.recommendation.mapper.WeatherContextResolver;
+import com.example.plantbot.service.recommendation.model.LocationContext;
+import com.example.plantbot.service.recommendation.model.LocationSource;
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
+import com.example.plantbot.service.recommendation.model.WeatherContext;
+import com.example.plantbot.util.LearningInfo;
+import com.example.plantbot.util.WateringRecommendation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.OptionalDouble;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlantStatsAggregationServiceTest {
+  private PlantService plantService;
+  private WateringLogRepository wateringLogRepository;
+  private LearningService learningService;
+  private LocationContextResolver locationContextResolver;
+  private WeatherContextResolver weatherContextResolver;
+  private WateringRecommendationService wateringRecommendationService;
+  private PlantStatsAggregationService service;
+
+  private final User user = new User();
+  private Plant ficus;
+  private Plant monstera;
+  private Plant tomato;
+
+  @BeforeEach
+  void setUp() {
+    plantService = mock(PlantService.class);
+    wateringLogRepository = mock(WateringLogRepository.class);
+    learningService = mock(LearningService.class);
+    locationContextResolver = mock(LocationContextResolver.class);
+    weatherContextResolver = mock(WeatherContextResolver.class);
+    wateringRecommendationService = spy(new WateringRecommendationService(
+        learningService,
+        mock(OptionalSensorContextService.class),
+        mock(PlantRecommendationContextMapper.class),
+        mock(RecommendationFacade.class),
+        mock(RuntimeRecommendationAdapter.class),
+        locationContextResolver,
+        weatherContextResolver
+    ));
+    service = new PlantStatsAggregationService(
+        plantService,
+        wateringLogRepository,
+        wateringRecommendationService,
+        learningService,
+        new PerformanceMetricsService(new SimpleMeterRegistry())
+    );
+
+    user.setId(5L);
+    LocalDate today = LocalDate.now();
+    ficus = plant(1L, "Фикус", 7, today.minusDays(10));
+    monstera = plant(2L, "Монстера", 5, today.minusDays(2));
+    tomato = plant(3L, "Томат", 2, today.minusDays(6));
+    when(plantService.list(user)).thenReturn(List.of(ficus, monstera, tomato));
+
+    when(learningService.getAverageInterval(ficus)).thenReturn(OptionalDouble.of(6.5));
+    when(learningService.getSmoothedInterval(ficus)).thenReturn(OptionalDouble.of(6.0));
+    when(learningService.getAverageInterval(monstera)).thenReturn(OptionalDouble.empty());
+    when(learningService.getSmoothedInterval(monstera)).thenReturn(OptionalDouble.empty());
+    when(learningService.getAverageInterval(tomato)).thenReturn(OptionalDouble.of(2.5));
+    when(learningService.getSmoothedInterval(tomato)).thenReturn(OptionalDouble.of(3.0));
+
+    // Фикус и монстера стоят дома в Москве, томат — на даче: две уникальные локации на три растения.
+    LocationContext home = new LocationContext(LocationSource.REQUEST_EXPLICIT, "Moscow", "Moscow", "Moscow", null, 55.7, 37.6);
+    LocationContext dacha = new LocationContext(LocationSource.REQUEST_EXPLICIT, "Tver", "Tver", "Tver", null, 56.8, 35.9);
+    when(locationContextResolver.resolveForPlant(user, ficus)).thenReturn(home);
+    when(locationContextResolver.resolveForPlant(user, monstera)).thenReturn(home);
+    when(locationContextResolver.resolveForPlant(user, tomato)).thenReturn(dacha);
+    when(weatherContextResolver.resolve(eq(user), eq(home), eq(RecommendationFlowType.RUNTIME)))
+        .thenReturn(weather("Moscow", 22.0, 60.0));
+    when(weatherContextResolver.resolve(eq(user), eq(dacha), eq(RecommendationFlowType.RUNTIME)))
+        .thenReturn(weather("Tver", 31.0, 35.0));
+  }
+
+  @Test
+  void batchedStatsMatchPerPlantPath() {
+    when(wateringLogRepository.countByPlant(ficus)).thenReturn(4L);
+    when(wateringLogRepository.countByPlant(monstera)).thenReturn(0L);
+    when(wateringLogRepository.countByPlant(tomato)).thenReturn(11L);
+    when(wateringLogRepository.countByPlantForUser(5L)).thenReturn(List.of(
+        new Object[]{1L, 4L},
+        new Object[]{3L, 11L}
+    ));
+    doAnswer(invocation -> {
+      Plant plant = invocation.getArgument(0);
+      return new WateringRecommendation(plant.getBaseIntervalDays(), 0.3);
+    }).when(wateringRecommendationService).recommendQuick(any(Plant.class), eq(user));
+
+    List<PlantStatsResponse> perPlant = plantService.list(user).stream().map(plant -> {
+      WateringRecommendation rec = wateringRecommendationService.recommendQuick(plant, user);
+      int interval = Math.max(1, (int) Math.floor(rec.intervalDays()));
+      LocalDate due = plant.getLastWateredDate().plusDays(interval);
+      LocalDate today = LocalDate.now();
+      boolean overdue = due.isBefore(today);
+      long overdueDays = overdue ? ChronoUnit.DAYS.between(due, today) : 0;
+      Double avg = wateringRecommendationService.learningInfo(plant, user).avgActualIntervalDays();
+      long total = wateringLogRepository.countByPlant(plant);
+      return new PlantStatsResponse(plant.getId(), plant.getName(), avg, total, overdue, overdueDays);
+    }).toList();
+
+    assertEquals(perPlant, service.stats(user));
+    verify(wateringLogRepository, times(1)).countByPlantForUser(5L);
+  }
+
+  @Test
+  void batchedLearningMatchesPerPlantPathAndResolvesWeatherOncePerLocation() {
+    List<LearningInfo> perPlantInfo = plantService.list(user).stream()
+        .map(plant -> wateringRecommendationService.learningInfo(plant, user))
+        .toList();
+    List<PlantLearningResponse> perPlant = List.of(
+        learning(ficus, perPlantInfo.get(0)),
+        learning(monstera, perPlantInfo.get(1)),
+        learning(tomato, perPlantInfo.get(2))
+    );
+    verify(weatherContextResolver, times(3)).resolve(any(), any(), any());
+
+    List<PlantLearningResponse> batched = service.learning(user);
+
+    assertEquals(perPlant, batched);
+    verify(weatherContextResolver, times(5)).resolve(any(), any(), any());
+  }
+
+  private PlantLearningResponse learning(Plant plant, LearningInfo info) {
+    return new PlantLearningResponse(
+        plant.getId(),
+        plant.getName(),
+        info.baseIntervalDays(),
+        info.avgActualIntervalDays(),
+        info.smoothedIntervalDays(),
+        info.seasonFactor(),
+        info.weatherFactor(),
+        info.potFactor(),
+        info.finalIntervalDays(),
+        plant.getLookupSource()
+    );
+  }
+
+  private Plant plant(Long id, String name, int baseInterval, LocalDate lastWatered) {
+    Plant plant = new Plant();
+    plant.setId(id);
+    plant.setName(name);
+    plant.setUser(user);
+    plant.setBaseIntervalDays(baseInterval);
+    plant.setLastWateredDate(lastWatered);
+    plant.setPotVolumeLiters(2.0);
+    return plant;
+  }
+
+  private WeatherContext weather(String location, double temperature, double humidity) {
+    return new WeatherContext(true, false, false, false, "OPEN_METEO", location, temperature, humidity,
+        0.0, 0.0, temperature + 2.0, null, "HIGH", List.of());
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.plantbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduledJobGuardTest {
+
+  @Test
+  void skipsNestedRunOfSameJobAndCountsOverlap() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ScheduledJobGuard guard = new ScheduledJobGuard(new PerformanceMetricsService(registry));
+    AtomicBoolean nestedResult = new AtomicBoolean(true);
+
+    boolean outer = guard.run("test_job", () -> nestedResult.set(guard.run("test_job", () -> { })));
+
+    assertTrue(outer);
+    assertFalse(nestedResult.get());
+    assertEquals(1.0, registry.counter("plantbot.scheduler.overlaps", "scheduler", "test_job").count());
+  }
+
+  @Test
+  void recordsErrorOutcomeAndReleasesJobAfterFailure() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ScheduledJobGuard guard = new ScheduledJobGuard(new PerformanceMetricsService(registry));
+
+    boolean failed = guard.run("test_job", () -> {
+      throw new IllegalStateException("boom");
+    });
+    boolean next = guard.run("test_job", () -> "success");
+
+    assertFalse(failed);
+    assertTrue(next);
+    assertEquals(1L, registry.timer("plantbot.scheduler.runs", "scheduler", "test_job", "outcome", "error").count());
+    assertEquals(1L, registry.timer("plantbot.scheduler.runs", "scheduler", "test_job", "outcome", "success").count());
+  }
+}
@@ -29,8 +29,11 @@ import com.example.plantbot.service.recommendation.persistence.RecommendationExp
 import com.example.plantbot.service.recommendation.persistence.RecommendationPersistencePlanApplier;
 import com.example.plantbot.service.recommendation.mapper.WeatherContextAdapter;
 import com.example.plantbot.service.recommendation.mapper.WeatherContextResolver;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowComparisonService;
+import com.example.plantbot.service.recommendation.shadow.RecommendationShadowSample;
 import com.example.plantbot.util.LearningInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -44,14 +47,19 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -73,6 +81,8 @@ class ScheduledWateringRecalculationServiceTest {
   private RecommendationSnapshotService recommendationSnapshotService;
   @Mock
   private OutdoorWeatherContextService outdoorWeatherContextService;
+  @Mock
+  private RecommendationShadowComparisonService shadowComparisonService;
 
   private ScheduledWateringRecalculationService service;
 
@@ -96,7 +106,9 @@ class ScheduledWateringRecalculationServiceTest {
         new RecommendationPersistencePlanApplier(),
         recommendationSnapshotService,
         outdoorWeatherContextService,
-        new ObjectMapper()
+        new ObjectMapper(),
+        shadowComparisonService,
+        new ScheduledJobGuard(new PerformanceMetricsService(new SimpleMeterRegistry()))
     );
 
     when(outdoorWeatherContextService.resolve(any(), nullable(String.class), nullable(String.class))).thenReturn(
@@ -178,7 +190,8 @@ class ScheduledWateringRecalculationServiceTest {
             false
         )
     );
-    when(recommendationEngine.recommendForExistingPlant(user, plant)).thenReturn(
+    int baseIntervalBefore = plant.getBaseIntervalDays();
+    when(recommendationEngine.recommendForExistingPlant(any(User.class), any(Plant.class))).thenReturn(
         new WateringRecommendationResponse(
             RecommendationSource.HYBRID,
             PlantEnvironmentType.OUTDOOR_GARDEN,
@@ -197,15 +210,34 @@ class ScheduledWateringRecalculationServiceTest {
         )
     );
 
+    AtomicReference<Supplier<RecommendationShadowSample>> legacyRun = new AtomicReference<>();
+    doAnswer(invocation -> {
+      // Как и настоящий сервис, фабрика копий вызывается синхронно, внутри compareAsync.
+      Supplier<Supplier<RecommendationShadowSample>> factory = invocation.getArgument(3);
+      legacyRun.set(factory.get());
+      return null;
+    }).when(shadowComparisonService).compareAsync(any(), eq(20L), any(), any());
+
     service.scheduledRecalculation();
 
     verify(recommendationFacade).scheduled(any(RecommendationRequestContext.class));
-    verify(recommendationEngine).recommendForExistingPlant(user, plant);
+    verify(shadowComparisonService).compareAsync(any(), eq(20L), any(), any());
     verify(plantService).save(eq(plant));
     verify(recommendationSnapshotService).saveFromPayload(eq(plant), any());
     assertEquals(3, plant.getBaseIntervalDays());
     assertEquals(480, plant.getPreferredWaterMl());
     assertEquals(RecommendationSource.HYBRID, plant.getRecommendationSource());
+
+    // Легаси-прогон видит снимок входов до пересчета, а не управляемое растение.
+    legacyRun.get().get();
+    ArgumentCaptor<Plant> legacyPlant = ArgumentCaptor.forClass(Plant.class);
+    ArgumentCaptor<User> legacyUser = ArgumentCaptor.forClass(User.class);
+    verify(recommendationEngine).recommendForExistingPlant(legacyUser.capture(), legacyPlant.capture());
+    assertNotSame(plant, legacyPlant.getValue());
+    assertNotSame(user, legacyUser.getValue());
+    assertSame(legacyUser.getValue(), legacyPlant.getValue().getUser());
+    assertEquals(20L, legacyPlant.getValue().getId());
+    assertEquals(baseIntervalBefore, legacyPlant.getValue().getBaseIntervalDays());
   }
 
   private Plant plant() {
@@ -96,6 +96,29 @@ class WeatherServiceFallbackTest {
     assertTrue(result.forecast().isEmpty());
   }
 
+  @Test
+  void servesCachedValueAndRefreshesAheadOfExpiry() throws Exception {
+    MutableClient openMeteo = mutableClient(WeatherProvider.OPEN_METEO, true, weather(10.0, 50.0, 0.0), forecast("2026-03-15", 11.0, 0.0));
+    WeatherService service = newService(openMeteo, client(WeatherProvider.MET_NORWAY, true, null, List.of()));
+
+    WeatherFetchResult first = service.fetchWeather("Sochi", null, null, 3, null);
+    assertEquals(10.0, first.current().temperatureC());
+
+    openMeteo.setCurrent(weather(25.0, 40.0, 0.0));
+    putAutoCacheEntry(service, "Sochi", first.current(), first.forecast(), WeatherProvider.OPEN_METEO, Instant.now().plusSeconds(10));
+
+    WeatherFetchResult nearExpiry = service.fetchWeather("Sochi", null, null, 3, null);
+    assertEquals("fresh-cache", nearExpiry.message());
+    assertEquals(10.0, nearExpiry.current().temperatureC());
+
+    WeatherFetchResult refreshed = nearExpiry;
+    for (int i = 0; i < 50 && refreshed.current().temperatureC() != 25.0; i++) {
+      Thread.sleep(20);
+      refreshed = service.fetchWeather("Sochi", null, null, 3, null);
+    }
+    assertEquals(25.0, refreshed.current().temperatureC());
+  }
+
   private WeatherService newService(WeatherProviderClient... clients) {
     WeatherProperties properties = new WeatherProperties();
     properties.setProviderStrategy(WeatherProviderStrategy.AUTO);
@@ -170,12 +193,21 @@ class WeatherServiceFallbackTest {
     }
   }
 
-  @SuppressWarnings("unchecked")
   private void expireAutoCacheEntry(WeatherService service,
                                     String city,
                                     WeatherData current,
                                     List<WeatherForecastDay> forecast,
                                     WeatherProvider provider) {
+    putAutoCacheEntry(service, city, current, forecast, provider, Instant.now().minusSeconds(5));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void putAutoCacheEntry(WeatherService service,
+                                 String city,
+                                 WeatherData current,
+                                 List<WeatherForecastDay> forecast,
+                                 WeatherProvider provider,
+                                 Instant expiresAt) {
     try {
       Field cacheField = WeatherService.class.getDeclaredField("cache");
       cacheField.setAccessible(true);
@@ -197,7 +229,7 @@ class WeatherServiceFallbackTest {
           forecast,
           provider,
           now.minusSeconds(30),
-          now.minusSeconds(5)
+          expiresAt
       );
       cache.put("city:sochi:auto", staleEntry);
     } catch (Exception ex) {
@@ -2,6 +2,7 @@ package com.example.plantbot.service;
 
 import com.example.plantbot.repository.WebPushSubscriptionRepository;
 import com.example.plantbot.service.notification.SmartNotificationFormatter;
+import com.example.plantbot.service.notification.WebPushDeliveryEngine;
 import com.example.plantbot.service.recommendation.model.RecommendationExecutionMode;
 import com.example.plantbot.service.recommendation.model.RecommendationExplainability;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,9 +25,12 @@ class WebPushNotificationServiceTest {
   @Mock
   private SmartNotificationFormatter smartNotificationFormatter;
 
+  @Mock
+  private WebPushDeliveryEngine deliveryEngine;
+
   @Test
   void notificationSnippetUsesMeaningfulSummaryAndFiltersTechnicalOne() {
-    WebPushNotificationService service = new WebPushNotificationService(subscriptionRepository, new ObjectMapper(), smartNotificationFormatter);
+    WebPushNotificationService service = new WebPushNotificationService(subscriptionRepository, new ObjectMapper(), smartNotificationFormatter, deliveryEngine);
 
     String normal = service.toNotificationExplainabilitySnippet(
         new RecommendationExplainability(
@@ -65,7 +69,7 @@ class WebPushNotificationServiceTest {
 
   @Test
   void notificationSnippetFallsBackToManualWeatherAndLearningContributions() {
-    WebPushNotificationService service = new WebPushNotificationService(subscriptionRepository, new ObjectMapper(), smartNotificationFormatter);
+    WebPushNotificationService service = new WebPushNotificationService(subscriptionRepository, new ObjectMapper(), smartNotificationFormatter, deliveryEngine);
 
     String manual = service.toNotificationExplainabilitySnippet(
         new RecommendationExplainability(
@@ -0,0 +1,97 @@
+package com.example.plantbot.service.achievement;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.PlantPlacement;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.domain.WateringLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AchievementEntityListenerTest {
+  private AchievementCounterStore store;
+  private AchievementEntityListener listener;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    store = new AchievementCounterStore();
+    listener = new AchievementEntityListener(store);
+    user = new User();
+    user.setId(3L);
+    store.putIfUnchanged(user.getId(), store.version(user.getId()), AchievementCounters.EMPTY);
+  }
+
+  @Test
+  void tracksPlantLifecycleAndWaterings() {
+    Plant plant = new Plant();
+    plant.setUser(user);
+    plant.setPlacement(PlantPlacement.OUTDOOR);
+    listener.onPersist(plant);
+
+    plant.setPhotoUrl("3/photo.jpg");
+    plant.setLookupSource("openrouter-vision");
+    listener.onUpdate(plant);
+
+    WateringLog log = new WateringLog();
+    log.setPlant(plant);
+    listener.onPersist(log);
+    listener.onPersist(log);
+
+    assertEquals(new AchievementCounters(1, 1, 1, 1, 2L), store.get(user.getId()).orElseThrow());
+
+    listener.onRemove(plant);
+    assertEquals(new AchievementCounters(0, 0, 0, 0, 2L), store.get(user.getId()).orElseThrow());
+  }
+
+  @Test
+  void reconciliationResultIsDroppedWhenDeltaArrivesMeanwhile() {
+    store.clear();
+    long observed = store.version(user.getId());
+
+    Plant plant = new Plant();
+    plant.setUser(user);
+    listener.onPersist(plant);
+    store.putIfUnchanged(user.getId(), observed, AchievementCounters.EMPTY);
+
+    assertTrue(store.get(user.getId()).isEmpty());
+  }
+
+  @Test
+  void reconciliationInsideCommitWindowIsRejected() {
+    AchievementCounters onePlant = new AchievementCounters(1, 0, 0, 0, 0L);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      store.applyDelta(user.getId(), onePlant);
+      // Сверка между коммитом и применением дельты уже видит новое растение в БД.
+      store.putIfUnchanged(user.getId(), store.version(user.getId()), onePlant);
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals(onePlant, store.get(user.getId()).orElseThrow());
+    // После окна сверка снова принимается.
+    store.putIfUnchanged(user.getId(), store.version(user.getId()), AchievementCounters.EMPTY);
+    assertEquals(AchievementCounters.EMPTY, store.get(user.getId()).orElseThrow());
+  }
+
+  @Test
+  void clearDropsVersionsWithCounters() {
+    Plant plant = new Plant();
+    plant.setUser(user);
+    listener.onPersist(plant);
+    long beforeClear = store.version(user.getId());
+
+    store.clear();
+
+    assertEquals(0L, store.version(user.getId()));
+    store.putIfUnchanged(user.getId(), beforeClear, AchievementCounters.EMPTY);
+    assertTrue(store.get(user.getId()).isEmpty());
+  }
+}
@@ -0,0 +1,91 @@
+package com.example.plantbot.service.calendar;
+
+import com.example.plantbot.domain.Plant;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.PlantService;
+import com.example.plantbot.service.WateringRecommendationService;
+import com.example.plantbot.util.WateringRecommendation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WateringCalendarServiceTest {
+  private PlantService plantService;
+  private WateringRecommendationService wateringRecommendationService;
+  private WateringCalendarVersions versions;
+  private WateringCalendarService service;
+  private User user;
+  private Plant plant;
+
+  @BeforeEach
+  void setUp() {
+    plantService = mock(PlantService.class);
+    wateringRecommendationService = mock(WateringRecommendationService.class);
+    versions = new WateringCalendarVersions();
+    service = new WateringCalendarService(
+        plantService,
+        wateringRecommendationService,
+        versions,
+        new PerformanceMetricsService(new SimpleMeterRegistry())
+    );
+    ReflectionTestUtils.setField(service, "projectionMaxEntries", 10);
+    service.init();
+
+    user = new User();
+    user.setId(7L);
+    user.setTelegramId(700L);
+    plant = new Plant();
+    plant.setId(70L);
+    plant.setName("Monstera; big");
+    plant.setUser(user);
+    plant.setLastWateredDate(LocalDate.now());
+    when(plantService.list(user)).thenReturn(List.of(plant));
+    when(wateringRecommendationService.recommendQuick(any(), any())).thenReturn(new WateringRecommendation(7.0, 0.5));
+  }
+
+  @Test
+  void reusesProjectionUntilUserDataChanges() {
+    WateringCalendarService.CalendarProjection first = service.projection(user, 62);
+    WateringCalendarService.CalendarProjection second = service.projection(user, 62);
+
+    assertSame(first, second);
+    assertEquals(8, first.events().size());
+    verify(plantService, times(1)).list(user);
+
+    plant.setLastWateredDate(LocalDate.now().minusDays(3));
+    versions.invalidate(user.getId());
+    WateringCalendarService.CalendarProjection third = service.projection(user, 62);
+
+    assertNotEquals(first.etag(), third.etag());
+    verify(plantService, times(2)).list(user);
+  }
+
+  @Test
+  void writesIcsWithEscapedNames() throws Exception {
+    WateringCalendarService.CalendarProjection projection = service.projection(user, 14);
+    StringWriter writer = new StringWriter();
+
+    service.writeIcs(projection, user, writer);
+
+    String ics = writer.toString();
+    assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\n"));
+    assertTrue(ics.contains("SUMMARY:Полив: Monstera\\; big\r\n"));
+    assertTrue(ics.endsWith("END:VCALENDAR\r\n"));
+  }
+}
@@ -0,0 +1,239 @@
+package com.example.plantbot.service.chat;
+
+import com.example.plantbot.domain.User;
+import com.example.plantbot.service.AiStreamCancellation;
+import com.example.plantbot.service.AiStreamingResponseReader;
+import com.example.plantbot.service.AssistantChatHistoryService;
+import com.example.plantbot.service.OpenRouterPlantAdvisorService;
+import com.example.plantbot.service.PerformanceMetricsService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AssistantChatStreamServiceTest {
+  private OpenRouterPlantAdvisorService advisor;
+  private AssistantChatHistoryService history;
+  private SimpleMeterRegistry meterRegistry;
+  private RecordingEmitter emitter;
+  private AssistantChatStreamService service;
+  private final User user = new User();
+
+  @BeforeEach
+  void setUp() {
+    advisor = mock(OpenRouterPlantAdvisorService.class);
+    history = mock(AssistantChatHistoryService.class);
+    meterRegistry = new SimpleMeterRegistry();
+    emitter = new RecordingEmitter();
+    service = new AssistantChatStreamService(advisor, history, new PerformanceMetricsService(meterRegistry), 1, 4, 60_000L) {
+      @Override
+      SseEmitter newEmitter(long timeoutMs) {
+        return emitter;
+      }
+    };
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  void relaysDeltasAndFinishesWithDoneEvent() throws Exception {
+    when(advisor.streamGardeningAnswer(eq(user), eq("Как поливать?"), isNull(), any(), any())).thenAnswer(invocation -> {
+      Consumer<String> onDelta = invocation.getArgument(3);
+      onDelta.accept("Раз ");
+      onDelta.accept("в неделю");
+      return Optional.of(new OpenRouterPlantAdvisorService.ChatAnswer("Раз в неделю", "test-model"));
+    });
+
+    service.stream(user, "Как поливать?", null);
+
+    assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("delta", "delta", "done"), emitter.eventNames());
+    verify(history).saveAndTrim(user, "Как поливать?", "Раз в неделю", "test-model");
+    assertEquals(1, completions("success"));
+  }
+
+  @Test
+  void emptyAnswerIsReportedAsErrorEvent() throws Exception {
+    when(advisor.streamGardeningAnswer(any(), anyString(), isNull(), any(), any())).thenReturn(Optional.empty());
+
+    service.stream(user, "Как поливать?", null);
+
+    assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("error"), emitter.eventNames());
+    verify(history, never()).saveAndTrim(any(), any(), any(), any());
+  }
+
+  @Test
+  void clientDisconnectClosesStalledProviderStream() throws Exception {
+    StalledBody stalledBody = new StalledBody("data: {\"choices\":[{\"delta\":{\"content\":\"Начало\"}}]}\n\n");
+    CountDownLatch reading = new CountDownLatch(1);
+    AtomicBoolean aborted = new AtomicBoolean();
+    when(advisor.streamGardeningAnswer(any(), anyString(), isNull(), any(), any())).thenAnswer(invocation -> {
+      Consumer<String> onDelta = invocation.getArgument(3);
+      AiStreamCancellation cancellation = invocation.getArgument(4);
+      reading.countDown();
+      try {
+        // Провайдер больше ничего не шлет: без отмены чтение висело бы здесь бесконечно.
+        AiStreamingResponseReader.read(stalledBody, onDelta, cancellation);
+      } catch (AiStreamingResponseReader.StreamAbortedException ex) {
+        aborted.set(true);
+      }
+      return Optional.empty();
+    });
+
+    service.stream(user, "Как поливать?", null);
+    assertTrue(reading.await(5, TimeUnit.SECONDS));
+    waitUntil(() -> emitter.eventNames().contains("delta"));
+    emitter.disconnect();
+
+    waitUntil(() -> completions("client_closed") == 1);
+    assertTrue(aborted.get());
+    assertEquals(List.of("delta"), emitter.eventNames());
+    verify(history, never()).saveAndTrim(any(), any(), any(), any());
+  }
+
+  private long completions(String outcome) {
+    Timer timer = meterRegistry.find("plantbot.assistant.stream").tag("phase", "complete").tag("outcome", outcome).timer();
+    return timer == null ? 0L : timer.count();
+  }
+
+  private void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+      Thread.sleep(20);
+    }
+  }
+
+  private static final class RecordingEmitter extends SseEmitter {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final List<Runnable> closeCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Throwable>> errorCallbacks = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      StringBuilder raw = new StringBuilder();
+      for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+        if (part.getData() instanceof CharSequence text) {
+          raw.append(text);
+        }
+      }
+      String text = raw.toString();
+      int start = text.indexOf("event:");
+      events.add(text.substring(start + "event:".length(), text.indexOf('\n', start)).trim());
+    }
+
+    @Override
+    public synchronized void onTimeout(Runnable callback) {
+      closeCallbacks.add(callback);
+    }
+
+    @Override
+    public synchronized void onCompletion(Runnable callback) {
+      closeCallbacks.add(callback);
+    }
+
+    @Override
+    public synchronized void onError(Consumer<Throwable> callback) {
+      errorCallbacks.add(callback);
+    }
+
+    @Override
+    public synchronized void complete() {
+      closeCallbacks.forEach(Runnable::run);
+      completed.countDown();
+    }
+
+    @Override
+    public synchronized void completeWithError(Throwable ex) {
+      complete();
+    }
+
+    void disconnect() {
+      errorCallbacks.forEach(callback -> callback.accept(new IOException("Broken pipe")));
+    }
+
+    List<String> eventNames() {
+      return List.copyOf(events);
+    }
+  }
+
+  // Как тело ответа JDK HttpClient: после первых байтов чтение блокируется и освобождается только close().
+  private static final class StalledBody extends InputStream {
+    private final byte[] head;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private int position;
+
+    StalledBody(String head) {
+      this.head = head.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+      if (position < head.length) {
+        int count = Math.min(length, head.length - position);
+        System.arraycopy(head, position, buffer, offset, count);
+        position += count;
+        return count;
+      }
+      awaitClose();
+      throw new IOException("closed");
+    }
+
+    @Override
+    public synchronized int available() {
+      return head.length - position;
+    }
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+
+    private void awaitClose() throws IOException {
+      try {
+        if (!closed.await(10, TimeUnit.SECONDS)) {
+          throw new IOException("stalled body was never closed");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException(ex);
+      }
+    }
+  }
+}
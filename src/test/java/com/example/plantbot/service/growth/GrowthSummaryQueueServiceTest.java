@@ -0,0 +1,149 @@
+package com.example.plantbot.service.growth;
+
+import com.example.plantbot.domain.GrowthSummaryJob;
+import com.example.plantbot.domain.User;
+import com.example.plantbot.repository.GrowthSummaryJobRepository;
+import com.example.plantbot.repository.PlantGrowthEntryRepository;
+import com.example.plantbot.repository.UserRepository;
+import com.example.plantbot.service.OpenRouterVisionService;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import com.example.plantbot.service.WebPushNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GrowthSummaryQueueServiceTest {
+  private GrowthSummaryJobRepository jobRepository;
+  private PlantGrowthEntryRepository growthEntryRepository;
+  private UserRepository userRepository;
+  private OpenRouterVisionService openRouterVisionService;
+  private WebPushNotificationService webPushNotificationService;
+  private GrowthSummaryQueueService service;
+  private GrowthSummaryJob job;
+  private User user;
+  private Path photo;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    jobRepository = mock(GrowthSummaryJobRepository.class);
+    growthEntryRepository = mock(PlantGrowthEntryRepository.class);
+    userRepository = mock(UserRepository.class);
+    openRouterVisionService = mock(OpenRouterVisionService.class);
+    webPushNotificationService = mock(WebPushNotificationService.class);
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    service = new GrowthSummaryQueueService(
+        jobRepository,
+        growthEntryRepository,
+        userRepository,
+        openRouterVisionService,
+        webPushNotificationService,
+        metrics,
+        new ScheduledJobGuard(metrics),
+        1,
+        3,
+        30,
+        600
+    );
+
+    job = new GrowthSummaryJob();
+    job.setId(1L);
+    job.setEntryId(10L);
+    job.setUserId(5L);
+    user = new User();
+    user.setId(5L);
+    photo = Files.createTempFile("growth-summary", ".jpg");
+    Files.write(photo, new byte[] {1, 2, 3});
+
+    when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+    when(growthEntryRepository.findSummarySource(10L))
+        .thenReturn(List.<Object[]>of(new Object[] {10L, photo.toString(), "Monstera", 3L}));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    service.shutdown();
+    Files.deleteIfExists(photo);
+  }
+
+  @Test
+  void storesSummaryDeletesJobAndNotifies() {
+    when(openRouterVisionService.requestGrowthSummary(eq(user), anyString(), eq("Monstera"))).thenReturn("Новые листья");
+
+    service.process(1L);
+
+    verify(growthEntryRepository).updateAiSummary(10L, "Новые листья");
+    verify(jobRepository).deleteById(1L);
+    verify(webPushNotificationService).sendGrowthSummaryReady(user, 3L, "Monstera", 10L, "Новые листья");
+  }
+
+  @Test
+  void transientFailureIsRescheduledWithBackoff() {
+    when(openRouterVisionService.requestGrowthSummary(eq(user), anyString(), any()))
+        .thenThrow(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "upstream"));
+
+    service.process(1L);
+
+    verify(jobRepository).reschedule(eq(1L), eq(GrowthSummaryJob.Status.PENDING), eq(1), any(Instant.class), eq("upstream"), any(Instant.class));
+    verify(growthEntryRepository, never()).updateAiSummary(any(), any());
+  }
+
+  @Test
+  void clientErrorFailsImmediately() {
+    when(openRouterVisionService.requestGrowthSummary(eq(user), anyString(), any()))
+        .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "bad image"));
+
+    service.process(1L);
+
+    verify(jobRepository).reschedule(eq(1L), eq(GrowthSummaryJob.Status.FAILED), eq(1), any(Instant.class), eq("bad image"), any(Instant.class));
+  }
+
+  @Test
+  void lastAttemptMarksJobFailed() {
+    job.setAttempts(2);
+    when(openRouterVisionService.requestGrowthSummary(eq(user), anyString(), any()))
+        .thenThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "rate limit"));
+
+    service.process(1L);
+
+    verify(jobRepository).reschedule(eq(1L), eq(GrowthSummaryJob.Status.FAILED), eq(3), any(Instant.class), eq("rate limit"), any(Instant.class));
+  }
+
+  @Test
+  void missingEntryDropsJob() {
+    when(growthEntryRepository.findSummarySource(10L)).thenReturn(List.of());
+
+    service.process(1L);
+
+    verify(jobRepository).deleteById(1L);
+    verify(openRouterVisionService, never()).requestGrowthSummary(any(), any(), any());
+  }
+
+  @Test
+  void backoffGrowsExponentiallyUpToMax() {
+    assertEquals(Duration.ofSeconds(30), service.backoff(1));
+    assertEquals(Duration.ofSeconds(60), service.backoff(2));
+    assertEquals(Duration.ofSeconds(120), service.backoff(3));
+    assertEquals(Duration.ofSeconds(600), service.backoff(10));
+  }
+}
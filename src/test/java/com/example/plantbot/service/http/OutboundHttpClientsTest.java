@@ -0,0 +1,123 @@
+package com.example.plantbot.service.http;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OutboundHttpClientsTest {
+  private SimpleMeterRegistry meterRegistry;
+  private OutboundHttpClients clients;
+  private HttpServer server;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    clients = new OutboundHttpClients(
+        new RestTemplateBuilder(),
+        new PerformanceMetricsService(meterRegistry),
+        1000,
+        4,
+        100
+    );
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void reusesTemplatePerTargetAndTimeout() {
+    RestTemplate first = clients.restTemplate(OutboundHttpClients.OPENROUTER, 15_000);
+    RestTemplate second = clients.restTemplate(OutboundHttpClients.OPENROUTER, 15_000);
+    RestTemplate otherTimeout = clients.restTemplate(OutboundHttpClients.OPENROUTER, 30_000);
+    RestTemplate otherTarget = clients.restTemplate(OutboundHttpClients.OPENAI, 15_000);
+
+    assertSame(first, second);
+    assertNotSame(first, otherTimeout);
+    assertNotSame(first, otherTarget);
+  }
+
+  @Test
+  void registersPoolGaugesPerTarget() {
+    clients.restTemplate(OutboundHttpClients.HOME_ASSISTANT, 10_000);
+
+    assertNotNull(meterRegistry.find("plantbot.outbound.in_flight").tag("target", "home_assistant").gauge());
+    assertNotNull(meterRegistry.find("plantbot.outbound.utilization").tag("target", "home_assistant").gauge());
+    assertEquals(0, clients.inFlight(OutboundHttpClients.HOME_ASSISTANT));
+  }
+
+  @Test
+  void holdsSlotUntilResponseBodyIsClosedAndRejectsWhenExhausted() throws IOException {
+    String url = startServer("pong");
+    OutboundHttpClients limited = new OutboundHttpClients(
+        new RestTemplateBuilder(),
+        new PerformanceMetricsService(meterRegistry),
+        1000,
+        1,
+        50
+    );
+    RestTemplate template = limited.restTemplate(OutboundHttpClients.HOME_ASSISTANT, 5_000);
+
+    // Пока тело первого ответа не дочитано и не закрыто, единственный слот занят.
+    String body = template.execute(url, HttpMethod.GET, null, response -> {
+      assertEquals(1, limited.inFlight(OutboundHttpClients.HOME_ASSISTANT));
+      assertThrows(ResourceAccessException.class, () -> template.getForObject(url, String.class));
+      return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+    });
+
+    assertEquals("pong", body);
+    assertEquals(0, limited.inFlight(OutboundHttpClients.HOME_ASSISTANT));
+    assertEquals(1, phaseCount("pool_wait", "exhausted"));
+    assertEquals(1, phaseCount("total", "success"));
+
+    // После закрытия ответа слот снова свободен.
+    assertEquals("pong", template.getForObject(url, String.class));
+    assertEquals(0, limited.inFlight(OutboundHttpClients.HOME_ASSISTANT));
+    assertEquals(2, phaseCount("pool_wait", "acquired"));
+  }
+
+  private long phaseCount(String phase, String outcome) {
+    Timer timer = meterRegistry.find("plantbot.outbound.http")
+        .tag("target", "home_assistant")
+        .tag("phase", phase)
+        .tag("outcome", outcome)
+        .timer();
+    return timer == null ? 0L : timer.count();
+  }
+
+  private String startServer(String response) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ping", exchange -> {
+      byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    });
+    server.start();
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/ping";
+  }
+}
@@ -0,0 +1,152 @@
+package com.example.plantbot.service.notification;
+
+import com.example.plantbot.domain.NotificationOutboxEntry;
+import com.example.plantbot.repository.NotificationOutboxRepository;
+import com.example.plantbot.repository.PlantRepository;
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import com.example.plantbot.service.WebPushNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationOutboxServiceTest {
+  private NotificationOutboxRepository outboxRepository;
+  private PlantRepository plantRepository;
+  private WebPushNotificationService webPushNotificationService;
+  private NotificationOutboxService service;
+  private LocalDate today;
+
+  @BeforeEach
+  void setUp() {
+    outboxRepository = mock(NotificationOutboxRepository.class);
+    plantRepository = mock(PlantRepository.class);
+    webPushNotificationService = mock(WebPushNotificationService.class);
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    service = new NotificationOutboxService(
+        outboxRepository,
+        plantRepository,
+        webPushNotificationService,
+        metrics,
+        new ScheduledJobGuard(metrics),
+        0,
+        50,
+        1,
+        3,
+        60,
+        600,
+        14
+    );
+    today = LocalDate.now();
+    when(outboxRepository.transition(anyCollection(), eq(NotificationOutboxEntry.Status.PENDING),
+        eq(NotificationOutboxEntry.Status.SENDING), any())).thenReturn(1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  void coalescesDueRemindersOfOneUserIntoSinglePush() {
+    NotificationOutboxEntry first = entry(1L, 7L, 10L, "Monstera");
+    NotificationOutboxEntry second = entry(2L, 7L, 11L, "Ficus");
+    when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByUserIdAscIdAsc(
+        eq(NotificationOutboxEntry.Status.PENDING), any(), any())).thenReturn(List.of(first, second));
+    when(webPushNotificationService.buildWateringDigestPayload(List.of("Monstera", "Ficus"), today)).thenReturn("{\"digest\":true}");
+    when(webPushNotificationService.sendStoredPayload(7L, "{\"digest\":true}"))
+        .thenReturn(new WebPushNotificationService.SendResult(1, 1, "delivered", null, List.of()));
+
+    assertEquals(1, service.dispatch());
+
+    verify(webPushNotificationService).sendStoredPayload(7L, "{\"digest\":true}");
+    verify(outboxRepository).markSent(eq(List.of(1L, 2L)), eq(NotificationOutboxEntry.Status.SENT), any());
+    verify(plantRepository).updateLastReminderDate(List.of(10L, 11L), today);
+  }
+
+  @Test
+  void sendsOnlyEntriesClaimedByThisDispatcher() {
+    NotificationOutboxEntry first = entry(1L, 7L, 10L, "Monstera");
+    NotificationOutboxEntry second = entry(2L, 7L, 11L, "Ficus");
+    // Вторую запись уже перевел в SENDING параллельный диспетчер.
+    when(outboxRepository.transition(eq(List.of(2L)), eq(NotificationOutboxEntry.Status.PENDING),
+        eq(NotificationOutboxEntry.Status.SENDING), any())).thenReturn(0);
+    when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByUserIdAscIdAsc(
+        eq(NotificationOutboxEntry.Status.PENDING), any(), any())).thenReturn(List.of(first, second));
+    when(webPushNotificationService.sendStoredPayload(7L, "{}"))
+        .thenReturn(new WebPushNotificationService.SendResult(1, 1, "delivered", null, List.of()));
+
+    service.dispatch();
+
+    verify(webPushNotificationService, never()).buildWateringDigestPayload(anyList(), any());
+    verify(outboxRepository).markSent(eq(List.of(1L)), eq(NotificationOutboxEntry.Status.SENT), any());
+    verify(plantRepository).updateLastReminderDate(List.of(10L), today);
+  }
+
+  @Test
+  void failedDeliveryIsRescheduledWithBackoff() {
+    NotificationOutboxEntry first = entry(1L, 7L, 10L, "Monstera");
+    when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByUserIdAscIdAsc(
+        eq(NotificationOutboxEntry.Status.PENDING), any(), any())).thenReturn(List.of(first));
+    when(webPushNotificationService.sendStoredPayload(7L, "{}"))
+        .thenReturn(new WebPushNotificationService.SendResult(1, 0, "not-delivered", null, List.of()));
+
+    service.dispatch();
+
+    verify(outboxRepository).reschedule(eq(List.of(1L)), eq(NotificationOutboxEntry.Status.PENDING), eq(1), any(Instant.class),
+        anyString(), any(Instant.class));
+    verify(outboxRepository, never()).markSent(anyCollection(), any(), any());
+    verify(plantRepository, never()).updateLastReminderDate(anyCollection(), any());
+  }
+
+  @Test
+  void missingSubscriptionsFailWithoutRetry() {
+    NotificationOutboxEntry first = entry(1L, 7L, 10L, "Monstera");
+    when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByUserIdAscIdAsc(
+        eq(NotificationOutboxEntry.Status.PENDING), any(), any())).thenReturn(List.of(first));
+    when(webPushNotificationService.sendStoredPayload(7L, "{}"))
+        .thenReturn(new WebPushNotificationService.SendResult(0, 0, "no subscriptions", null, List.of()));
+
+    service.dispatch();
+
+    verify(outboxRepository).reschedule(eq(List.of(1L)), eq(NotificationOutboxEntry.Status.FAILED), anyInt(), any(Instant.class),
+        anyString(), any(Instant.class));
+  }
+
+  @Test
+  void backoffGrowsExponentiallyAndIsCapped() {
+    assertEquals(Duration.ofSeconds(60), service.backoff(1));
+    assertEquals(Duration.ofSeconds(120), service.backoff(2));
+    assertEquals(Duration.ofSeconds(600), service.backoff(10));
+  }
+
+  private NotificationOutboxEntry entry(Long id, Long userId, Long plantId, String plantName) {
+    NotificationOutboxEntry entry = new NotificationOutboxEntry();
+    entry.setId(id);
+    entry.setUserId(userId);
+    entry.setPlantId(plantId);
+    entry.setPlantName(plantName);
+    entry.setReminderDate(today);
+    entry.setIdempotencyKey("watering:" + plantId + ":" + today);
+    entry.setPayloadJson("{}");
+    return entry;
+  }
+}
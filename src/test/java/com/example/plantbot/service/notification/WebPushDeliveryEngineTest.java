@@ -0,0 +1,66 @@
+package com.example.plantbot.service.notification;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class WebPushDeliveryEngineTest {
+  private WebPushDeliveryEngine engine;
+
+  @BeforeEach
+  void setUp() {
+    engine = new WebPushDeliveryEngine(
+        new PerformanceMetricsService(new SimpleMeterRegistry()),
+        "mailto:test@example.com",
+        "",
+        "",
+        2,
+        8,
+        2,
+        100,
+        4,
+        1000,
+        1000,
+        2000
+    );
+    engine.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    engine.shutdown();
+  }
+
+  @Test
+  void providerTagUsesKnownPushServicesOnly() {
+    assertEquals("fcm", WebPushDeliveryEngine.provider("fcm.googleapis.com"));
+    assertEquals("mozilla", WebPushDeliveryEngine.provider("updates.push.services.mozilla.com"));
+    assertEquals("apple", WebPushDeliveryEngine.provider("web.push.apple.com"));
+    assertEquals("other", WebPushDeliveryEngine.provider("push.example.org"));
+  }
+
+  @Test
+  void brokenVapidConfigurationFailsEveryTargetWithoutSending() {
+    List<WebPushDeliveryEngine.PushTarget> targets = List.of(
+        new WebPushDeliveryEngine.PushTarget(1L, "https://fcm.googleapis.com/fcm/send/a", "key", "auth"),
+        new WebPushDeliveryEngine.PushTarget(2L, "https://web.push.apple.com/b", "key", "auth")
+    );
+
+    List<WebPushDeliveryEngine.Delivery> deliveries = engine.deliver(targets, "{}");
+
+    assertEquals(2, deliveries.size());
+    for (WebPushDeliveryEngine.Delivery delivery : deliveries) {
+      assertFalse(delivery.delivered());
+      assertFalse(delivery.gone());
+      assertNotNull(delivery.error());
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.plantbot.service.photo;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoDeliveryServiceTest {
+  @TempDir
+  Path tempDir;
+
+  private PhotoDeliveryService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new PhotoDeliveryService(new PerformanceMetricsService(new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(service, "etagCacheMaxEntries", 10);
+    ReflectionTestUtils.setField(service, "maxAgeSeconds", 3600L);
+    service.init();
+  }
+
+  @Test
+  void etagDependsOnContentNotOnPath() throws Exception {
+    Path first = Files.write(tempDir.resolve("a.jpg"), new byte[] {1, 2, 3});
+    Path second = Files.write(tempDir.resolve("b.jpg"), new byte[] {1, 2, 3});
+    Path other = Files.write(tempDir.resolve("c.jpg"), new byte[] {4, 5, 6});
+
+    PhotoDeliveryService.PhotoFile photo = service.open(first).orElseThrow();
+    assertEquals(3, photo.size());
+    assertTrue(photo.etag().startsWith("\""));
+    assertEquals(photo.etag(), service.open(second).orElseThrow().etag());
+    assertNotEquals(photo.etag(), service.open(other).orElseThrow().etag());
+  }
+
+  @Test
+  void recomputesEtagWhenFileChanges() throws Exception {
+    Path file = Files.write(tempDir.resolve("a.jpg"), new byte[] {1, 2, 3});
+    String before = service.open(file).orElseThrow().etag();
+
+    Files.write(file, new byte[] {9, 9, 9, 9});
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+    assertNotEquals(before, service.open(file).orElseThrow().etag());
+  }
+
+  @Test
+  void missingFileIsEmpty() {
+    assertTrue(service.open(tempDir.resolve("missing.jpg")).isEmpty());
+    assertTrue(service.open(tempDir).isEmpty());
+    assertTrue(service.open(null).isEmpty());
+  }
+
+  @Test
+  void cacheControlIsImmutable() {
+    String header = service.cacheControl().getHeaderValue();
+    assertTrue(header.contains("immutable"));
+    assertTrue(header.contains("max-age=3600"));
+  }
+}
@@ -0,0 +1,107 @@
+package com.example.plantbot.service.photo;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoDerivativeServiceTest {
+  @TempDir
+  Path tempDir;
+
+  private PhotoProcessingService processingService;
+  private PhotoDerivativeService service;
+  private Path original;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    PhotoDeliveryService deliveryService = new PhotoDeliveryService(metrics);
+    ReflectionTestUtils.setField(deliveryService, "etagCacheMaxEntries", 10);
+    ReflectionTestUtils.setField(deliveryService, "maxAgeSeconds", 3600L);
+    deliveryService.init();
+    processingService = new PhotoProcessingService(
+        metrics,
+        new ScheduledJobGuard(metrics),
+        1600,
+        0.82f,
+        900_000,
+        tempDir.resolve("staging").toString(),
+        1,
+        4,
+        30,
+        10_000
+    );
+    service = new PhotoDerivativeService(deliveryService, processingService, metrics, new ScheduledJobGuard(metrics));
+    ReflectionTestUtils.setField(service, "cacheDir", tempDir.resolve("derivatives").toString());
+    ReflectionTestUtils.setField(service, "retentionDays", 30L);
+
+    original = tempDir.resolve("plant.jpg");
+    ImageIO.write(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB), "jpg", original.toFile());
+  }
+
+  @AfterEach
+  void tearDown() {
+    processingService.shutdown();
+  }
+
+  @Test
+  void fullSizeServesOriginal() {
+    PhotoDeliveryService.PhotoFile file = service.open(original, PhotoSize.FULL).orElseThrow();
+    assertEquals(original.toAbsolutePath().normalize(), file.resource().getFile().toPath().toAbsolutePath().normalize());
+  }
+
+  @Test
+  void rendersThumbnailOnceAndReusesIt() throws Exception {
+    PhotoDeliveryService.PhotoFile thumb = service.open(original, PhotoSize.THUMB).orElseThrow();
+    BufferedImage image = ImageIO.read(thumb.resource().getFile());
+    assertEquals(256, image.getWidth());
+    assertTrue(thumb.resource().getFile().toPath().startsWith(tempDir.resolve("derivatives")));
+
+    PhotoDeliveryService.PhotoFile again = service.open(original, PhotoSize.THUMB).orElseThrow();
+    assertEquals(thumb.etag(), again.etag());
+    assertEquals(thumb.lastModified(), again.lastModified());
+
+    PhotoDeliveryService.PhotoFile medium = service.open(original, PhotoSize.MEDIUM).orElseThrow();
+    assertNotEquals(thumb.etag(), medium.etag());
+    assertEquals(768, ImageIO.read(medium.resource().getFile()).getWidth());
+  }
+
+  @Test
+  void cacheHitKeepsDerivativeFromStaleCleanup() throws Exception {
+    Path thumb = service.open(original, PhotoSize.THUMB).orElseThrow().resource().getFile().toPath();
+    Path medium = service.open(original, PhotoSize.MEDIUM).orElseThrow().resource().getFile().toPath();
+    FileTime stale = FileTime.from(Instant.now().minus(Duration.ofDays(40)));
+    Files.setLastModifiedTime(thumb, stale);
+    Files.setLastModifiedTime(medium, stale);
+
+    // Миниатюру снова запросили, средний размер — нет.
+    service.open(original, PhotoSize.THUMB).orElseThrow();
+    service.cleanupStaleDerivatives();
+
+    assertTrue(Files.exists(thumb));
+    assertFalse(Files.exists(medium));
+  }
+
+  @Test
+  void missingOriginalIsEmpty() {
+    assertTrue(service.open(tempDir.resolve("missing.jpg"), PhotoSize.THUMB).isEmpty());
+  }
+}
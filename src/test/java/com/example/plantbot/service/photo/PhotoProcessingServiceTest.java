@@ -0,0 +1,123 @@
+package com.example.plantbot.service.photo;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.ScheduledJobGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoProcessingServiceTest {
+  @TempDir
+  Path tempDir;
+
+  private PhotoProcessingService service;
+
+  @BeforeEach
+  void setUp() {
+    PerformanceMetricsService metrics = new PerformanceMetricsService(new SimpleMeterRegistry());
+    service = new PhotoProcessingService(
+        metrics,
+        new ScheduledJobGuard(metrics),
+        400,
+        0.82f,
+        900_000,
+        tempDir.resolve("staging").toString(),
+        1,
+        4,
+        30,
+        10_000
+    );
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  void compressBase64ScalesDownToLongSide() throws Exception {
+    byte[] jpeg = service.compressBase64("data:image/png;base64," + Base64.getEncoder().encodeToString(png(1800, 900)));
+
+    BufferedImage result = ImageIO.read(new ByteArrayInputStream(jpeg));
+    assertNotNull(result);
+    assertEquals(400, result.getWidth());
+    assertEquals(200, result.getHeight());
+  }
+
+  @Test
+  void compressBase64RejectsInvalidPayload() {
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.compressBase64("%%%"));
+    assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+
+    ResponseStatusException notImage = assertThrows(ResponseStatusException.class,
+        () -> service.compressBase64(Base64.getEncoder().encodeToString(new byte[] {1, 2, 3})));
+    assertEquals(HttpStatus.BAD_REQUEST, notImage.getStatusCode());
+  }
+
+  @Test
+  void multipartJobStoresFileAndCompletes() throws Exception {
+    Path target = tempDir.resolve("photos").resolve("plant-1.jpg");
+    MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", png(600, 600));
+
+    PhotoJob job = service.submit(7L, PhotoJob.Kind.PLANT_PHOTO, 1L, file, target, () -> 42L);
+
+    PhotoJob finished = awaitFinished(7L, job.id());
+    assertEquals(PhotoJob.Status.DONE, finished.status());
+    assertEquals(42L, finished.resultId());
+    assertTrue(Files.exists(target));
+    assertEquals(400, ImageIO.read(target.toFile()).getWidth());
+    try (var staged = Files.list(tempDir.resolve("staging"))) {
+      assertEquals(0, staged.count());
+    }
+    assertTrue(service.findJob(8L, job.id()).isEmpty());
+  }
+
+  @Test
+  void multipartJobFailsForBrokenImage() throws Exception {
+    Path target = tempDir.resolve("photos").resolve("plant-2.jpg");
+    MockMultipartFile file = new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[] {1, 2, 3});
+
+    PhotoJob job = service.submit(7L, PhotoJob.Kind.PLANT_PHOTO, 2L, file, target, () -> 1L);
+
+    PhotoJob finished = awaitFinished(7L, job.id());
+    assertEquals(PhotoJob.Status.FAILED, finished.status());
+    assertFalse(Files.exists(target));
+  }
+
+  private PhotoJob awaitFinished(Long userId, String jobId) throws InterruptedException {
+    for (int i = 0; i < 200; i++) {
+      PhotoJob job = service.findJob(userId, jobId).orElseThrow();
+      if (job.status() != PhotoJob.Status.PENDING) {
+        return job;
+      }
+      Thread.sleep(25);
+    }
+    throw new AssertionError("job did not finish");
+  }
+
+  private static byte[] png(int width, int height) throws Exception {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", out);
+    return out.toByteArray();
+  }
+}
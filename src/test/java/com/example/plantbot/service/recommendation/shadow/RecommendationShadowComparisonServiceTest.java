@@ -0,0 +1,62 @@
+package com.example.plantbot.service.recommendation.shadow;
+
+import com.example.plantbot.service.PerformanceMetricsService;
+import com.example.plantbot.service.recommendation.model.RecommendationFlowType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecommendationShadowComparisonServiceTest {
+  private final RecommendationShadowSample unified = new RecommendationShadowSample(5.0, 300.0, null);
+
+  @Test
+  void inputsAreCopiedOnlyForComparisonsWithinBudget() {
+    RecommendationShadowComparisonService service = service(1.0, 1);
+    AtomicInteger snapshots = new AtomicInteger();
+    Supplier<Supplier<RecommendationShadowSample>> factory = () -> {
+      snapshots.incrementAndGet();
+      return () -> unified;
+    };
+    try {
+      RecommendationShadowRun run = service.beginRun(RecommendationFlowType.NOTIFICATION);
+      for (long plantId = 1; plantId <= 3; plantId++) {
+        service.compareAsync(run, plantId, unified, factory);
+      }
+    } finally {
+      service.shutdown();
+    }
+
+    assertEquals(1, snapshots.get());
+  }
+
+  @Test
+  void unsampledComparisonsDoNotCopyInputs() {
+    RecommendationShadowComparisonService service = service(0.0, 50);
+    AtomicInteger snapshots = new AtomicInteger();
+    try {
+      RecommendationShadowRun run = service.beginRun(RecommendationFlowType.SCHEDULED_RECALCULATION);
+      service.compareAsync(run, 1L, unified, () -> {
+        snapshots.incrementAndGet();
+        return () -> unified;
+      });
+    } finally {
+      service.shutdown();
+    }
+
+    assertEquals(0, snapshots.get());
+  }
+
+  private RecommendationShadowComparisonService service(double sampleRate, int maxPerRun) {
+    return new RecommendationShadowComparisonService(
+        new PerformanceMetricsService(new SimpleMeterRegistry()),
+        true,
+        sampleRate,
+        maxPerRun,
+        10
+    );
+  }
+}
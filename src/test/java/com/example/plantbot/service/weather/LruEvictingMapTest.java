@@ -0,0 +1,40 @@
+package com.example.plantbot.service.weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruEvictingMapTest {
+
+  @Test
+  void evictsLeastRecentlyAccessedKey() {
+    AtomicInteger evictions = new AtomicInteger();
+    LruEvictingMap<String, Integer> map = new LruEvictingMap<>(2, evictions::incrementAndGet);
+    map.put("popular", 1);
+    map.put("one-off", 2);
+    map.get("popular");
+
+    map.put("new", 3);
+
+    assertTrue(map.containsKey("popular"));
+    assertFalse(map.containsKey("one-off"));
+    assertTrue(map.containsKey("new"));
+    assertEquals(1, evictions.get());
+  }
+
+  @Test
+  void overwritingExistingKeyDoesNotEvict() {
+    AtomicInteger evictions = new AtomicInteger();
+    LruEvictingMap<String, Integer> map = new LruEvictingMap<>(2, evictions::incrementAndGet);
+    map.put("a", 1);
+    map.put("b", 2);
+    map.put("a", 3);
+
+    assertEquals(2, map.size());
+    assertEquals(0, evictions.get());
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.plantbot.service.weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RainAccumulatorTest {
+  private static final Instant NOW = Instant.parse("2026-03-15T12:30:00Z");
+
+  @Test
+  void keepsHourlyMaximumAndSumsWithinWindow() {
+    RainAccumulator accumulator = new RainAccumulator();
+    accumulator.record(NOW.minusSeconds(600), 1.0);
+    accumulator.record(NOW, 2.5);
+    accumulator.record(NOW.minusSeconds(3 * 3600L), 4.0);
+    accumulator.record(NOW.minusSeconds(30 * 3600L), 8.0);
+
+    assertEquals(2.5, accumulator.sum(NOW, 1), 0.0001);
+    assertEquals(6.5, accumulator.sum(NOW, 24), 0.0001);
+    assertEquals(14.5, accumulator.sum(NOW, 72), 0.0001);
+  }
+
+  @Test
+  void overwritesBucketsOlderThanRing() {
+    RainAccumulator accumulator = new RainAccumulator();
+    accumulator.record(NOW.minusSeconds(RainAccumulator.HOURS * 3600L), 5.0);
+    accumulator.record(NOW, 1.0);
+
+    assertEquals(1.0, accumulator.sum(NOW, 72), 0.0001);
+    assertEquals(1, accumulator.filledBuckets(NOW));
+  }
+
+  @Test
+  void restoresFromEncodedSnapshot() {
+    RainAccumulator source = new RainAccumulator();
+    source.record(NOW, 1.25);
+    source.record(NOW.minusSeconds(5 * 3600L), 3.0);
+
+    RainAccumulator restored = new RainAccumulator();
+    restored.restore(source.encode(NOW), NOW);
+
+    assertEquals(source.sum(NOW, 72), restored.sum(NOW, 72), 0.0001);
+  }
+}